@@ -7,6 +7,7 @@ plugins {
     alias(libs.plugins.intelliJPlatform) // IntelliJ Platform Gradle Plugin
     alias(libs.plugins.changelog) // Gradle Changelog Plugin
     alias(libs.plugins.qodana) // Gradle Qodana Plugin
+    alias(libs.plugins.jmh) // Gradle JMH Plugin
 }
 
 group = providers.gradleProperty("pluginGroup").get()
@@ -110,6 +111,11 @@ intellijPlatform {
     }
 }
 
+// Configure JMH benchmarks from src/jmh - read more: https://github.com/melix/jmh-gradle-plugin
+jmh {
+    jmhVersion = libs.versions.jmh
+}
+
 // Configure Gradle Changelog Plugin - read more: https://github.com/JetBrains/gradle-changelog-plugin
 changelog {
     groups.empty()
@@ -125,6 +131,23 @@ tasks {
     publishPlugin {
         dependsOn(patchChangelog)
     }
+
+    // Runs the benchmarks of the scan, gitignore, tree text and check state hot paths at 10k, 100k and 1M nodes
+    register<JavaExec>("jmhHotPaths") {
+        group = "benchmark"
+        description = "Runs the hot path benchmarks and writes the results to build/reports/jmh/hot-paths.json"
+        val jmhJar = named<Jar>("jmhJar")
+        dependsOn(jmhJar)
+        classpath(jmhJar.flatMap { it.archiveFile })
+        mainClass = "org.openjdk.jmh.Main"
+        val report = layout.buildDirectory.file("reports/jmh/hot-paths.json")
+        doFirst { report.get().asFile.parentFile.mkdirs() }
+        args(
+            "(TreeScan|ShouldIgnoreFile|TreeText|CheckPropagation)Benchmark",
+            "-rf", "json",
+            "-rff", report.get().asFile.absolutePath,
+        )
+    }
 }
 
 intellijPlatformTesting {
@@ -0,0 +1,138 @@
+package com.github.hichemtabtech.jettreemark.gitignore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the compiled {@link GitignoreMatcher} with the previous per-pattern loop
+ * (one regex compiled per file and wildcard pattern) on 100k paths against 500 rules.
+ * <p>
+ * Run with {@code ./gradlew jmh -Pjmh.includes=GitignoreMatcherBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GitignoreMatcherBenchmark {
+    private static final int PATH_COUNT = 100_000;
+    private static final int RULE_COUNT = 500;
+
+    private static final String[] WORDS = {
+            "src", "main", "test", "build", "dist", "out", "lib", "docs", "assets", "config",
+            "app", "core", "util", "model", "view", "service", "api", "web", "tmp", "cache"
+    };
+    private static final String[] EXTENSIONS = {
+            "java", "kt", "xml", "json", "md", "txt", "log", "class", "jar", "png",
+            "js", "ts", "css", "html", "yml", "properties", "gz", "zip", "bak", "tmp"
+    };
+
+    private String[] names;
+    private String[] relativePaths;
+    private boolean[] directories;
+    private Set<String> patterns;
+    private GitignoreMatcher matcher;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+
+        patterns = new LinkedHashSet<>();
+        while (patterns.size() < RULE_COUNT) {
+            String word = WORDS[random.nextInt(WORDS.length)] + random.nextInt(200);
+            switch (random.nextInt(6)) {
+                case 0 -> patterns.add(word);
+                case 1 -> patterns.add(word + "/");
+                case 2 -> patterns.add("*." + EXTENSIONS[random.nextInt(EXTENSIONS.length)] + random.nextInt(50));
+                case 3 -> patterns.add(word + "*." + EXTENSIONS[random.nextInt(EXTENSIONS.length)]);
+                case 4 -> patterns.add("/" + word);
+                default -> patterns.add(word + "?");
+            }
+        }
+        matcher = GitignoreMatcher.compile(patterns);
+
+        names = new String[PATH_COUNT];
+        relativePaths = new String[PATH_COUNT];
+        directories = new boolean[PATH_COUNT];
+        for (int i = 0; i < PATH_COUNT; i++) {
+            StringBuilder path = new StringBuilder();
+            int depth = 1 + random.nextInt(6);
+            String name = null;
+            for (int d = 0; d < depth; d++) {
+                name = WORDS[random.nextInt(WORDS.length)] + random.nextInt(300);
+                if (d > 0) {
+                    path.append('/');
+                }
+                path.append(name);
+            }
+            directories[i] = random.nextInt(4) == 0;
+            if (!directories[i]) {
+                name = name + "." + EXTENSIONS[random.nextInt(EXTENSIONS.length)];
+                path.append('.').append(EXTENSIONS[random.nextInt(EXTENSIONS.length)]);
+            }
+            names[i] = name;
+            relativePaths[i] = path.toString();
+        }
+    }
+
+    @Benchmark
+    public int compiledMatcher() {
+        int ignored = 0;
+        boolean needsPath = matcher.needsRelativePath();
+        for (int i = 0; i < PATH_COUNT; i++) {
+            if (matcher.isIgnored(names[i], needsPath ? relativePaths[i] : null, directories[i])) {
+                ignored++;
+            }
+        }
+        return ignored;
+    }
+
+    @Benchmark
+    public int legacyPatternLoop() {
+        int ignored = 0;
+        for (int i = 0; i < PATH_COUNT; i++) {
+            if (legacyShouldIgnore(names[i], "/" + relativePaths[i], directories[i])) {
+                ignored++;
+            }
+        }
+        return ignored;
+    }
+
+    // The matching loop TreeBuilderWorker.shouldIgnoreFile used before the matcher was compiled
+    private boolean legacyShouldIgnore(String name, String relativePath, boolean directory) {
+        for (String pattern : patterns) {
+            if (pattern.equals(name)) {
+                return true;
+            }
+            if (pattern.endsWith("/") && directory && pattern.substring(0, pattern.length() - 1).equals(name)) {
+                return true;
+            }
+            if (pattern.contains("*")) {
+                String regex = pattern.replace(".", "\\.").replace("*", ".*");
+                if (name.matches(regex)) {
+                    return true;
+                }
+            }
+            if (pattern.startsWith("/") || pattern.startsWith("./")) {
+                if (relativePath.startsWith(pattern)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,117 @@
+package com.github.hichemtabtech.jettreemark.scan;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Compares the sequential stack-based walk with {@link DirectoryScanner} on a generated folder tree
+ * of about 1,500 folders and 15,000 files. A per-folder delay simulates the listing latency
+ * of a network or container file system, which is where listing siblings in parallel pays off.
+ * <p>
+ * Run with {@code ./gradlew jmh -Pjmh.includes=DirectoryScannerBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DirectoryScannerBenchmark {
+    private static final int FANOUT = 6;
+    private static final int DEPTH = 4;
+    private static final int FILES_PER_FOLDER = 10;
+
+    @Param({"0", "200"})
+    public int listingLatencyMicros;
+
+    @Param({"2", "4", "8"})
+    public int parallelism;
+
+    private Path root;
+
+    @Setup
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("jettreemark-scan");
+        createFolder(root, 0);
+    }
+
+    private static void createFolder(Path folder, int depth) throws IOException {
+        for (int i = 0; i < FILES_PER_FOLDER; i++) {
+            Files.createFile(folder.resolve("file" + i + ".txt"));
+        }
+        if (depth < DEPTH) {
+            for (int i = 0; i < FANOUT; i++) {
+                createFolder(Files.createDirectory(folder.resolve("dir" + i)), depth + 1);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private List<Path> list(Path folder, LongAdder files) {
+        if (listingLatencyMicros > 0) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(listingLatencyMicros));
+        }
+        List<Path> subFolders = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(folder)) {
+            for (Path entry : entries) {
+                if (Files.isDirectory(entry)) {
+                    subFolders.add(entry);
+                } else {
+                    files.increment();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return subFolders;
+    }
+
+    @Benchmark
+    public long sequentialWalk() {
+        LongAdder files = new LongAdder();
+        List<Path> stack = new ArrayList<>();
+        stack.add(root);
+        while (!stack.isEmpty()) {
+            stack.addAll(list(stack.remove(stack.size() - 1), files));
+        }
+        return files.sum();
+    }
+
+    @Benchmark
+    public long forkJoinScan() {
+        LongAdder files = new LongAdder();
+        new DirectoryScanner(parallelism).scan(List.of(root), folder -> list(folder, files));
+        return files.sum();
+    }
+}
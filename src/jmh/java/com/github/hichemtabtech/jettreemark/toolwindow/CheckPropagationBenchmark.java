@@ -0,0 +1,71 @@
+package com.github.hichemtabtech.jettreemark.toolwindow;
+
+import com.github.hichemtabtech.jettreemark.gitignore.GitignoreRules;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the check state operations of the tree view on a loaded {@link TreeFixture}, held as
+ * {@link CheckboxTreeNode} objects and by {@link CompactTreeModel}: checking and unchecking a whole tree,
+ * and toggling the first folder of the root, about a quarter of the tree, with its children and parents.
+ * Every operation walks the same nodes each time, so the tree is built once per trial.
+ * <p>
+ * Run with {@code ./gradlew jmh -Pjmh.includes=CheckPropagationBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CheckPropagationBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int nodeCount;
+
+    @Param({"CheckboxTreeNode", "CompactTreeModel"})
+    public String representation;
+
+    private CheckableTreeModel model;
+    private Object root;
+    private Object folder;
+    private int folderState = CheckboxTreeNode.CHECKED;
+
+    @Setup
+    public void setUp() {
+        // Without gitignore rules, so that no placeholder cuts the walks short
+        model = TreeFixture.generate(nodeCount).build(representation, GitignoreRules.EMPTY);
+        root = model.getRoot();
+        folder = model.getChild(root, 0);
+    }
+
+    @Benchmark
+    public int checkAll() {
+        model.checkAll(root, true);
+        return model.getCheckState(root);
+    }
+
+    @Benchmark
+    public int uncheckAll() {
+        model.uncheckAll(root, true);
+        return model.getCheckState(root);
+    }
+
+    @Benchmark
+    public int setCheckState() {
+        folderState = folderState == CheckboxTreeNode.CHECKED ? CheckboxTreeNode.UNCHECKED : CheckboxTreeNode.CHECKED;
+        model.setCheckState(folder, folderState, true, true);
+        return model.getCheckState(root);
+    }
+}
@@ -0,0 +1,73 @@
+package com.github.hichemtabtech.jettreemark.toolwindow;
+
+import com.github.hichemtabtech.jettreemark.gitignore.GitignoreRules;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.github.hichemtabtech.jettreemark.gitignore.GitignoreFiles.joinPath;
+
+/**
+ * Measures the gitignore check a scan runs on each listed entry, over every entry of a {@link TreeFixture}
+ * against the rules of its root {@code .gitignore}. The folder paths are computed beforehand, as the scan
+ * carries them down from folder to folder.
+ * <p>
+ * Run with {@code ./gradlew jmh -Pjmh.includes=ShouldIgnoreFileBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShouldIgnoreFileBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int nodeCount;
+
+    private String[] names;
+    private boolean[] directories;
+    private String[] folderPaths;
+    private GitignoreRules rules;
+
+    @Setup
+    public void setUp() {
+        TreeFixture fixture = TreeFixture.generate(nodeCount);
+        names = new String[nodeCount - 1];
+        directories = new boolean[nodeCount - 1];
+        folderPaths = new String[nodeCount - 1];
+        String[] paths = new String[nodeCount];
+        paths[0] = "";
+        for (int node = 1; node < nodeCount; node++) {
+            String folderPath = paths[fixture.getParent(node)];
+            names[node - 1] = fixture.getName(node);
+            directories[node - 1] = fixture.isFolder(node);
+            folderPaths[node - 1] = folderPath;
+            if (fixture.isFolder(node)) {
+                paths[node] = joinPath(folderPath, fixture.getName(node));
+            }
+        }
+        rules = TreeFixture.getGitignoreRules();
+    }
+
+    @Benchmark
+    public int shouldIgnoreFile() {
+        int ignored = 0;
+        for (int i = 0; i < names.length; i++) {
+            if (TreeViewPanel.isGitignored(names[i], directories[i], folderPaths[i], rules)) {
+                ignored++;
+            }
+        }
+        return ignored;
+    }
+}
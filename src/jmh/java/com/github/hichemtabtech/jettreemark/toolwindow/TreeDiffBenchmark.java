@@ -0,0 +1,57 @@
+package com.github.hichemtabtech.jettreemark.toolwindow;
+
+import com.github.hichemtabtech.jettreemark.gitignore.GitignoreRules;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the comparison of two tabs on loaded {@link TreeFixture} trees. The right tree is a larger
+ * fixture, which holds the left one and adds entries to its deepest folders, so both trees are walked in full.
+ * The children of a fixture folder are not in name order, so every folder also takes the sorting path.
+ * <p>
+ * Run with {@code ./gradlew jmh -Pjmh.includes=TreeDiffBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TreeDiffBenchmark {
+
+    @Param({"10000", "200000"})
+    public int nodeCount;
+
+    @Param({"0", "1", "10"})
+    public int addedPercent;
+
+    @Param({"CheckboxTreeNode", "CompactTreeModel"})
+    public String representation;
+
+    private CheckableTreeModel left;
+    private CheckableTreeModel right;
+
+    @Setup
+    public void setUp() {
+        left = TreeFixture.generate(nodeCount).build(representation, GitignoreRules.EMPTY);
+        right = TreeFixture.generate(nodeCount + nodeCount * addedPercent / 100)
+                .build(representation, GitignoreRules.EMPTY);
+    }
+
+    @Benchmark
+    public int compare() {
+        TreeDiff diff = TreeDiff.compare(left, right);
+        return diff.getAddedCount() + diff.getChangedCount();
+    }
+}
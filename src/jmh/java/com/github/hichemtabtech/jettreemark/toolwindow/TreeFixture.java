@@ -0,0 +1,207 @@
+package com.github.hichemtabtech.jettreemark.toolwindow;
+
+import com.github.hichemtabtech.jettreemark.gitignore.GitignoreRules;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static com.github.hichemtabtech.jettreemark.gitignore.GitignoreFiles.joinPath;
+
+/**
+ * A synthetic project tree for the hot path benchmarks, the same for a given size on every run.
+ * <p>
+ * The tree is laid out breadth-first with 4 sub-folders and 8 files per folder, so the children of a
+ * node are consecutive. Names come from a small set of usual project names, made unique within their
+ * folder, and a few percent of them match the patterns of the root {@code .gitignore}: build output,
+ * dependencies, logs and class files. Each name is a fresh string, like the ones the virtual file
+ * system hands out.
+ * <p>
+ * Run {@link #main} to write a tree on disk, to try the plugin on it.
+ */
+final class TreeFixture {
+    private static final int FOLDERS_PER_FOLDER = 4;
+    private static final int FILES_PER_FOLDER = 8;
+    private static final int IGNORED_PERCENT = 4;
+
+    private static final String[] FOLDER_NAMES = {
+            "src", "main", "test", "java", "kotlin", "resources", "lib", "util", "core", "model",
+            "view", "api", "service", "config", "docs", "assets", "scripts", "components", "web", "common"
+    };
+    private static final String[] IGNORED_FOLDER_NAMES = {"build", "node_modules", "target", "out", ".gradle"};
+    private static final String[] FILE_NAMES = {
+            "index.ts", "App.java", "README.md", "pom.xml", "build.gradle.kts", "package.json", "Main.java",
+            "Util.kt", "style.css", "logo.png", "config.yml", "module-info.java", "Service.kt", "settings.json",
+            "LICENSE", "index.html", "Dockerfile", "schema.sql", "messages.properties", "test.py"
+    };
+    private static final String[] IGNORED_FILE_NAMES = {"debug.log", "Main.class", ".env", "npm-debug.log"};
+
+    /**
+     * The patterns of the root {@code .gitignore}. The anchored one makes the scan build relative paths.
+     */
+    static final List<String> GITIGNORE_PATTERNS = List.of(
+            "build/", "node_modules/", "target/", "out/", ".gradle/", "*.log", "*.class", ".env", "/dist/");
+
+    private final String[] names;
+    private final boolean[] folders;
+    private final int[] parents;
+    private final int[] firstChildren;
+    private final int[] childCounts;
+
+    private TreeFixture(int nodeCount) {
+        names = new String[nodeCount];
+        folders = new boolean[nodeCount];
+        parents = new int[nodeCount];
+        firstChildren = new int[nodeCount];
+        childCounts = new int[nodeCount];
+    }
+
+    /**
+     * @param nodeCount the number of nodes, the root included
+     * @return the tree of that size
+     */
+    static TreeFixture generate(int nodeCount) {
+        if (nodeCount < 1) {
+            throw new IllegalArgumentException("Invalid node count: " + nodeCount);
+        }
+        TreeFixture fixture = new TreeFixture(nodeCount);
+        Random random = new Random(42);
+        fixture.names[0] = "project";
+        fixture.folders[0] = true;
+        fixture.parents[0] = -1;
+
+        int size = 1;
+        for (int folder = 0; folder < size && size < nodeCount; folder++) {
+            if (!fixture.folders[folder]) {
+                continue;
+            }
+            fixture.firstChildren[folder] = size;
+            Set<String> taken = new HashSet<>();
+            for (int i = 0; i < FOLDERS_PER_FOLDER + FILES_PER_FOLDER && size < nodeCount; i++, size++) {
+                boolean isFolder = i < FOLDERS_PER_FOLDER;
+                String[] pool = random.nextInt(100) < IGNORED_PERCENT
+                        ? isFolder ? IGNORED_FOLDER_NAMES : IGNORED_FILE_NAMES
+                        : isFolder ? FOLDER_NAMES : FILE_NAMES;
+                fixture.names[size] = uniqueName(pool[random.nextInt(pool.length)], taken);
+                fixture.folders[size] = isFolder;
+                fixture.parents[size] = folder;
+                fixture.childCounts[folder]++;
+            }
+        }
+        return fixture;
+    }
+
+    private static String uniqueName(String name, Set<String> taken) {
+        String unique = new String(name);
+        for (int copy = 2; !taken.add(unique); copy++) {
+            int dot = name.indexOf('.', 1);
+            unique = dot < 0 ? name + copy : name.substring(0, dot) + copy + name.substring(dot);
+        }
+        return unique;
+    }
+
+    /**
+     * @return the rules of the root {@code .gitignore}
+     */
+    static GitignoreRules getGitignoreRules() {
+        return GitignoreRules.EMPTY.withPatterns("", GITIGNORE_PATTERNS);
+    }
+
+    int size() {
+        return names.length;
+    }
+
+    String getName(int node) {
+        return names[node];
+    }
+
+    boolean isFolder(int node) {
+        return folders[node];
+    }
+
+    int getParent(int node) {
+        return parents[node];
+    }
+
+    int getFirstChild(int node) {
+        return firstChildren[node];
+    }
+
+    int getChildCount(int node) {
+        return childCounts[node];
+    }
+
+    /**
+     * Builds the whole tree in one go, with the entries matching the rules unchecked as a scan leaves them.
+     *
+     * @param representation "CheckboxTreeNode" or "CompactTreeModel"
+     * @param rules the gitignore rules, {@link GitignoreRules#EMPTY} to keep everything checked
+     * @return the loaded model
+     */
+    CheckableTreeModel build(String representation, GitignoreRules rules) {
+        CheckableTreeModel model = "CompactTreeModel".equals(representation)
+                ? new CompactTreeModel(names[0], true)
+                : new CheckboxTreeModel(new CheckboxTreeNode(names[0], true));
+        Object[] nodes = new Object[names.length];
+        String[] paths = new String[names.length];
+        nodes[0] = model.getRoot();
+        paths[0] = "";
+        for (int folder = 0; folder < names.length; folder++) {
+            if (!folders[folder]) {
+                continue;
+            }
+            for (int child = firstChildren[folder]; child < firstChildren[folder] + childCounts[folder]; child++) {
+                nodes[child] = model.addChild(nodes[folder], names[child], folders[child]);
+                if (TreeViewPanel.isGitignored(names[child], folders[child], paths[folder], rules)) {
+                    model.setCheckState(nodes[child], CheckboxTreeNode.UNCHECKED, false, false);
+                    model.setIgnored(nodes[child], folders[child]);
+                }
+                if (folders[child]) {
+                    paths[child] = joinPath(paths[folder], names[child]);
+                }
+            }
+        }
+        return model;
+    }
+
+    /**
+     * Creates the tree below a folder, with its {@code .gitignore}.
+     *
+     * @param root an empty folder
+     * @throws IOException if a file cannot be created
+     */
+    void writeTo(Path root) throws IOException {
+        Path[] paths = new Path[names.length];
+        paths[0] = root;
+        Files.write(root.resolve(".gitignore"), GITIGNORE_PATTERNS);
+        for (int node = 1; node < names.length; node++) {
+            paths[node] = paths[parents[node]].resolve(names[node]);
+            if (folders[node]) {
+                Files.createDirectory(paths[node]);
+            } else {
+                Files.createFile(paths[node]);
+            }
+        }
+    }
+
+    /**
+     * Writes a tree on disk.
+     *
+     * @param args the folder to create and, optionally, the number of nodes, 100000 by default
+     * @throws IOException if the tree cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: TreeFixture <folder> [node count]");
+            System.exit(1);
+        }
+        int nodeCount = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        Path root = Files.createDirectories(Path.of(args[0]));
+        generate(nodeCount).writeTo(root);
+        System.out.println(nodeCount + " entries written in " + root.toAbsolutePath());
+    }
+}
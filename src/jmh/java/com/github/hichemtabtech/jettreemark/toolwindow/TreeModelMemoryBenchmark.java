@@ -0,0 +1,126 @@
+package com.github.hichemtabtech.jettreemark.toolwindow;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the heap retained by a tree of one million nodes held as {@link CheckboxTreeNode} objects,
+ * as the tree view did so far, with the same tree held by {@link CompactTreeModel}.
+ * <p>
+ * The tree is built breadth-first with 4 sub-folders and 8 files per folder. File and folder names
+ * repeat from one folder to the next, as {@code index.ts} or {@code src} do in real projects, and each
+ * name is a fresh string like the ones the virtual file system hands out. The folders left over when
+ * the node count is reached are not read: each gets a loader holding the folder and its name, as a scan
+ * stopped by its depth or entry limit leaves them. The retained size is measured after a full GC and
+ * reported as the {@code retainedBytes} counter, next to the build time.
+ * <p>
+ * Run with {@code ./gradlew jmh -Pjmh.includes=TreeModelMemoryBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TreeModelMemoryBenchmark {
+    private static final int FOLDERS_PER_FOLDER = 4;
+    private static final int FILES_PER_FOLDER = 8;
+
+    @Param({"1000000"})
+    public int nodeCount;
+
+    @Param({"CheckboxTreeNode", "CompactTreeModel"})
+    public String representation;
+
+    /**
+     * Heap retained by the tree built in the last invocation.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long retainedBytes;
+    }
+
+    @Benchmark
+    public Object buildTree(Footprint footprint) {
+        long before = usedHeap();
+        Object tree = "CompactTreeModel".equals(representation) ? buildCompactModel() : buildNodes();
+        footprint.retainedBytes = usedHeap() - before;
+        return tree;
+    }
+
+    private CheckboxTreeNode buildNodes() {
+        CheckboxTreeNode root = new CheckboxTreeNode("root", true);
+        Deque<CheckboxTreeNode> folders = new ArrayDeque<>();
+        folders.add(root);
+        int nodes = 1;
+        while (nodes < nodeCount && !folders.isEmpty()) {
+            CheckboxTreeNode folder = folders.poll();
+            for (int i = 0; i < FOLDERS_PER_FOLDER + FILES_PER_FOLDER && nodes < nodeCount; i++, nodes++) {
+                boolean isFolder = i < FOLDERS_PER_FOLDER;
+                CheckboxTreeNode child = new CheckboxTreeNode(childName(i), isFolder);
+                folder.add(child);
+                if (isFolder) {
+                    folders.add(child);
+                }
+            }
+        }
+        for (CheckboxTreeNode folder : folders) {
+            String name = String.valueOf(folder.getUserObject());
+            folder.setChildrenLoader(node -> readFolder(folder, name));
+        }
+        return root;
+    }
+
+    private CompactTreeModel buildCompactModel() {
+        CompactTreeModel model = new CompactTreeModel("root", true);
+        Deque<Object> folders = new ArrayDeque<>();
+        folders.add(model.getRoot());
+        int nodes = 1;
+        while (nodes < nodeCount && !folders.isEmpty()) {
+            Object folder = folders.poll();
+            for (int i = 0; i < FOLDERS_PER_FOLDER + FILES_PER_FOLDER && nodes < nodeCount; i++, nodes++) {
+                boolean isFolder = i < FOLDERS_PER_FOLDER;
+                Object child = model.addChild(folder, childName(i), isFolder);
+                if (isFolder) {
+                    folders.add(child);
+                }
+            }
+        }
+        for (Object folder : folders) {
+            String name = model.getName(folder);
+            model.setChildrenLoader(folder, (loadingModel, node) -> readFolder(folder, name));
+        }
+        return model;
+    }
+
+    private static String childName(int i) {
+        // A new string each time, the same text in every folder
+        return i < FOLDERS_PER_FOLDER ? "folder-" + i : "file-" + (i - FOLDERS_PER_FOLDER) + ".txt";
+    }
+
+    private static void readFolder(Object folder, String name) {
+        throw new UnsupportedOperationException("Folder " + name + " is never read: " + folder);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,128 @@
+package com.github.hichemtabtech.jettreemark.toolwindow;
+
+import com.github.hichemtabtech.jettreemark.gitignore.GitignoreRules;
+import com.github.hichemtabtech.jettreemark.scan.DirectoryScanner;
+import com.github.hichemtabtech.jettreemark.scan.ScanProgress;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.github.hichemtabtech.jettreemark.gitignore.GitignoreFiles.joinPath;
+
+/**
+ * Measures a full scan of a {@link TreeFixture} into a {@link CompactTreeModel}, the way a new tab reads
+ * a folder: the root is listed first, then each of its sub-folders is read into a loading copy by
+ * {@link DirectoryScanner}, several folders of a copy at a time, and handed back to the model. Each listed
+ * entry goes through the gitignore check and is unchecked if it matches, gitignored folders stay unread
+ * placeholders.
+ * <p>
+ * The listing comes from memory, so the numbers are the cost of the plugin itself, not of the file system.
+ * Comparing {@code gitignore} true and false gives the cost of the gitignore pass, which runs while each
+ * folder is listed rather than as a separate walk of the finished tree.
+ * <p>
+ * Run with {@code ./gradlew jmh -Pjmh.includes=TreeScanBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TreeScanBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int nodeCount;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    @Param({"true", "false"})
+    public boolean gitignore;
+
+    private TreeFixture fixture;
+    private GitignoreRules rules;
+
+    @Setup
+    public void setUp() {
+        fixture = TreeFixture.generate(nodeCount);
+        rules = gitignore ? TreeFixture.getGitignoreRules() : GitignoreRules.EMPTY;
+    }
+
+    @Benchmark
+    public long scan() {
+        CompactTreeModel model = new CompactTreeModel(fixture.getName(0), true);
+        LongAdder entries = new LongAdder();
+        model.setChildrenLoader(model.getRoot(), loader(0, "", entries));
+        model.ensureChildrenLoaded(model.getRoot());
+
+        List<Object> nodes = new ArrayList<>();
+        List<CheckableTreeModel> copies = new ArrayList<>();
+        for (int i = 0; i < model.getChildCount(model.getRoot()); i++) {
+            Object child = model.getChild(model.getRoot(), i);
+            CheckableTreeModel copy = model.isIgnored(child) ? null : model.createLoadingCopy(child);
+            if (copy != null) {
+                nodes.add(child);
+                copies.add(copy);
+            }
+        }
+        TreeViewPanel.loadCopies(copies, (copy, folder) -> !copy.isIgnored(folder), parallelism, new ScanProgress());
+        for (int i = 0; i < nodes.size(); i++) {
+            model.adoptChildren(nodes.get(i), copies.get(i));
+        }
+        return entries.sum();
+    }
+
+    /**
+     * Lists a folder of the fixture like the tree view lists a folder of the file system.
+     */
+    private CheckableTreeModel.ChildrenLoader loader(int folder, String folderPath, LongAdder entries) {
+        return new CheckableTreeModel.ChildrenLoader() {
+            @Override
+            public void loadChildren(@NotNull CheckableTreeModel model, @NotNull Object node) {
+                read().loadChildren(model, node);
+            }
+
+            @Override
+            public @NotNull CheckableTreeModel.ChildrenLoader read() {
+                // The gitignore check runs while reading, outside the lock of the copy
+                int first = fixture.getFirstChild(folder);
+                int count = fixture.getChildCount(folder);
+                boolean[] ignored = new boolean[count];
+                for (int i = 0; i < count; i++) {
+                    ignored[i] = TreeViewPanel.isGitignored(fixture.getName(first + i), fixture.isFolder(first + i),
+                            folderPath, rules);
+                }
+                return (model, node) -> {
+                    for (int i = 0; i < count; i++) {
+                        int child = first + i;
+                        String name = fixture.getName(child);
+                        boolean directory = fixture.isFolder(child);
+                        Object childNode = model.addChild(node, name, directory);
+                        if (ignored[i]) {
+                            model.setCheckState(childNode, CheckboxTreeNode.UNCHECKED, false, false);
+                            model.setIgnored(childNode, directory);
+                        }
+                        if (directory) {
+                            model.setChildrenLoader(childNode, loader(child, joinPath(folderPath, name), entries));
+                        }
+                    }
+                    entries.add(count);
+                };
+            }
+        };
+    }
+}
@@ -0,0 +1,52 @@
+package com.github.hichemtabtech.jettreemark.toolwindow;
+
+import com.github.hichemtabtech.jettreemark.export.TreeTextWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the text generation behind "Copy Tree" on a loaded {@link TreeFixture}, with its
+ * gitignored entries unchecked, so the pass skips them as it does in a real project.
+ * <p>
+ * Run with {@code ./gradlew jmh -Pjmh.includes=TreeTextBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TreeTextBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int nodeCount;
+
+    @Param({"CheckboxTreeNode", "CompactTreeModel"})
+    public String representation;
+
+    private CheckableTreeModel model;
+
+    @Setup
+    public void setUp() {
+        model = TreeFixture.generate(nodeCount).build(representation, TreeFixture.getGitignoreRules());
+    }
+
+    @Benchmark
+    public int generateTreeText() throws IOException {
+        StringBuilder text = new StringBuilder();
+        TreeViewPanel.writeTree(new TreeTextWriter(text), model, model.getRoot(), true);
+        return text.length();
+    }
+}
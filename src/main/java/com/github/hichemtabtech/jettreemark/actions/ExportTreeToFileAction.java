@@ -0,0 +1,143 @@
+package com.github.hichemtabtech.jettreemark.actions;
+
+import com.github.hichemtabtech.jettreemark.JetTreeMarkBundle;
+import com.github.hichemtabtech.jettreemark.export.TextTreeExporter;
+import com.github.hichemtabtech.jettreemark.export.TreeExporter;
+import com.github.hichemtabtech.jettreemark.export.TreeExporters;
+import com.github.hichemtabtech.jettreemark.export.VirtualFileTreeExporter;
+import com.github.hichemtabtech.jettreemark.scan.ScanProgress;
+import com.intellij.notification.NotificationGroupManager;
+import com.intellij.notification.NotificationType;
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.CommonDataKeys;
+import com.intellij.openapi.fileChooser.FileChooserFactory;
+import com.intellij.openapi.fileChooser.FileSaverDescriptor;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileWrapper;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Action to write the tree of a folder straight to a file, without opening it in the tool window.
+ * <p>
+ * The format follows the extension of the chosen file, text when no exporter writes that extension.
+ */
+public class ExportTreeToFileAction extends AnAction {
+    static final String NOTIFICATION_GROUP = "JetTreeMark";
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        Project project = e.getProject();
+        if (project == null) {
+            return;
+        }
+
+        VirtualFile selectedFile = e.getData(CommonDataKeys.VIRTUAL_FILE);
+        if (selectedFile == null || !selectedFile.isDirectory()) {
+            return;
+        }
+
+        // Ask where to write the tree, offering the extension of every format
+        List<TreeExporter> exporters = TreeExporter.EP_NAME.getExtensionList();
+        TreeExporter text = TreeExporters.findById(exporters, TextTreeExporter.ID);
+        if (text == null) {
+            text = new TextTreeExporter();
+        }
+        FileSaverDescriptor descriptor = new FileSaverDescriptor(
+                JetTreeMarkBundle.message("export.dialog.title"),
+                JetTreeMarkBundle.message("export.dialog.description"),
+                TreeExporters.getFileExtensions(exporters));
+        VirtualFileWrapper target = FileChooserFactory.getInstance()
+                .createSaveFileDialog(descriptor, project)
+                .save(selectedFile.getParent(), selectedFile.getName() + "-tree.txt");
+        if (target == null) {
+            return;
+        }
+
+        TreeExporter format = TreeExporters.forFileName(exporters, target.getFile().getName(), text);
+        ProgressManager.getInstance().run(new ExportTask(project, selectedFile, target.getFile().toPath(), format));
+    }
+
+    @Override
+    public void update(@NotNull AnActionEvent e) {
+        // Enable the action only if a directory is selected
+        Project project = e.getProject();
+        VirtualFile selectedFile = e.getData(CommonDataKeys.VIRTUAL_FILE);
+        e.getPresentation().setEnabledAndVisible(
+                project != null && selectedFile != null && selectedFile.isDirectory()
+        );
+    }
+
+    @Override
+    public @NotNull ActionUpdateThread getActionUpdateThread() {
+        return ActionUpdateThread.BGT;
+    }
+
+    /**
+     * Runs the export in the background, cancelling it from the progress indicator stops the walk.
+     */
+    private static class ExportTask extends Task.Backgroundable {
+        private final VirtualFile folder;
+        private final Path target;
+        private final TreeExporter format;
+        private ScanProgress progress;
+        private boolean exported;
+
+        ExportTask(Project project, VirtualFile folder, Path target, TreeExporter format) {
+            super(project, JetTreeMarkBundle.message("export.progress.title", folder.getName()), true);
+            this.folder = folder;
+            this.target = target;
+            this.format = format;
+        }
+
+        @Override
+        public void run(@NotNull ProgressIndicator indicator) {
+            indicator.setIndeterminate(true);
+            progress = new ScanProgress(indicator::isCanceled);
+            try {
+                new VirtualFileTreeExporter(format).exportToFile(folder, target, progress);
+                exported = true;
+            } catch (CancellationException e) {
+                // Do not leave a truncated tree behind
+                deleteTarget();
+            } catch (IOException e) {
+                deleteTarget();
+                showNotification(JetTreeMarkBundle.message("export.failed", target, e.getMessage()), NotificationType.ERROR);
+            }
+        }
+
+        @Override
+        public void onSuccess() {
+            if (exported) {
+                showNotification(JetTreeMarkBundle.message("export.done",
+                        progress.getDirectoryCount(), progress.getFileCount(), target), NotificationType.INFORMATION);
+            }
+        }
+
+        private void deleteTarget() {
+            try {
+                Files.deleteIfExists(target);
+            } catch (IOException ignored) {
+                // Nothing more can be done about it
+            }
+        }
+
+        private void showNotification(String content, NotificationType type) {
+            NotificationGroupManager.getInstance()
+                    .getNotificationGroup(NOTIFICATION_GROUP)
+                    .createNotification(content, type)
+                    .notify(getProject());
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.github.hichemtabtech.jettreemark.export;
+
+import com.github.hichemtabtech.jettreemark.JetTreeMarkBundle;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The text tree drawn with ASCII connectors only, {@code |--} and {@code `--}.
+ */
+public final class AsciiTreeExporter implements TreeExporter {
+
+    @Override
+    public @NotNull String getId() {
+        return "ascii";
+    }
+
+    @Override
+    public @NotNull String getDisplayName() {
+        return JetTreeMarkBundle.message("export.format.ascii");
+    }
+
+    @Override
+    public @NotNull String getFileExtension() {
+        return "txt";
+    }
+
+    @Override
+    public @NotNull TreeExportWriter createWriter(@NotNull Appendable out) {
+        return new TreeTextWriter(out, "", TreeTextWriter.Style.ASCII);
+    }
+}
@@ -0,0 +1,99 @@
+package com.github.hichemtabtech.jettreemark.export;
+
+import com.github.hichemtabtech.jettreemark.JetTreeMarkBundle;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+
+/**
+ * The tree as nested HTML lists where each folder is a {@code <details>} element, so readers can fold it.
+ * The root folder starts open and its sub-folders closed:
+ * <pre>
+ * &lt;details open&gt;
+ * &lt;summary&gt;project/&lt;/summary&gt;
+ * &lt;ul&gt;
+ *   &lt;li&gt;&lt;details&gt;&lt;summary&gt;src/&lt;/summary&gt;
+ *   &lt;ul&gt;
+ *     &lt;li&gt;Main.java&lt;/li&gt;
+ *   &lt;/ul&gt;
+ *   &lt;/details&gt;&lt;/li&gt;
+ *   &lt;li&gt;README.md&lt;/li&gt;
+ * &lt;/ul&gt;
+ * &lt;/details&gt;
+ * </pre>
+ * The output is a fragment, ready to paste into a page or a Markdown file that allows HTML.
+ */
+public final class HtmlTreeExporter implements TreeExporter {
+
+    @Override
+    public @NotNull String getId() {
+        return "html";
+    }
+
+    @Override
+    public @NotNull String getDisplayName() {
+        return JetTreeMarkBundle.message("export.format.html");
+    }
+
+    @Override
+    public @NotNull String getFileExtension() {
+        return "html";
+    }
+
+    @Override
+    public @NotNull TreeExportWriter createWriter(@NotNull Appendable out) {
+        return new Writer(out);
+    }
+
+    private static final class Writer extends NestedTreeWriter {
+
+        Writer(Appendable out) {
+            super(out);
+        }
+
+        @Override
+        protected void startFolder(@NotNull String name, int depth, boolean first) throws IOException {
+            if (depth == 0) {
+                out.append("<details open>\n<summary>");
+                writeText(name);
+                out.append("/</summary>\n<ul>\n");
+            } else {
+                indent(depth);
+                out.append("<li><details><summary>");
+                writeText(name);
+                out.append("/</summary>\n");
+                indent(depth);
+                out.append("<ul>\n");
+            }
+        }
+
+        @Override
+        protected void endFolder(int depth, boolean empty) throws IOException {
+            indent(depth);
+            out.append("</ul>\n");
+            indent(depth);
+            out.append(depth == 0 ? "</details>\n" : "</details></li>\n");
+        }
+
+        @Override
+        protected void writeFile(@NotNull String name, int depth, boolean first) throws IOException {
+            indent(depth);
+            out.append("<li>");
+            writeText(name);
+            out.append("</li>\n");
+        }
+
+        private void writeText(String text) throws IOException {
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                switch (c) {
+                    case '&' -> out.append("&amp;");
+                    case '<' -> out.append("&lt;");
+                    case '>' -> out.append("&gt;");
+                    case '"' -> out.append("&quot;");
+                    default -> out.append(c);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.github.hichemtabtech.jettreemark.export;
+
+import com.github.hichemtabtech.jettreemark.JetTreeMarkBundle;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+
+/**
+ * The tree as one JSON object per entry, folders holding their entries in a {@code children} array:
+ * <pre>
+ * {"name": "project", "type": "folder", "children": [
+ *   {"name": "src", "type": "folder", "children": [
+ *     {"name": "Main.java", "type": "file"}
+ *   ]},
+ *   {"name": "README.md", "type": "file"}
+ * ]}
+ * </pre>
+ */
+public final class JsonTreeExporter implements TreeExporter {
+
+    @Override
+    public @NotNull String getId() {
+        return "json";
+    }
+
+    @Override
+    public @NotNull String getDisplayName() {
+        return JetTreeMarkBundle.message("export.format.json");
+    }
+
+    @Override
+    public @NotNull String getFileExtension() {
+        return "json";
+    }
+
+    @Override
+    public @NotNull TreeExportWriter createWriter(@NotNull Appendable out) {
+        return new Writer(out);
+    }
+
+    private static final class Writer extends NestedTreeWriter {
+
+        Writer(Appendable out) {
+            super(out);
+        }
+
+        @Override
+        protected void startFolder(@NotNull String name, int depth, boolean first) throws IOException {
+            startObject(name, depth, first);
+            out.append(", \"type\": \"folder\", \"children\": [");
+        }
+
+        @Override
+        protected void endFolder(int depth, boolean empty) throws IOException {
+            if (!empty) {
+                out.append('\n');
+                indent(depth);
+            }
+            out.append("]}");
+            if (depth == 0) {
+                out.append('\n');
+            }
+        }
+
+        @Override
+        protected void writeFile(@NotNull String name, int depth, boolean first) throws IOException {
+            startObject(name, depth, first);
+            out.append(", \"type\": \"file\"}");
+        }
+
+        private void startObject(String name, int depth, boolean first) throws IOException {
+            if (depth > 0) {
+                out.append(first ? "\n" : ",\n");
+            }
+            indent(depth);
+            out.append("{\"name\": ");
+            writeString(name);
+        }
+
+        private void writeString(String value) throws IOException {
+            out.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"' -> out.append("\\\"");
+                    case '\\' -> out.append("\\\\");
+                    case '\n' -> out.append("\\n");
+                    case '\r' -> out.append("\\r");
+                    case '\t' -> out.append("\\t");
+                    default -> {
+                        if (c < 0x20) {
+                            out.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            out.append(c);
+                        }
+                    }
+                }
+            }
+            out.append('"');
+        }
+    }
+}
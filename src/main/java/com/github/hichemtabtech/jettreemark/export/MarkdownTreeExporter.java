@@ -0,0 +1,71 @@
+package com.github.hichemtabtech.jettreemark.export;
+
+import com.github.hichemtabtech.jettreemark.JetTreeMarkBundle;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+
+/**
+ * The tree as a Markdown nested list, one item per entry:
+ * <pre>
+ * - `project/`
+ *   - `src/`
+ *     - `Main.java`
+ *   - `README.md`
+ * </pre>
+ * Names are code spans, so characters like {@code _} or {@code *} in them are shown as they are.
+ */
+public final class MarkdownTreeExporter implements TreeExporter {
+
+    @Override
+    public @NotNull String getId() {
+        return "markdown";
+    }
+
+    @Override
+    public @NotNull String getDisplayName() {
+        return JetTreeMarkBundle.message("export.format.markdown");
+    }
+
+    @Override
+    public @NotNull String getFileExtension() {
+        return "md";
+    }
+
+    @Override
+    public @NotNull TreeExportWriter createWriter(@NotNull Appendable out) {
+        return new Writer(out);
+    }
+
+    private static final class Writer extends NestedTreeWriter {
+
+        Writer(Appendable out) {
+            super(out);
+        }
+
+        @Override
+        protected void startFolder(@NotNull String name, int depth, boolean first) throws IOException {
+            writeItem(name, "/", depth);
+        }
+
+        @Override
+        protected void endFolder(int depth, boolean empty) {
+            // A list item needs no end
+        }
+
+        @Override
+        protected void writeFile(@NotNull String name, int depth, boolean first) throws IOException {
+            writeItem(name, "", depth);
+        }
+
+        private void writeItem(String name, String suffix, int depth) throws IOException {
+            indent(depth);
+            if (name.indexOf('`') < 0) {
+                out.append("- `").append(name).append(suffix).append("`\n");
+            } else {
+                // A name holding a backtick needs a longer fence, padded so it can start or end with one
+                out.append("- `` ").append(name).append(suffix).append(" ``\n");
+            }
+        }
+    }
+}
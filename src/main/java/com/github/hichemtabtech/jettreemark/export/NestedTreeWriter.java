@@ -0,0 +1,118 @@
+package com.github.hichemtabtech.jettreemark.export;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.BitSet;
+
+/**
+ * Base of the writers for formats that nest the entries of a folder inside the folder itself, like
+ * lists, objects or elements.
+ * <p>
+ * It turns the calls of a walk into a folder start, its entries and a folder end, and keeps for each level
+ * of the current path whether it was entered below a folder and whether it holds an entry yet. A folder
+ * that is never entered ends before the next entry, and levels entered below a file are skipped.
+ */
+public abstract class NestedTreeWriter implements TreeExportWriter {
+    protected final Appendable out;
+    private int depth;
+    // Whether the last entry written is a folder that has not ended yet
+    private boolean folderOpen;
+    // Levels entered below a folder, and levels holding at least one entry
+    private final BitSet folderLevels = new BitSet();
+    private final BitSet filledLevels = new BitSet();
+
+    /**
+     * @param out where the tree is written
+     */
+    protected NestedTreeWriter(@NotNull Appendable out) {
+        this.out = out;
+    }
+
+    /**
+     * Starts a folder, whose entries come next.
+     *
+     * @param name the folder name
+     * @param depth the depth of the folder, 0 for the root
+     * @param first whether it is the first entry of its parent
+     */
+    protected abstract void startFolder(@NotNull String name, int depth, boolean first) throws IOException;
+
+    /**
+     * Ends the folder started last at that depth.
+     *
+     * @param depth the depth of the folder
+     * @param empty whether no entry was written inside it
+     */
+    protected abstract void endFolder(int depth, boolean empty) throws IOException;
+
+    /**
+     * Writes a file, or anything not shown as a folder.
+     *
+     * @param name the file name
+     * @param depth the depth of the file
+     * @param first whether it is the first entry of its parent
+     */
+    protected abstract void writeFile(@NotNull String name, int depth, boolean first) throws IOException;
+
+    @Override
+    public void writeRoot(@NotNull String name) throws IOException {
+        startFolder(name, 0, true);
+        folderOpen = true;
+    }
+
+    @Override
+    public void writeEntry(@NotNull String name, boolean folder, boolean last) throws IOException {
+        closeFolder();
+        boolean first = !filledLevels.get(depth);
+        filledLevels.set(depth);
+        if (folder) {
+            startFolder(name, depth, first);
+            folderOpen = true;
+        } else {
+            writeFile(name, depth, first);
+        }
+    }
+
+    @Override
+    public void enterFolder(boolean last) {
+        folderLevels.set(depth, folderOpen);
+        folderOpen = false;
+        depth++;
+        filledLevels.clear(depth);
+    }
+
+    @Override
+    public void exitFolder() throws IOException {
+        closeFolder();
+        boolean empty = !filledLevels.get(depth);
+        depth--;
+        if (folderLevels.get(depth)) {
+            endFolder(depth, empty);
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        closeFolder();
+    }
+
+    /**
+     * Ends the folder written last if it was not entered.
+     */
+    private void closeFolder() throws IOException {
+        if (folderOpen) {
+            folderOpen = false;
+            endFolder(depth, true);
+        }
+    }
+
+    /**
+     * Writes two spaces per level.
+     */
+    protected void indent(int depth) throws IOException {
+        for (int i = 0; i < depth; i++) {
+            out.append("  ");
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.github.hichemtabtech.jettreemark.export;
+
+import com.github.hichemtabtech.jettreemark.JetTreeMarkBundle;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The tree drawn with box-drawing connectors, as Copy Tree has always written it.
+ */
+public final class TextTreeExporter implements TreeExporter {
+    public static final String ID = "text";
+
+    @Override
+    public @NotNull String getId() {
+        return ID;
+    }
+
+    @Override
+    public @NotNull String getDisplayName() {
+        return JetTreeMarkBundle.message("export.format.text");
+    }
+
+    @Override
+    public @NotNull String getFileExtension() {
+        return "txt";
+    }
+
+    @Override
+    public @NotNull TreeExportWriter createWriter(@NotNull Appendable out) {
+        return new TreeTextWriter(out);
+    }
+}
@@ -0,0 +1,53 @@
+package com.github.hichemtabtech.jettreemark.export;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+
+/**
+ * Writes a file tree in some format as it is walked, depth-first and in a single pass.
+ * <p>
+ * A tree is written as {@link #writeRoot}, then the entries of the root folder, then {@link #finish()}.
+ * Each entry is one {@link #writeEntry} call, and the entries inside a folder entry follow it between
+ * {@link #enterFolder} and {@link #exitFolder}. The root folder is entered the same way. Walkers may enter
+ * any entry, even one without children, and writers ignore the levels that hold nothing.
+ * <p>
+ * Output goes straight to the {@link Appendable} the writer was created for, so a writer holds no more than
+ * the state of the current path and the size of the tree does not matter.
+ */
+public interface TreeExportWriter {
+
+    /**
+     * Writes the root folder.
+     *
+     * @param name the root folder name
+     */
+    void writeRoot(@NotNull String name) throws IOException;
+
+    /**
+     * Writes one entry at the current depth.
+     *
+     * @param name the entry name
+     * @param folder whether to show the entry as a folder
+     * @param last whether the entry is the last one shown in its folder
+     */
+    void writeEntry(@NotNull String name, boolean folder, boolean last) throws IOException;
+
+    /**
+     * Moves one level deeper, below the entry that was just written.
+     *
+     * @param last whether that entry was the last one in its folder
+     */
+    void enterFolder(boolean last) throws IOException;
+
+    /**
+     * Moves back up one level, undoing the matching {@link #enterFolder}.
+     */
+    void exitFolder() throws IOException;
+
+    /**
+     * Closes what the format still has open once the whole tree is written. The output itself is not closed.
+     */
+    default void finish() throws IOException {
+    }
+}
@@ -0,0 +1,38 @@
+package com.github.hichemtabtech.jettreemark.export;
+
+import com.intellij.openapi.extensions.ExtensionPointName;
+import org.jetbrains.annotations.Nls;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A format the tree of a folder can be copied or exported in.
+ * <p>
+ * Formats are contributed through the {@code com.github.hichemtabtech.jettreemark.treeExporter} extension
+ * point, the plugin registers its own there. An exporter only creates writers, it holds no state of its own.
+ *
+ * @see TreeExporters
+ */
+public interface TreeExporter {
+    ExtensionPointName<TreeExporter> EP_NAME = ExtensionPointName.create("com.github.hichemtabtech.jettreemark.treeExporter");
+
+    /**
+     * @return a stable identifier of the format
+     */
+    @NotNull String getId();
+
+    /**
+     * @return the name of the format, as shown to the user
+     */
+    @Nls @NotNull String getDisplayName();
+
+    /**
+     * @return the extension of the files written in this format, without the dot
+     */
+    @NotNull String getFileExtension();
+
+    /**
+     * @param out where the tree is written
+     * @return a new writer for one tree
+     */
+    @NotNull TreeExportWriter createWriter(@NotNull Appendable out);
+}
@@ -0,0 +1,79 @@
+package com.github.hichemtabtech.jettreemark.export;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Lookups over the available tree exporters.
+ */
+public final class TreeExporters {
+
+    private TreeExporters() {
+    }
+
+    /**
+     * @return the formats the plugin ships, the default one first
+     */
+    public static @NotNull List<TreeExporter> getBuiltIn() {
+        return List.of(
+                new TextTreeExporter(),
+                new AsciiTreeExporter(),
+                new MarkdownTreeExporter(),
+                new JsonTreeExporter(),
+                new HtmlTreeExporter()
+        );
+    }
+
+    /**
+     * @param exporters the exporters to pick from
+     * @param id the identifier of the format
+     * @return the exporter with that identifier, or null if there is none
+     */
+    public static @Nullable TreeExporter findById(@NotNull List<TreeExporter> exporters, @Nullable String id) {
+        for (TreeExporter exporter : exporters) {
+            if (exporter.getId().equals(id)) {
+                return exporter;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Picks the format of a file from its extension.
+     *
+     * @param exporters the exporters to pick from
+     * @param fileName the name of the file to write
+     * @param preferred returned when it writes files of that extension too, or when no exporter does
+     * @return the exporter to write the file with
+     */
+    public static @NotNull TreeExporter forFileName(@NotNull List<TreeExporter> exporters, @NotNull String fileName,
+                                                    @NotNull TreeExporter preferred) {
+        int dot = fileName.lastIndexOf('.');
+        if (dot < 0) {
+            return preferred;
+        }
+        String extension = fileName.substring(dot + 1);
+        if (preferred.getFileExtension().equalsIgnoreCase(extension)) {
+            return preferred;
+        }
+        for (TreeExporter exporter : exporters) {
+            if (exporter.getFileExtension().equalsIgnoreCase(extension)) {
+                return exporter;
+            }
+        }
+        return preferred;
+    }
+
+    /**
+     * @param exporters the available exporters
+     * @return the extensions of their files, each once
+     */
+    public static @NotNull String[] getFileExtensions(@NotNull List<TreeExporter> exporters) {
+        return exporters.stream()
+                .map(TreeExporter::getFileExtension)
+                .distinct()
+                .toArray(String[]::new);
+    }
+}
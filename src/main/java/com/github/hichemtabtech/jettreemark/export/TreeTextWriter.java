@@ -0,0 +1,114 @@
+package com.github.hichemtabtech.jettreemark.export;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+
+/**
+ * Writes a file tree as text, one line per entry with box-drawing connectors:
+ * <pre>
+ * root/
+ *     ├── src/
+ *     │   └── Main.java
+ *     └── README.md
+ * </pre>
+ * The {@link Style#ASCII} style draws the same tree with {@code |--} connectors, for places that
+ * mangle anything beyond ASCII.
+ * <p>
+ * Lines go straight to an {@link Appendable}, and the indentation of the current depth is kept
+ * in a single buffer that grows and shrinks as folders are entered and left. Writing a tree
+ * therefore takes time proportional to the text produced, whatever the depth.
+ */
+public final class TreeTextWriter implements TreeExportWriter {
+
+    /**
+     * The connectors drawn in front of entries, all of the same width.
+     */
+    public enum Style {
+        BOX("├── ", "└── ", "│   ", "    "),
+        ASCII("|-- ", "`-- ", "|   ", "    ");
+
+        private final String branch;
+        private final String lastBranch;
+        private final String pipe;
+        private final String space;
+
+        Style(String branch, String lastBranch, String pipe, String space) {
+            this.branch = branch;
+            this.lastBranch = lastBranch;
+            this.pipe = pipe;
+            this.space = space;
+        }
+    }
+
+    private final Appendable out;
+    private final Style style;
+    private final StringBuilder prefix;
+
+    public TreeTextWriter(@NotNull Appendable out) {
+        this(out, "");
+    }
+
+    /**
+     * @param out where the lines are written
+     * @param prefix the indentation to start from, for writing a subtree inside a larger tree
+     */
+    public TreeTextWriter(@NotNull Appendable out, @NotNull String prefix) {
+        this(out, prefix, Style.BOX);
+    }
+
+    /**
+     * @param out where the lines are written
+     * @param prefix the indentation to start from, drawn in the same style
+     * @param style the connectors to draw
+     */
+    public TreeTextWriter(@NotNull Appendable out, @NotNull String prefix, @NotNull Style style) {
+        this.out = out;
+        this.style = style;
+        this.prefix = new StringBuilder(64).append(prefix);
+    }
+
+    /**
+     * Writes the root line, which has no connector.
+     *
+     * @param name the root folder name
+     */
+    @Override
+    public void writeRoot(@NotNull String name) throws IOException {
+        out.append(name).append("/\n");
+    }
+
+    /**
+     * Writes one entry at the current depth.
+     *
+     * @param name the entry name
+     * @param folder whether to mark the entry as a folder with a trailing '/'
+     * @param last whether the entry is the last one shown in its folder
+     */
+    @Override
+    public void writeEntry(@NotNull String name, boolean folder, boolean last) throws IOException {
+        out.append(prefix).append(last ? style.lastBranch : style.branch).append(name);
+        if (folder) {
+            out.append('/');
+        }
+        out.append('\n');
+    }
+
+    /**
+     * Moves one level deeper, below the entry that was just written.
+     *
+     * @param last whether that entry was the last one in its folder
+     */
+    @Override
+    public void enterFolder(boolean last) {
+        prefix.append(last ? style.space : style.pipe);
+    }
+
+    /**
+     * Moves back up one level, undoing the matching {@link #enterFolder}.
+     */
+    @Override
+    public void exitFolder() {
+        prefix.setLength(prefix.length() - style.space.length());
+    }
+}
@@ -0,0 +1,127 @@
+package com.github.hichemtabtech.jettreemark.export;
+
+import com.github.hichemtabtech.jettreemark.gitignore.GitignoreFiles;
+import com.github.hichemtabtech.jettreemark.gitignore.GitignoreRules;
+import com.github.hichemtabtech.jettreemark.scan.ScanProgress;
+import com.intellij.openapi.vfs.VFileProperty;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.github.hichemtabtech.jettreemark.gitignore.GitignoreFiles.joinPath;
+
+/**
+ * Writes the tree of a folder straight from the virtual file system, without building tree nodes.
+ * <p>
+ * The output is what Copy Tree produces in the same format for a freshly opened tab: gitignored entries are left out
+ * and everything else is included. The walk is depth-first and only keeps the folders on the current
+ * path, so memory use depends on the depth of the hierarchy rather than on the number of entries.
+ * Symbolic links to folders are written as entries but not followed, which keeps link cycles out of the walk.
+ */
+public final class VirtualFileTreeExporter {
+    private final TreeExporter format;
+
+    /**
+     * Creates an exporter writing the box-drawing text tree.
+     */
+    public VirtualFileTreeExporter() {
+        this(new TextTreeExporter());
+    }
+
+    /**
+     * @param format the format to write the tree in
+     */
+    public VirtualFileTreeExporter(@NotNull TreeExporter format) {
+        this.format = format;
+    }
+
+    /**
+     * Writes the tree of a folder to a UTF-8 file.
+     *
+     * @param rootFolder the folder to export
+     * @param target the file to write, replaced if it exists
+     * @param progress receives the counters and is polled for cancellation between folders
+     */
+    public void exportToFile(@NotNull VirtualFile rootFolder, @NotNull Path target,
+                             @NotNull ScanProgress progress) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+            export(rootFolder, writer, progress);
+        }
+    }
+
+    /**
+     * Writes the tree of a folder.
+     *
+     * @param rootFolder the folder to export
+     * @param out where the tree is written
+     * @param progress receives the counters and is polled for cancellation between folders
+     */
+    public void export(@NotNull VirtualFile rootFolder, @NotNull Appendable out,
+                       @NotNull ScanProgress progress) throws IOException {
+        GitignoreFiles.RootRules rootRules = GitignoreFiles.forRootFolder(rootFolder);
+        TreeExportWriter writer = format.createWriter(out);
+
+        writer.writeRoot(rootFolder.getName());
+        writer.enterFolder(true);
+        writeChildren(rootFolder.getChildren(), rootRules.path(), rootRules.rules(), writer, progress);
+        writer.exitFolder();
+        writer.finish();
+    }
+
+    private void writeChildren(VirtualFile[] children, String folderPath, GitignoreRules rules,
+                               TreeExportWriter writer, ScanProgress progress) throws IOException {
+        progress.checkCancelled();
+
+        int files = 0;
+        // Each entry is matched once, the lookahead tells whether the current one is the last shown
+        int next = nextIncluded(children, 0, folderPath, rules);
+        while (next >= 0) {
+            VirtualFile child = children[next];
+            int following = nextIncluded(children, next + 1, folderPath, rules);
+            boolean last = following < 0;
+
+            if (child.isDirectory() && !child.is(VFileProperty.SYMLINK)) {
+                String childPath = joinPath(folderPath, child.getName());
+                VirtualFile[] grandChildren = child.getChildren();
+                writer.writeEntry(child.getName(), grandChildren.length > 0, last);
+
+                // Folders without a .gitignore share the rules of their parent
+                GitignoreRules childRules = rules.withPatterns(childPath, GitignoreFiles.readFolderPatterns(child));
+                writer.enterFolder(last);
+                writeChildren(grandChildren, childPath, childRules, writer, progress);
+                writer.exitFolder();
+            } else {
+                writer.writeEntry(child.getName(), child.isDirectory(), last);
+                if (!child.isDirectory()) {
+                    files++;
+                }
+            }
+            next = following;
+        }
+
+        progress.folderListed(files);
+    }
+
+    private static int nextIncluded(VirtualFile[] children, int from, String folderPath, GitignoreRules rules) {
+        for (int i = from; i < children.length; i++) {
+            if (!isIgnored(children[i], folderPath, rules)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isIgnored(VirtualFile file, String folderPath, GitignoreRules rules) {
+        if (rules.isEmpty()) {
+            return false;
+        }
+        String name = file.getName();
+        String relativePath = rules.needsRelativePath() ? joinPath(folderPath, name) : null;
+        return rules.isIgnored(name, relativePath, file.isDirectory());
+    }
+}
@@ -0,0 +1,139 @@
+package com.github.hichemtabtech.jettreemark.gitignore;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+import static java.util.logging.Logger.getLogger;
+
+/**
+ * Reads .gitignore files from the virtual file system into {@link GitignoreRules}.
+ */
+public final class GitignoreFiles {
+    private static final Logger logger = getLogger(GitignoreFiles.class.getName());
+
+    private GitignoreFiles() {
+    }
+
+    /**
+     * The rules that apply to the children of a scanned folder.
+     *
+     * @param rules the rules, anchored to the outermost folder they were read from
+     * @param path the path of the scanned folder relative to that outermost folder, empty if it is the folder itself
+     */
+    public record RootRules(@NotNull GitignoreRules rules, @NotNull String path) {
+    }
+
+    /**
+     * Loads the .gitignore rules that apply to the children of a folder.
+     * When the folder is inside a git repository, the rules of the repository are included:
+     * .git/info/exclude, then every .gitignore from the repository root down to the folder.
+     *
+     * @param rootFolder the scanned folder
+     * @return the rules and the path of the folder they are relative to
+     */
+    public static @NotNull RootRules forRootFolder(@NotNull VirtualFile rootFolder) {
+        return forRootFolder(rootFolder, GitignoreFiles::readFolderPatterns);
+    }
+
+    /**
+     * Loads the .gitignore rules that apply to the children of a folder, like {@link #forRootFolder(VirtualFile)},
+     * with the patterns of each folder's .gitignore read by the given function.
+     *
+     * @param rootFolder the scanned folder
+     * @param folderPatterns reads the .gitignore patterns of a folder, in file order
+     * @return the rules and the path of the folder they are relative to
+     */
+    public static @NotNull RootRules forRootFolder(@NotNull VirtualFile rootFolder,
+                                                   @NotNull Function<VirtualFile, List<String>> folderPatterns) {
+        Deque<VirtualFile> folders = new ArrayDeque<>();
+        VirtualFile repositoryRoot = null;
+        for (VirtualFile folder = rootFolder; folder != null; folder = folder.getParent()) {
+            folders.addFirst(folder);
+            if (folder.findChild(".git") != null) {
+                repositoryRoot = folder;
+                break;
+            }
+        }
+
+        GitignoreRules rules = GitignoreRules.EMPTY;
+        if (repositoryRoot == null) {
+            // Outside a repository the .gitignore files of the parent folders do not apply
+            folders.clear();
+            folders.add(rootFolder);
+        } else {
+            List<String> excludes = new ArrayList<>();
+            readPatterns(repositoryRoot.findFileByRelativePath(".git/info/exclude"), excludes);
+            rules = rules.withPatterns("", excludes);
+        }
+
+        // Rules are anchored to the outermost folder, the scanned folder sits at folderPath below it
+        String folderPath = null;
+        for (VirtualFile folder : folders) {
+            folderPath = folderPath == null ? "" : joinPath(folderPath, folder.getName());
+            rules = rules.withPatterns(folderPath, folderPatterns.apply(folder));
+        }
+        return new RootRules(rules, folderPath);
+    }
+
+    /**
+     * Reads the .gitignore file of a folder, if it has one.
+     *
+     * @param folder the folder to search for .gitignore
+     * @return the gitignore patterns, in file order
+     */
+    public static @NotNull List<String> readFolderPatterns(@NotNull VirtualFile folder) {
+        List<String> patterns = new ArrayList<>();
+        readPatterns(folder.findChild(".gitignore"), patterns);
+        return patterns;
+    }
+
+    /**
+     * Reads the patterns of a .gitignore file, skipping blank lines and comments.
+     *
+     * @param gitignoreFile the file to read, may be null or missing
+     * @param patterns receives the patterns, in file order
+     */
+    public static void readPatterns(@Nullable VirtualFile gitignoreFile, @NotNull List<String> patterns) {
+        if (gitignoreFile != null && !gitignoreFile.isDirectory() && gitignoreFile.exists()) {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(gitignoreFile.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    // Skip empty lines and comments
+                    line = line.trim();
+                    if (!line.isEmpty() && !line.startsWith("#")) {
+                        patterns.add(line);
+                    }
+                }
+            } catch (IOException e) {
+                logger.warning("Failed to read .gitignore file: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Appends a name to a relative folder path.
+     *
+     * @param folderPath the folder path with '/' separators, empty for the root
+     * @param name the name to append, may be empty
+     * @return the joined path
+     */
+    public static @NotNull String joinPath(@NotNull String folderPath, @NotNull String name) {
+        if (folderPath.isEmpty()) {
+            return name;
+        }
+        return name.isEmpty() ? folderPath : folderPath + "/" + name;
+    }
+}
@@ -0,0 +1,296 @@
+package com.github.hichemtabtech.jettreemark.gitignore;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The patterns of one .gitignore file compiled once into lookup tables.
+ * <p>
+ * Each pattern is sorted into the cheapest structure that can answer it: plain names go into
+ * hash tables, {@code *.ext} patterns into an extension table keyed by the last extension, and
+ * the remaining wildcard patterns are compiled into {@link GlobPattern}s indexed by their literal
+ * prefix or suffix. Checking a file therefore costs a couple of hash lookups and a short trie
+ * walk instead of one regex per pattern.
+ * <p>
+ * Every table remembers the line index of the patterns it holds, so the last matching line decides,
+ * and a line starting with {@code !} re-includes what earlier lines ignored. Patterns containing a
+ * slash are anchored to the folder of the .gitignore file, and {@code **} matches any number of folders.
+ */
+public final class GitignoreMatcher {
+    public static final GitignoreMatcher EMPTY = compile(List.of());
+
+    /**
+     * Outcome of matching a file against the patterns of one .gitignore file.
+     */
+    public enum Match {
+        /** No pattern matched, the decision is left to the parent .gitignore files. */
+        NONE,
+        /** The last matching pattern ignores the file. */
+        IGNORED,
+        /** The last matching pattern is a negation that re-includes the file. */
+        NOT_IGNORED
+    }
+
+    private final Map<String, Ranks> names = new HashMap<>();
+    private final Map<String, Suffix[]> extensions = new HashMap<>();
+    private final GlobIndex nameGlobs = new GlobIndex();
+    private final Map<String, Ranks> paths = new HashMap<>();
+    private final List<PathGlob> pathGlobs = new ArrayList<>();
+    private final List<String> patterns;
+    private boolean[] negated = new boolean[0];
+
+    private GitignoreMatcher(List<String> patterns) {
+        this.patterns = patterns;
+    }
+
+    /**
+     * Compiles the lines of a .gitignore file. Blank lines and comments are skipped.
+     *
+     * @param patterns the patterns, one per .gitignore line, in file order
+     * @return the compiled matcher
+     */
+    public static @NotNull GitignoreMatcher compile(@NotNull Collection<String> patterns) {
+        GitignoreMatcher matcher = new GitignoreMatcher(List.copyOf(patterns));
+        matcher.negated = new boolean[patterns.size()];
+        Map<String, List<Suffix>> extensions = new HashMap<>();
+        int index = 0;
+        for (String pattern : patterns) {
+            matcher.add(pattern.trim(), index++, extensions);
+        }
+        extensions.forEach((extension, suffixes) -> matcher.extensions.put(extension, suffixes.toArray(new Suffix[0])));
+        return matcher;
+    }
+
+    private void add(String pattern, int index, Map<String, List<Suffix>> extensionLists) {
+        if (pattern.isEmpty() || pattern.startsWith("#")) {
+            return;
+        }
+
+        if (pattern.startsWith("!")) {
+            negated[index] = true;
+            pattern = pattern.substring(1);
+        } else if (pattern.startsWith("\\!") || pattern.startsWith("\\#")) {
+            pattern = pattern.substring(1);
+        }
+
+        boolean folderOnly = pattern.endsWith("/");
+        if (folderOnly) {
+            pattern = pattern.substring(0, pattern.length() - 1);
+        }
+
+        // "**/name" matches the name at any depth, just like a pattern without any slash
+        while (pattern.startsWith("**/") && pattern.indexOf('/', 3) < 0) {
+            pattern = pattern.substring(3);
+        }
+
+        // A slash at the start or in the middle anchors the pattern to the folder of the .gitignore file
+        boolean anchored = pattern.startsWith("/") || pattern.startsWith("./") || pattern.indexOf('/') > 0;
+        if (pattern.startsWith("./")) {
+            pattern = pattern.substring(2);
+        } else if (pattern.startsWith("/")) {
+            pattern = pattern.substring(1);
+        }
+        if (pattern.isEmpty()) {
+            return;
+        }
+
+        boolean wildcards = GlobPattern.hasWildcards(pattern);
+        if (anchored) {
+            if (!wildcards) {
+                paths.computeIfAbsent(pattern, key -> new Ranks()).add(index, folderOnly);
+            } else {
+                pathGlobs.add(new PathGlob(pattern, index, folderOnly));
+            }
+        } else if (!wildcards) {
+            names.computeIfAbsent(pattern, key -> new Ranks()).add(index, folderOnly);
+        } else if (isExtensionPattern(pattern)) {
+            String suffix = pattern.substring(1);
+            String extension = suffix.substring(suffix.lastIndexOf('.') + 1);
+            extensionLists.computeIfAbsent(extension, key -> new ArrayList<>()).add(new Suffix(suffix, index, folderOnly));
+        } else {
+            nameGlobs.add(pattern, GlobPattern.compile(pattern), index, folderOnly);
+        }
+    }
+
+    // "*.ext" or "*.tar.gz", a star followed by a literal suffix starting with a dot
+    private static boolean isExtensionPattern(String pattern) {
+        return pattern.length() > 2 && pattern.charAt(0) == '*' && pattern.charAt(1) == '.'
+                && !GlobPattern.hasWildcards(pattern.substring(1)) && !pattern.endsWith(".");
+    }
+
+    /**
+     * @return true if no pattern was compiled
+     */
+    public boolean isEmpty() {
+        return names.isEmpty() && extensions.isEmpty() && nameGlobs.isEmpty() && !needsRelativePath();
+    }
+
+    /**
+     * Tells whether {@link #match} needs the path relative to the .gitignore folder, so callers
+     * can skip building it when every pattern only looks at names.
+     *
+     * @return true if some pattern is anchored to the .gitignore folder
+     */
+    public boolean needsRelativePath() {
+        return !paths.isEmpty() || !pathGlobs.isEmpty();
+    }
+
+    /**
+     * Checks a file or folder against the compiled patterns, the last matching pattern wins.
+     *
+     * @param name the file name
+     * @param relativePath the path relative to the folder of the .gitignore file using '/' separators,
+     *                     may be null when {@link #needsRelativePath()} is false
+     * @param directory whether the entry is a folder
+     * @return the outcome of the last matching pattern
+     */
+    public @NotNull Match match(@NotNull String name, @Nullable String relativePath, boolean directory) {
+        int best = -1;
+
+        Ranks nameRanks = names.get(name);
+        if (nameRanks != null) {
+            best = nameRanks.best(directory);
+        }
+
+        if (!extensions.isEmpty()) {
+            int dot = name.lastIndexOf('.');
+            if (dot >= 0) {
+                Suffix[] suffixes = extensions.get(name.substring(dot + 1));
+                if (suffixes != null) {
+                    for (Suffix suffix : suffixes) {
+                        if (suffix.index > best && (directory || !suffix.folderOnly) && name.endsWith(suffix.suffix)) {
+                            best = suffix.index;
+                        }
+                    }
+                }
+            }
+        }
+
+        if (!nameGlobs.isEmpty()) {
+            best = Math.max(best, nameGlobs.bestMatch(name, directory, best));
+        }
+
+        if (relativePath != null) {
+            Ranks pathRanks = paths.get(relativePath);
+            if (pathRanks != null) {
+                best = Math.max(best, pathRanks.best(directory));
+            }
+            for (PathGlob glob : pathGlobs) {
+                if (glob.index > best && (directory || !glob.folderOnly) && glob.matches(relativePath)) {
+                    best = glob.index;
+                }
+            }
+        }
+
+        if (best < 0) {
+            return Match.NONE;
+        }
+        return negated[best] ? Match.NOT_IGNORED : Match.IGNORED;
+    }
+
+    /**
+     * Checks a file or folder against these patterns alone.
+     *
+     * @param name the file name
+     * @param relativePath the path relative to the folder of the .gitignore file, may be null
+     *                     when {@link #needsRelativePath()} is false
+     * @param directory whether the entry is a folder
+     * @return true if the last matching pattern ignores the entry
+     */
+    public boolean isIgnored(@NotNull String name, @Nullable String relativePath, boolean directory) {
+        return match(name, relativePath, directory) == Match.IGNORED;
+    }
+
+    @Override
+    public String toString() {
+        return patterns.toString();
+    }
+
+    /**
+     * Highest line index of the patterns sharing the same literal text.
+     */
+    private static final class Ranks {
+        private int any = -1;
+        private int folderOnly = -1;
+
+        void add(int index, boolean folderOnlyPattern) {
+            if (folderOnlyPattern) {
+                folderOnly = Math.max(folderOnly, index);
+            } else {
+                any = Math.max(any, index);
+            }
+        }
+
+        int best(boolean directory) {
+            return directory ? Math.max(any, folderOnly) : any;
+        }
+    }
+
+    private record Suffix(String suffix, int index, boolean folderOnly) {
+    }
+
+    /**
+     * A wildcard pattern anchored to the .gitignore folder, matched one path segment at a time.
+     * A {@code **} segment matches any number of folders.
+     */
+    private static final class PathGlob {
+        private final GlobPattern[] segments; // null stands for "**"
+        private final int index;
+        private final boolean folderOnly;
+
+        PathGlob(String pattern, int index, boolean folderOnly) {
+            List<GlobPattern> compiled = new ArrayList<>();
+            for (String part : pattern.split("/")) {
+                compiled.add(part.equals("**") ? null : GlobPattern.compile(part));
+            }
+            // "dir/**" matches everything inside dir but not dir itself
+            if (compiled.get(compiled.size() - 1) == null) {
+                compiled.add(compiled.size() - 1, GlobPattern.compile("*"));
+            }
+            this.segments = compiled.toArray(new GlobPattern[0]);
+            this.index = index;
+            this.folderOnly = folderOnly;
+        }
+
+        boolean matches(String path) {
+            int length = path.length();
+            int p = 0;
+            int start = 0;
+            int starP = -1;
+            int starStart = -1;
+
+            while (start <= length) {
+                int end = path.indexOf('/', start);
+                if (end < 0) {
+                    end = length;
+                }
+                if (p < segments.length && segments[p] != null && segments[p].matches(path, start, end)) {
+                    p++;
+                    start = end + 1;
+                } else if (p < segments.length && segments[p] == null) {
+                    starP = p++;
+                    starStart = start;
+                } else if (starP >= 0) {
+                    // Let the last "**" swallow one more folder and retry
+                    p = starP + 1;
+                    int next = path.indexOf('/', starStart);
+                    starStart = next < 0 ? length + 1 : next + 1;
+                    start = starStart;
+                } else {
+                    return false;
+                }
+            }
+
+            while (p < segments.length && segments[p] == null) {
+                p++;
+            }
+            return p == segments.length;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.github.hichemtabtech.jettreemark.gitignore;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+
+/**
+ * The .gitignore files that apply to a folder, as an immutable chain from the innermost file up to the root.
+ * <p>
+ * Each level holds the compiled patterns of one .gitignore file together with the path of its folder.
+ * A folder without its own .gitignore simply shares the chain of its parent, so walking a tree never
+ * copies pattern sets. Lookups start at the innermost level and stop at the first level with a matching
+ * pattern, which gives the git precedence: deeper files override their parents and, within a file,
+ * the last matching line wins.
+ */
+public final class GitignoreRules {
+    public static final GitignoreRules EMPTY = new GitignoreRules(null, "", GitignoreMatcher.EMPTY);
+
+    private final @Nullable GitignoreRules parent;
+    private final String basePath;
+    private final GitignoreMatcher matcher;
+    private final boolean needsRelativePath;
+
+    private GitignoreRules(@Nullable GitignoreRules parent, String basePath, GitignoreMatcher matcher) {
+        this.parent = parent;
+        this.basePath = basePath;
+        this.matcher = matcher;
+        this.needsRelativePath = matcher.needsRelativePath() || parent != null && parent.needsRelativePath;
+    }
+
+    /**
+     * Adds the patterns of a .gitignore file on top of these rules.
+     *
+     * @param folderPath the path of the folder holding the .gitignore file, relative to the root
+     *                   of the chain with '/' separators, empty for the root itself
+     * @param patterns the lines of the .gitignore file, in file order
+     * @return the extended rules, or these rules if the file has no pattern
+     */
+    public @NotNull GitignoreRules withPatterns(@NotNull String folderPath, @NotNull Collection<String> patterns) {
+        GitignoreMatcher compiled = GitignoreMatcher.compile(patterns);
+        if (compiled.isEmpty()) {
+            return this;
+        }
+        return new GitignoreRules(this, folderPath.isEmpty() ? "" : folderPath + "/", compiled);
+    }
+
+    /**
+     * @return true if no .gitignore pattern applies
+     */
+    public boolean isEmpty() {
+        return parent == null;
+    }
+
+    /**
+     * Tells whether {@link #isIgnored} needs the relative path of the entry, so callers
+     * can skip building it when every pattern only looks at names.
+     *
+     * @return true if some level has a pattern anchored to its folder
+     */
+    public boolean needsRelativePath() {
+        return needsRelativePath;
+    }
+
+    /**
+     * Checks a file or folder against the chain, the innermost .gitignore with a matching pattern decides.
+     *
+     * @param name the file name
+     * @param relativePath the path relative to the root of the chain using '/' separators, may be null
+     *                     when {@link #needsRelativePath()} is false
+     * @param directory whether the entry is a folder
+     * @return true if the entry is ignored
+     */
+    public boolean isIgnored(@NotNull String name, @Nullable String relativePath, boolean directory) {
+        for (GitignoreRules level = this; level.parent != null; level = level.parent) {
+            String path = null;
+            if (relativePath != null && level.matcher.needsRelativePath()) {
+                path = relativePath.substring(Math.min(level.basePath.length(), relativePath.length()));
+            }
+            GitignoreMatcher.Match match = level.matcher.match(name, path, directory);
+            if (match != GitignoreMatcher.Match.NONE) {
+                return match == GitignoreMatcher.Match.IGNORED;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        Deque<String> levels = new ArrayDeque<>();
+        for (GitignoreRules level = this; level.parent != null; level = level.parent) {
+            levels.addFirst("/" + level.basePath + " " + level.matcher);
+        }
+        return levels.toString();
+    }
+}
@@ -0,0 +1,162 @@
+package com.github.hichemtabtech.jettreemark.gitignore;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Indexes name globs by their literal prefix or suffix so that only a handful of them
+ * have to run for any given name.
+ * <p>
+ * Globs are stored in a character trie keyed by the literal text before their first wildcard
+ * ({@code build-*}), or in a reversed trie keyed by the text after their last wildcard
+ * ({@code *~}, {@code *-SNAPSHOT.jar}). Walking the name through both tries yields the
+ * candidates, so the lookup cost depends on the name length rather than the number of globs.
+ * Globs without any literal anchor are kept in a short list that is always tried.
+ * <p>
+ * Each glob carries the line index of its pattern so callers can tell which matching pattern came last.
+ */
+final class GlobIndex {
+    private final TrieNode prefixes = new TrieNode();
+    private final TrieNode suffixes = new TrieNode();
+    private final List<Entry> unanchored = new ArrayList<>();
+    private int size;
+
+    /**
+     * Adds a compiled glob.
+     *
+     * @param source the glob text, used to find the literal prefix or suffix
+     * @param pattern the compiled glob
+     * @param index the line index of the pattern
+     * @param folderOnly whether the glob only applies to folders
+     */
+    void add(@NotNull String source, @NotNull GlobPattern pattern, int index, boolean folderOnly) {
+        Entry entry = new Entry(pattern, index, folderOnly);
+        size++;
+
+        int prefixEnd = 0;
+        while (prefixEnd < source.length() && !isSpecial(source.charAt(prefixEnd))) {
+            prefixEnd++;
+        }
+        int suffixStart = source.length();
+        while (suffixStart > 0 && !isSpecial(source.charAt(suffixStart - 1))) {
+            suffixStart--;
+        }
+
+        // Prefer the longer anchor, it is the more selective one
+        int prefixLength = prefixEnd;
+        int suffixLength = source.length() - suffixStart;
+        if (prefixLength == 0 && suffixLength == 0) {
+            unanchored.add(entry);
+        } else if (prefixLength >= suffixLength) {
+            TrieNode node = prefixes;
+            for (int i = 0; i < prefixEnd; i++) {
+                node = node.getOrAdd(source.charAt(i));
+            }
+            node.add(entry);
+        } else {
+            TrieNode node = suffixes;
+            for (int i = source.length() - 1; i >= suffixStart; i--) {
+                node = node.getOrAdd(source.charAt(i));
+            }
+            node.add(entry);
+        }
+    }
+
+    private static boolean isSpecial(char c) {
+        return c == '*' || c == '?' || c == '[' || c == ']' || c == '\\';
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Finds the last pattern, by line index, whose glob matches the name.
+     *
+     * @param name the file name
+     * @param directory whether the entry is a folder
+     * @param floor only patterns with a higher line index are of interest
+     * @return the highest matching line index above the floor, or -1
+     */
+    int bestMatch(@NotNull String name, boolean directory, int floor) {
+        int best = floor;
+
+        TrieNode node = prefixes;
+        for (int i = 0; node != null; i++) {
+            best = node.bestMatch(name, directory, best);
+            node = i < name.length() ? node.child(name.charAt(i)) : null;
+        }
+
+        node = suffixes;
+        for (int i = name.length() - 1; node != null; i--) {
+            best = node.bestMatch(name, directory, best);
+            node = i >= 0 ? node.child(name.charAt(i)) : null;
+        }
+
+        for (Entry entry : unanchored) {
+            if (entry.index > best && entry.matches(name, directory)) {
+                best = entry.index;
+            }
+        }
+        return best > floor ? best : -1;
+    }
+
+    private record Entry(GlobPattern pattern, int index, boolean folderOnly) {
+        boolean matches(String name, boolean directory) {
+            return (directory || !folderOnly) && pattern.matches(name);
+        }
+    }
+
+    /**
+     * Trie node with children kept in a sorted array for allocation-free lookups.
+     */
+    private static final class TrieNode {
+        private static final Entry[] NO_ENTRIES = new Entry[0];
+
+        private char[] keys = new char[0];
+        private TrieNode[] children = new TrieNode[0];
+        private Entry[] entries = NO_ENTRIES;
+
+        TrieNode child(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            return index >= 0 ? children[index] : null;
+        }
+
+        TrieNode getOrAdd(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertAt = -index - 1;
+            char[] newKeys = new char[keys.length + 1];
+            TrieNode[] newChildren = new TrieNode[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+            TrieNode node = new TrieNode();
+            newKeys[insertAt] = c;
+            newChildren[insertAt] = node;
+            keys = newKeys;
+            children = newChildren;
+            return node;
+        }
+
+        void add(Entry entry) {
+            entries = Arrays.copyOf(entries, entries.length + 1);
+            entries[entries.length - 1] = entry;
+        }
+
+        int bestMatch(String name, boolean directory, int best) {
+            for (Entry entry : entries) {
+                if (entry.index > best && entry.matches(name, directory)) {
+                    best = entry.index;
+                }
+            }
+            return best;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.github.hichemtabtech.jettreemark.gitignore;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A single path segment glob ({@code *}, {@code ?}, {@code [a-z]}, {@code [!abc]} and {@code \} escapes)
+ * compiled once into a token program.
+ * <p>
+ * Matching runs the program with the classic single-backtrack-point wildcard algorithm, so it never
+ * allocates and stays linear for the patterns found in real .gitignore files.
+ */
+final class GlobPattern {
+    private static final byte LITERAL = 0;
+    private static final byte ANY = 1;
+    private static final byte CLASS = 2;
+    private static final byte STAR = 3;
+
+    private final byte[] kinds;
+    private final char[] literals;
+    private final CharClass[] classes;
+    private final String source;
+
+    private GlobPattern(byte[] kinds, char[] literals, CharClass[] classes, String source) {
+        this.kinds = kinds;
+        this.literals = literals;
+        this.classes = classes;
+        this.source = source;
+    }
+
+    /**
+     * @param glob the glob to test
+     * @return true if the glob uses any wildcard syntax
+     */
+    static boolean hasWildcards(@NotNull String glob) {
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == '\\') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compiles a glob for a single path segment.
+     *
+     * @param glob the glob, must not contain '/'
+     * @return the compiled glob
+     */
+    static @NotNull GlobPattern compile(@NotNull String glob) {
+        int length = glob.length();
+        byte[] kinds = new byte[length];
+        char[] literals = new char[length];
+        CharClass[] classes = null;
+        int count = 0;
+
+        for (int i = 0; i < length; i++) {
+            char c = glob.charAt(i);
+            switch (c) {
+                case '*':
+                    // Consecutive stars behave like a single one inside a segment
+                    if (count == 0 || kinds[count - 1] != STAR) {
+                        kinds[count++] = STAR;
+                    }
+                    break;
+                case '?':
+                    kinds[count++] = ANY;
+                    break;
+                case '[': {
+                    int end = findClassEnd(glob, i);
+                    if (end < 0) {
+                        // Unterminated class, match '[' literally
+                        kinds[count] = LITERAL;
+                        literals[count++] = c;
+                        break;
+                    }
+                    if (classes == null) {
+                        classes = new CharClass[length];
+                    }
+                    classes[count] = CharClass.parse(glob, i + 1, end);
+                    kinds[count++] = CLASS;
+                    i = end;
+                    break;
+                }
+                case '\\':
+                    if (i + 1 < length) {
+                        c = glob.charAt(++i);
+                    }
+                    kinds[count] = LITERAL;
+                    literals[count++] = c;
+                    break;
+                default:
+                    kinds[count] = LITERAL;
+                    literals[count++] = c;
+            }
+        }
+
+        byte[] compactKinds = new byte[count];
+        char[] compactLiterals = new char[count];
+        System.arraycopy(kinds, 0, compactKinds, 0, count);
+        System.arraycopy(literals, 0, compactLiterals, 0, count);
+        CharClass[] compactClasses = null;
+        if (classes != null) {
+            compactClasses = new CharClass[count];
+            System.arraycopy(classes, 0, compactClasses, 0, count);
+        }
+        return new GlobPattern(compactKinds, compactLiterals, compactClasses, glob);
+    }
+
+    private static int findClassEnd(String glob, int start) {
+        int i = start + 1;
+        if (i < glob.length() && (glob.charAt(i) == '!' || glob.charAt(i) == '^')) {
+            i++;
+        }
+        // A ']' right after the opening bracket is part of the class
+        if (i < glob.length() && glob.charAt(i) == ']') {
+            i++;
+        }
+        for (; i < glob.length(); i++) {
+            if (glob.charAt(i) == ']') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Matches the whole given region of a string.
+     *
+     * @param text the text holding the segment
+     * @param from start of the segment, inclusive
+     * @param to end of the segment, exclusive
+     * @return true if the glob matches the region
+     */
+    boolean matches(@NotNull CharSequence text, int from, int to) {
+        int p = 0;
+        int i = from;
+        int starP = -1;
+        int starI = -1;
+        int n = kinds.length;
+
+        while (i < to) {
+            if (p < n && kinds[p] != STAR && matchesOne(p, text.charAt(i))) {
+                p++;
+                i++;
+            } else if (p < n && kinds[p] == STAR) {
+                starP = p++;
+                starI = i;
+            } else if (starP >= 0) {
+                // Let the last star swallow one more character and retry
+                p = starP + 1;
+                i = ++starI;
+            } else {
+                return false;
+            }
+        }
+
+        while (p < n && kinds[p] == STAR) {
+            p++;
+        }
+        return p == n;
+    }
+
+    boolean matches(@NotNull CharSequence text) {
+        return matches(text, 0, text.length());
+    }
+
+    private boolean matchesOne(int p, char c) {
+        return switch (kinds[p]) {
+            case LITERAL -> literals[p] == c;
+            case ANY -> true;
+            case CLASS -> classes[p].contains(c);
+            default -> false;
+        };
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    /**
+     * A bracket expression such as {@code [a-z0-9_]} or {@code [!.]}.
+     */
+    private static final class CharClass {
+        private final char[] ranges; // pairs of inclusive bounds
+        private final boolean negated;
+
+        private CharClass(char[] ranges, boolean negated) {
+            this.ranges = ranges;
+            this.negated = negated;
+        }
+
+        static CharClass parse(String glob, int from, int to) {
+            boolean negated = false;
+            if (from < to && (glob.charAt(from) == '!' || glob.charAt(from) == '^')) {
+                negated = true;
+                from++;
+            }
+            char[] ranges = new char[(to - from) * 2];
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                char low = glob.charAt(i);
+                if (low == '\\' && i + 1 < to) {
+                    low = glob.charAt(++i);
+                }
+                char high = low;
+                if (i + 2 < to && glob.charAt(i + 1) == '-') {
+                    high = glob.charAt(i + 2);
+                    i += 2;
+                }
+                ranges[count++] = low;
+                ranges[count++] = high;
+            }
+            char[] compact = new char[count];
+            System.arraycopy(ranges, 0, compact, 0, count);
+            return new CharClass(compact, negated);
+        }
+
+        boolean contains(char c) {
+            for (int i = 0; i < ranges.length; i += 2) {
+                if (c >= ranges[i] && c <= ranges[i + 1]) {
+                    return !negated;
+                }
+            }
+            return negated;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.github.hichemtabtech.jettreemark.scan;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+/**
+ * Walks folder hierarchies, listing sibling folders in parallel on a work-stealing pool.
+ * <p>
+ * The walk is described by an expand function that reads one folder and returns the sub-folders
+ * to descend into. Every folder is expanded by exactly one task, so an expand function that only
+ * fills in the folder it was given needs no locking, and children keep the order they were listed in.
+ * The caller sees everything the expand function did once {@link #scan} returns.
+ */
+public final class DirectoryScanner {
+    private final int parallelism;
+
+    /**
+     * @param parallelism the number of folders listed at the same time, 1 for a sequential walk
+     */
+    public DirectoryScanner(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Invalid parallelism: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Expands the given folders and, recursively, every sub-folder the expand function returns.
+     *
+     * @param roots the folders to start from
+     * @param expand reads a folder and returns the sub-folders to walk into
+     * @param <T> the folder type
+     */
+    public <T> void scan(@NotNull Collection<? extends T> roots,
+                         @NotNull Function<? super T, ? extends Collection<? extends T>> expand) {
+        if (roots.isEmpty()) {
+            return;
+        }
+        if (parallelism == 1) {
+            scanSequentially(roots, expand);
+            return;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new ExpandTask<T>(new ArrayList<>(roots), expand));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static <T> void scanSequentially(Collection<? extends T> roots,
+                                             Function<? super T, ? extends Collection<? extends T>> expand) {
+        Deque<T> stack = new ArrayDeque<>(roots);
+        while (!stack.isEmpty()) {
+            stack.addAll(expand.apply(stack.pop()));
+        }
+    }
+
+    /**
+     * Expands a group of sibling folders, one forked task per folder.
+     */
+    private static final class ExpandTask<T> extends RecursiveAction {
+        private final List<T> folders;
+        private final Function<? super T, ? extends Collection<? extends T>> expand;
+
+        ExpandTask(List<T> folders, Function<? super T, ? extends Collection<? extends T>> expand) {
+            this.folders = folders;
+            this.expand = expand;
+        }
+
+        @Override
+        protected void compute() {
+            if (folders.size() == 1) {
+                Collection<? extends T> subFolders = expand.apply(folders.get(0));
+                if (!subFolders.isEmpty()) {
+                    new ExpandTask<T>(new ArrayList<>(subFolders), expand).compute();
+                }
+                return;
+            }
+
+            List<ExpandTask<T>> tasks = new ArrayList<>(folders.size());
+            for (T folder : folders) {
+                tasks.add(new ExpandTask<>(List.of(folder), expand));
+            }
+            invokeAll(tasks);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.github.hichemtabtech.jettreemark.scan;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits on what one tree view reads from the file system, shared by every folder load of the tree.
+ * <p>
+ * Folders are read one at a time, when they are expanded or when an operation needs their content, often
+ * from several scanning threads at once. Each folder load asks the budget first: folders deeper than the
+ * depth limit, folders holding more entries than the per-folder limit, and any folder once the tree holds
+ * the total number of entries allowed are left unread. The budget records how many folders each limit
+ * stopped, so the tree view can tell which limits were hit.
+ */
+public final class ScanBudget {
+
+    /**
+     * The limits a folder can go over.
+     */
+    public enum Limit {
+        DEPTH,
+        TOTAL_ENTRIES,
+        FOLDER_ENTRIES
+    }
+
+    private final int maxDepth;
+    private final long maxEntries;
+    private final int maxFolderEntries;
+    private final AtomicLong entries = new AtomicLong();
+    private final AtomicIntegerArray stoppedFolders = new AtomicIntegerArray(Limit.values().length);
+
+    /**
+     * @param options the options holding the limits
+     */
+    public ScanBudget(@NotNull ScanOptions options) {
+        this.maxDepth = options.getMaxDepth();
+        this.maxEntries = options.getMaxEntries();
+        this.maxFolderEntries = options.getMaxFolderEntries();
+    }
+
+    /**
+     * @param depth the depth of a folder, 1 for the folders right below the root folder
+     * @return true if the folder may be read, false if it is below the depth limit
+     */
+    public boolean allowsDepth(int depth) {
+        return maxDepth <= 0 || depth < maxDepth;
+    }
+
+    /**
+     * Counts the entries of a folder about to be read, unless they go over a limit.
+     *
+     * @param entryCount the number of entries of the folder
+     * @return the limit the folder goes over, in which case nothing is counted, or null if it may be read
+     */
+    public @Nullable Limit reserve(int entryCount) {
+        if (maxFolderEntries > 0 && entryCount > maxFolderEntries) {
+            return Limit.FOLDER_ENTRIES;
+        }
+        if (maxEntries <= 0) {
+            entries.addAndGet(entryCount);
+            return null;
+        }
+
+        long current;
+        do {
+            current = entries.get();
+            if (current + entryCount > maxEntries) {
+                return Limit.TOTAL_ENTRIES;
+            }
+        } while (!entries.compareAndSet(current, current + entryCount));
+        return null;
+    }
+
+    /**
+     * Counts the entries of a folder read whatever the limits, such as the root folder or a folder the user
+     * expanded after a limit stopped it.
+     *
+     * @param entryCount the number of entries of the folder
+     */
+    public void add(int entryCount) {
+        entries.addAndGet(entryCount);
+    }
+
+    /**
+     * Records a folder left unread.
+     *
+     * @param limit the limit that stopped it
+     */
+    public void folderStopped(@NotNull Limit limit) {
+        stoppedFolders.incrementAndGet(limit.ordinal());
+    }
+
+    /**
+     * @param limit a limit
+     * @return the number of folders the limit stopped so far
+     */
+    public int getStoppedFolderCount(@NotNull Limit limit) {
+        return stoppedFolders.get(limit.ordinal());
+    }
+
+    /**
+     * @return true if some limit stopped a folder
+     */
+    public boolean isLimitHit() {
+        for (Limit limit : Limit.values()) {
+            if (getStoppedFolderCount(limit) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of entries read so far
+     */
+    public long getEntryCount() {
+        return entries.get();
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public long getMaxEntries() {
+        return maxEntries;
+    }
+
+    public int getMaxFolderEntries() {
+        return maxFolderEntries;
+    }
+}
@@ -0,0 +1,195 @@
+package com.github.hichemtabtech.jettreemark.scan;
+
+import com.github.hichemtabtech.jettreemark.gitignore.GitignoreFiles;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Folder listings and .gitignore patterns read by the scans of a project, kept for the next scan of the same folders.
+ * <p>
+ * Each folder is cached on its own and checked against the VFS before it is reused: the listing against
+ * the modification count and time stamp of the folder, the patterns against the modification stamp of its
+ * .gitignore file. Reopening an unchanged folder reads nothing, and after a change only the folders that
+ * changed are read again. Folders are evicted least recently used first once the estimated size of the
+ * cache goes over its budget. The cache is shared by the scanning threads.
+ */
+public final class ScanCache {
+    public static final long DEFAULT_BUDGET_BYTES = 32L * 1024 * 1024;
+
+    // Rough sizes of the objects kept per folder and per name, on a 64-bit JVM with compressed pointers
+    private static final int ENTRY_BYTES = 160;
+    private static final int STRING_BYTES = 48;
+
+    private final long budgetBytes;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+
+    /**
+     * @param budgetBytes the estimated size the cache may reach before evicting folders
+     */
+    public ScanCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * The children of a folder, as they were listed.
+     */
+    public static final class Listing {
+        private final String[] names;
+        private final boolean[] directories;
+
+        private Listing(VirtualFile[] children) {
+            names = new String[children.length];
+            directories = new boolean[children.length];
+            for (int i = 0; i < children.length; i++) {
+                names[i] = children[i].getName();
+                directories[i] = children[i].isDirectory();
+            }
+        }
+
+        public int size() {
+            return names.length;
+        }
+
+        public @NotNull String getName(int index) {
+            return names[index];
+        }
+
+        public boolean isDirectory(int index) {
+            return directories[index];
+        }
+
+        private long estimateBytes() {
+            long bytes = 32 + 5L * names.length;
+            for (String name : names) {
+                bytes += STRING_BYTES + name.length();
+            }
+            return bytes;
+        }
+    }
+
+    private static final class Entry {
+        @Nullable Listing listing;
+        long modificationCount;
+        long timeStamp;
+        @Nullable List<String> patterns;
+        long gitignoreStamp;
+        long bytes;
+    }
+
+    /**
+     * Lists the children of a folder, reading them again only if the folder changed since they were cached.
+     *
+     * @param folder the folder to list
+     * @return the children of the folder
+     */
+    public @NotNull Listing getListing(@NotNull VirtualFile folder) {
+        long modificationCount = folder.getModificationCount();
+        long timeStamp = folder.getTimeStamp();
+        String key = folder.getPath();
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.listing != null
+                    && entry.modificationCount == modificationCount && entry.timeStamp == timeStamp) {
+                return entry.listing;
+            }
+        }
+
+        VirtualFile[] children = folder.getChildren();
+        Listing listing = new Listing(children != null ? children : VirtualFile.EMPTY_ARRAY);
+        synchronized (this) {
+            Entry entry = entries.computeIfAbsent(key, k -> new Entry());
+            entry.listing = listing;
+            entry.modificationCount = modificationCount;
+            entry.timeStamp = timeStamp;
+            resize(entry);
+        }
+        return listing;
+    }
+
+    /**
+     * Reads the .gitignore patterns of a folder, reading the file again only if it changed since they were cached.
+     *
+     * @param folder the folder to search for .gitignore
+     * @return the gitignore patterns, in file order
+     */
+    public @NotNull List<String> getGitignorePatterns(@NotNull VirtualFile folder) {
+        VirtualFile gitignoreFile = folder.findChild(".gitignore");
+        // Folders without a .gitignore are cached too, a new one changes the listing of the folder anyway
+        long gitignoreStamp = gitignoreFile != null ? gitignoreFile.getModificationStamp() : -1;
+        String key = folder.getPath();
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.patterns != null && entry.gitignoreStamp == gitignoreStamp) {
+                return entry.patterns;
+            }
+        }
+
+        List<String> patterns = List.copyOf(GitignoreFiles.readFolderPatterns(folder));
+        synchronized (this) {
+            Entry entry = entries.computeIfAbsent(key, k -> new Entry());
+            entry.patterns = patterns;
+            entry.gitignoreStamp = gitignoreStamp;
+            resize(entry);
+        }
+        return patterns;
+    }
+
+    /**
+     * Forgets a folder that changed, whatever its stamps say.
+     *
+     * @param folder the folder whose listing or .gitignore changed
+     */
+    public synchronized void invalidate(@NotNull VirtualFile folder) {
+        Entry entry = entries.remove(folder.getPath());
+        if (entry != null) {
+            usedBytes -= entry.bytes;
+        }
+    }
+
+    /**
+     * Forgets every cached folder.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        usedBytes = 0;
+    }
+
+    public synchronized int getFolderCount() {
+        return entries.size();
+    }
+
+    /**
+     * @return the estimated size of the cached listings and patterns, in bytes
+     */
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    private void resize(Entry entry) {
+        long bytes = ENTRY_BYTES;
+        if (entry.listing != null) {
+            bytes += entry.listing.estimateBytes();
+        }
+        if (entry.patterns != null) {
+            for (String pattern : entry.patterns) {
+                bytes += STRING_BYTES + pattern.length();
+            }
+        }
+        usedBytes += bytes - entry.bytes;
+        entry.bytes = bytes;
+
+        // The entry just used is the most recent one, it is only evicted if it alone is over the budget
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (usedBytes > budgetBytes && eldest.hasNext()) {
+            usedBytes -= eldest.next().bytes;
+            eldest.remove();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.github.hichemtabtech.jettreemark.scan;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the scans of the plugin on its own bounded set of threads, shared fairly between projects.
+ * <p>
+ * Each project submits its scans to a {@link Queue} of its own, which runs a few of them at a time and keeps
+ * the others waiting in order. Free threads take the next task of each waiting queue in turn, so a project
+ * opening many large folders cannot hold every thread, and within a project a long scan only holds one of
+ * the slots while quicker ones go through the others. Closing a queue with its project drops what it still
+ * had waiting and hands it back. Threads are created when there is work and end after a while without any.
+ */
+public final class ScanExecutor {
+    private static final long KEEP_ALIVE_SECONDS = 30;
+    private static final ScanExecutor SHARED =
+            new ScanExecutor(Math.max(2, Runtime.getRuntime().availableProcessors() / 2));
+
+    private final int threadCount;
+    private final ExecutorService threads;
+    // Queues with a task waiting and a free slot, in the order they get the next free thread
+    private final Deque<Queue> ready = new ArrayDeque<>();
+    private int running;
+
+    /**
+     * @param threadCount the number of tasks run at the same time, whatever their queue
+     */
+    public ScanExecutor(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Invalid thread count: " + threadCount);
+        }
+        this.threadCount = threadCount;
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = task -> {
+            Thread thread = new Thread(task, "JetTreeMark scan " + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threadCount, threadCount,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory);
+        pool.allowCoreThreadTimeOut(true);
+        this.threads = pool;
+    }
+
+    /**
+     * @return the executor the tree views of every project share
+     */
+    public static @NotNull ScanExecutor getShared() {
+        return SHARED;
+    }
+
+    /**
+     * @return the number of tasks run at the same time
+     */
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * @param maxRunning the number of tasks of the queue run at the same time
+     * @return a new queue, to close when its owner goes away
+     */
+    public @NotNull Queue createQueue(int maxRunning) {
+        if (maxRunning < 1) {
+            throw new IllegalArgumentException("Invalid number of running tasks: " + maxRunning);
+        }
+        return new Queue(maxRunning);
+    }
+
+    /**
+     * Hands free threads to the waiting queues, one task each in turn. Called with the lock held.
+     */
+    private void dispatch() {
+        while (running < threadCount && !ready.isEmpty()) {
+            Queue queue = ready.poll();
+            Runnable task = queue.pending.poll();
+            queue.running++;
+            running++;
+            if (queue.canRun()) {
+                ready.add(queue);
+            } else {
+                queue.scheduled = false;
+            }
+            threads.execute(() -> run(queue, task));
+        }
+    }
+
+    private void run(Queue queue, Runnable task) {
+        try {
+            task.run();
+        } finally {
+            synchronized (this) {
+                queue.running--;
+                running--;
+                queue.markReady();
+                dispatch();
+            }
+        }
+    }
+
+    /**
+     * The scans of one owner, typically a project, run in the order they were submitted.
+     */
+    public final class Queue {
+        private final int maxRunning;
+        private final Deque<Runnable> pending = new ArrayDeque<>();
+        private int running;
+        // Whether the queue is in the ready queues of the executor
+        private boolean scheduled;
+        private volatile boolean closed;
+
+        private Queue(int maxRunning) {
+            this.maxRunning = maxRunning;
+        }
+
+        /**
+         * Runs the task once a thread and a slot of this queue are free. A {@link javax.swing.SwingWorker}
+         * can be submitted in place of calling its {@code execute} method, its EDT part is unchanged.
+         *
+         * @param task the task to run
+         * @throws RejectedExecutionException if the queue is closed
+         */
+        public void submit(@NotNull Runnable task) {
+            synchronized (ScanExecutor.this) {
+                if (closed) {
+                    throw new RejectedExecutionException("The scan queue is closed");
+                }
+                pending.add(task);
+                markReady();
+                dispatch();
+            }
+        }
+
+        /**
+         * Drops the tasks still waiting and refuses new ones. Running tasks are left to finish, owners
+         * stop them through their {@link ScanProgress}, which can follow {@link #isClosed()}.
+         * <p>
+         * The dropped tasks never run, so their owners get them back to release what they hold. A dropped
+         * {@link javax.swing.SwingWorker} never gets to its {@code done} method, even once cancelled.
+         *
+         * @return the tasks that were waiting, in the order they were submitted
+         */
+        public @NotNull List<Runnable> close() {
+            synchronized (ScanExecutor.this) {
+                closed = true;
+                List<Runnable> dropped = new ArrayList<>(pending);
+                pending.clear();
+                ready.remove(this);
+                scheduled = false;
+                return dropped;
+            }
+        }
+
+        /**
+         * @return true once the queue is closed, safe to call from any thread
+         */
+        public boolean isClosed() {
+            return closed;
+        }
+
+        /**
+         * @return the number of tasks waiting for a thread or a slot
+         */
+        public int getPendingCount() {
+            synchronized (ScanExecutor.this) {
+                return pending.size();
+            }
+        }
+
+        /**
+         * @return the number of tasks running
+         */
+        public int getRunningCount() {
+            synchronized (ScanExecutor.this) {
+                return running;
+            }
+        }
+
+        private boolean canRun() {
+            return !pending.isEmpty() && running < maxRunning;
+        }
+
+        private void markReady() {
+            if (!scheduled && canRun()) {
+                scheduled = true;
+                ready.add(this);
+            }
+        }
+    }
+}
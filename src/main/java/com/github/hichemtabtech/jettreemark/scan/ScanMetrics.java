@@ -0,0 +1,135 @@
+package com.github.hichemtabtech.jettreemark.scan;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * What the scans of one tree view did, from the first listing to the loads of later operations.
+ * <p>
+ * Scanning threads record each folder they list, the entries the gitignore rules left unchecked, the
+ * .gitignore files they read and the time each phase took, while the UI reads the totals at its own pace.
+ * Times are summed over the scanning threads, so parallel loads can add up to more than the time they took.
+ * The heap taken by the tree is estimated from the number of entries it received.
+ */
+public final class ScanMetrics {
+
+    /**
+     * The steps a folder load goes through.
+     */
+    public enum Phase {
+        /**
+         * Reading the entries of a folder, from the file system or the listing cache.
+         */
+        LISTING,
+        /**
+         * Reading and compiling .gitignore files.
+         */
+        GITIGNORE,
+        /**
+         * Adding the entries to the tree, the gitignore check of each entry included.
+         */
+        TREE
+    }
+
+    private final int bytesPerEntry;
+    private final LongAdder directories = new LongAdder();
+    private final LongAdder files = new LongAdder();
+    private final LongAdder entries = new LongAdder();
+    private final LongAdder ignored = new LongAdder();
+    private final LongAdder gitignoreFiles = new LongAdder();
+    private final LongAdder[] phaseNanos = new LongAdder[Phase.values().length];
+
+    /**
+     * @param bytesPerEntry the estimated heap an entry takes in the tree model, its name included
+     */
+    public ScanMetrics(int bytesPerEntry) {
+        this.bytesPerEntry = bytesPerEntry;
+        for (int i = 0; i < phaseNanos.length; i++) {
+            phaseNanos[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a listed folder.
+     *
+     * @param entryCount the number of entries added to the tree for it
+     * @param fileCount the number of files (not folders) among them
+     */
+    public void folderListed(int entryCount, int fileCount) {
+        directories.increment();
+        entries.add(entryCount);
+        files.add(fileCount);
+    }
+
+    /**
+     * Records an entry the gitignore rules left unchecked.
+     */
+    public void entryIgnored() {
+        ignored.increment();
+    }
+
+    /**
+     * Records a .gitignore file, or another file of gitignore patterns, that was read and had patterns.
+     */
+    public void gitignoreFileRead() {
+        gitignoreFiles.increment();
+    }
+
+    /**
+     * Adds time spent in a phase.
+     *
+     * @param phase the phase
+     * @param startNanos the {@link System#nanoTime()} when the phase started, it ends now
+     */
+    public void addTime(@NotNull Phase phase, long startNanos) {
+        phaseNanos[phase.ordinal()].add(System.nanoTime() - startNanos);
+    }
+
+    public long getDirectoryCount() {
+        return directories.sum();
+    }
+
+    public long getFileCount() {
+        return files.sum();
+    }
+
+    public long getIgnoredCount() {
+        return ignored.sum();
+    }
+
+    public long getGitignoreFileCount() {
+        return gitignoreFiles.sum();
+    }
+
+    /**
+     * @param phase a phase
+     * @return the time spent in the phase, summed over the scanning threads
+     */
+    public long getMillis(@NotNull Phase phase) {
+        return TimeUnit.NANOSECONDS.toMillis(phaseNanos[phase.ordinal()].sum());
+    }
+
+    /**
+     * @return the estimated heap taken by the entries listed so far
+     */
+    public long getEstimatedRetainedBytes() {
+        return entries.sum() * bytesPerEntry;
+    }
+
+    /**
+     * @return the totals on one line, for the log
+     */
+    @Override
+    public String toString() {
+        return "directories=" + getDirectoryCount()
+                + " files=" + getFileCount()
+                + " ignored=" + getIgnoredCount()
+                + " gitignoreFiles=" + getGitignoreFileCount()
+                + " listingMs=" + getMillis(Phase.LISTING)
+                + " gitignoreMs=" + getMillis(Phase.GITIGNORE)
+                + " treeMs=" + getMillis(Phase.TREE)
+                + " estimatedBytes=" + getEstimatedRetainedBytes();
+    }
+}
@@ -0,0 +1,138 @@
+package com.github.hichemtabtech.jettreemark.scan;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Immutable options that control how a folder is scanned into a tree view.
+ */
+public final class ScanOptions {
+    public static final int DEFAULT_MAX_ENTRIES = 1_000_000;
+    public static final int DEFAULT_MAX_FOLDER_ENTRIES = 100_000;
+    public static final ScanOptions DEFAULT = new ScanOptions(false, Runtime.getRuntime().availableProcessors(), false,
+            0, DEFAULT_MAX_ENTRIES, DEFAULT_MAX_FOLDER_ENTRIES);
+
+    private final boolean scanIgnoredDirectories;
+    private final int parallelism;
+    private final boolean compactTreeModel;
+    private final int maxDepth;
+    private final int maxEntries;
+    private final int maxFolderEntries;
+
+    private ScanOptions(boolean scanIgnoredDirectories, int parallelism, boolean compactTreeModel,
+                        int maxDepth, int maxEntries, int maxFolderEntries) {
+        this.scanIgnoredDirectories = scanIgnoredDirectories;
+        this.parallelism = parallelism;
+        this.compactTreeModel = compactTreeModel;
+        this.maxDepth = maxDepth;
+        this.maxEntries = maxEntries;
+        this.maxFolderEntries = maxFolderEntries;
+    }
+
+    /**
+     * Whether gitignored folders are treated like any other folder.
+     * When false, they are shown as a single unchecked placeholder that bulk check
+     * operations and exports never walk into, unless the user expands or checks it directly.
+     *
+     * @return true to scan inside gitignored folders
+     */
+    public boolean isScanIgnoredDirectories() {
+        return scanIgnoredDirectories;
+    }
+
+    public @NotNull ScanOptions withScanIgnoredDirectories(boolean scanIgnoredDirectories) {
+        return new ScanOptions(scanIgnoredDirectories, parallelism, compactTreeModel,
+                maxDepth, maxEntries, maxFolderEntries);
+    }
+
+    /**
+     * Number of threads listing folders in parallel when a whole subtree has to be read.
+     *
+     * @return the parallelism level, 1 to read folders one after another
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @param parallelism the parallelism level, values below 1 select the number of available processors
+     * @return options with the given parallelism level
+     */
+    public @NotNull ScanOptions withParallelism(int parallelism) {
+        return new ScanOptions(scanIgnoredDirectories,
+                parallelism < 1 ? Runtime.getRuntime().availableProcessors() : parallelism, compactTreeModel,
+                maxDepth, maxEntries, maxFolderEntries);
+    }
+
+    /**
+     * Whether the tree view keeps its nodes in a compact array-based model rather than one object per node.
+     * The compact model uses several times less memory on folders with hundreds of thousands of entries.
+     *
+     * @return true to use the compact tree model
+     */
+    public boolean isCompactTreeModel() {
+        return compactTreeModel;
+    }
+
+    public @NotNull ScanOptions withCompactTreeModel(boolean compactTreeModel) {
+        return new ScanOptions(scanIgnoredDirectories, parallelism, compactTreeModel,
+                maxDepth, maxEntries, maxFolderEntries);
+    }
+
+    /**
+     * Number of folder levels below the root folder a tree view reads. Folders at the last level are shown
+     * but left unread, until the user expands them.
+     *
+     * @return the maximum depth, 0 for no limit
+     * @see ScanBudget
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @param maxDepth the maximum depth, 0 or less for no limit
+     * @return options with the given maximum depth
+     */
+    public @NotNull ScanOptions withMaxDepth(int maxDepth) {
+        return new ScanOptions(scanIgnoredDirectories, parallelism, compactTreeModel,
+                Math.max(maxDepth, 0), maxEntries, maxFolderEntries);
+    }
+
+    /**
+     * Number of entries a tree view holds before it stops reading folders for operations that walk the tree.
+     *
+     * @return the maximum number of entries, 0 for no limit
+     * @see ScanBudget
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * @param maxEntries the maximum number of entries, 0 or less for no limit
+     * @return options with the given maximum number of entries
+     */
+    public @NotNull ScanOptions withMaxEntries(int maxEntries) {
+        return new ScanOptions(scanIgnoredDirectories, parallelism, compactTreeModel,
+                maxDepth, Math.max(maxEntries, 0), maxFolderEntries);
+    }
+
+    /**
+     * Number of entries above which a folder is left unread, until the user expands it.
+     *
+     * @return the maximum number of entries of a folder, 0 for no limit
+     * @see ScanBudget
+     */
+    public int getMaxFolderEntries() {
+        return maxFolderEntries;
+    }
+
+    /**
+     * @param maxFolderEntries the maximum number of entries of a folder, 0 or less for no limit
+     * @return options with the given maximum number of entries per folder
+     */
+    public @NotNull ScanOptions withMaxFolderEntries(int maxFolderEntries) {
+        return new ScanOptions(scanIgnoredDirectories, parallelism, compactTreeModel,
+                maxDepth, maxEntries, Math.max(maxFolderEntries, 0));
+    }
+}
@@ -0,0 +1,84 @@
+package com.github.hichemtabtech.jettreemark.scan;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Live counters and cooperative cancellation for one scan.
+ * <p>
+ * Scanning threads report each listed folder and poll {@link #checkCancelled()} between folders,
+ * while the UI reads the counters at its own pace. A progress can be tied to an outer cancellation,
+ * for example a tab or a progress indicator, so cancelling it stops every scan started for it.
+ */
+public final class ScanProgress {
+    private final @Nullable BooleanSupplier parentCancelled;
+    private final LongAdder directories = new LongAdder();
+    private final LongAdder files = new LongAdder();
+    private final long startNanos = System.nanoTime();
+    private volatile boolean cancelled;
+
+    public ScanProgress() {
+        this(null);
+    }
+
+    /**
+     * @param parentCancelled tells whether an outer operation was cancelled, which cancels this one too, or null
+     */
+    public ScanProgress(@Nullable BooleanSupplier parentCancelled) {
+        this.parentCancelled = parentCancelled;
+    }
+
+    /**
+     * Records a listed folder.
+     *
+     * @param fileCount the number of files (not folders) it contains
+     */
+    public void folderListed(int fileCount) {
+        directories.increment();
+        files.add(fileCount);
+    }
+
+    public long getDirectoryCount() {
+        return directories.sum();
+    }
+
+    public long getFileCount() {
+        return files.sum();
+    }
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @return the files listed per second since the scan started
+     */
+    public long getFilesPerSecond() {
+        long elapsed = getElapsedMillis();
+        return elapsed == 0 ? 0 : getFileCount() * 1000 / elapsed;
+    }
+
+    /**
+     * Asks the scan to stop at the next folder.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled || parentCancelled != null && parentCancelled.getAsBoolean();
+    }
+
+    /**
+     * @throws CancellationException if the scan or its parent was cancelled
+     */
+    public void checkCancelled() {
+        if (isCancelled()) {
+            throw new CancellationException("Scan cancelled");
+        }
+    }
+}
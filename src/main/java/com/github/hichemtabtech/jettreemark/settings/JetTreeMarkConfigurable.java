@@ -0,0 +1,98 @@
+package com.github.hichemtabtech.jettreemark.settings;
+
+import com.github.hichemtabtech.jettreemark.JetTreeMarkBundle;
+import com.github.hichemtabtech.jettreemark.scan.ScanOptions;
+import com.intellij.openapi.options.Configurable;
+import com.intellij.ui.JBIntSpinner;
+import com.intellij.ui.components.JBCheckBox;
+import com.intellij.util.ui.FormBuilder;
+import org.jetbrains.annotations.Nls;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+
+/**
+ * Settings page of the plugin, shown under Settings | Tools | JetTreeMark.
+ */
+public class JetTreeMarkConfigurable implements Configurable {
+
+    private JBCheckBox scanIgnoredDirectoriesCheckBox;
+    private JBIntSpinner scanParallelismSpinner;
+    private JBCheckBox compactTreeModelCheckBox;
+    private JBIntSpinner scanMaxDepthSpinner;
+    private JBIntSpinner scanMaxEntriesSpinner;
+    private JBIntSpinner scanMaxFolderEntriesSpinner;
+
+    @Override
+    public @Nls String getDisplayName() {
+        return JetTreeMarkBundle.message("settings.display_name");
+    }
+
+    @Override
+    public @NotNull JComponent createComponent() {
+        scanIgnoredDirectoriesCheckBox = new JBCheckBox(JetTreeMarkBundle.message("settings.scan_ignored_directories"));
+        scanParallelismSpinner = new JBIntSpinner(0, 0, 64);
+        compactTreeModelCheckBox = new JBCheckBox(JetTreeMarkBundle.message("settings.compact_tree_model"));
+        scanMaxDepthSpinner = new JBIntSpinner(0, 0, 1000);
+        scanMaxEntriesSpinner = new JBIntSpinner(ScanOptions.DEFAULT_MAX_ENTRIES, 0, Integer.MAX_VALUE);
+        scanMaxFolderEntriesSpinner = new JBIntSpinner(ScanOptions.DEFAULT_MAX_FOLDER_ENTRIES, 0, Integer.MAX_VALUE);
+
+        return FormBuilder.createFormBuilder()
+                .addComponent(scanIgnoredDirectoriesCheckBox)
+                .addTooltip(JetTreeMarkBundle.message("settings.scan_ignored_directories.tooltip"))
+                .addLabeledComponent(JetTreeMarkBundle.message("settings.scan_parallelism"), scanParallelismSpinner)
+                .addTooltip(JetTreeMarkBundle.message("settings.scan_parallelism.tooltip"))
+                .addComponent(compactTreeModelCheckBox)
+                .addTooltip(JetTreeMarkBundle.message("settings.compact_tree_model.tooltip"))
+                .addLabeledComponent(JetTreeMarkBundle.message("settings.scan_max_depth"), scanMaxDepthSpinner)
+                .addLabeledComponent(JetTreeMarkBundle.message("settings.scan_max_entries"), scanMaxEntriesSpinner)
+                .addLabeledComponent(JetTreeMarkBundle.message("settings.scan_max_folder_entries"),
+                        scanMaxFolderEntriesSpinner)
+                .addTooltip(JetTreeMarkBundle.message("settings.scan_limits.tooltip"))
+                .addComponentFillVertically(new JPanel(), 0)
+                .getPanel();
+    }
+
+    @Override
+    public boolean isModified() {
+        JetTreeMarkSettings.State state = JetTreeMarkSettings.getInstance().getState();
+        return scanIgnoredDirectoriesCheckBox.isSelected() != state.scanIgnoredDirectories
+                || scanParallelismSpinner.getNumber() != state.scanParallelism
+                || compactTreeModelCheckBox.isSelected() != state.compactTreeModel
+                || scanMaxDepthSpinner.getNumber() != state.scanMaxDepth
+                || scanMaxEntriesSpinner.getNumber() != state.scanMaxEntries
+                || scanMaxFolderEntriesSpinner.getNumber() != state.scanMaxFolderEntries;
+    }
+
+    @Override
+    public void apply() {
+        JetTreeMarkSettings.State state = JetTreeMarkSettings.getInstance().getState();
+        state.scanIgnoredDirectories = scanIgnoredDirectoriesCheckBox.isSelected();
+        state.scanParallelism = scanParallelismSpinner.getNumber();
+        state.compactTreeModel = compactTreeModelCheckBox.isSelected();
+        state.scanMaxDepth = scanMaxDepthSpinner.getNumber();
+        state.scanMaxEntries = scanMaxEntriesSpinner.getNumber();
+        state.scanMaxFolderEntries = scanMaxFolderEntriesSpinner.getNumber();
+    }
+
+    @Override
+    public void reset() {
+        JetTreeMarkSettings.State state = JetTreeMarkSettings.getInstance().getState();
+        scanIgnoredDirectoriesCheckBox.setSelected(state.scanIgnoredDirectories);
+        scanParallelismSpinner.setNumber(state.scanParallelism);
+        compactTreeModelCheckBox.setSelected(state.compactTreeModel);
+        scanMaxDepthSpinner.setNumber(state.scanMaxDepth);
+        scanMaxEntriesSpinner.setNumber(state.scanMaxEntries);
+        scanMaxFolderEntriesSpinner.setNumber(state.scanMaxFolderEntries);
+    }
+
+    @Override
+    public void disposeUIResources() {
+        scanIgnoredDirectoriesCheckBox = null;
+        scanParallelismSpinner = null;
+        compactTreeModelCheckBox = null;
+        scanMaxDepthSpinner = null;
+        scanMaxEntriesSpinner = null;
+        scanMaxFolderEntriesSpinner = null;
+    }
+}
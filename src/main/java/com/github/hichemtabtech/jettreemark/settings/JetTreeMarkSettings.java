@@ -0,0 +1,60 @@
+package com.github.hichemtabtech.jettreemark.settings;
+
+import com.github.hichemtabtech.jettreemark.scan.ScanOptions;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.components.Storage;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Application-wide settings of the plugin.
+ */
+@Service(Service.Level.APP)
+@State(name = "JetTreeMarkSettings", storages = @Storage("jetTreeMark.xml"))
+public final class JetTreeMarkSettings implements PersistentStateComponent<JetTreeMarkSettings.State> {
+
+    /**
+     * Persisted settings values.
+     */
+    public static class State {
+        public boolean scanIgnoredDirectories = false;
+        public int scanParallelism = 0;
+        public boolean compactTreeModel = false;
+        public int scanMaxDepth = 0;
+        public int scanMaxEntries = ScanOptions.DEFAULT_MAX_ENTRIES;
+        public int scanMaxFolderEntries = ScanOptions.DEFAULT_MAX_FOLDER_ENTRIES;
+    }
+
+    private State state = new State();
+
+    public static JetTreeMarkSettings getInstance() {
+        return ApplicationManager.getApplication().getService(JetTreeMarkSettings.class);
+    }
+
+    @Override
+    public @NotNull State getState() {
+        return state;
+    }
+
+    @Override
+    public void loadState(@NotNull State state) {
+        this.state = state;
+    }
+
+    /**
+     * Creates the scan options matching the current settings.
+     *
+     * @return the scan options to use for a new tree view
+     */
+    public @NotNull ScanOptions getScanOptions() {
+        return ScanOptions.DEFAULT
+                .withScanIgnoredDirectories(state.scanIgnoredDirectories)
+                .withParallelism(state.scanParallelism)
+                .withCompactTreeModel(state.compactTreeModel)
+                .withMaxDepth(state.scanMaxDepth)
+                .withMaxEntries(state.scanMaxEntries)
+                .withMaxFolderEntries(state.scanMaxFolderEntries);
+    }
+}
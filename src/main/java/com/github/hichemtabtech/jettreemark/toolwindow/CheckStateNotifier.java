@@ -0,0 +1,72 @@
+package com.github.hichemtabtech.jettreemark.toolwindow;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import javax.swing.tree.TreePath;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sends the tree model events that follow a check operation, limited to the rows on screen.
+ * <p>
+ * An operation can change the state of a whole subtree and of every ancestor of the node it ran on,
+ * but a check state never changes the size of a row: the label stays the same and so does the width
+ * of the checkbox. Rows that are collapsed or scrolled out of view need no event, they are painted with
+ * their current state when they show up. Only the visible rows on the path of the node or below it are
+ * reported, with one {@code nodesChanged} event per parent, so toggling a folder in a tree of 100k rows
+ * costs a screenful of rows rather than a relayout and repaint of the whole tree.
+ */
+final class CheckStateNotifier {
+
+    private CheckStateNotifier() {
+    }
+
+    /**
+     * Notifies the model listeners once a check operation has changed the states around a node.
+     *
+     * @param tree the tree showing a {@link CheckableTreeView}
+     * @param changed the path of the node the operation ran on
+     */
+    static void fireCheckStateChanged(@NotNull JTree tree, @NotNull TreePath changed) {
+        if (!(tree.getModel() instanceof CheckableTreeView model) || tree.getRowCount() == 0) {
+            return;
+        }
+
+        Rectangle visible = tree.getVisibleRect();
+        int first = tree.getClosestRowForLocation(visible.x, visible.y);
+        int last = tree.getClosestRowForLocation(visible.x, visible.y + Math.max(visible.height - 1, 0));
+        if (first < 0 || last < 0) {
+            return;
+        }
+
+        // Rows of one parent come in ascending order, even with expanded siblings in between
+        Map<TreePath, List<Integer>> changedChildren = new LinkedHashMap<>();
+        for (int row = first; row <= last; row++) {
+            TreePath path = tree.getPathForRow(row);
+            if (path == null || !(changed.isDescendant(path) || path.isDescendant(changed))) {
+                continue;
+            }
+
+            TreePath parentPath = path.getParentPath();
+            if (parentPath == null) {
+                model.fireNodesChanged(path.getLastPathComponent(), null);
+            } else {
+                int index = model.getIndexOfChild(parentPath.getLastPathComponent(), path.getLastPathComponent());
+                changedChildren.computeIfAbsent(parentPath, p -> new ArrayList<>()).add(index);
+            }
+        }
+
+        for (Map.Entry<TreePath, List<Integer>> entry : changedChildren.entrySet()) {
+            List<Integer> indices = entry.getValue();
+            int[] childIndices = new int[indices.size()];
+            for (int i = 0; i < childIndices.length; i++) {
+                childIndices[i] = indices.get(i);
+            }
+            model.fireNodesChanged(entry.getKey().getLastPathComponent(), childIndices);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.github.hichemtabtech.jettreemark.toolwindow;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A {@link CheckableTreeView} whose structure can change: folders are filled by their loaders and
+ * updated after file system changes.
+ * <p>
+ * This lets the scans, the snapshots and the file system sync run unchanged on top of
+ * {@link CheckboxTreeModel}, where each node is a {@link CheckboxTreeNode}, and on top of
+ * {@link CompactTreeModel}, where nodes are rows in primitive arrays.
+ */
+public interface CheckableTreeModel extends CheckableTreeView {
+
+    /**
+     * Supplies the children of a folder node the first time they are needed.
+     */
+    @FunctionalInterface
+    interface ChildrenLoader {
+        /**
+         * Adds the children of the given node with {@link #addChild}.
+         *
+         * @param model the model holding the node, which is a loading copy when folders are read in the background
+         * @param node the node to populate
+         */
+        void loadChildren(@NotNull CheckableTreeModel model, @NotNull Object node);
+
+        /**
+         * Does the slow part of loading, like listing the folder, without touching any model.
+         * Sibling folders of one loading copy can then be read in parallel, while the copy itself is only
+         * held to add what was read.
+         *
+         * @return the loader adding the children that were read, or this loader if it reads nothing up front
+         */
+        default @NotNull ChildrenLoader read() {
+            return this;
+        }
+    }
+
+    /**
+     * Appends a checked child to a folder node. All the children of a folder are added in one go,
+     * from the loader of that folder.
+     *
+     * @param parent the folder node
+     * @param name the file name
+     * @param folder whether the child is a folder
+     * @return the new node
+     */
+    @NotNull Object addChild(@NotNull Object parent, @NotNull String name, boolean folder);
+
+    /**
+     * @see CheckboxTreeNode#setIgnored(boolean)
+     */
+    void setIgnored(@NotNull Object node, boolean ignored);
+
+    /**
+     * Defers loading the children of a node until they are needed.
+     *
+     * @param node the folder node
+     * @param loader the loader to run on first access
+     */
+    void setChildrenLoader(@NotNull Object node, @NotNull ChildrenLoader loader);
+
+    /**
+     * @return the loader that will load the children of the node, or null if they are loaded
+     */
+    @Nullable ChildrenLoader getChildrenLoader(@NotNull Object node);
+
+    /**
+     * Creates a detached model whose root can load the children of a node on a background thread,
+     * without touching a model the tree is showing. Hand it back to {@link #adoptChildren} on the EDT.
+     *
+     * @param node the node to load
+     * @return the detached model, or null if the children are already loaded
+     */
+    @Nullable CheckableTreeModel createLoadingCopy(@NotNull Object node);
+
+    /**
+     * Tells whether a node is still the one a copy was made from, waiting for the same loader. Nodes that are
+     * rows of a model can be handed to another folder by {@link #updateChildren} while the copy loads.
+     *
+     * @param node the node the copy was made from
+     * @param copy a copy from {@link #createLoadingCopy}
+     * @return false if the node was loaded since, or now stands for another folder
+     * @see CheckboxTreeNode#isCopiedFrom(CheckboxTreeNode)
+     */
+    boolean isCopiedFrom(@NotNull Object node, @NotNull CheckableTreeModel copy);
+
+    /**
+     * Takes over the children loaded by the root of a copy from {@link #createLoadingCopy}.
+     *
+     * @param node the node the copy was made from
+     * @param copy the loaded copy
+     * @return true if the children were taken over
+     * @see CheckboxTreeNode#adoptChildren(CheckboxTreeNode)
+     */
+    boolean adoptChildren(@NotNull Object node, @NotNull CheckableTreeModel copy);
+
+    /**
+     * Removes and adds children of a loaded folder node in one batch, then notifies the listeners.
+     * The children that stay keep their state and their own children. The added children are checked,
+     * or unchecked under an unchecked node, and placed in name order among the others. The state of
+     * the node and of its parents then follows from their children again.
+     *
+     * @param parent a folder node whose children are loaded
+     * @param removed the indices of the children to remove, in ascending order
+     * @param addedNames the names of the children to add, sorted
+     * @param addedFolders whether each added child is a folder
+     * @return the added nodes, in the order of their names
+     */
+    @NotNull Object @NotNull [] updateChildren(@NotNull Object parent, int @NotNull [] removed,
+                                               @NotNull String @NotNull [] addedNames,
+                                               boolean @NotNull [] addedFolders);
+
+    /**
+     * Renames a node in place, keeping its state and its children. The listeners are not notified.
+     *
+     * @param node the node to rename
+     * @param name the new file name
+     */
+    void rename(@NotNull Object node, @NotNull String name);
+}
@@ -0,0 +1,96 @@
+package com.github.hichemtabtech.jettreemark.toolwindow;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.tree.TreeModel;
+
+/**
+ * A tree model whose nodes can be checked, unchecked or in an indeterminate state.
+ * <p>
+ * The nodes are opaque objects handed out by the model, every operation on them goes through the model.
+ * This lets the tree view, its renderer and its context menu run unchanged on top of a
+ * {@link CheckableTreeModel}, and on top of a {@link FilteredTreeModel} showing part of one.
+ * Check states are the {@link CheckboxTreeNode#UNCHECKED}, {@link CheckboxTreeNode#CHECKED}
+ * and {@link CheckboxTreeNode#INDETERMINATE} constants.
+ */
+public interface CheckableTreeView extends TreeModel {
+
+    @NotNull String getName(@NotNull Object node);
+
+    /**
+     * The label shown in the tree: the name, followed by a slash for folders.
+     * Labels are cached so painting a row does not build strings.
+     *
+     * @return the display label of the node
+     */
+    @NotNull String getDisplayName(@NotNull Object node);
+
+    boolean isFolder(@NotNull Object node);
+
+    /**
+     * @return true if the node is a gitignored folder placeholder
+     * @see CheckboxTreeNode#isIgnored()
+     */
+    boolean isIgnored(@NotNull Object node);
+
+    int getCheckState(@NotNull Object node);
+
+    /**
+     * @return true if the children of the node have been loaded
+     */
+    boolean isChildrenLoaded(@NotNull Object node);
+
+    /**
+     * @return true if the children were loaded by this call
+     * @see CheckboxTreeNode#ensureChildrenLoaded()
+     */
+    boolean ensureChildrenLoaded(@NotNull Object node);
+
+    /**
+     * Sets the check state of a node and propagates it to children and parents.
+     */
+    default void setCheckState(@NotNull Object node, int state) {
+        setCheckState(node, state, true, true);
+    }
+
+    /**
+     * @see CheckboxTreeNode#setCheckState(int, boolean, boolean)
+     */
+    void setCheckState(@NotNull Object node, int state, boolean propagateToChildren, boolean updateParent);
+
+    /**
+     * @see CheckboxTreeNode#checkAll(boolean)
+     */
+    void checkAll(@NotNull Object node, boolean recursive);
+
+    /**
+     * @see CheckboxTreeNode#uncheckAll(boolean)
+     */
+    void uncheckAll(@NotNull Object node, boolean withSelf);
+
+    /**
+     * @see CheckboxTreeNode#checkOnlyFolders(boolean)
+     */
+    void checkOnlyFolders(@NotNull Object node, boolean recursive);
+
+    /**
+     * @see CheckboxTreeNode#checkOnlyFiles(boolean)
+     */
+    void checkOnlyFiles(@NotNull Object node, boolean recursive);
+
+    /**
+     * Tells the listeners that the children of a node changed, after they were loaded or adopted.
+     *
+     * @param node the node whose subtree changed
+     */
+    void fireSubtreeChanged(@NotNull Object node);
+
+    /**
+     * Tells the listeners that some children of a node are displayed differently, after their check state changed.
+     *
+     * @param parent the parent of the changed nodes, or the root itself when {@code childIndices} is null
+     * @param childIndices the indices of the changed children in ascending order, null if the root changed
+     */
+    void fireNodesChanged(@NotNull Object parent, int @Nullable [] childIndices);
+}
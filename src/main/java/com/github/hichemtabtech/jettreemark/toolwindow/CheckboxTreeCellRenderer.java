@@ -1,45 +1,97 @@
 package com.github.hichemtabtech.jettreemark.toolwindow;
 
+import com.intellij.ui.JBColor;
+
 import javax.swing.*;
 import javax.swing.tree.DefaultTreeCellRenderer;
 import java.awt.*;
 
 /**
- * A cell renderer that displays a tri-state checkbox for each tree node.
+ * A cell renderer that displays a tri-state checkbox for each node of a {@link CheckableTreeView}.
+ * <p>
+ * Rendering a row allocates nothing: labels come from the model's cache, the checkbox is configured
+ * in place and, like the renderers of the JDK, it drops the property change events and layout requests
+ * that only matter to a component living in a real hierarchy.
  */
 public class CheckboxTreeCellRenderer extends DefaultTreeCellRenderer {
-    private final TriStateCheckBox checkBox = new TriStateCheckBox();
+    private final TriStateCheckBox checkBox = new RendererCheckBox();
 
     public CheckboxTreeCellRenderer() {
         checkBox.setOpaque(false);
     }
 
     @Override
-    public Component getTreeCellRendererComponent(JTree tree, Object value, boolean selected, boolean expanded, 
+    public Component getTreeCellRendererComponent(JTree tree, Object value, boolean selected, boolean expanded,
                                                  boolean leaf, int row, boolean hasFocus) {
-        Component renderer = super.getTreeCellRendererComponent(tree, value, selected, expanded, leaf, row, hasFocus);
-
-        if (value instanceof CheckboxTreeNode node) {
-            checkBox.setText(node.getUserObject().toString() + (node.getChildCount() > 0 ? "/" : ""));
-
-            // Set the appropriate state
-            switch (node.getCheckState()) {
-                case CheckboxTreeNode.CHECKED:
-                    checkBox.setState(TriStateCheckBox.State.SELECTED);
-                    break;
-                case CheckboxTreeNode.UNCHECKED:
-                    checkBox.setState(TriStateCheckBox.State.UNSELECTED);
-                    break;
-                case CheckboxTreeNode.INDETERMINATE:
-                    checkBox.setState(TriStateCheckBox.State.INDETERMINATE);
-                    break;
-            }
-
-            checkBox.setFont(renderer.getFont());
-            checkBox.setForeground(renderer.getForeground());
-            checkBox.setBackground(renderer.getBackground());
-            return checkBox;
-        }
-        return renderer;
+        if (!(tree.getModel() instanceof CheckableTreeView model) || value == null) {
+            return super.getTreeCellRendererComponent(tree, value, selected, expanded, leaf, row, hasFocus);
+        }
+
+        checkBox.setText(model.getDisplayName(value));
+
+        // Set the appropriate state
+        switch (model.getCheckState(value)) {
+            case CheckboxTreeNode.CHECKED:
+                checkBox.setState(TriStateCheckBox.State.SELECTED);
+                break;
+            case CheckboxTreeNode.UNCHECKED:
+                checkBox.setState(TriStateCheckBox.State.UNSELECTED);
+                break;
+            case CheckboxTreeNode.INDETERMINATE:
+                checkBox.setState(TriStateCheckBox.State.INDETERMINATE);
+                break;
+        }
+
+        checkBox.setFont(tree.getFont());
+        checkBox.setEnabled(tree.isEnabled());
+        // Gitignored folder placeholders are dimmed
+        Color foreground = selected ? getTextSelectionColor() : getTextNonSelectionColor();
+        checkBox.setForeground(model.isIgnored(value) && !selected ? JBColor.GRAY : foreground);
+        return checkBox;
+    }
+
+    /**
+     * Checkbox stamped on each row, overridden for performance reasons like {@link DefaultTreeCellRenderer}.
+     */
+    private static final class RendererCheckBox extends TriStateCheckBox {
+        @Override
+        public void validate() {
+        }
+
+        @Override
+        public void invalidate() {
+        }
+
+        @Override
+        public void revalidate() {
+        }
+
+        @Override
+        public void repaint(long tm, int x, int y, int width, int height) {
+        }
+
+        @Override
+        public void repaint(Rectangle r) {
+        }
+
+        @Override
+        public void repaint() {
+        }
+
+        @Override
+        protected void firePropertyChange(String propertyName, Object oldValue, Object newValue) {
+        }
+
+        @Override
+        public void firePropertyChange(String propertyName, boolean oldValue, boolean newValue) {
+        }
+
+        @Override
+        public void firePropertyChange(String propertyName, int oldValue, int newValue) {
+        }
+
+        @Override
+        public void firePropertyChange(String propertyName, char oldValue, char newValue) {
+        }
     }
-}
\ No newline at end of file
+}
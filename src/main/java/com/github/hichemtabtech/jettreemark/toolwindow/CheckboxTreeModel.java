@@ -0,0 +1,196 @@
+package com.github.hichemtabtech.jettreemark.toolwindow;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.TreeNode;
+
+/**
+ * A {@link CheckableTreeModel} made of {@link CheckboxTreeNode} objects, one per file or folder.
+ * Plain tree nodes mixed into the tree are shown as checked entries without a checkbox state of their own.
+ */
+public class CheckboxTreeModel extends DefaultTreeModel implements CheckableTreeModel {
+    // Heap per node, the loaders of unread folders included, as measured by TreeModelMemoryBenchmark
+    static final int ESTIMATED_BYTES_PER_NODE = 120;
+
+    public CheckboxTreeModel(@NotNull TreeNode root) {
+        super(root);
+    }
+
+    @Override
+    public @NotNull String getName(@NotNull Object node) {
+        return String.valueOf(((DefaultMutableTreeNode) node).getUserObject());
+    }
+
+    @Override
+    public @NotNull String getDisplayName(@NotNull Object node) {
+        return node instanceof CheckboxTreeNode checkboxNode ? checkboxNode.getDisplayName() : getName(node);
+    }
+
+    @Override
+    public boolean isFolder(@NotNull Object node) {
+        return node instanceof CheckboxTreeNode checkboxNode ? checkboxNode.isFolder() : !((TreeNode) node).isLeaf();
+    }
+
+    @Override
+    public boolean isIgnored(@NotNull Object node) {
+        return node instanceof CheckboxTreeNode checkboxNode && checkboxNode.isIgnored();
+    }
+
+    @Override
+    public int getCheckState(@NotNull Object node) {
+        return node instanceof CheckboxTreeNode checkboxNode ? checkboxNode.getCheckState() : CheckboxTreeNode.CHECKED;
+    }
+
+    @Override
+    public boolean isChildrenLoaded(@NotNull Object node) {
+        return !(node instanceof CheckboxTreeNode checkboxNode) || checkboxNode.isChildrenLoaded();
+    }
+
+    @Override
+    public @NotNull Object addChild(@NotNull Object parent, @NotNull String name, boolean folder) {
+        CheckboxTreeNode child = new CheckboxTreeNode(name, folder);
+        ((DefaultMutableTreeNode) parent).add(child);
+        return child;
+    }
+
+    @Override
+    public void setIgnored(@NotNull Object node, boolean ignored) {
+        ((CheckboxTreeNode) node).setIgnored(ignored);
+    }
+
+    @Override
+    public void setChildrenLoader(@NotNull Object node, @NotNull ChildrenLoader loader) {
+        ((CheckboxTreeNode) node).setChildrenLoader(new ModelLoader(this, loader));
+    }
+
+    @Override
+    public @Nullable ChildrenLoader getChildrenLoader(@NotNull Object node) {
+        if (!(node instanceof CheckboxTreeNode checkboxNode) || checkboxNode.getChildrenLoader() == null) {
+            return null;
+        }
+        CheckboxTreeNode.ChildrenLoader nodeLoader = checkboxNode.getChildrenLoader();
+        return nodeLoader instanceof ModelLoader modelLoader
+                ? modelLoader.loader()
+                : (model, loadedNode) -> nodeLoader.loadChildren((CheckboxTreeNode) loadedNode);
+    }
+
+    /**
+     * A model loader set on a node. The nodes do not know their model, which stays the same for loading copies.
+     */
+    private record ModelLoader(CheckboxTreeModel model, ChildrenLoader loader)
+            implements CheckboxTreeNode.ChildrenLoader {
+        @Override
+        public void loadChildren(CheckboxTreeNode node) {
+            loader.loadChildren(model, node);
+        }
+    }
+
+    @Override
+    public boolean ensureChildrenLoaded(@NotNull Object node) {
+        return node instanceof CheckboxTreeNode checkboxNode && checkboxNode.ensureChildrenLoaded();
+    }
+
+    @Override
+    public @Nullable CheckableTreeModel createLoadingCopy(@NotNull Object node) {
+        CheckboxTreeNode copy = ((CheckboxTreeNode) node).createLoadingCopy();
+        return copy == null ? null : new CheckboxTreeModel(copy);
+    }
+
+    @Override
+    public boolean isCopiedFrom(@NotNull Object node, @NotNull CheckableTreeModel copy) {
+        return ((CheckboxTreeNode) node).isCopiedFrom((CheckboxTreeNode) copy.getRoot());
+    }
+
+    @Override
+    public boolean adoptChildren(@NotNull Object node, @NotNull CheckableTreeModel copy) {
+        return ((CheckboxTreeNode) node).adoptChildren((CheckboxTreeNode) copy.getRoot());
+    }
+
+    @Override
+    public @NotNull Object @NotNull [] updateChildren(@NotNull Object parent, int @NotNull [] removed,
+                                                      @NotNull String @NotNull [] addedNames,
+                                                      boolean @NotNull [] addedFolders) {
+        CheckboxTreeNode parentNode = (CheckboxTreeNode) parent;
+        if (removed.length > 0) {
+            Object[] removedChildren = new Object[removed.length];
+            for (int i = removed.length - 1; i >= 0; i--) {
+                removedChildren[i] = parentNode.getChildAt(removed[i]);
+                parentNode.remove(removed[i]);
+            }
+            nodesWereRemoved(parentNode, removed, removedChildren);
+        }
+
+        Object[] added = new Object[addedNames.length];
+        if (added.length > 0) {
+            int state = parentNode.getCheckState() == CheckboxTreeNode.UNCHECKED
+                    ? CheckboxTreeNode.UNCHECKED
+                    : CheckboxTreeNode.CHECKED;
+            int[] indices = new int[added.length];
+            int index = 0;
+            for (int i = 0; i < added.length; i++) {
+                while (index < parentNode.getChildCount()
+                        && getName(parentNode.getChildAt(index)).compareTo(addedNames[i]) < 0) {
+                    index++;
+                }
+                CheckboxTreeNode child = new CheckboxTreeNode(addedNames[i], addedFolders[i]);
+                child.setCheckState(state, false, false);
+                parentNode.insert(child, index);
+                added[i] = child;
+                indices[i] = index++;
+            }
+            nodesWereInserted(parentNode, indices);
+        }
+
+        if (parentNode.getChildCount() > 0) {
+            parentNode.updateParentCheckState();
+        }
+        return added;
+    }
+
+    @Override
+    public void rename(@NotNull Object node, @NotNull String name) {
+        ((DefaultMutableTreeNode) node).setUserObject(name);
+    }
+
+    @Override
+    public void setCheckState(@NotNull Object node, int state, boolean propagateToChildren, boolean updateParent) {
+        ((CheckboxTreeNode) node).setCheckState(state, propagateToChildren, updateParent);
+    }
+
+    @Override
+    public void checkAll(@NotNull Object node, boolean recursive) {
+        ((CheckboxTreeNode) node).checkAll(recursive);
+    }
+
+    @Override
+    public void uncheckAll(@NotNull Object node, boolean withSelf) {
+        ((CheckboxTreeNode) node).uncheckAll(withSelf);
+    }
+
+    @Override
+    public void checkOnlyFolders(@NotNull Object node, boolean recursive) {
+        ((CheckboxTreeNode) node).checkOnlyFolders(recursive);
+    }
+
+    @Override
+    public void checkOnlyFiles(@NotNull Object node, boolean recursive) {
+        ((CheckboxTreeNode) node).checkOnlyFiles(recursive);
+    }
+
+    @Override
+    public void fireSubtreeChanged(@NotNull Object node) {
+        nodeStructureChanged((TreeNode) node);
+    }
+
+    @Override
+    public void fireNodesChanged(@NotNull Object parent, int @Nullable [] childIndices) {
+        if (childIndices == null) {
+            nodeChanged((TreeNode) parent);
+        } else {
+            nodesChanged((TreeNode) parent, childIndices);
+        }
+    }
+}
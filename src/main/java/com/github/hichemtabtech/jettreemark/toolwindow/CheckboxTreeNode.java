@@ -1,6 +1,7 @@
 package com.github.hichemtabtech.jettreemark.toolwindow;
 
 import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.MutableTreeNode;
 import javax.swing.tree.TreeNode;
 
 /**
@@ -14,17 +15,264 @@ public class CheckboxTreeNode extends DefaultMutableTreeNode {
 
     private int checkState = CHECKED; // Default to checked
 
+    // Number of children in the CHECKED and INDETERMINATE states, kept up to date on every change
+    // so that the state of a parent follows from its children without scanning them
+    private int checkedChildCount;
+    private int indeterminateChildCount;
+
     private final boolean isFolder;
 
+    // Label shown in the tree, built on first use
+    private String displayName;
+
+    // Gitignored folder kept as a single unchecked placeholder, bulk operations do not walk into it
+    private boolean ignored;
+
+    // Loads the children on first access, null once they are loaded (or for files)
+    private ChildrenLoader childrenLoader;
+
+    /**
+     * Supplies the children of a folder node the first time they are needed.
+     */
+    @FunctionalInterface
+    public interface ChildrenLoader {
+        /**
+         * Adds the children of the given node.
+         *
+         * @param node the node to populate
+         */
+        void loadChildren(CheckboxTreeNode node);
+    }
+
     public CheckboxTreeNode(Object userObject, boolean isFolder) {
         super(userObject);
         this.isFolder = isFolder;
     }
 
+    @Override
+    public void setUserObject(Object userObject) {
+        super.setUserObject(userObject);
+        displayName = null;
+    }
+
+    @Override
+    public void insert(MutableTreeNode newChild, int childIndex) {
+        super.insert(newChild, childIndex);
+        if (newChild instanceof CheckboxTreeNode checkboxChild) {
+            countChild(checkboxChild.checkState, 1);
+        }
+    }
+
+    @Override
+    public void remove(int childIndex) {
+        if (getChildAt(childIndex) instanceof CheckboxTreeNode checkboxChild) {
+            countChild(checkboxChild.checkState, -1);
+        }
+        super.remove(childIndex);
+    }
+
+    private void countChild(int state, int delta) {
+        if (state == CHECKED) {
+            checkedChildCount += delta;
+        } else if (state == INDETERMINATE) {
+            indeterminateChildCount += delta;
+        }
+    }
+
+    /**
+     * Changes the state of this node alone, keeping the counters of the parent in step.
+     */
+    private void assignCheckState(int state) {
+        if (state == checkState) {
+            return;
+        }
+        if (getParent() instanceof CheckboxTreeNode parent) {
+            parent.countChild(checkState, -1);
+            parent.countChild(state, 1);
+        }
+        checkState = state;
+    }
+
     public int getCheckState() {
         return checkState;
     }
 
+    public boolean isFolder() {
+        return isFolder;
+    }
+
+    /**
+     * @return the name followed by a slash for folders, as shown in the tree
+     */
+    public String getDisplayName() {
+        if (displayName == null) {
+            String name = String.valueOf(getUserObject());
+            displayName = isFolder ? name + "/" : name;
+        }
+        return displayName;
+    }
+
+    /**
+     * @return true if this node is a gitignored folder placeholder
+     */
+    public boolean isIgnored() {
+        return ignored;
+    }
+
+    /**
+     * Marks this node as a gitignored folder placeholder.
+     * Checking a parent or running a bulk check operation leaves such a node unchecked, so its
+     * content is only read when the user expands or checks it directly.
+     *
+     * @param ignored whether this node is a placeholder
+     */
+    public void setIgnored(boolean ignored) {
+        this.ignored = ignored;
+    }
+
+    /**
+     * Defers loading the children of this node until they are needed.
+     *
+     * @param childrenLoader the loader to run on first access, or null if the children are already there
+     */
+    public void setChildrenLoader(ChildrenLoader childrenLoader) {
+        this.childrenLoader = childrenLoader;
+    }
+
+    /**
+     * @return the loader to run on first access, or null if the children are loaded
+     */
+    public ChildrenLoader getChildrenLoader() {
+        return childrenLoader;
+    }
+
+    /**
+     * @return true if the children of this node have been loaded
+     */
+    public boolean isChildrenLoaded() {
+        return childrenLoader == null;
+    }
+
+    /**
+     * A folder whose children have not been loaded yet is never a leaf, so the tree
+     * keeps showing an expand handle for it.
+     */
+    @Override
+    public boolean isLeaf() {
+        return isChildrenLoaded() && super.isLeaf();
+    }
+
+    /**
+     * Loads the children of this node if they have not been loaded yet.
+     * Children loaded under an unchecked node start unchecked as well. The state of this node then
+     * follows from its children, as gitignored children are loaded unchecked under a checked node.
+     *
+     * @return true if the children were loaded by this call
+     */
+    public boolean ensureChildrenLoaded() {
+        if (childrenLoader == null) {
+            return false;
+        }
+
+        ChildrenLoader loader = childrenLoader;
+        childrenLoader = null;
+        loader.loadChildren(this);
+
+        if (checkState == UNCHECKED) {
+            for (int i = 0; i < getChildCount(); i++) {
+                Object child = getChildAt(i);
+                if (child instanceof CheckboxTreeNode) {
+                    ((CheckboxTreeNode) child).setCheckState(UNCHECKED, true, false);
+                }
+            }
+        }
+        updateParentCheckState();
+        return true;
+    }
+
+    /**
+     * Loads the children of this node before a bulk operation checks it.
+     *
+     * @return false if loading made this node a placeholder, which bulk operations leave unchecked
+     */
+    private boolean loadChildrenToCheck() {
+        boolean wasIgnored = ignored;
+        ensureChildrenLoaded();
+        return wasIgnored || !ignored;
+    }
+
+    /**
+     * Creates a detached node that can load the children of this node on a background thread,
+     * without touching a node the tree is showing. Hand it back to {@link #adoptChildren} on the EDT.
+     *
+     * @return the detached node, or null if the children are already loaded
+     */
+    public CheckboxTreeNode createLoadingCopy() {
+        if (childrenLoader == null) {
+            return null;
+        }
+        CheckboxTreeNode copy = new LoadingCopy(getUserObject(), isFolder, checkState, childrenLoader);
+        copy.checkState = checkState;
+        copy.ignored = ignored;
+        copy.childrenLoader = childrenLoader;
+        return copy;
+    }
+
+    /**
+     * Takes over the children loaded by a copy from {@link #createLoadingCopy()}.
+     * The copy is discarded if this node was loaded in the meantime, or if its check state changed
+     * since the copy was made, in which case the children are loaded again on next access.
+     *
+     * @param copy the loaded copy
+     * @return true if the children were taken over
+     */
+    public boolean adoptChildren(CheckboxTreeNode copy) {
+        int copiedState = copy instanceof LoadingCopy loadingCopy ? loadingCopy.copiedState : copy.checkState;
+        if (!isCopiedFrom(copy) || !copy.isChildrenLoaded() || copiedState != checkState) {
+            return false;
+        }
+
+        childrenLoader = null;
+        children = copy.children;
+        checkedChildCount = copy.checkedChildCount;
+        indeterminateChildCount = copy.indeterminateChildCount;
+        copy.children = null;
+        copy.checkedChildCount = 0;
+        copy.indeterminateChildCount = 0;
+        if (children != null) {
+            for (TreeNode child : children) {
+                ((MutableTreeNode) child).setParent(this);
+            }
+        }
+        // Like the copy, the node is only partly checked if it holds unchecked children
+        updateParentCheckState();
+        return true;
+    }
+
+    /**
+     * @param copy a copy from {@link #createLoadingCopy()}
+     * @return true if this node still waits for the loader the copy was made with
+     */
+    public boolean isCopiedFrom(CheckboxTreeNode copy) {
+        return childrenLoader != null && copy instanceof LoadingCopy loadingCopy
+                && loadingCopy.copiedLoader == childrenLoader;
+    }
+
+    /**
+     * A node made by {@link #createLoadingCopy()}. Loading derives its state from its children,
+     * so it remembers the state and the loader of the node it was made from.
+     */
+    private static final class LoadingCopy extends CheckboxTreeNode {
+        private final int copiedState;
+        private final ChildrenLoader copiedLoader;
+
+        LoadingCopy(Object userObject, boolean isFolder, int copiedState, ChildrenLoader copiedLoader) {
+            super(userObject, isFolder);
+            this.copiedState = copiedState;
+            this.copiedLoader = copiedLoader;
+        }
+    }
+
     /**
      * Sets the check state of this node and propagates the state to children and parents.
      * 
@@ -46,6 +294,7 @@ public class CheckboxTreeNode extends DefaultMutableTreeNode {
 
     /**
      * Sets the check state of this node with options to propagate to children and update parent.
+     * Updating the parents only walks up the path to the root, whatever the number of siblings.
      * 
      * @param state the new check state
      * @param propagateToChildren whether to propagate the state to children
@@ -56,29 +305,38 @@ public class CheckboxTreeNode extends DefaultMutableTreeNode {
             throw new IllegalArgumentException("Invalid check state: " + state);
         }
 
-        checkState = state;
+        assignCheckState(state);
 
         // Propagate checked/unchecked state to all children (not indeterminate)
         if (propagateToChildren && state != INDETERMINATE) {
             for (int i = 0; i < getChildCount(); i++) {
                 Object child = getChildAt(i);
-                if (child instanceof CheckboxTreeNode) {
-                    ((CheckboxTreeNode) child).setCheckState(state, true, false);
+                if (child instanceof CheckboxTreeNode checkboxChild) {
+                    if (state == CHECKED && checkboxChild.ignored) {
+                        continue;
+                    }
+                    checkboxChild.setCheckState(state, true, false);
                 }
             }
+            // Gitignored placeholders stay unchecked, so a folder holding some is only partly checked
+            if (state == CHECKED && getChildCount() > 0) {
+                assignCheckState(getChildrenCheckState());
+            }
         }
 
-        if (!updateParent) return;
+        if (updateParent) {
+            updateParentsCheckState();
+        }
+    }
 
-        // Update parent node
-        TreeNode parent = getParent();
-        if (parent instanceof CheckboxTreeNode) {
-            ((CheckboxTreeNode) parent).updateParentCheckState();
+    private void updateParentsCheckState() {
+        if (getParent() instanceof CheckboxTreeNode parent) {
+            parent.updateParentCheckState();
         }
     }
 
     /**
-     * Checks only folder nodes (nodes with children) in the tree.
+     * Checks only folder nodes in the tree.
      * This applies to all levels (recursive).
      */
     public void checkOnlyFolders() {
@@ -86,45 +344,43 @@ public class CheckboxTreeNode extends DefaultMutableTreeNode {
     }
 
     /**
-     * Checks only folder nodes (nodes with children).
+     * Checks only folder nodes.
      * 
      * @param recursive whether to apply to all levels or just the current level
      */
     public void checkOnlyFolders(boolean recursive) {
+        applyCheckOnlyFolders(recursive);
+        updateParentsCheckState();
+    }
 
-        checkState = CHECKED;
+    private void applyCheckOnlyFolders(boolean recursive) {
+        if (!loadChildrenToCheck()) {
+            return;
+        }
+
+        assignCheckState(CHECKED);
 
         // Process children if recursive
         if (recursive) {
             for (int i = 0; i < getChildCount(); i++) {
                 Object child = getChildAt(i);
-                if (child instanceof CheckboxTreeNode && ((CheckboxTreeNode) child).isFolder) {
-                    ((CheckboxTreeNode) child).checkOnlyFolders();
+                if (child instanceof CheckboxTreeNode checkboxChild && checkboxChild.isFolder && !checkboxChild.ignored) {
+                    checkboxChild.applyCheckOnlyFolders(true);
                 }
             }
         } else {
             // Just check/uncheck immediate children based on whether they are folders
             for (int i = 0; i < getChildCount(); i++) {
                 Object child = getChildAt(i);
-                if (child instanceof CheckboxTreeNode checkboxChild) {
-                    if (checkboxChild.isFolder) {
-                        checkboxChild.setCheckState(CHECKED, false, false);
-                    } else {
-                        checkboxChild.setCheckState(UNCHECKED, false, false);
-                    }
+                if (child instanceof CheckboxTreeNode checkboxChild && !checkboxChild.ignored) {
+                    checkboxChild.assignCheckState(checkboxChild.isFolder ? CHECKED : UNCHECKED);
                 }
             }
         }
-
-        // Update parent node
-        TreeNode parent = getParent();
-        if (parent instanceof CheckboxTreeNode) {
-            ((CheckboxTreeNode) parent).updateParentCheckState();
-        }
     }
 
     /**
-     * Checks only file nodes (nodes without children) in the tree.
+     * Checks only file nodes (nodes that are not folders) in the tree.
      * This applies to all levels (recursive).
      */
     public void checkOnlyFiles() {
@@ -132,41 +388,39 @@ public class CheckboxTreeNode extends DefaultMutableTreeNode {
     }
 
     /**
-     * Checks only file nodes (nodes without children).
+     * Checks only file nodes (nodes that are not folders).
      * 
      * @param recursive whether to apply to all levels or just the current level
      */
     public void checkOnlyFiles(boolean recursive) {
+        applyCheckOnlyFiles(recursive);
+        updateParentsCheckState();
+    }
+
+    private void applyCheckOnlyFiles(boolean recursive) {
+        if (!loadChildrenToCheck()) {
+            return;
+        }
 
-        checkState = CHECKED;
+        assignCheckState(CHECKED);
 
         // Process children if recursive
         if (recursive) {
             for (int i = 0; i < getChildCount(); i++) {
                 Object child = getChildAt(i);
-                if (child instanceof CheckboxTreeNode) {
-                    ((CheckboxTreeNode) child).checkOnlyFiles();
+                if (child instanceof CheckboxTreeNode checkboxChild && !checkboxChild.ignored) {
+                    checkboxChild.applyCheckOnlyFiles(true);
                 }
             }
         } else {
             // Just check/uncheck immediate children based on whether they are files
             for (int i = 0; i < getChildCount(); i++) {
                 Object child = getChildAt(i);
-                if (child instanceof CheckboxTreeNode checkboxChild) {
-                    if (checkboxChild.getChildCount() == 0) {
-                        checkboxChild.setCheckState(CHECKED, false, false);
-                    } else {
-                        checkboxChild.setCheckState(UNCHECKED, false, false);
-                    }
+                if (child instanceof CheckboxTreeNode checkboxChild && !checkboxChild.ignored) {
+                    checkboxChild.assignCheckState(checkboxChild.isFolder ? UNCHECKED : CHECKED);
                 }
             }
         }
-
-        // Update parent node
-        TreeNode parent = getParent();
-        if (parent instanceof CheckboxTreeNode) {
-            ((CheckboxTreeNode) parent).updateParentCheckState();
-        }
     }
 
     /**
@@ -183,30 +437,26 @@ public class CheckboxTreeNode extends DefaultMutableTreeNode {
      * @param recursive whether to apply to all levels or just the current level
      */
     public void checkAll(boolean recursive) {
-        checkState = CHECKED;
+        applyCheckAll(recursive);
+        updateParentsCheckState();
+    }
 
-        if (recursive) {
-            // Check all children recursively
-            for (int i = 0; i < getChildCount(); i++) {
-                Object child = getChildAt(i);
-                if (child instanceof CheckboxTreeNode) {
-                    ((CheckboxTreeNode) child).checkAll();
-                }
-            }
-        } else {
-            // Just check immediate children
-            for (int i = 0; i < getChildCount(); i++) {
-                Object child = getChildAt(i);
-                if (child instanceof CheckboxTreeNode) {
-                    ((CheckboxTreeNode) child).setCheckState(CHECKED, false, false);
-                }
-            }
+    private void applyCheckAll(boolean recursive) {
+        // Just check immediate children
+        if (!recursive && !loadChildrenToCheck()) {
+            return;
         }
+        assignCheckState(CHECKED);
 
-        // Update parent node
-        TreeNode parent = getParent();
-        if (parent instanceof CheckboxTreeNode) {
-            ((CheckboxTreeNode) parent).updateParentCheckState();
+        for (int i = 0; i < getChildCount(); i++) {
+            Object child = getChildAt(i);
+            if (child instanceof CheckboxTreeNode checkboxChild && !checkboxChild.ignored) {
+                if (recursive) {
+                    checkboxChild.applyCheckAll(true);
+                } else {
+                    checkboxChild.assignCheckState(CHECKED);
+                }
+            }
         }
     }
 
@@ -223,53 +473,65 @@ public class CheckboxTreeNode extends DefaultMutableTreeNode {
      * @param withSelf whether to uncheck this node as well
      */
     public void uncheckAll(boolean withSelf) {
+        applyUncheckAll(withSelf);
         if (withSelf) {
-            checkState = UNCHECKED;
+            updateParentsCheckState();
+        } else {
+            // Unchecked children leave this node unchecked too, unless it holds none
+            updateParentCheckState();
+        }
+    }
+
+    private void applyUncheckAll(boolean withSelf) {
+        if (withSelf) {
+            assignCheckState(UNCHECKED);
         }
 
         // Uncheck all children recursively
         for (int i = 0; i < getChildCount(); i++) {
             Object child = getChildAt(i);
             if (child instanceof CheckboxTreeNode) {
-                ((CheckboxTreeNode) child).uncheckAll(true);
+                ((CheckboxTreeNode) child).applyUncheckAll(true);
             }
         }
     }
 
     /**
-     * Updates the checked state of this node based on its children.
+     * Updates the checked state of this node based on its children, then the state of its parents.
      * If all children are unchecked, this node will be unchecked.
      * If all children are checked, this node will be checked.
      * If some children are checked and others are unchecked, this node will be indeterminate.
+     * <p>
+     * The children are not scanned, their counters are kept up to date as states change, so this
+     * costs one step per level up to the first node whose state stays the same.
      */
     public void updateParentCheckState() {
-        if (getChildCount() == 0) {
-            return; // No children to check
-        }
+        CheckboxTreeNode node = this;
+        while (node.getChildCount() > 0) {
+            int state = node.getChildrenCheckState();
 
-        boolean allUnchecked = true;
+            // Only update if the state would change
+            if (state == node.checkState) {
+                return;
+            }
+            node.assignCheckState(state);
 
-        for (int i = 0; i < getChildCount(); i++) {
-            Object child = getChildAt(i);
-            if (child instanceof CheckboxTreeNode checkboxChild) {
-                if (checkboxChild.getCheckState() == CHECKED) {
-                    allUnchecked = false;
-                }
+            if (!(node.getParent() instanceof CheckboxTreeNode parent)) {
+                return;
             }
+            node = parent;
         }
+    }
 
-        // Determine the new state
-        if (!allUnchecked) {
-            // Only update if the state would change (to avoid infinite recursion)
-            if (checkState != CHECKED) {
-                // Set state without propagating to children
-                checkState = CHECKED;
-
-                // Update parent node if needed
-                if (getParent() instanceof CheckboxTreeNode) {
-                    ((CheckboxTreeNode) getParent()).updateParentCheckState();
-                }
-            }
+    /**
+     * @return the state following from the counters of the children, for a node that has some
+     */
+    private int getChildrenCheckState() {
+        if (checkedChildCount == getChildCount()) {
+            return CHECKED;
+        } else if (checkedChildCount == 0 && indeterminateChildCount == 0) {
+            return UNCHECKED;
         }
+        return INDETERMINATE;
     }
 }
@@ -0,0 +1,756 @@
+package com.github.hichemtabtech.jettreemark.toolwindow;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.event.EventListenerList;
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+import javax.swing.tree.TreePath;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link CheckableTreeModel} that keeps its nodes in primitive arrays instead of one object per node.
+ * <p>
+ * Node {@code i} is row {@code i} of the arrays: the index of its parent, the index of its first child,
+ * its child count, the number of its checked and indeterminate children, the index of its name in a shared
+ * name table and a byte of flags holding the check state, the folder and ignored bits. All the children
+ * of a folder are loaded together, so they occupy consecutive rows and finding a child or the index of
+ * a child is a subtraction. Names repeated across folders ({@code src}, {@code build.gradle},
+ * {@code index.ts}) are stored once.
+ * <p>
+ * The tree sees lightweight {@link Node} handles, created on demand and compared by row. The check
+ * operations behave exactly like those of {@link CheckboxTreeNode}. Like any Swing model, an instance
+ * is not thread safe: the model a tree shows is only touched on the EDT, and the threads reading the
+ * folders of a loading copy take turns on its monitor.
+ * <p>
+ * Children removed or added after a change in the file system are merged into the rows of their folder when
+ * they fit there, with the unused rows that follow. Otherwise the folder's children move to new rows at the
+ * end and their old rows, like those of removed subtrees, are left for other folders to grow into. The tree
+ * is told that the folder's structure changed, as the rows of its children did.
+ */
+public final class CompactTreeModel implements CheckableTreeModel {
+    // Heap per node: a row is 6 ints, a byte of flags and a loader reference, 29 bytes, plus up to half
+    // of it again in spare capacity and the loaders of unread folders. TreeModelMemoryBenchmark measures
+    // 42 to 48 bytes with names repeated across folders, depending on where the arrays last grew.
+    static final int ESTIMATED_BYTES_PER_NODE = 48;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private static final byte STATE_MASK = 0x03;
+    private static final byte FOLDER = 0x04;
+    private static final byte IGNORED = 0x08;
+    // Parent of the unused rows left behind by updateChildren
+    private static final int DETACHED = -2;
+
+    private int size;
+    private int[] parents = new int[INITIAL_CAPACITY];
+    private int[] firstChildren = new int[INITIAL_CAPACITY];
+    private int[] childCounts = new int[INITIAL_CAPACITY];
+    private int[] checkedCounts = new int[INITIAL_CAPACITY];
+    private int[] indeterminateCounts = new int[INITIAL_CAPACITY];
+    private int[] nameIds = new int[INITIAL_CAPACITY];
+    private byte[] flags = new byte[INITIAL_CAPACITY];
+    // Loads the children on first access, null once they are loaded (or for files)
+    private ChildrenLoader[] loaders = new ChildrenLoader[INITIAL_CAPACITY];
+
+    private String[] names = new String[INITIAL_CAPACITY];
+    // Name followed by a slash, built for the names of folders when they are first shown
+    private String[] folderLabels = new String[INITIAL_CAPACITY];
+    private final Map<String, Integer> nameIndex = new HashMap<>();
+
+    private final EventListenerList listeners = new EventListenerList();
+    // State of the node a loading copy was made from, loading derives the state of the root from its children
+    private int copiedState;
+    // Loader of the node a loading copy was made from. File system changes can hand its row to another
+    // folder while the copy loads, the loader tells whether the row still holds the same folder.
+    private @Nullable ChildrenLoader copiedLoader;
+
+    /**
+     * Creates a model with a checked root node.
+     *
+     * @param rootName the name of the root node
+     * @param rootFolder whether the root node is a folder
+     */
+    public CompactTreeModel(@NotNull String rootName, boolean rootFolder) {
+        append(-1, rootName, rootFolder);
+    }
+
+    /**
+     * Handle of a node, as seen by the tree. Handles of the same row are equal.
+     */
+    public static final class Node {
+        private final CompactTreeModel model;
+        private final int index;
+
+        private Node(CompactTreeModel model, int index) {
+            this.model = model;
+            this.index = index;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Node node && node.index == index && node.model == model;
+        }
+
+        @Override
+        public int hashCode() {
+            return index;
+        }
+
+        /**
+         * The name, used by the tree for speed search and accessibility.
+         */
+        @Override
+        public String toString() {
+            return model.names[model.nameIds[index]];
+        }
+    }
+
+    /**
+     * @return the number of nodes in the model
+     */
+    public int size() {
+        return size;
+    }
+
+    private int indexOf(Object node) {
+        Node handle = (Node) node;
+        if (handle.model != this) {
+            throw new IllegalArgumentException("Node of another model: " + node);
+        }
+        return handle.index;
+    }
+
+    private Node handle(int index) {
+        return new Node(this, index);
+    }
+
+    private int append(int parent, String name, boolean folder) {
+        ensureCapacity(size + 1);
+        int index = size++;
+        setRow(index, parent, name, folder);
+        return index;
+    }
+
+    private void ensureCapacity(int rows) {
+        if (rows > parents.length) {
+            int capacity = Math.max(rows, parents.length + (parents.length >> 1));
+            parents = Arrays.copyOf(parents, capacity);
+            firstChildren = Arrays.copyOf(firstChildren, capacity);
+            childCounts = Arrays.copyOf(childCounts, capacity);
+            checkedCounts = Arrays.copyOf(checkedCounts, capacity);
+            indeterminateCounts = Arrays.copyOf(indeterminateCounts, capacity);
+            nameIds = Arrays.copyOf(nameIds, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+            loaders = Arrays.copyOf(loaders, capacity);
+        }
+    }
+
+    private void setRow(int index, int parent, String name, boolean folder) {
+        parents[index] = parent;
+        firstChildren[index] = -1;
+        childCounts[index] = 0;
+        checkedCounts[index] = 0;
+        indeterminateCounts[index] = 0;
+        nameIds[index] = internName(name);
+        flags[index] = (byte) (CheckboxTreeNode.CHECKED | (folder ? FOLDER : 0));
+        loaders[index] = null;
+    }
+
+    private void moveRow(int from, int to) {
+        if (from != to) {
+            nameIds[to] = nameIds[from];
+            flags[to] = flags[from];
+            loaders[to] = loaders[from];
+            firstChildren[to] = firstChildren[from];
+            childCounts[to] = childCounts[from];
+            checkedCounts[to] = checkedCounts[from];
+            indeterminateCounts[to] = indeterminateCounts[from];
+        }
+    }
+
+    private void detach(int index) {
+        parents[index] = DETACHED;
+        // Let the loader and what it holds go
+        loaders[index] = null;
+    }
+
+    private void detachChildren(int index) {
+        for (int child = firstChildren[index], end = child + childCounts[index]; child < end; child++) {
+            detachChildren(child);
+            detach(child);
+        }
+    }
+
+    /**
+     * @return whether the rows from {@code from} to {@code to} are unused or past the last row
+     */
+    private boolean isFree(int from, int to) {
+        for (int row = from; row < to && row < size; row++) {
+            if (parents[row] != DETACHED) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int internName(String name) {
+        Integer id = nameIndex.get(name);
+        if (id != null) {
+            return id;
+        }
+        int newId = nameIndex.size();
+        if (newId == names.length) {
+            names = Arrays.copyOf(names, newId + (newId >> 1));
+            folderLabels = Arrays.copyOf(folderLabels, names.length);
+        }
+        names[newId] = name;
+        nameIndex.put(name, newId);
+        return newId;
+    }
+
+    private int state(int index) {
+        return flags[index] & STATE_MASK;
+    }
+
+    /**
+     * Changes the state of a node alone, keeping the counters of its parent in step.
+     */
+    private void setState(int index, int state) {
+        int oldState = state(index);
+        if (oldState == state) {
+            return;
+        }
+        int parent = parents[index];
+        if (parent >= 0) {
+            countChild(parent, oldState, -1);
+            countChild(parent, state, 1);
+        }
+        flags[index] = (byte) ((flags[index] & ~STATE_MASK) | state);
+    }
+
+    private void countChild(int parent, int state, int delta) {
+        if (state == CheckboxTreeNode.CHECKED) {
+            checkedCounts[parent] += delta;
+        } else if (state == CheckboxTreeNode.INDETERMINATE) {
+            indeterminateCounts[parent] += delta;
+        }
+    }
+
+    private boolean folder(int index) {
+        return (flags[index] & FOLDER) != 0;
+    }
+
+    private boolean ignored(int index) {
+        return (flags[index] & IGNORED) != 0;
+    }
+
+    // TreeModel
+
+    @Override
+    public Object getRoot() {
+        return handle(0);
+    }
+
+    @Override
+    public Object getChild(Object parent, int index) {
+        int parentIndex = indexOf(parent);
+        if (index < 0 || index >= childCounts[parentIndex]) {
+            throw new ArrayIndexOutOfBoundsException(index + " >= " + childCounts[parentIndex]);
+        }
+        return handle(firstChildren[parentIndex] + index);
+    }
+
+    @Override
+    public int getChildCount(Object parent) {
+        return childCounts[indexOf(parent)];
+    }
+
+    /**
+     * A folder whose children have not been loaded yet is never a leaf, so the tree
+     * keeps showing an expand handle for it.
+     */
+    @Override
+    public boolean isLeaf(Object node) {
+        int index = indexOf(node);
+        return loaders[index] == null && childCounts[index] == 0;
+    }
+
+    @Override
+    public void valueForPathChanged(TreePath path, Object newValue) {
+        // Names come from the file system and cannot be edited
+    }
+
+    @Override
+    public int getIndexOfChild(Object parent, Object child) {
+        if (parent == null || child == null) {
+            return -1;
+        }
+        int parentIndex = indexOf(parent);
+        int childIndex = indexOf(child);
+        return parents[childIndex] == parentIndex ? childIndex - firstChildren[parentIndex] : -1;
+    }
+
+    @Override
+    public void addTreeModelListener(TreeModelListener l) {
+        listeners.add(TreeModelListener.class, l);
+    }
+
+    @Override
+    public void removeTreeModelListener(TreeModelListener l) {
+        listeners.remove(TreeModelListener.class, l);
+    }
+
+    @Override
+    public void fireSubtreeChanged(@NotNull Object node) {
+        TreeModelEvent event = new TreeModelEvent(this, getPathToRoot(indexOf(node)));
+        for (TreeModelListener listener : listeners.getListeners(TreeModelListener.class)) {
+            listener.treeStructureChanged(event);
+        }
+    }
+
+    @Override
+    public void fireNodesChanged(@NotNull Object parent, int @Nullable [] childIndices) {
+        int parentIndex = indexOf(parent);
+        TreeModelEvent event;
+        if (childIndices == null) {
+            event = new TreeModelEvent(this, getPathToRoot(parentIndex), null, null);
+        } else {
+            Object[] children = new Object[childIndices.length];
+            for (int i = 0; i < childIndices.length; i++) {
+                children[i] = handle(firstChildren[parentIndex] + childIndices[i]);
+            }
+            event = new TreeModelEvent(this, getPathToRoot(parentIndex), childIndices, children);
+        }
+        for (TreeModelListener listener : listeners.getListeners(TreeModelListener.class)) {
+            listener.treeNodesChanged(event);
+        }
+    }
+
+    private Object[] getPathToRoot(int index) {
+        int depth = 0;
+        for (int i = index; i >= 0; i = parents[i]) {
+            depth++;
+        }
+        Object[] path = new Object[depth];
+        for (int i = index; i >= 0; i = parents[i]) {
+            path[--depth] = handle(i);
+        }
+        return path;
+    }
+
+    // Node properties
+
+    @Override
+    public @NotNull String getName(@NotNull Object node) {
+        return names[nameIds[indexOf(node)]];
+    }
+
+    @Override
+    public @NotNull String getDisplayName(@NotNull Object node) {
+        int index = indexOf(node);
+        int nameId = nameIds[index];
+        if (!folder(index)) {
+            return names[nameId];
+        }
+        if (folderLabels[nameId] == null) {
+            folderLabels[nameId] = names[nameId] + "/";
+        }
+        return folderLabels[nameId];
+    }
+
+    @Override
+    public boolean isFolder(@NotNull Object node) {
+        return folder(indexOf(node));
+    }
+
+    @Override
+    public boolean isIgnored(@NotNull Object node) {
+        return ignored(indexOf(node));
+    }
+
+    @Override
+    public int getCheckState(@NotNull Object node) {
+        return state(indexOf(node));
+    }
+
+    @Override
+    public boolean isChildrenLoaded(@NotNull Object node) {
+        return loaders[indexOf(node)] == null;
+    }
+
+    // Loading
+
+    @Override
+    public @NotNull Object addChild(@NotNull Object parent, @NotNull String name, boolean folder) {
+        int parentIndex = indexOf(parent);
+        if (childCounts[parentIndex] == 0) {
+            firstChildren[parentIndex] = size;
+        } else if (firstChildren[parentIndex] + childCounts[parentIndex] != size) {
+            throw new IllegalStateException("The children of " + getName(parent) + " must be added in one go");
+        }
+        childCounts[parentIndex]++;
+        checkedCounts[parentIndex]++;
+        return handle(append(parentIndex, name, folder));
+    }
+
+    @Override
+    public void setIgnored(@NotNull Object node, boolean ignored) {
+        int index = indexOf(node);
+        flags[index] = (byte) (ignored ? flags[index] | IGNORED : flags[index] & ~IGNORED);
+    }
+
+    @Override
+    public void setChildrenLoader(@NotNull Object node, @NotNull ChildrenLoader loader) {
+        loaders[indexOf(node)] = loader;
+    }
+
+    @Override
+    public @Nullable ChildrenLoader getChildrenLoader(@NotNull Object node) {
+        return loaders[indexOf(node)];
+    }
+
+    @Override
+    public boolean ensureChildrenLoaded(@NotNull Object node) {
+        return ensureChildrenLoaded(indexOf(node));
+    }
+
+    private boolean ensureChildrenLoaded(int index) {
+        ChildrenLoader loader = loaders[index];
+        if (loader == null) {
+            return false;
+        }
+
+        loaders[index] = null;
+        loader.loadChildren(this, handle(index));
+
+        if (state(index) == CheckboxTreeNode.UNCHECKED) {
+            for (int child = firstChildren[index], end = child + childCounts[index]; child < end; child++) {
+                setCheckState(child, CheckboxTreeNode.UNCHECKED, true, false);
+            }
+        }
+        // Gitignored children are loaded unchecked, so a checked folder holding some is only partly checked
+        updateParentCheckState(index);
+        return true;
+    }
+
+    /**
+     * Loads the children of a node before a bulk operation checks it.
+     *
+     * @return false if loading made the node a placeholder, which bulk operations leave unchecked
+     */
+    private boolean loadChildrenToCheck(int index) {
+        boolean wasIgnored = ignored(index);
+        ensureChildrenLoaded(index);
+        return wasIgnored || !ignored(index);
+    }
+
+    @Override
+    public @Nullable CheckableTreeModel createLoadingCopy(@NotNull Object node) {
+        int index = indexOf(node);
+        if (loaders[index] == null) {
+            return null;
+        }
+        CompactTreeModel copy = new CompactTreeModel(names[nameIds[index]], folder(index));
+        copy.flags[0] = flags[index];
+        copy.loaders[0] = loaders[index];
+        copy.copiedState = state(index);
+        copy.copiedLoader = loaders[index];
+        return copy;
+    }
+
+    @Override
+    public boolean isCopiedFrom(@NotNull Object node, @NotNull CheckableTreeModel copy) {
+        ChildrenLoader loader = loaders[indexOf(node)];
+        return loader != null && loader == ((CompactTreeModel) copy).copiedLoader;
+    }
+
+    /**
+     * Appends the rows of the copy below the node, shifting their indices and re-interning their names.
+     * Consecutive children stay consecutive, so the copy keeps its layout.
+     */
+    @Override
+    public boolean adoptChildren(@NotNull Object node, @NotNull CheckableTreeModel copy) {
+        int index = indexOf(node);
+        CompactTreeModel loaded = (CompactTreeModel) copy;
+        if (!isCopiedFrom(node, copy) || loaded.loaders[0] != null || loaded.copiedState != state(index)) {
+            return false;
+        }
+
+        loaders[index] = null;
+        if (loaded.childCounts[0] == 0) {
+            return true;
+        }
+
+        // Row i > 0 of the copy becomes row offset + i
+        int offset = size - 1;
+        firstChildren[index] = loaded.firstChildren[0] + offset;
+        childCounts[index] = loaded.childCounts[0];
+        checkedCounts[index] = loaded.checkedCounts[0];
+        indeterminateCounts[index] = loaded.indeterminateCounts[0];
+        for (int i = 1; i < loaded.size; i++) {
+            int row = append(loaded.parents[i] == 0 ? index : loaded.parents[i] + offset,
+                    loaded.names[loaded.nameIds[i]], false);
+            flags[row] = loaded.flags[i];
+            loaders[row] = loaded.loaders[i];
+            childCounts[row] = loaded.childCounts[i];
+            checkedCounts[row] = loaded.checkedCounts[i];
+            indeterminateCounts[row] = loaded.indeterminateCounts[i];
+            firstChildren[row] = loaded.childCounts[i] > 0 ? loaded.firstChildren[i] + offset : -1;
+        }
+        // Like the root of the copy, the node is only partly checked if it holds unchecked children
+        updateParentCheckState(index);
+        return true;
+    }
+
+    // Changes from the file system
+
+    @Override
+    public @NotNull Object @NotNull [] updateChildren(@NotNull Object parent, int @NotNull [] removed,
+                                                      @NotNull String @NotNull [] addedNames,
+                                                      boolean @NotNull [] addedFolders) {
+        int index = indexOf(parent);
+        int first = firstChildren[index];
+        int count = childCounts[index];
+        int keptCount = count - removed.length;
+        int newCount = keptCount + addedNames.length;
+        int state = state(index) == CheckboxTreeNode.UNCHECKED ? CheckboxTreeNode.UNCHECKED : CheckboxTreeNode.CHECKED;
+
+        // Place each added child by name among the current ones, as the number of remaining children before it
+        int[] keptBefore = new int[addedNames.length];
+        int removedIndex = 0;
+        int addedIndex = 0;
+        int keptIndex = 0;
+        for (int i = 0; i <= count; i++) {
+            int child = first + i;
+            while (addedIndex < addedNames.length
+                    && (i == count || names[nameIds[child]].compareTo(addedNames[addedIndex]) >= 0)) {
+                keptBefore[addedIndex++] = keptIndex;
+            }
+            if (i == count) {
+                break;
+            }
+            if (removedIndex < removed.length && removed[removedIndex] == i) {
+                removedIndex++;
+                detachChildren(child);
+            } else {
+                keptIndex++;
+            }
+        }
+
+        // The children stay in their rows if the unused rows after them make enough room, or move to the end
+        int newFirst = first >= 0 && isFree(first + count, first + newCount) ? first : size;
+        ensureCapacity(newFirst + newCount);
+        size = Math.max(size, newFirst + newCount);
+
+        // Close the gaps of the removed children, then spread the remaining ones from the last to fit the added ones
+        removedIndex = 0;
+        keptIndex = 0;
+        for (int i = 0; i < count; i++) {
+            if (removedIndex < removed.length && removed[removedIndex] == i) {
+                removedIndex++;
+            } else {
+                moveRow(first + i, newFirst + keptIndex++);
+            }
+        }
+        Object[] added = new Object[addedNames.length];
+        keptIndex = keptCount - 1;
+        for (int i = added.length - 1, row = newFirst + newCount - 1; i >= 0; row--) {
+            if (keptIndex >= 0 && keptBefore[i] <= keptIndex) {
+                moveRow(newFirst + keptIndex--, row);
+            } else {
+                setRow(row, index, addedNames[i], addedFolders[i]);
+                flags[row] = (byte) ((flags[row] & ~STATE_MASK) | state);
+                added[i] = handle(row);
+                i--;
+            }
+        }
+
+        for (int row = newFirst == first ? first + newCount : first; row < first + count; row++) {
+            detach(row);
+        }
+        for (int child = newFirst; child < newFirst + newCount; child++) {
+            parents[child] = index;
+            for (int grandChild = firstChildren[child], end = grandChild + childCounts[child]; grandChild < end; grandChild++) {
+                parents[grandChild] = child;
+            }
+        }
+        while (parents[size - 1] == DETACHED) {
+            size--;
+        }
+        childCounts[index] = newCount;
+        firstChildren[index] = newCount > 0 ? newFirst : -1;
+        checkedCounts[index] = 0;
+        indeterminateCounts[index] = 0;
+        for (int child = newFirst; child < newFirst + newCount; child++) {
+            countChild(index, state(child), 1);
+        }
+        updateParentCheckState(index);
+
+        fireSubtreeChanged(parent);
+        return added;
+    }
+
+    @Override
+    public void rename(@NotNull Object node, @NotNull String name) {
+        nameIds[indexOf(node)] = internName(name);
+    }
+
+    // Checking, mirrors CheckboxTreeNode
+
+    @Override
+    public void setCheckState(@NotNull Object node, int state, boolean propagateToChildren, boolean updateParent) {
+        if (state < CheckboxTreeNode.UNCHECKED || state > CheckboxTreeNode.INDETERMINATE) {
+            throw new IllegalArgumentException("Invalid check state: " + state);
+        }
+        setCheckState(indexOf(node), state, propagateToChildren, updateParent);
+    }
+
+    private void setCheckState(int index, int state, boolean propagateToChildren, boolean updateParent) {
+        setState(index, state);
+
+        // Propagate checked/unchecked state to all children (not indeterminate)
+        if (propagateToChildren && state != CheckboxTreeNode.INDETERMINATE) {
+            for (int child = firstChildren[index], end = child + childCounts[index]; child < end; child++) {
+                if (state == CheckboxTreeNode.CHECKED && ignored(child)) {
+                    continue;
+                }
+                setCheckState(child, state, true, false);
+            }
+            // Gitignored placeholders stay unchecked, so a folder holding some is only partly checked
+            if (state == CheckboxTreeNode.CHECKED && childCounts[index] > 0) {
+                setState(index, childrenState(index));
+            }
+        }
+
+        if (updateParent) {
+            updateParentCheckState(parents[index]);
+        }
+    }
+
+    @Override
+    public void checkOnlyFolders(@NotNull Object node, boolean recursive) {
+        int index = indexOf(node);
+        checkOnlyFolders(index, recursive);
+        updateParentCheckState(parents[index]);
+    }
+
+    private void checkOnlyFolders(int index, boolean recursive) {
+        if (!loadChildrenToCheck(index)) {
+            return;
+        }
+        setState(index, CheckboxTreeNode.CHECKED);
+
+        for (int child = firstChildren[index], end = child + childCounts[index]; child < end; child++) {
+            if (ignored(child)) {
+                continue;
+            }
+            if (recursive) {
+                if (folder(child)) {
+                    checkOnlyFolders(child, true);
+                }
+            } else {
+                setState(child, folder(child) ? CheckboxTreeNode.CHECKED : CheckboxTreeNode.UNCHECKED);
+            }
+        }
+    }
+
+    @Override
+    public void checkOnlyFiles(@NotNull Object node, boolean recursive) {
+        int index = indexOf(node);
+        checkOnlyFiles(index, recursive);
+        updateParentCheckState(parents[index]);
+    }
+
+    private void checkOnlyFiles(int index, boolean recursive) {
+        if (!loadChildrenToCheck(index)) {
+            return;
+        }
+        setState(index, CheckboxTreeNode.CHECKED);
+
+        for (int child = firstChildren[index], end = child + childCounts[index]; child < end; child++) {
+            if (ignored(child)) {
+                continue;
+            }
+            if (recursive) {
+                checkOnlyFiles(child, true);
+            } else {
+                setState(child, folder(child) ? CheckboxTreeNode.UNCHECKED : CheckboxTreeNode.CHECKED);
+            }
+        }
+    }
+
+    @Override
+    public void checkAll(@NotNull Object node, boolean recursive) {
+        int index = indexOf(node);
+        checkAll(index, recursive);
+        updateParentCheckState(parents[index]);
+    }
+
+    private void checkAll(int index, boolean recursive) {
+        // Just check immediate children
+        if (!recursive && !loadChildrenToCheck(index)) {
+            return;
+        }
+        setState(index, CheckboxTreeNode.CHECKED);
+
+        for (int child = firstChildren[index], end = child + childCounts[index]; child < end; child++) {
+            if (ignored(child)) {
+                continue;
+            }
+            if (recursive) {
+                checkAll(child, true);
+            } else {
+                setState(child, CheckboxTreeNode.CHECKED);
+            }
+        }
+    }
+
+    @Override
+    public void uncheckAll(@NotNull Object node, boolean withSelf) {
+        int index = indexOf(node);
+        uncheckAll(index, withSelf);
+        // Unchecked children leave the node unchecked too, unless it holds none
+        updateParentCheckState(withSelf ? parents[index] : index);
+    }
+
+    private void uncheckAll(int index, boolean withSelf) {
+        if (withSelf) {
+            setState(index, CheckboxTreeNode.UNCHECKED);
+        }
+        for (int child = firstChildren[index], end = child + childCounts[index]; child < end; child++) {
+            uncheckAll(child, true);
+        }
+    }
+
+    /**
+     * Derives the state of a folder from the counters of its children, then does the same for its
+     * parents up to the first one whose state stays the same.
+     *
+     * @param index the folder, or -1 above the root
+     * @see CheckboxTreeNode#updateParentCheckState()
+     */
+    private void updateParentCheckState(int index) {
+        for (; index >= 0 && childCounts[index] > 0; index = parents[index]) {
+            int state = childrenState(index);
+            if (state == state(index)) {
+                return;
+            }
+            setState(index, state);
+        }
+    }
+
+    /**
+     * @return the state following from the counters of the children, for a folder that has some
+     */
+    private int childrenState(int index) {
+        if (checkedCounts[index] == childCounts[index]) {
+            return CheckboxTreeNode.CHECKED;
+        } else if (checkedCounts[index] == 0 && indeterminateCounts[index] == 0) {
+            return CheckboxTreeNode.UNCHECKED;
+        }
+        return CheckboxTreeNode.INDETERMINATE;
+    }
+}
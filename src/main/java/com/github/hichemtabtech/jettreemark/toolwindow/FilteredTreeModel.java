@@ -0,0 +1,252 @@
+package com.github.hichemtabtech.jettreemark.toolwindow;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.event.EventListenerList;
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+import javax.swing.tree.TreePath;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A view of a {@link CheckableTreeModel} showing only the nodes found by a search and their ancestors.
+ * <p>
+ * The nodes are those of the underlying model, so names, states and check operations go straight to it:
+ * checking a folder here checks its whole subtree there, shown or not. Only the structure is filtered, and
+ * it is fixed when the view is created from a {@link NameIndex} search, so the view cannot be changed or loaded.
+ * The view is built from the search numbers alone: the numbers of a parent's children are consecutive and in
+ * tree order, so the shown children of a folder are one run of the sorted shown numbers and the view costs a
+ * few arrays per shown node.
+ */
+final class FilteredTreeModel implements CheckableTreeView {
+    private final CheckableTreeModel model;
+    // Shown nodes, in breadth-first order, with the position of their parent and of their first shown child
+    private final Object[] nodes;
+    private final int[] parents;
+    private final int[] firstChildren;
+    private final int[] childCounts;
+    private final Map<Object, Integer> positions;
+    private final EventListenerList listeners = new EventListenerList();
+
+    /**
+     * @param model the model to filter
+     * @param index the index the matches were found in, built from the model
+     * @param matches the numbers of the nodes to show in ascending order, as returned by {@link NameIndex#search}
+     */
+    FilteredTreeModel(@NotNull CheckableTreeModel model, @NotNull NameIndex index, int @NotNull [] matches) {
+        this.model = model;
+
+        // Walk up from each match until an ancestor that is already shown
+        boolean[] shown = new boolean[index.size()];
+        shown[0] = true;
+        int count = 1;
+        for (int match : matches) {
+            for (int slot = match; slot > 0 && !shown[slot]; slot = index.getParent(slot)) {
+                shown[slot] = true;
+                count++;
+            }
+        }
+
+        nodes = new Object[count];
+        parents = new int[count];
+        firstChildren = new int[count];
+        childCounts = new int[count];
+        positions = new HashMap<>(count * 2);
+        // Position of each shown number, only read for the parents of shown nodes
+        Map<Integer, Integer> slotPositions = new HashMap<>(count * 2);
+        int position = 0;
+        for (int slot = 0; slot < shown.length; slot++) {
+            if (!shown[slot]) {
+                continue;
+            }
+            nodes[position] = index.getNode(slot);
+            positions.put(nodes[position], position);
+            slotPositions.put(slot, position);
+            if (slot == 0) {
+                parents[position] = -1;
+            } else {
+                int parent = slotPositions.get(index.getParent(slot));
+                parents[position] = parent;
+                if (childCounts[parent]++ == 0) {
+                    firstChildren[parent] = position;
+                }
+            }
+            position++;
+        }
+    }
+
+    /**
+     * @return the number of nodes shown, the root included
+     */
+    int getShownCount() {
+        return nodes.length;
+    }
+
+    private int positionOf(Object node) {
+        Integer position = positions.get(node);
+        return position != null ? position : -1;
+    }
+
+    // TreeModel
+
+    @Override
+    public Object getRoot() {
+        return nodes[0];
+    }
+
+    @Override
+    public Object getChild(Object parent, int index) {
+        int position = positionOf(parent);
+        return position >= 0 && index >= 0 && index < childCounts[position]
+                ? nodes[firstChildren[position] + index]
+                : null;
+    }
+
+    @Override
+    public int getChildCount(Object parent) {
+        int position = positionOf(parent);
+        return position >= 0 ? childCounts[position] : 0;
+    }
+
+    @Override
+    public boolean isLeaf(Object node) {
+        return getChildCount(node) == 0;
+    }
+
+    @Override
+    public void valueForPathChanged(TreePath path, Object newValue) {
+        // Names come from the file system and cannot be edited
+    }
+
+    @Override
+    public int getIndexOfChild(Object parent, Object child) {
+        if (parent == null || child == null) {
+            return -1;
+        }
+        int parentPosition = positionOf(parent);
+        int childPosition = positionOf(child);
+        return parentPosition >= 0 && childPosition >= 0 && parents[childPosition] == parentPosition
+                ? childPosition - firstChildren[parentPosition]
+                : -1;
+    }
+
+    @Override
+    public void addTreeModelListener(TreeModelListener l) {
+        listeners.add(TreeModelListener.class, l);
+    }
+
+    @Override
+    public void removeTreeModelListener(TreeModelListener l) {
+        listeners.remove(TreeModelListener.class, l);
+    }
+
+    // Node properties, read from the filtered model
+
+    @Override
+    public @NotNull String getName(@NotNull Object node) {
+        return model.getName(node);
+    }
+
+    @Override
+    public @NotNull String getDisplayName(@NotNull Object node) {
+        return model.getDisplayName(node);
+    }
+
+    @Override
+    public boolean isFolder(@NotNull Object node) {
+        return model.isFolder(node);
+    }
+
+    @Override
+    public boolean isIgnored(@NotNull Object node) {
+        return model.isIgnored(node);
+    }
+
+    @Override
+    public int getCheckState(@NotNull Object node) {
+        return model.getCheckState(node);
+    }
+
+    @Override
+    public boolean isChildrenLoaded(@NotNull Object node) {
+        // The shown children are fixed, nothing is loaded through the view
+        return true;
+    }
+
+    @Override
+    public boolean ensureChildrenLoaded(@NotNull Object node) {
+        return false;
+    }
+
+    // Check operations, applied to the whole subtrees in the filtered model
+
+    @Override
+    public void setCheckState(@NotNull Object node, int state, boolean propagateToChildren, boolean updateParent) {
+        model.setCheckState(node, state, propagateToChildren, updateParent);
+    }
+
+    @Override
+    public void checkAll(@NotNull Object node, boolean recursive) {
+        model.checkAll(node, recursive);
+    }
+
+    @Override
+    public void uncheckAll(@NotNull Object node, boolean withSelf) {
+        model.uncheckAll(node, withSelf);
+    }
+
+    @Override
+    public void checkOnlyFolders(@NotNull Object node, boolean recursive) {
+        model.checkOnlyFolders(node, recursive);
+    }
+
+    @Override
+    public void checkOnlyFiles(@NotNull Object node, boolean recursive) {
+        model.checkOnlyFiles(node, recursive);
+    }
+
+    // Events
+
+    @Override
+    public void fireSubtreeChanged(@NotNull Object node) {
+        TreeModelEvent event = new TreeModelEvent(this, getPathToRoot(positionOf(node)));
+        for (TreeModelListener listener : listeners.getListeners(TreeModelListener.class)) {
+            listener.treeStructureChanged(event);
+        }
+    }
+
+    @Override
+    public void fireNodesChanged(@NotNull Object parent, int @Nullable [] childIndices) {
+        int position = positionOf(parent);
+        TreeModelEvent event;
+        if (childIndices == null) {
+            event = new TreeModelEvent(this, getPathToRoot(position), null, null);
+        } else {
+            Object[] children = new Object[childIndices.length];
+            for (int i = 0; i < childIndices.length; i++) {
+                children[i] = nodes[firstChildren[position] + childIndices[i]];
+            }
+            event = new TreeModelEvent(this, getPathToRoot(position), childIndices, children);
+        }
+        for (TreeModelListener listener : listeners.getListeners(TreeModelListener.class)) {
+            listener.treeNodesChanged(event);
+        }
+
+        // The listeners of the filtered model learn that states changed, its own rows are refreshed when shown
+        model.fireNodesChanged(model.getRoot(), null);
+    }
+
+    private Object[] getPathToRoot(int position) {
+        int depth = 0;
+        for (int i = position; i >= 0; i = parents[i]) {
+            depth++;
+        }
+        Object[] path = new Object[depth];
+        for (int i = position; i >= 0; i = parents[i]) {
+            path[--depth] = nodes[i];
+        }
+        return path;
+    }
+}
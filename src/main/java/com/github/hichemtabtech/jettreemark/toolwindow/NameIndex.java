@@ -0,0 +1,248 @@
+package com.github.hichemtabtech.jettreemark.toolwindow;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An index of the names of the loaded nodes of a tree, answering substring searches without walking the tree.
+ * <p>
+ * The nodes are numbered in breadth-first order, so a parent always comes before its children and the children
+ * of a folder get consecutive numbers in their tree order. Each node keeps the number of its parent. Names are
+ * stored once, lower-cased, with the nodes carrying them, and every three-character sequence of a name points
+ * to the names containing it. A search looks up the rarest trigram of the query and checks the few names it
+ * points to, so typing in a search box costs a handful of string comparisons whatever the size of the tree.
+ * Queries shorter than three characters go through the distinct names, which are far fewer than the nodes.
+ * <p>
+ * The index is a snapshot of the tree when it was built, it has to be built again after the tree changed.
+ */
+final class NameIndex {
+    private static final int[] NO_SLOTS = new int[0];
+
+    // Per node, by breadth-first number
+    private final Object[] nodes;
+    private final int[] parents;
+
+    // Distinct lower-case names, and the nodes of each name in ascending order
+    private final String[] names;
+    private final int[] nameNodeStarts;
+    private final int[] nameNodes;
+
+    // Three characters packed in a long, to the names containing them in ascending order
+    private final Map<Long, int[]> trigrams;
+
+    private NameIndex(Object[] nodes, int[] parents, String[] names, int[] nameNodeStarts, int[] nameNodes,
+                      Map<Long, int[]> trigrams) {
+        this.nodes = nodes;
+        this.parents = parents;
+        this.names = names;
+        this.nameNodeStarts = nameNodeStarts;
+        this.nameNodes = nameNodes;
+        this.trigrams = trigrams;
+    }
+
+    /**
+     * Indexes the loaded nodes of a tree. Folders whose children were never loaded are indexed without them.
+     *
+     * @param model the tree to index
+     * @return the index of its nodes
+     */
+    static @NotNull NameIndex build(@NotNull CheckableTreeModel model) {
+        List<Object> nodes = new ArrayList<>();
+        int[] parents = new int[16];
+        int[] nodeNames = new int[16];
+        Map<String, Integer> nameIds = new HashMap<>();
+        // Names as the tree has them, most of them repeated, so each is only lower-cased once
+        Map<String, Integer> treeNameIds = new HashMap<>();
+        List<String> names = new ArrayList<>();
+
+        nodes.add(model.getRoot());
+        parents[0] = -1;
+        nodeNames[0] = -1;
+        for (int slot = 0; slot < nodes.size(); slot++) {
+            Object node = nodes.get(slot);
+            if (!model.isChildrenLoaded(node)) {
+                continue;
+            }
+            int count = model.getChildCount(node);
+            if (nodes.size() + count > parents.length) {
+                int capacity = Math.max(parents.length * 2, nodes.size() + count);
+                parents = Arrays.copyOf(parents, capacity);
+                nodeNames = Arrays.copyOf(nodeNames, capacity);
+            }
+            for (int i = 0; i < count; i++) {
+                Object child = model.getChild(node, i);
+                String treeName = model.getName(child);
+                Integer nameId = treeNameIds.get(treeName);
+                if (nameId == null) {
+                    String name = treeName.toLowerCase(Locale.ROOT);
+                    nameId = nameIds.get(name);
+                    if (nameId == null) {
+                        nameId = names.size();
+                        nameIds.put(name, nameId);
+                        names.add(name);
+                    }
+                    treeNameIds.put(treeName, nameId);
+                }
+                parents[nodes.size()] = slot;
+                nodeNames[nodes.size()] = nameId;
+                nodes.add(child);
+            }
+        }
+
+        // Nodes grouped by name, counted first so each group is one range of a single array
+        int nodeCount = nodes.size();
+        int[] nameNodeStarts = new int[names.size() + 1];
+        for (int slot = 1; slot < nodeCount; slot++) {
+            nameNodeStarts[nodeNames[slot] + 1]++;
+        }
+        for (int nameId = 0; nameId < names.size(); nameId++) {
+            nameNodeStarts[nameId + 1] += nameNodeStarts[nameId];
+        }
+        int[] nameNodes = new int[nodeCount - 1];
+        int[] next = Arrays.copyOf(nameNodeStarts, names.size());
+        for (int slot = 1; slot < nodeCount; slot++) {
+            nameNodes[next[nodeNames[slot]]++] = slot;
+        }
+
+        String[] nameArray = names.toArray(new String[0]);
+        return new NameIndex(nodes.toArray(), Arrays.copyOf(parents, nodeCount), nameArray, nameNodeStarts,
+                nameNodes, indexTrigrams(nameArray));
+    }
+
+    private static Map<Long, int[]> indexTrigrams(String[] names) {
+        // Lists grow while the names are read, their first element holds their size
+        Map<Long, int[]> lists = new HashMap<>();
+        for (int nameId = 0; nameId < names.length; nameId++) {
+            String name = names[nameId];
+            for (int i = 0; i + 3 <= name.length(); i++) {
+                long trigram = trigram(name, i);
+                int[] list = lists.get(trigram);
+                if (list == null) {
+                    list = new int[4];
+                    lists.put(trigram, list);
+                } else if (list[list[0]] == nameId) {
+                    // A name repeating a trigram is listed once
+                    continue;
+                } else if (list[0] + 1 == list.length) {
+                    list = Arrays.copyOf(list, list.length * 2);
+                    lists.put(trigram, list);
+                }
+                list[++list[0]] = nameId;
+            }
+        }
+
+        Map<Long, int[]> trigrams = new HashMap<>(lists.size() * 2);
+        lists.forEach((trigram, list) -> trigrams.put(trigram, Arrays.copyOfRange(list, 1, list[0] + 1)));
+        return trigrams;
+    }
+
+    private static long trigram(String text, int start) {
+        return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+    }
+
+    /**
+     * @return the number of indexed nodes, the root included
+     */
+    int size() {
+        return nodes.length;
+    }
+
+    /**
+     * @param slot the number of a node
+     * @return the node of the tree
+     */
+    @NotNull Object getNode(int slot) {
+        return nodes[slot];
+    }
+
+    /**
+     * @param slot the number of a node
+     * @return the number of its parent, or -1 for the root
+     */
+    int getParent(int slot) {
+        return parents[slot];
+    }
+
+    /**
+     * Finds the nodes whose name contains the query, ignoring case. The root is never a match.
+     *
+     * @param query the text to look for
+     * @return the numbers of the matching nodes in ascending order, that is in breadth-first order
+     */
+    int @NotNull [] search(@NotNull String query) {
+        String text = query.toLowerCase(Locale.ROOT);
+        if (text.isEmpty()) {
+            return NO_SLOTS;
+        }
+
+        int[] matchingNames = new int[16];
+        int matchCount = 0;
+        int nodeCount = 0;
+        int[] candidates = candidateNames(text);
+        for (int i = 0, count = candidates == null ? names.length : candidates.length; i < count; i++) {
+            int nameId = candidates == null ? i : candidates[i];
+            if (names[nameId].contains(text)) {
+                if (matchCount == matchingNames.length) {
+                    matchingNames = Arrays.copyOf(matchingNames, matchCount * 2);
+                }
+                matchingNames[matchCount++] = nameId;
+                nodeCount += nameNodeStarts[nameId + 1] - nameNodeStarts[nameId];
+            }
+        }
+
+        int[] slots = new int[nodeCount];
+        if (nodeCount < nodes.length / 16) {
+            int slotCount = 0;
+            for (int i = 0; i < matchCount; i++) {
+                int nameId = matchingNames[i];
+                int start = nameNodeStarts[nameId];
+                int length = nameNodeStarts[nameId + 1] - start;
+                System.arraycopy(nameNodes, start, slots, slotCount, length);
+                slotCount += length;
+            }
+            Arrays.sort(slots);
+        } else {
+            // Most of the tree matches, marking the nodes beats sorting them
+            boolean[] matching = new boolean[nodes.length];
+            for (int i = 0; i < matchCount; i++) {
+                for (int j = nameNodeStarts[matchingNames[i]]; j < nameNodeStarts[matchingNames[i] + 1]; j++) {
+                    matching[nameNodes[j]] = true;
+                }
+            }
+            for (int slot = 1, slotCount = 0; slotCount < nodeCount; slot++) {
+                if (matching[slot]) {
+                    slots[slotCount++] = slot;
+                }
+            }
+        }
+        return slots;
+    }
+
+    /**
+     * @return the names that may contain the query, or null to check them all
+     */
+    private int[] candidateNames(String text) {
+        if (text.length() < 3) {
+            return null;
+        }
+
+        int[] rarest = null;
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            int[] list = trigrams.get(trigram(text, i));
+            if (list == null) {
+                // No name holds this part of the query
+                return NO_SLOTS;
+            }
+            if (rarest == null || list.length < rarest.length) {
+                rarest = list;
+            }
+        }
+        return rarest;
+    }
+}
@@ -0,0 +1,158 @@
+package com.github.hichemtabtech.jettreemark.toolwindow;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns the check states of a tree into a named profile's paths and back.
+ * <p>
+ * A profile only keeps the nodes whose state differs from the state of their closest saved ancestor, each as
+ * its path relative to the root folder prefixed with {@code +} when checked or {@code -} when unchecked. The
+ * first entry is the state of the root itself. A state applies to the whole subtree below its path, so
+ * "backend only" is a handful of entries whatever the size of the project, and applying it sets each node once:
+ * subtrees without entries below them take their state in one propagation, and the walk only goes down the
+ * paths of the entries. Entries naming files that the tree does not have are skipped.
+ */
+final class SelectionProfile {
+    private static final char CHECKED = '+';
+    private static final char UNCHECKED = '-';
+
+    private SelectionProfile() {
+    }
+
+    /**
+     * @param model the tree to save
+     * @return the paths of the profile, in tree order
+     */
+    static @NotNull List<String> capture(@NotNull CheckableTreeModel model) {
+        Object root = model.getRoot();
+        int rootState = model.getCheckState(root);
+        if (rootState == CheckboxTreeNode.INDETERMINATE) {
+            // Start from the state most of the first level has, the others are saved as entries
+            int unchecked = 0;
+            int count = model.getChildCount(root);
+            for (int i = 0; i < count; i++) {
+                if (model.getCheckState(model.getChild(root, i)) == CheckboxTreeNode.UNCHECKED) {
+                    unchecked++;
+                }
+            }
+            rootState = unchecked * 2 > count ? CheckboxTreeNode.UNCHECKED : CheckboxTreeNode.CHECKED;
+        }
+        List<String> paths = new ArrayList<>();
+        paths.add(String.valueOf(rootState == CheckboxTreeNode.CHECKED ? CHECKED : UNCHECKED));
+        capture(model, root, "", rootState, paths);
+        return paths;
+    }
+
+    private static void capture(CheckableTreeModel model, Object node, String path, int inherited, List<String> paths) {
+        if (!model.isChildrenLoaded(node)) {
+            // Folders read later take the state of their parent
+            return;
+        }
+
+        for (int i = 0, count = model.getChildCount(node); i < count; i++) {
+            Object child = model.getChild(node, i);
+            String childPath = path.isEmpty() ? model.getName(child) : path + "/" + model.getName(child);
+            int state = model.getCheckState(child);
+            if (state != CheckboxTreeNode.INDETERMINATE && state != inherited) {
+                paths.add((state == CheckboxTreeNode.CHECKED ? CHECKED : UNCHECKED) + childPath);
+                capture(model, child, childPath, state, paths);
+            } else {
+                capture(model, child, childPath, inherited, paths);
+            }
+        }
+    }
+
+    /**
+     * An entry of the profile and the entries below it, by file name.
+     */
+    private static final class Entry {
+        int state = -1;
+        Map<String, Entry> children;
+
+        Entry child(String name) {
+            if (children == null) {
+                children = new HashMap<>();
+            }
+            return children.computeIfAbsent(name, n -> new Entry());
+        }
+    }
+
+    /**
+     * Sets the check states of a tree from a profile. Folders holding entries of the profile are loaded,
+     * the others keep their children unloaded.
+     *
+     * @param model the tree to update
+     * @param paths the paths of the profile
+     * @return the folders loaded to reach the entries, for the caller to tell the tree about
+     */
+    static @NotNull List<Object> apply(@NotNull CheckableTreeModel model, @NotNull List<String> paths) {
+        Entry root = new Entry();
+        for (String path : paths) {
+            if (path.isEmpty() || (path.charAt(0) != CHECKED && path.charAt(0) != UNCHECKED)) {
+                continue;
+            }
+            Entry entry = root;
+            if (path.length() > 1) {
+                for (String name : path.substring(1).split("/")) {
+                    entry = entry.child(name);
+                }
+            }
+            entry.state = path.charAt(0) == CHECKED ? CheckboxTreeNode.CHECKED : CheckboxTreeNode.UNCHECKED;
+        }
+
+        List<Object> loaded = new ArrayList<>();
+        apply(model, model.getRoot(), root, CheckboxTreeNode.CHECKED, loaded);
+        return loaded;
+    }
+
+    private static void apply(CheckableTreeModel model, Object node, Entry entry, int inherited, List<Object> loaded) {
+        int state = entry.state >= 0 ? entry.state : inherited;
+        if (entry.children == null) {
+            model.setCheckState(node, state, true, false);
+            return;
+        }
+
+        boolean ignored = model.isIgnored(node);
+        if (model.ensureChildrenLoaded(node)) {
+            loaded.add(node);
+        }
+        if (!ignored && model.isIgnored(node)) {
+            // The scan budget left the folder unread, it stays an unchecked placeholder
+            return;
+        }
+        int count = model.getChildCount(node);
+        int checked = 0;
+        int unchecked = 0;
+        for (int i = 0; i < count; i++) {
+            Object child = model.getChild(node, i);
+            Entry childEntry = entry.children.get(model.getName(child));
+            if (childEntry != null) {
+                apply(model, child, childEntry, state, loaded);
+            } else if (state == CheckboxTreeNode.UNCHECKED || !model.isIgnored(child)) {
+                // Checking skips gitignored placeholders, like the other bulk operations
+                model.setCheckState(child, state, true, false);
+            }
+
+            int childState = model.getCheckState(child);
+            if (childState == CheckboxTreeNode.CHECKED) {
+                checked++;
+            } else if (childState == CheckboxTreeNode.UNCHECKED) {
+                unchecked++;
+            }
+        }
+
+        // The state of a folder follows from its children, which were all set above
+        if (count == 0 || checked == count) {
+            model.setCheckState(node, count == 0 ? state : CheckboxTreeNode.CHECKED, false, false);
+        } else if (unchecked == count) {
+            model.setCheckState(node, CheckboxTreeNode.UNCHECKED, false, false);
+        } else {
+            model.setCheckState(node, CheckboxTreeNode.INDETERMINATE, false, false);
+        }
+    }
+}
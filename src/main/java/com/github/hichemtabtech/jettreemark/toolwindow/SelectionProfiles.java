@@ -0,0 +1,94 @@
+package com.github.hichemtabtech.jettreemark.toolwindow;
+
+import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.components.Storage;
+import com.intellij.openapi.components.StoragePathMacros;
+import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The named selection profiles of a project, such as "backend only" or "no tests".
+ * Each profile is stored as the paths written by {@link SelectionProfile#capture}.
+ */
+@Service(Service.Level.PROJECT)
+@State(name = "JetTreeMarkSelectionProfiles", storages = @Storage(StoragePathMacros.WORKSPACE_FILE))
+public final class SelectionProfiles implements PersistentStateComponent<SelectionProfiles.State> {
+
+    /**
+     * Persisted profiles, in the order they were first saved.
+     */
+    public static class State {
+        public List<Profile> profiles = new ArrayList<>();
+    }
+
+    /**
+     * A persisted profile.
+     */
+    public static class Profile {
+        public String name = "";
+        public List<String> paths = new ArrayList<>();
+
+        public Profile() {
+        }
+
+        public Profile(@NotNull String name, @NotNull List<String> paths) {
+            this.name = name;
+            this.paths = new ArrayList<>(paths);
+        }
+    }
+
+    private State state = new State();
+
+    public static SelectionProfiles getInstance(@NotNull Project project) {
+        return project.getService(SelectionProfiles.class);
+    }
+
+    @Override
+    public @NotNull State getState() {
+        return state;
+    }
+
+    @Override
+    public void loadState(@NotNull State state) {
+        this.state = state;
+    }
+
+    public @NotNull List<String> getNames() {
+        return state.profiles.stream().map(profile -> profile.name).toList();
+    }
+
+    /**
+     * @param name the name of the profile
+     * @return the paths of the profile, or null if there is no profile with that name
+     */
+    public @Nullable List<String> getPaths(@NotNull String name) {
+        for (Profile profile : state.profiles) {
+            if (profile.name.equals(name)) {
+                return profile.paths;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Saves a profile, replacing the profile of the same name if there is one.
+     *
+     * @param name the name of the profile
+     * @param paths the paths of the profile
+     */
+    public void save(@NotNull String name, @NotNull List<String> paths) {
+        for (Profile profile : state.profiles) {
+            if (profile.name.equals(name)) {
+                profile.paths = new ArrayList<>(paths);
+                return;
+            }
+        }
+        state.profiles.add(new Profile(name, paths));
+    }
+}
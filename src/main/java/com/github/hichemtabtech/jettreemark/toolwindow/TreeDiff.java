@@ -0,0 +1,298 @@
+package com.github.hichemtabtech.jettreemark.toolwindow;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.event.TreeModelListener;
+import javax.swing.tree.TreeModel;
+import javax.swing.tree.TreePath;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The differences between the trees of two tabs, as a tree model of its own.
+ * <p>
+ * Both trees are walked together in one sorted merge: the children of two matching folders are taken in name
+ * order and paired by name, so each node of either tree is visited once. Scans add children in the order the
+ * file system lists them, which is name order nearly always, and a folder listed in another order is sorted
+ * on its own first. Entries found on one side only are reported without walking below them. A matching folder
+ * with no difference below it is kept as a single unchanged row without children, so the view shows it
+ * collapsed and never expands it. Folders that were not read on either side, like gitignored placeholders,
+ * are only compared by name.
+ * <p>
+ * The diff is a snapshot of the two trees when it is made: it does not follow their later changes.
+ */
+final class TreeDiff implements TreeModel {
+
+    /**
+     * How an entry of the right tree differs from the left one.
+     */
+    enum Status {
+        /** In both trees, with nothing different below it */
+        UNCHANGED,
+        /** In the right tree only */
+        ADDED,
+        /** In the left tree only */
+        REMOVED,
+        /** A file on one side and a folder on the other, or a folder with differences below it */
+        CHANGED,
+        /** A folder in both trees that was not read in one of them */
+        NOT_READ
+    }
+
+    /**
+     * A row of the diff. Only changed folders have children.
+     */
+    static final class Entry {
+        private static final Entry[] NO_CHILDREN = {};
+
+        private final String name;
+        private final boolean folder;
+        private final Status status;
+        private Entry[] children = NO_CHILDREN;
+
+        private Entry(String name, boolean folder, Status status) {
+            this.name = name;
+            this.folder = folder;
+            this.status = status;
+        }
+
+        @NotNull String getName() {
+            return name;
+        }
+
+        /**
+         * @return whether the entry is a folder in the right tree, or in the left one if it was removed
+         */
+        boolean isFolder() {
+            return folder;
+        }
+
+        @NotNull Status getStatus() {
+            return status;
+        }
+
+        int getChildCount() {
+            return children.length;
+        }
+
+        @NotNull Entry getChild(int index) {
+            return children[index];
+        }
+
+        @Override
+        public String toString() {
+            return folder ? name + "/" : name;
+        }
+    }
+
+    private Entry root;
+    private int addedCount;
+    private int removedCount;
+    private int changedCount;
+
+    private TreeDiff() {
+    }
+
+    /**
+     * Compares the loaded part of two trees. Folders that were never loaded are not read.
+     *
+     * @param left the model of the tree compared from
+     * @param right the model of the tree compared to
+     * @return the differences, rooted at the root of the right tree
+     */
+    static @NotNull TreeDiff compare(@NotNull CheckableTreeModel left, @NotNull CheckableTreeModel right) {
+        Object leftRoot = left.getRoot();
+        Object rightRoot = right.getRoot();
+        TreeDiff diff = new TreeDiff();
+        if (!left.isChildrenLoaded(leftRoot) || !right.isChildrenLoaded(rightRoot)) {
+            diff.root = new Entry(right.getName(rightRoot), true, Status.NOT_READ);
+            return diff;
+        }
+
+        // The root keeps its unchanged entries, so the view always shows the top level of the tree
+        List<Entry> entries = new ArrayList<>();
+        boolean changed = diff.compareChildren(left, leftRoot, right, rightRoot, entries);
+        diff.root = new Entry(right.getName(rightRoot), true, changed ? Status.CHANGED : Status.UNCHANGED);
+        diff.root.children = entries.toArray(Entry.NO_CHILDREN);
+        return diff;
+    }
+
+    /**
+     * @return the entries of the right tree only, not counting the entries below them
+     */
+    int getAddedCount() {
+        return addedCount;
+    }
+
+    /**
+     * @return the entries of the left tree only, not counting the entries below them
+     */
+    int getRemovedCount() {
+        return removedCount;
+    }
+
+    /**
+     * @return the entries that changed kind, and the folders with differences below them
+     */
+    int getChangedCount() {
+        return changedCount;
+    }
+
+    /**
+     * Merges the children of two matching folders into entries.
+     *
+     * @param entries receives one entry per name found in either folder, in name order
+     * @return true if any entry is not unchanged
+     */
+    private boolean compareChildren(CheckableTreeModel left, Object leftFolder,
+                                    CheckableTreeModel right, Object rightFolder, List<Entry> entries) {
+        int leftCount = left.getChildCount(leftFolder);
+        int rightCount = right.getChildCount(rightFolder);
+        int[] leftOrder = nameOrder(left, leftFolder, leftCount);
+        int[] rightOrder = nameOrder(right, rightFolder, rightCount);
+
+        boolean changed = false;
+        int i = 0;
+        int j = 0;
+        Object leftChild = leftCount > 0 ? childAt(left, leftFolder, leftOrder, 0) : null;
+        Object rightChild = rightCount > 0 ? childAt(right, rightFolder, rightOrder, 0) : null;
+        while (leftChild != null || rightChild != null) {
+            int order = leftChild == null ? 1
+                    : rightChild == null ? -1
+                    : left.getName(leftChild).compareTo(right.getName(rightChild));
+            if (order < 0) {
+                entries.add(new Entry(left.getName(leftChild), left.isFolder(leftChild), Status.REMOVED));
+                removedCount++;
+                changed = true;
+            } else if (order > 0) {
+                entries.add(new Entry(right.getName(rightChild), right.isFolder(rightChild), Status.ADDED));
+                addedCount++;
+                changed = true;
+            } else {
+                Entry entry = compareNodes(left, leftChild, right, rightChild);
+                entries.add(entry);
+                changed |= entry.status != Status.UNCHANGED && entry.status != Status.NOT_READ;
+            }
+
+            if (order <= 0) {
+                i++;
+                leftChild = i < leftCount ? childAt(left, leftFolder, leftOrder, i) : null;
+            }
+            if (order >= 0) {
+                j++;
+                rightChild = j < rightCount ? childAt(right, rightFolder, rightOrder, j) : null;
+            }
+        }
+        return changed;
+    }
+
+    private Entry compareNodes(CheckableTreeModel left, Object leftNode, CheckableTreeModel right, Object rightNode) {
+        String name = right.getName(rightNode);
+        boolean folder = right.isFolder(rightNode);
+        if (left.isFolder(leftNode) != folder) {
+            changedCount++;
+            return new Entry(name, folder, Status.CHANGED);
+        }
+        if (!folder) {
+            return new Entry(name, false, Status.UNCHANGED);
+        }
+        if (!left.isChildrenLoaded(leftNode) || !right.isChildrenLoaded(rightNode)) {
+            return new Entry(name, true, Status.NOT_READ);
+        }
+
+        List<Entry> entries = new ArrayList<>();
+        if (!compareChildren(left, leftNode, right, rightNode, entries)) {
+            // Nothing to show below an unchanged folder, its entries are dropped
+            return new Entry(name, true, Status.UNCHANGED);
+        }
+        changedCount++;
+        Entry entry = new Entry(name, true, Status.CHANGED);
+        entry.children = entries.toArray(Entry.NO_CHILDREN);
+        return entry;
+    }
+
+    /**
+     * @return the child indices of the folder in name order, or null if the children are in name order already
+     */
+    private static int[] nameOrder(CheckableTreeModel model, Object folder, int count) {
+        String previous = null;
+        for (int i = 0; i < count; i++) {
+            String name = model.getName(model.getChild(folder, i));
+            if (previous != null && previous.compareTo(name) > 0) {
+                return sortedOrder(model, folder, count);
+            }
+            previous = name;
+        }
+        return null;
+    }
+
+    private static int[] sortedOrder(CheckableTreeModel model, Object folder, int count) {
+        String[] names = new String[count];
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = model.getName(model.getChild(folder, i));
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(i -> names[i]));
+        int[] indices = new int[count];
+        for (int i = 0; i < count; i++) {
+            indices[i] = order[i];
+        }
+        return indices;
+    }
+
+    private static Object childAt(CheckableTreeModel model, Object folder, int[] order, int position) {
+        return model.getChild(folder, order == null ? position : order[position]);
+    }
+
+    // TreeModel, the diff never changes so listeners are never notified
+
+    @Override
+    public @NotNull Entry getRoot() {
+        return root;
+    }
+
+    @Override
+    public Object getChild(Object parent, int index) {
+        return ((Entry) parent).children[index];
+    }
+
+    @Override
+    public int getChildCount(Object parent) {
+        return ((Entry) parent).children.length;
+    }
+
+    @Override
+    public boolean isLeaf(Object node) {
+        return ((Entry) node).children.length == 0;
+    }
+
+    @Override
+    public void valueForPathChanged(TreePath path, Object newValue) {
+        // The diff cannot be edited
+    }
+
+    @Override
+    public int getIndexOfChild(Object parent, Object child) {
+        if (parent == null || child == null) {
+            return -1;
+        }
+        Entry[] children = ((Entry) parent).children;
+        for (int i = 0; i < children.length; i++) {
+            if (children[i] == child) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void addTreeModelListener(TreeModelListener l) {
+    }
+
+    @Override
+    public void removeTreeModelListener(TreeModelListener l) {
+    }
+}
@@ -0,0 +1,45 @@
+package com.github.hichemtabtech.jettreemark.toolwindow;
+
+import com.github.hichemtabtech.jettreemark.JetTreeMarkBundle;
+import com.intellij.ui.JBColor;
+
+import javax.swing.*;
+import javax.swing.tree.DefaultTreeCellRenderer;
+import java.awt.*;
+
+/**
+ * A cell renderer for the rows of a {@link TreeDiff}, colored by how each entry changed.
+ * Unchanged folders are leaves of the diff but keep the folder icon.
+ */
+class TreeDiffCellRenderer extends DefaultTreeCellRenderer {
+    private static final Color ADDED = new JBColor(0x067D17, 0x6AAB73);
+    private static final Color REMOVED = new JBColor(0xC7222D, 0xDB5C5C);
+    private static final Color CHANGED = new JBColor(0x0A57D0, 0x6897BB);
+    private final String notRead = " " + JetTreeMarkBundle.message("diff.not_read");
+
+    @Override
+    public Component getTreeCellRendererComponent(JTree tree, Object value, boolean selected, boolean expanded,
+                                                  boolean leaf, int row, boolean hasFocus) {
+        super.getTreeCellRendererComponent(tree, value, selected, expanded, leaf, row, hasFocus);
+        if (!(value instanceof TreeDiff.Entry entry)) {
+            return this;
+        }
+
+        if (entry.isFolder() && leaf) {
+            setIcon(getClosedIcon());
+        }
+        TreeDiff.Status status = entry.getStatus();
+        if (status == TreeDiff.Status.NOT_READ) {
+            setText(entry + notRead);
+        }
+        if (!selected) {
+            setForeground(switch (status) {
+                case ADDED -> ADDED;
+                case REMOVED -> REMOVED;
+                case CHANGED -> CHANGED;
+                case UNCHANGED, NOT_READ -> JBColor.GRAY;
+            });
+        }
+        return this;
+    }
+}
@@ -0,0 +1,111 @@
+package com.github.hichemtabtech.jettreemark.toolwindow;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import javax.swing.event.TreeExpansionListener;
+import javax.swing.tree.TreePath;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * Expands and collapses a whole tree as one change of its expanded paths.
+ * <p>
+ * Expanding row after row sends an expansion event per folder, and each event makes the tree UI update
+ * its layout cache and size while the row count keeps growing under the loop. Here the expansion listeners
+ * of the tree, the UI among them, are set aside while the folders are expanded, then told once about the
+ * whole expanded tree, so the UI lays out the new rows in a single pass.
+ */
+final class TreeExpander {
+
+    private TreeExpander() {
+    }
+
+    /**
+     * Expands the folders of the tree in breadth-first order until the number of rows would go over the limit,
+     * so an accidental Expand All on a huge folder shows its first levels instead of hanging the IDE.
+     * Gitignored folders stay collapsed, like they stay out of check operations.
+     *
+     * @param tree the tree showing a {@link CheckableTreeView}
+     * @param rowLimit the number of rows the expanded tree may have
+     * @return false if some folders were left collapsed because of the limit
+     */
+    static boolean expandAll(@NotNull JTree tree, int rowLimit) {
+        if (!(tree.getModel() instanceof CheckableTreeView model)) {
+            return true;
+        }
+
+        TreePath rootPath = new TreePath(model.getRoot());
+        TreeExpansionListener[] listeners = tree.getTreeExpansionListeners();
+        for (TreeExpansionListener listener : listeners) {
+            tree.removeTreeExpansionListener(listener);
+        }
+
+        boolean complete = true;
+        try {
+            int rowCount = tree.isRootVisible() ? 1 : 0;
+            Queue<TreePath> folders = new ArrayDeque<>();
+            folders.add(rootPath);
+            while (!folders.isEmpty()) {
+                TreePath path = folders.poll();
+                boolean wasExpanded = tree.isExpanded(path);
+
+                // The will-expand listeners still run, they load the children of lazy folders
+                tree.expandPath(path);
+                if (!tree.isExpanded(path)) {
+                    continue;
+                }
+
+                Object node = path.getLastPathComponent();
+                int childCount = model.getChildCount(node);
+                if (rowCount + childCount > rowLimit) {
+                    if (!wasExpanded) {
+                        tree.collapsePath(path);
+                    }
+                    complete = false;
+                    break;
+                }
+                rowCount += childCount;
+
+                for (int i = 0; i < childCount; i++) {
+                    Object child = model.getChild(node, i);
+                    if (!model.isLeaf(child) && !model.isIgnored(child)) {
+                        folders.add(path.pathByAddingChild(child));
+                    }
+                }
+            }
+        } finally {
+            for (TreeExpansionListener listener : listeners) {
+                tree.addTreeExpansionListener(listener);
+            }
+            // The UI reads every expanded path below the root in one go
+            tree.fireTreeExpanded(rootPath);
+        }
+        return complete;
+    }
+
+    /**
+     * Collapses every folder below the root, which stays expanded to show the first level.
+     * The selection moves to the first-level row it was under.
+     *
+     * @param tree the tree showing a {@link CheckableTreeView}
+     */
+    static void collapseAll(@NotNull JTree tree) {
+        if (!(tree.getModel() instanceof CheckableTreeView model)) {
+            return;
+        }
+
+        TreePath lead = tree.getLeadSelectionPath();
+        while (lead != null && lead.getPathCount() > 2) {
+            lead = lead.getParentPath();
+        }
+
+        // A structure change of the root makes the tree forget all its expanded paths
+        // and the UI rebuild its layout cache, both in one pass over the first level
+        model.fireSubtreeChanged(model.getRoot());
+
+        if (lead != null) {
+            tree.setSelectionPath(lead);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.github.hichemtabtech.jettreemark.toolwindow;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+
+/**
+ * Keeps the {@link NameIndex} of a tree for its search box.
+ * <p>
+ * The index is built on the first search and kept while the tree only changes check states, which is most of
+ * the time. Nodes added, removed or loaded drop it, and it is built again by the next search. Renamed nodes do
+ * not change the structure of the tree, so the tab drops the index itself when the file system changes.
+ */
+final class TreeSearch implements TreeModelListener {
+    private final CheckableTreeModel model;
+    private final Runnable onInvalidate;
+    private @Nullable NameIndex index;
+
+    /**
+     * @param model the tree to search, listened to until it is dropped
+     * @param onInvalidate called when the index is dropped, to search again
+     */
+    TreeSearch(@NotNull CheckableTreeModel model, @NotNull Runnable onInvalidate) {
+        this.model = model;
+        this.onInvalidate = onInvalidate;
+        model.addTreeModelListener(this);
+    }
+
+    /**
+     * @return the index of the loaded nodes of the tree, built if needed
+     */
+    @NotNull NameIndex getIndex() {
+        if (index == null) {
+            index = NameIndex.build(model);
+        }
+        return index;
+    }
+
+    /**
+     * @return true if the index is built and up to date
+     */
+    boolean hasIndex() {
+        return index != null;
+    }
+
+    /**
+     * Drops the index, the next search builds it again.
+     */
+    void invalidate() {
+        index = null;
+        onInvalidate.run();
+    }
+
+    /**
+     * Checks or unchecks every match of a search, with its subtree. The states of their folders are updated
+     * along the way, each match costing its subtree and its path to the root. Like the other bulk operations,
+     * checking leaves gitignored placeholders unchecked.
+     *
+     * @param model the tree the index was built from
+     * @param index the index the matches were found in
+     * @param matches the numbers of the matching nodes
+     * @param state {@link CheckboxTreeNode#CHECKED} or {@link CheckboxTreeNode#UNCHECKED}
+     */
+    static void setCheckState(@NotNull CheckableTreeModel model, @NotNull NameIndex index, int @NotNull [] matches,
+                              int state) {
+        for (int match : matches) {
+            Object node = index.getNode(match);
+            if (state == CheckboxTreeNode.CHECKED && model.isIgnored(node)) {
+                continue;
+            }
+            model.setCheckState(node, state, true, true);
+        }
+    }
+
+    @Override
+    public void treeNodesChanged(TreeModelEvent e) {
+        // Check states are not indexed
+    }
+
+    @Override
+    public void treeNodesInserted(TreeModelEvent e) {
+        invalidate();
+    }
+
+    @Override
+    public void treeNodesRemoved(TreeModelEvent e) {
+        invalidate();
+    }
+
+    @Override
+    public void treeStructureChanged(TreeModelEvent e) {
+        invalidate();
+    }
+}
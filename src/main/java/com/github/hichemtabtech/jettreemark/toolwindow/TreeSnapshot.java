@@ -0,0 +1,296 @@
+package com.github.hichemtabtech.jettreemark.toolwindow;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.function.ToLongFunction;
+
+/**
+ * Binary form of the loaded part of a tree, saved with the open tabs so they come back without a rescan.
+ * <p>
+ * Nodes are written folder by folder in breadth-first order, which is also the order a {@link CompactTreeModel}
+ * needs to add them back. The snapshot holds a table of the distinct names, the check states of all nodes
+ * packed two bits each, then for each loaded folder its time stamp, its child count and one varint per child
+ * combining the name index with the folder, ignored and loaded flags. Folders that were never loaded are
+ * saved as such and get a loader again. The root itself is not named, it is the folder the tab is opened on.
+ * <pre>
+ * "JTM" version
+ * nameCount (name length, UTF-8 bytes)*
+ * nodeCount states[(nodeCount + 3) / 4]
+ * (stamp childCount (nameIndex &lt;&lt; 3 | flags)*)* one group per loaded folder
+ * </pre>
+ */
+final class TreeSnapshot {
+    private static final byte[] MAGIC = {'J', 'T', 'M'};
+    private static final int VERSION = 1;
+
+    private static final int FOLDER = 0x01;
+    private static final int IGNORED = 0x02;
+    private static final int LOADED = 0x04;
+    private static final int FLAG_BITS = 3;
+
+    private TreeSnapshot() {
+    }
+
+    /**
+     * Rebuilds the folders that were not loaded when the snapshot was taken.
+     */
+    interface Restorer {
+        /**
+         * @param relativePath the path of a loaded folder, relative to the root of the tree
+         * @return the current time stamp of the folder, or -1 if it does not exist anymore
+         */
+        long getTimeStamp(@NotNull String relativePath);
+
+        /**
+         * Gives a folder that was not loaded its loader.
+         *
+         * @param model the model being restored
+         * @param node the folder node
+         * @param relativePath the path of the folder, relative to the root of the tree
+         */
+        void setUpFolder(@NotNull CheckableTreeModel model, @NotNull Object node, @NotNull String relativePath);
+    }
+
+    private record Folder(Object node, String relativePath) {
+    }
+
+    /**
+     * Writes the loaded part of a tree.
+     *
+     * @param model the model to save
+     * @param timeStamps the current time stamp of a loaded folder, from its path relative to the root
+     * @return the snapshot
+     */
+    static byte @NotNull [] write(@NotNull CheckableTreeModel model, @NotNull ToLongFunction<String> timeStamps) {
+        return capture(model).write(timeStamps);
+    }
+
+    /**
+     * Copies the loaded part of a tree, to be written later on any thread. The copy is the snapshot without
+     * the time stamps of its folders, which are the slow part to look up.
+     *
+     * @param model the model to save, only read here
+     * @return the copy
+     */
+    static @NotNull Capture capture(@NotNull CheckableTreeModel model) {
+        Map<String, Integer> nameIndex = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        byte[] states = new byte[64];
+        int nodeCount = 0;
+        ByteArrayOutputStream structure = new ByteArrayOutputStream();
+        List<String> folderPaths = new ArrayList<>();
+        int[] folderOffsets = new int[16];
+
+        Queue<Folder> folders = new ArrayDeque<>();
+        Object root = model.getRoot();
+        states[0] = (byte) model.getCheckState(root);
+        nodeCount++;
+        folders.add(new Folder(root, ""));
+        while (!folders.isEmpty()) {
+            Folder folder = folders.poll();
+            if (folderPaths.size() == folderOffsets.length) {
+                folderOffsets = Arrays.copyOf(folderOffsets, folderOffsets.length * 2);
+            }
+            folderOffsets[folderPaths.size()] = structure.size();
+            folderPaths.add(folder.relativePath());
+            int childCount = model.getChildCount(folder.node());
+            writeVarLong(structure, childCount);
+            for (int i = 0; i < childCount; i++) {
+                Object child = model.getChild(folder.node(), i);
+                String name = model.getName(child);
+                Integer id = nameIndex.get(name);
+                if (id == null) {
+                    id = names.size();
+                    nameIndex.put(name, id);
+                    names.add(name);
+                }
+
+                int flags = 0;
+                if (model.isFolder(child)) {
+                    flags |= FOLDER;
+                    if (model.isChildrenLoaded(child)) {
+                        flags |= LOADED;
+                        folders.add(new Folder(child, childPath(folder.relativePath(), name)));
+                    }
+                }
+                if (model.isIgnored(child)) {
+                    flags |= IGNORED;
+                }
+                writeVarLong(structure, ((long) id << FLAG_BITS) | flags);
+
+                if (nodeCount >> 2 == states.length) {
+                    states = Arrays.copyOf(states, states.length * 2);
+                }
+                states[nodeCount >> 2] |= (byte) (model.getCheckState(child) << ((nodeCount & 3) << 1));
+                nodeCount++;
+            }
+        }
+        return new Capture(names, states, nodeCount, structure.toByteArray(), folderPaths, folderOffsets);
+    }
+
+    /**
+     * The loaded part of a tree as {@link #capture} copied it, the loaded folders in breadth-first order
+     * each with the offset of its child count in the structure.
+     */
+    record Capture(List<String> names, byte[] states, int nodeCount, byte[] structure,
+                   List<String> folderPaths, int[] folderOffsets) {
+
+        /**
+         * @param timeStamps the current time stamp of a loaded folder, from its path relative to the root
+         * @return the snapshot
+         */
+        byte @NotNull [] write(@NotNull ToLongFunction<String> timeStamps) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(structure.length + folderPaths.size() * 6
+                    + nodeCount / 4 + names.size() * 12 + 16);
+            out.writeBytes(MAGIC);
+            out.write(VERSION);
+            writeVarLong(out, names.size());
+            for (String name : names) {
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                writeVarLong(out, bytes.length);
+                out.writeBytes(bytes);
+            }
+            writeVarLong(out, nodeCount);
+            out.write(states, 0, (nodeCount + 3) >> 2);
+            for (int i = 0; i < folderPaths.size(); i++) {
+                writeVarLong(out, timeStamps.applyAsLong(folderPaths.get(i)));
+                int end = i + 1 < folderPaths.size() ? folderOffsets[i + 1] : structure.length;
+                out.write(structure, folderOffsets[i], end - folderOffsets[i]);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Adds the nodes of a snapshot below the root of an empty model.
+     *
+     * @param data the snapshot
+     * @param model a model holding only its root
+     * @param restorer checks the loaded folders and sets up the others
+     * @return the paths of the loaded folders whose time stamp changed since the snapshot, relative to the root
+     * @throws IOException if the snapshot is truncated, corrupt or from another version
+     */
+    static @NotNull List<String> read(byte @NotNull [] data, @NotNull CheckableTreeModel model,
+                                      @NotNull Restorer restorer) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC) || in.readUnsignedByte() != VERSION) {
+            throw new IOException("Not a tree snapshot of version " + VERSION);
+        }
+
+        String[] names = new String[readCount(in, data.length)];
+        for (int i = 0; i < names.length; i++) {
+            byte[] bytes = new byte[readCount(in, data.length)];
+            in.readFully(bytes);
+            names[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        int nodeCount = readCount(in, data.length * 4L);
+        if (nodeCount == 0) {
+            throw new IOException("Corrupt tree snapshot: no root");
+        }
+        byte[] states = new byte[(nodeCount + 3) >> 2];
+        in.readFully(states);
+
+        List<String> staleFolders = new ArrayList<>();
+        Queue<Folder> folders = new ArrayDeque<>();
+        Object root = model.getRoot();
+        model.setCheckState(root, state(states, 0), false, false);
+        int nodeIndex = 1;
+        folders.add(new Folder(root, ""));
+        while (!folders.isEmpty()) {
+            Folder folder = folders.poll();
+            if (restorer.getTimeStamp(folder.relativePath()) != readVarLong(in)) {
+                staleFolders.add(folder.relativePath());
+            }
+
+            int childCount = readCount(in, nodeCount - nodeIndex);
+            for (int i = 0; i < childCount; i++) {
+                long code = readVarLong(in);
+                long id = code >>> FLAG_BITS;
+                if (id >= names.length) {
+                    throw new IOException("Corrupt tree snapshot: name " + id + " of " + names.length);
+                }
+                String name = names[(int) id];
+                boolean isFolder = (code & FOLDER) != 0;
+                Object child = model.addChild(folder.node(), name, isFolder);
+
+                int state = state(states, nodeIndex++);
+                if (state != CheckboxTreeNode.CHECKED) {
+                    model.setCheckState(child, state, false, false);
+                }
+                if ((code & IGNORED) != 0) {
+                    model.setIgnored(child, true);
+                }
+                if (isFolder) {
+                    String relativePath = childPath(folder.relativePath(), name);
+                    if ((code & LOADED) != 0) {
+                        folders.add(new Folder(child, relativePath));
+                    } else {
+                        restorer.setUpFolder(model, child, relativePath);
+                    }
+                }
+            }
+        }
+        if (nodeIndex != nodeCount || in.available() > 0) {
+            throw new IOException("Corrupt tree snapshot: " + nodeIndex + " of " + nodeCount + " nodes");
+        }
+        return staleFolders;
+    }
+
+    private static String childPath(String folderPath, String name) {
+        return folderPath.isEmpty() ? name : folderPath + "/" + name;
+    }
+
+    private static int state(byte[] states, int index) throws IOException {
+        int state = (states[index >> 2] >> ((index & 3) << 1)) & 0x03;
+        if (state > CheckboxTreeNode.INDETERMINATE) {
+            throw new IOException("Corrupt tree snapshot: state " + state);
+        }
+        return state;
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt tree snapshot: varint too long");
+    }
+
+    /**
+     * Reads a count, checked against what the rest of the snapshot can hold so corrupt data
+     * cannot make the reader allocate huge arrays.
+     */
+    private static int readCount(DataInputStream in, long limit) throws IOException {
+        long count = readVarLong(in);
+        if (count < 0 || count > limit) {
+            throw new IOException("Corrupt tree snapshot: count " + count);
+        }
+        return (int) count;
+    }
+}
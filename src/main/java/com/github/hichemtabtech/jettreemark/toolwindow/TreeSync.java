@@ -0,0 +1,307 @@
+package com.github.hichemtabtech.jettreemark.toolwindow;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.newvfs.events.VFileContentChangeEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileCopyEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileCreateEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import javax.swing.tree.TreePath;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the tree of an open tab in step with the file system.
+ * <p>
+ * The VFS events of a batch only tell which folders changed. Each of them whose children are loaded in the tab
+ * is compared with its children in the VFS, and the differences go to the model in one
+ * {@link CheckableTreeModel#updateChildren} call, so a checkout touching thousands of files costs a listing per
+ * changed folder instead of a new scan. Folders the tab never loaded are left alone, they are read as they are
+ * when they are needed. Renamed entries keep their state and their children, entries moved between loaded
+ * folders keep their own state.
+ */
+final class TreeSync {
+
+    /**
+     * Sets up the children added to a folder like a scan of the folder would: gitignored entries unchecked,
+     * sub-folders loaded on demand.
+     */
+    @FunctionalInterface
+    interface ChildrenSetup {
+        /**
+         * @param model the model holding the children
+         * @param parentFile the folder in the file system
+         * @param nodes the added nodes
+         * @param names the file names of the added nodes
+         * @param folders whether each added node is a folder
+         */
+        void setUpChildren(@NotNull CheckableTreeModel model, @NotNull VirtualFile parentFile,
+                           @NotNull Object @NotNull [] nodes, @NotNull String @NotNull [] names,
+                           boolean @NotNull [] folders);
+    }
+
+    /**
+     * The folders whose children changed in a batch of events, and the entries renamed or moved among them.
+     */
+    static final class Changes {
+        private final Map<String, VirtualFile> folders = new LinkedHashMap<>();
+        // Old path to new path
+        private final Map<String, String> moves = new HashMap<>();
+        // Folder path to old name to new name
+        private final Map<String, Map<String, String>> renames = new HashMap<>();
+
+        private Changes() {
+        }
+
+        /**
+         * @param events the events of a batch, after the VFS applied them
+         * @return the changes the events made to folders
+         */
+        static @NotNull Changes of(@NotNull List<? extends VFileEvent> events) {
+            Changes changes = new Changes();
+            for (VFileEvent event : events) {
+                if (event instanceof VFileCreateEvent create) {
+                    changes.addFolder(create.getParent());
+                } else if (event instanceof VFileDeleteEvent delete) {
+                    changes.addFolder(delete.getFile().getParent());
+                } else if (event instanceof VFileCopyEvent copy) {
+                    changes.addFolder(copy.getNewParent());
+                } else if (event instanceof VFileMoveEvent move) {
+                    String name = move.getFile().getName();
+                    changes.addFolder(move.getOldParent());
+                    changes.addFolder(move.getNewParent());
+                    changes.moves.put(move.getOldParent().getPath() + "/" + name,
+                            move.getNewParent().getPath() + "/" + name);
+                } else if (event instanceof VFilePropertyChangeEvent change
+                        && VirtualFile.PROP_NAME.equals(change.getPropertyName())) {
+                    VirtualFile parent = change.getFile().getParent();
+                    if (parent != null) {
+                        changes.addFolder(parent);
+                        changes.renames.computeIfAbsent(parent.getPath(), p -> new HashMap<>())
+                                .put(String.valueOf(change.getOldValue()), String.valueOf(change.getNewValue()));
+                    }
+                } else if (event instanceof VFileContentChangeEvent content
+                        && ".gitignore".equals(content.getFile().getName())) {
+                    // Nothing to update in the tree, but the cached patterns of the folder are stale
+                    changes.addFolder(content.getFile().getParent());
+                }
+            }
+            return changes;
+        }
+
+        /**
+         * @param folders folders that may have changed, without knowing how
+         * @return the changes to look for in the folders
+         */
+        static @NotNull Changes ofFolders(@NotNull Collection<VirtualFile> folders) {
+            Changes changes = new Changes();
+            folders.forEach(changes::addFolder);
+            return changes;
+        }
+
+        private void addFolder(@Nullable VirtualFile folder) {
+            if (folder != null) {
+                folders.putIfAbsent(folder.getPath(), folder);
+            }
+        }
+
+        boolean isEmpty() {
+            return folders.isEmpty();
+        }
+
+        @NotNull Collection<VirtualFile> getFolders() {
+            return folders.values();
+        }
+    }
+
+    private final JTree tree;
+    private final CheckableTreeModel model;
+    private final VirtualFile rootFolder;
+    private final String rootPath;
+    private final ChildrenSetup childrenSetup;
+
+    /**
+     * @param tree the tree of the tab, showing a {@link CheckableTreeModel}
+     * @param rootFolder the folder the tab shows
+     * @param childrenSetup sets up the children added to a folder
+     */
+    TreeSync(@NotNull JTree tree, @NotNull VirtualFile rootFolder, @NotNull ChildrenSetup childrenSetup) {
+        this.tree = tree;
+        this.model = (CheckableTreeModel) tree.getModel();
+        this.rootFolder = rootFolder;
+        this.rootPath = rootFolder.getPath();
+        this.childrenSetup = childrenSetup;
+    }
+
+    @NotNull VirtualFile getRootFolder() {
+        return rootFolder;
+    }
+
+    @NotNull CheckableTreeModel getModel() {
+        return model;
+    }
+
+    /**
+     * Updates the loaded folders of the tree that changed, then notifies the tree.
+     *
+     * @param changes the changes of a batch of events
+     */
+    void apply(@NotNull Changes changes) {
+        // The states of moved entries are read before their old folders lose them
+        Map<String, Integer> movedStates = new HashMap<>();
+        for (Map.Entry<String, String> move : changes.moves.entrySet()) {
+            TreePath path = findPath(move.getKey());
+            if (path != null) {
+                movedStates.put(move.getValue(), model.getCheckState(path.getLastPathComponent()));
+            }
+        }
+
+        for (Map.Entry<String, VirtualFile> folder : changes.folders.entrySet()) {
+            if (!folder.getValue().isValid()) {
+                continue;
+            }
+            TreePath path = findPath(folder.getKey());
+            if (path != null && model.isChildrenLoaded(path.getLastPathComponent())) {
+                updateFolder(path, folder.getValue(), changes.renames.get(folder.getKey()), movedStates);
+            }
+        }
+    }
+
+    private void updateFolder(TreePath path, VirtualFile folder, @Nullable Map<String, String> renames,
+                              Map<String, Integer> movedStates) {
+        Object parent = path.getLastPathComponent();
+        int count = model.getChildCount(parent);
+        Map<String, Object> nodes = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            Object child = model.getChild(parent, i);
+            nodes.put(model.getName(child), child);
+        }
+        VirtualFile[] files = folder.getChildren();
+        Map<String, VirtualFile> children = new HashMap<>(files.length * 2);
+        for (VirtualFile file : files) {
+            children.put(file.getName(), file);
+        }
+
+        // Renamed entries keep their node, with its state and its loaded children
+        List<Object> renamed = new ArrayList<>();
+        if (renames != null) {
+            for (Map.Entry<String, String> rename : renames.entrySet()) {
+                Object node = nodes.get(rename.getKey());
+                VirtualFile file = children.get(rename.getValue());
+                if (node != null && file != null && !children.containsKey(rename.getKey())
+                        && !nodes.containsKey(rename.getValue()) && file.isDirectory() == model.isFolder(node)) {
+                    model.rename(node, rename.getValue());
+                    nodes.remove(rename.getKey());
+                    nodes.put(rename.getValue(), node);
+                    renamed.add(node);
+                }
+            }
+        }
+        // The loader of a folder still to be read looks it up by its old name
+        Object[] renamedFolders = renamed.stream()
+                .filter(node -> model.isFolder(node) && !model.isChildrenLoaded(node))
+                .toArray();
+        if (renamedFolders.length > 0) {
+            String[] names = Arrays.stream(renamedFolders).map(model::getName).toArray(String[]::new);
+            boolean[] folders = new boolean[renamedFolders.length];
+            Arrays.fill(folders, true);
+            childrenSetup.setUpChildren(model, folder, renamedFolders, names, folders);
+        }
+
+        int[] removed = new int[count];
+        int removedCount = 0;
+        for (int i = 0; i < count; i++) {
+            Object child = model.getChild(parent, i);
+            VirtualFile file = children.get(model.getName(child));
+            // An entry replaced by one of the other kind is removed and added again
+            if (file == null || file.isDirectory() != model.isFolder(child)) {
+                removed[removedCount++] = i;
+                nodes.remove(model.getName(child));
+            }
+        }
+        removed = Arrays.copyOf(removed, removedCount);
+
+        String[] addedNames = children.keySet().stream()
+                .filter(name -> !nodes.containsKey(name))
+                .sorted()
+                .toArray(String[]::new);
+        boolean[] addedFolders = new boolean[addedNames.length];
+        for (int i = 0; i < addedNames.length; i++) {
+            addedFolders[i] = children.get(addedNames[i]).isDirectory();
+        }
+
+        if (removed.length > 0 || addedNames.length > 0) {
+            Object[] added = model.updateChildren(parent, removed, addedNames, addedFolders);
+            childrenSetup.setUpChildren(model, folder, added, addedNames, addedFolders);
+
+            // Moved entries come back in their checked or unchecked state, their content is loaded again
+            String folderPrefix = folder.getPath() + "/";
+            for (int i = 0; i < added.length; i++) {
+                Integer state = movedStates.get(folderPrefix + addedNames[i]);
+                if (state != null && state != CheckboxTreeNode.INDETERMINATE) {
+                    model.setCheckState(added[i], state, false, true);
+                }
+            }
+        }
+
+        if (!renamed.isEmpty()) {
+            int[] indices = renamed.stream()
+                    .mapToInt(node -> model.getIndexOfChild(parent, node))
+                    .filter(index -> index >= 0)
+                    .sorted()
+                    .toArray();
+            if (indices.length > 0) {
+                model.fireNodesChanged(parent, indices);
+            }
+        }
+        if (removed.length > 0 || addedNames.length > 0) {
+            CheckStateNotifier.fireCheckStateChanged(tree, path);
+        }
+    }
+
+    /**
+     * Finds the node of a file through loaded folders only.
+     *
+     * @param path the path of the file
+     * @return the path of its node, or null if the file is outside the tab or not loaded
+     */
+    private @Nullable TreePath findPath(String path) {
+        TreePath treePath = new TreePath(model.getRoot());
+        if (path.equals(rootPath)) {
+            return treePath;
+        }
+        if (!path.startsWith(rootPath + "/")) {
+            return null;
+        }
+
+        for (String name : path.substring(rootPath.length() + 1).split("/")) {
+            Object node = treePath.getLastPathComponent();
+            if (!model.isChildrenLoaded(node)) {
+                return null;
+            }
+            Object child = null;
+            for (int i = 0, count = model.getChildCount(node); i < count && child == null; i++) {
+                Object candidate = model.getChild(node, i);
+                if (model.getName(candidate).equals(name)) {
+                    child = candidate;
+                }
+            }
+            if (child == null) {
+                return null;
+            }
+            treePath = treePath.pathByAddingChild(child);
+        }
+        return treePath;
+    }
+}
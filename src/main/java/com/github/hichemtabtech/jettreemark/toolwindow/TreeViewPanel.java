@@ -1,18 +1,46 @@
 package com.github.hichemtabtech.jettreemark.toolwindow;
 
 import com.github.hichemtabtech.jettreemark.JetTreeMarkBundle;
+import com.github.hichemtabtech.jettreemark.export.TreeExportWriter;
+import com.github.hichemtabtech.jettreemark.export.TreeExporter;
+import com.github.hichemtabtech.jettreemark.export.TreeExporters;
+import com.github.hichemtabtech.jettreemark.gitignore.GitignoreFiles;
+import com.github.hichemtabtech.jettreemark.gitignore.GitignoreRules;
+import com.github.hichemtabtech.jettreemark.scan.DirectoryScanner;
+import com.github.hichemtabtech.jettreemark.scan.ScanBudget;
+import com.github.hichemtabtech.jettreemark.scan.ScanCache;
+import com.github.hichemtabtech.jettreemark.scan.ScanExecutor;
+import com.github.hichemtabtech.jettreemark.scan.ScanOptions;
+import com.github.hichemtabtech.jettreemark.scan.ScanMetrics;
+import com.github.hichemtabtech.jettreemark.scan.ScanProgress;
+import com.intellij.openapi.fileChooser.FileChooserFactory;
+import com.intellij.openapi.fileChooser.FileSaverDescriptor;
+import com.intellij.openapi.ui.ComboBox;
+import com.intellij.openapi.ui.Messages;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.VirtualFileWrapper;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
 import com.intellij.ui.JBColor;
+import com.intellij.ui.SearchTextField;
+import com.intellij.ui.SimpleListCellRenderer;
 import com.intellij.ui.components.JBLabel;
 import com.intellij.ui.components.JBPanel;
 import com.intellij.ui.components.JBScrollPane;
 import com.intellij.ui.components.JBTabbedPane;
 import com.intellij.ui.treeStructure.Tree;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
-import javax.swing.tree.DefaultMutableTreeNode;
-import javax.swing.tree.DefaultTreeModel;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.event.MenuEvent;
+import javax.swing.event.MenuListener;
+import javax.swing.event.TreeExpansionEvent;
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+import javax.swing.event.TreeWillExpandListener;
 import javax.swing.tree.TreePath;
 import java.awt.*;
 import java.awt.datatransfer.Clipboard;
@@ -20,18 +48,25 @@ import java.awt.datatransfer.StringSelection;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.net.URI;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
-import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.function.BiPredicate;
+import java.util.function.Supplier;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.SwingWorker;
 
+import static com.github.hichemtabtech.jettreemark.gitignore.GitignoreFiles.joinPath;
+import static com.github.hichemtabtech.jettreemark.toolwindow.CheckStateNotifier.fireCheckStateChanged;
 import static java.util.logging.Logger.getLogger;
 
 /**
@@ -41,18 +76,151 @@ public class TreeViewPanel {
     private static final String GITHUB_URL = "https://github.com/HichemTab-tech";
     private static final String MESSAGE = JetTreeMarkBundle.message("welcome_to_jet_tree_mark");
     private static final String GITHUB_LINK_TEXT = "Visit HichemTab-tech on GitHub";
+    private static final int PROGRESS_REFRESH_MILLIS = 200;
+    // Rows Expand All may show, each expanded folder costs the tree UI a pass over the rows
+    private static final int EXPAND_ALL_ROW_LIMIT = 10_000;
+    // Quiet time before the open tabs are saved, so a burst of check operations is saved once
+    private static final int SAVE_DELAY_MILLIS = 2000;
+    // Pause in typing before the tree is filtered
+    private static final int SEARCH_DELAY_MILLIS = 150;
+    // Matches shown in a filtered tree, the bulk check operations still apply to all of them
+    private static final int SEARCH_MATCH_LIMIT = 5_000;
+    // Scans of a project run at the same time, the others wait for one of them to end
+    private static final int SCANS_PER_PROJECT = 2;
+    // Folders read before a copy: the ones with something checked in them
+    private static final BiPredicate<CheckableTreeModel, Object> CHECKED_FOLDERS =
+            (model, node) -> model.getCheckState(node) != CheckboxTreeNode.UNCHECKED;
+    // Folders read before a search: all but the gitignored placeholders
+    private static final BiPredicate<CheckableTreeModel, Object> SEARCHED_FOLDERS =
+            (model, node) -> !model.isIgnored(node);
 
     private final JBTabbedPane tabbedPane;
+    private final Supplier<ScanOptions> scanOptions;
+    private final Supplier<List<TreeExporter>> exporters;
+    // One panel per project, the tabs of a project share the folders they read
+    private final ScanCache scanCache = new ScanCache(ScanCache.DEFAULT_BUDGET_BYTES);
+    // The scans of the project, closed with it
+    private final ScanExecutor.Queue scans = ScanExecutor.getShared().createQueue(SCANS_PER_PROJECT);
+    private final List<OpenTab> openTabs = new ArrayList<>();
+    // Tabs whose tree is still being built, they join the open tabs when it is done
+    private final List<TreeBuilderWorker> loadingTabs = new ArrayList<>();
+    private final @Nullable TreeViewState viewState;
+    private final @Nullable SelectionProfiles selectionProfiles;
+    // Saved tabs still being restored, kept as they were until their tree is back
+    private final List<TreeViewState.Tab> restoringTabs = new ArrayList<>();
+    private final Timer saveTimer;
+    // The save being written in the background, its tabs are dropped if another save started since
+    private @Nullable SaveWorker saveWorker;
+    // Any change of a tree, check states included, saves the tabs again after a quiet time
+    private final TreeModelListener saveOnChange = new TreeModelListener() {
+        @Override
+        public void treeNodesChanged(TreeModelEvent e) {
+            scheduleSave();
+        }
+
+        @Override
+        public void treeNodesInserted(TreeModelEvent e) {
+            scheduleSave();
+        }
+
+        @Override
+        public void treeNodesRemoved(TreeModelEvent e) {
+            scheduleSave();
+        }
+
+        @Override
+        public void treeStructureChanged(TreeModelEvent e) {
+            scheduleSave();
+        }
+    };
     private int tabCounter = 1;
+    private boolean disposed;
     private static final Logger logger = getLogger(TreeViewPanel.class.getName());
 
     public TreeViewPanel() {
+        this(() -> ScanOptions.DEFAULT);
+    }
+
+    /**
+     * @param scanOptions supplies the options for each new tree view, read when the folder is added
+     */
+    public TreeViewPanel(@NotNull Supplier<ScanOptions> scanOptions) {
+        this(scanOptions, null, null);
+    }
+
+    /**
+     * @param scanOptions supplies the options for each new tree view, read when the folder is added
+     * @param viewState where the open tabs are saved, null to forget them with the panel
+     * @param selectionProfiles the saved selection profiles, null to hide the profiles menu
+     */
+    public TreeViewPanel(@NotNull Supplier<ScanOptions> scanOptions, @Nullable TreeViewState viewState,
+                         @Nullable SelectionProfiles selectionProfiles) {
+        this(scanOptions, viewState, selectionProfiles, TreeExporters::getBuiltIn);
+    }
+
+    /**
+     * @param scanOptions supplies the options for each new tree view, read when the folder is added
+     * @param viewState where the open tabs are saved, null to forget them with the panel
+     * @param selectionProfiles the saved selection profiles, null to hide the profiles menu
+     * @param exporters supplies the formats each new tree view can be copied or saved in, the default one first
+     */
+    public TreeViewPanel(@NotNull Supplier<ScanOptions> scanOptions, @Nullable TreeViewState viewState,
+                         @Nullable SelectionProfiles selectionProfiles,
+                         @NotNull Supplier<List<TreeExporter>> exporters) {
+        this.scanOptions = scanOptions;
+        this.exporters = exporters;
+        this.viewState = viewState;
+        this.selectionProfiles = selectionProfiles;
+        saveTimer = new Timer(SAVE_DELAY_MILLIS, e -> saveTabs());
+        saveTimer.setRepeats(false);
         tabbedPane = new JBTabbedPane();
         JPanel welcomePanel = createWelcomePanel();
         tabbedPane.addTab(JetTreeMarkBundle.message("welcome"), welcomePanel);
         // Welcome tab is not closable
     }
 
+    /**
+     * Lets go of everything the panel read when its project closes. Tabs with unsaved changes are saved
+     * first, then every tab is closed: waiting scans are cancelled, running ones stop at their next folder,
+     * and the trees and cached listings are released. Runs on the EDT, once.
+     */
+    public void dispose() {
+        if (disposed) {
+            return;
+        }
+        disposed = true;
+
+        if (viewState != null && saveTimer.isRunning()) {
+            saveTimer.stop();
+            // Written right away, the project is closing
+            saveWorker = null;
+            viewState.setTabs(writeTabs(new ArrayList<>(restoringTabs), captureTabs()));
+        }
+        // A scan that never started never gets to done(), where it would stop its progress timer
+        for (Runnable scan : scans.close()) {
+            if (scan instanceof SubtreeLoader subtreeLoader) {
+                subtreeLoader.progressTimer.stop();
+            }
+        }
+        for (TreeBuilderWorker worker : loadingTabs) {
+            worker.progress.cancel();
+            worker.progressTimer.stop();
+        }
+        loadingTabs.clear();
+        for (OpenTab openTab : new ArrayList<>(openTabs)) {
+            closeTab(openTab);
+        }
+        restoringTabs.clear();
+        scanCache.clear();
+    }
+
+    /**
+     * @return true once the panel was disposed with its project
+     */
+    public boolean isDisposed() {
+        return disposed;
+    }
+
     public JPanel getContent() {
         JPanel mainPanel = new JPanel(new BorderLayout());
         mainPanel.add(tabbedPane, BorderLayout.CENTER);
@@ -110,136 +278,747 @@ public class TreeViewPanel {
      * @param folder the folder to add
      */
     public void addFolderToTreeView(@NotNull VirtualFile folder) {
+        openTab(folder, null);
+        scheduleSave();
+    }
+
+    /**
+     * Reopens the tabs saved when the project was last closed, with their check states.
+     * Tabs whose root folder is gone are dropped.
+     */
+    public void restoreTabs() {
+        if (viewState == null) {
+            return;
+        }
+
+        for (TreeViewState.Tab tab : List.copyOf(viewState.getTabs())) {
+            VirtualFile folder = VirtualFileManager.getInstance().findFileByUrl(tab.url);
+            if (folder != null && folder.isDirectory()) {
+                restoringTabs.add(tab);
+                openTab(folder, tab);
+            }
+        }
+    }
+
+    private void openTab(VirtualFile folder, @Nullable TreeViewState.Tab savedTab) {
+        if (disposed) {
+            return;
+        }
+
         // Increment tab counter
         tabCounter++;
 
+        byte[] snapshot = null;
+        if (savedTab != null) {
+            try {
+                snapshot = Base64.getDecoder().decode(savedTab.snapshot);
+            } catch (IllegalArgumentException e) {
+                logger.warning("Unable to restore the tree of " + savedTab.url + ": " + e.getMessage());
+            }
+        }
+
         // Create and start the tree builder worker
-        TreeBuilderWorker worker = new TreeBuilderWorker(folder);
+        TreeBuilderWorker worker = new TreeBuilderWorker(folder, scanOptions.get(), snapshot);
+        worker.restoredTab = savedTab;
 
         // Show loading panel first
         worker.showLoadingPanel();
+        loadingTabs.add(worker);
+
+        // Build the tree in the background, once one of the scan slots of the project is free
+        scans.submit(worker);
+    }
 
-        // Execute the worker to start building the tree in the background
-        worker.execute();
+    private void scheduleSave() {
+        if (viewState != null && !disposed) {
+            saveTimer.restart();
+        }
+    }
+
+    /**
+     * Saves a snapshot of every open tab. The trees are copied on the EDT, where the models are safe to read,
+     * and written in the background, since looking up the time stamps of their folders and encoding them
+     * takes a while on large trees.
+     */
+    private void saveTabs() {
+        if (viewState == null) {
+            return;
+        }
+
+        saveWorker = new SaveWorker(new ArrayList<>(restoringTabs), captureTabs());
+        saveWorker.execute();
+    }
+
+    private List<TabCapture> captureTabs() {
+        List<TabCapture> captures = new ArrayList<>();
+        for (OpenTab openTab : openTabs) {
+            TreeSync treeSync = openTab.treeSync();
+            VirtualFile rootFolder = treeSync.getRootFolder();
+            if (rootFolder.isValid()) {
+                captures.add(new TabCapture(rootFolder, TreeSnapshot.capture(treeSync.getModel())));
+            }
+        }
+        return captures;
+    }
+
+    private static List<TreeViewState.Tab> writeTabs(List<TreeViewState.Tab> restoringTabs, List<TabCapture> captures) {
+        List<TreeViewState.Tab> tabs = new ArrayList<>(restoringTabs);
+        for (TabCapture capture : captures) {
+            VirtualFile rootFolder = capture.rootFolder();
+            byte[] snapshot = capture.tree().write(path -> getTimeStamp(rootFolder, path));
+            tabs.add(new TreeViewState.Tab(rootFolder.getUrl(), Base64.getEncoder().encodeToString(snapshot)));
+        }
+        return tabs;
+    }
+
+    /**
+     * The tree of an open tab, copied to be saved.
+     */
+    private record TabCapture(VirtualFile rootFolder, TreeSnapshot.Capture tree) {
+    }
+
+    /**
+     * Writes the copied tabs in the background and hands them to the view state on the EDT.
+     */
+    private class SaveWorker extends SwingWorker<List<TreeViewState.Tab>, Void> {
+        private final List<TreeViewState.Tab> restoringTabs;
+        private final List<TabCapture> captures;
+
+        SaveWorker(List<TreeViewState.Tab> restoringTabs, List<TabCapture> captures) {
+            this.restoringTabs = restoringTabs;
+            this.captures = captures;
+        }
+
+        @Override
+        protected List<TreeViewState.Tab> doInBackground() {
+            return writeTabs(restoringTabs, captures);
+        }
+
+        @Override
+        protected void done() {
+            if (saveWorker != this || viewState == null) {
+                return;
+            }
+            saveWorker = null;
+            try {
+                viewState.setTabs(get());
+            } catch (InterruptedException | ExecutionException e) {
+                logger.warning("Failed to save the open tabs: " + e.getMessage());
+            }
+        }
+    }
+
+    private static long getTimeStamp(VirtualFile rootFolder, String relativePath) {
+        VirtualFile folder = relativePath.isEmpty() ? rootFolder : rootFolder.findFileByRelativePath(relativePath);
+        return folder != null ? folder.getTimeStamp() : -1;
+    }
+
+    /**
+     * Applies a batch of file system changes to the open tree views, and drops what the scan cache
+     * knew of the folders that changed. Called on the EDT, after the VFS applied the events.
+     *
+     * @param events the events of the batch
+     */
+    public void filesChanged(@NotNull List<? extends VFileEvent> events) {
+        TreeSync.Changes changes = TreeSync.Changes.of(events);
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        for (VirtualFile folder : changes.getFolders()) {
+            scanCache.invalidate(folder);
+        }
+        for (OpenTab openTab : openTabs) {
+            openTab.treeSync().apply(changes);
+            openTab.searchBar().filesChanged();
+        }
+    }
+
+    /**
+     * The parts of a loaded tab the panel keeps, which closing the tab releases.
+     */
+    private record OpenTab(String title, TreeSync treeSync, SearchBar searchBar, ScanProgress progress) {
     }
 
-    private @NotNull JPanel createTreeViewPanel(Tree tree, CheckboxTreeNode rootNode) {
+    /**
+     * Stops what still runs for a tab and detaches its tree from the panel, so the tree and its model can be
+     * collected with the tab components.
+     */
+    private void closeTab(OpenTab openTab) {
+        openTab.progress().cancel();
+        openTabs.remove(openTab);
+        openTab.treeSync().getModel().removeTreeModelListener(saveOnChange);
+        openTab.searchBar().dispose();
+    }
+
+    private @NotNull JPanel createTreeViewPanel(VirtualFile rootFolder, CheckableTreeModel model, ScanOptions options,
+                                                ScanProgress tabProgress, ScanBudget budget,
+                                                ScanMetrics metrics, SearchBar searchBar, JLabel progressLabel) {
         JPanel treePanel = new JPanel(new BorderLayout());
 
-        // Create a scroll pane for the tree
-        JBScrollPane scrollPane = new JBScrollPane(tree);
-        treePanel.add(scrollPane, BorderLayout.CENTER);
+        // The search box above the tree, whose scroll pane shows either the tree or its filtered view
+        treePanel.add(searchBar.getComponent(), BorderLayout.NORTH);
+        treePanel.add(searchBar.getScrollPane(), BorderLayout.CENTER);
 
         // Create a panel for the copy button
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+
+        // The folders the scan limits left unread, more can be stopped by any later load
+        JLabel budgetLabel = new JLabel(formatLimits(budget));
+        budgetLabel.setForeground(JBColor.GRAY);
+        // What the scans of the tab did so far, any later load adds to it
+        JLabel metricsLabel = new JLabel(formatMetrics(metrics));
+        metricsLabel.setForeground(JBColor.GRAY);
+        metricsLabel.setToolTipText(JetTreeMarkBundle.message("metrics.tooltip"));
+        Runnable refreshFooter = () -> {
+            budgetLabel.setText(formatLimits(budget));
+            metricsLabel.setText(formatMetrics(metrics));
+        };
+        model.addTreeModelListener(new TreeModelListener() {
+            @Override
+            public void treeNodesChanged(TreeModelEvent e) {
+                refreshFooter.run();
+            }
+
+            @Override
+            public void treeNodesInserted(TreeModelEvent e) {
+                refreshFooter.run();
+            }
+
+            @Override
+            public void treeNodesRemoved(TreeModelEvent e) {
+                refreshFooter.run();
+            }
+
+            @Override
+            public void treeStructureChanged(TreeModelEvent e) {
+                refreshFooter.run();
+            }
+        });
+        // The format used by Copy Tree and Save
+        List<TreeExporter> formats = exporters.get();
+        ComboBox<TreeExporter> formatBox = new ComboBox<>(formats.toArray(new TreeExporter[0]));
+        formatBox.setRenderer(SimpleListCellRenderer.create("", TreeExporter::getDisplayName));
+        formatBox.setToolTipText(JetTreeMarkBundle.message("export.format.tooltip"));
+
+        JButton compareButton = new JButton(JetTreeMarkBundle.message("diff.compare_with"));
+        compareButton.addActionListener(e -> {
+            // The other loaded tabs, picked from a menu below the button
+            JPopupMenu tabsMenu = new JPopupMenu();
+            for (OpenTab openTab : openTabs) {
+                if (openTab.searchBar().model == model) {
+                    continue;
+                }
+                JMenuItem item = new JMenuItem(openTab.title());
+                // The button stays enabled, as closing the other tab skips the end of the comparison
+                item.addActionListener(event -> compareTabs(model, options,
+                        new ScanProgress(tabProgress::isCancelled), metrics, progressLabel, openTab));
+                tabsMenu.add(item);
+            }
+            if (tabsMenu.getComponentCount() == 0) {
+                JMenuItem item = new JMenuItem(JetTreeMarkBundle.message("diff.no_other_tab"));
+                item.setEnabled(false);
+                tabsMenu.add(item);
+            }
+            tabsMenu.show(compareButton, 0, compareButton.getHeight());
+        });
+
         JButton copyButton = new JButton(JetTreeMarkBundle.message("copy_tree"));
+        JButton saveButton = new JButton(JetTreeMarkBundle.message("export.save"));
         copyButton.addActionListener(e -> {
-            // Generate text representation of the tree with only checked nodes
-            String treeText = generateTreeText(rootNode, "", true);
-
-            // Copy the tree text to clipboard
-            StringSelection stringSelection = new StringSelection(treeText);
-            Clipboard clipboard = Toolkit.getDefaultToolkit().getSystemClipboard();
-            clipboard.setContents(stringSelection, null);
-
-            // Provide visual feedback
-            copyButton.setText(JetTreeMarkBundle.message("copied"));
-            Timer timer = new Timer(1500, event -> copyButton.setText(JetTreeMarkBundle.message("copy_tree")));
-            timer.setRepeats(false);
-            timer.start();
+            // Checked folders that were never expanded are read in the background first
+            copyButton.setEnabled(false);
+            TreeExporter format = formatBox.getItem();
+            ScanProgress progress = new ScanProgress(tabProgress::isCancelled);
+            loadSubtrees(model, options, CHECKED_FOLDERS, progress, metrics, progressLabel, () -> {
+                copyButton.setEnabled(true);
+
+                // Generate the chosen format of the tree with only checked nodes
+                String treeText = exportTree(format, model);
+
+                // Copy the tree text to clipboard
+                StringSelection stringSelection = new StringSelection(treeText);
+                Clipboard clipboard = Toolkit.getDefaultToolkit().getSystemClipboard();
+                clipboard.setContents(stringSelection, null);
+
+                // Provide visual feedback
+                copyButton.setText(JetTreeMarkBundle.message("copied"));
+                Timer timer = new Timer(1500, event -> copyButton.setText(JetTreeMarkBundle.message("copy_tree")));
+                timer.setRepeats(false);
+                timer.start();
+            });
+        });
+        saveButton.addActionListener(e -> {
+            TreeExporter selected = formatBox.getItem();
+            FileSaverDescriptor descriptor = new FileSaverDescriptor(
+                    JetTreeMarkBundle.message("export.dialog.title"),
+                    JetTreeMarkBundle.message("export.dialog.description"),
+                    TreeExporters.getFileExtensions(formats));
+            VirtualFileWrapper target = FileChooserFactory.getInstance()
+                    .createSaveFileDialog(descriptor, treePanel)
+                    .save(rootFolder.getParent(), rootFolder.getName() + "-tree." + selected.getFileExtension());
+            if (target == null) {
+                return;
+            }
+            // A file name typed with the extension of another format is written in that format
+            TreeExporter format = TreeExporters.forFileName(formats, target.getFile().getName(), selected);
+            Path path = target.getFile().toPath();
+
+            saveButton.setEnabled(false);
+            ScanProgress progress = new ScanProgress(tabProgress::isCancelled);
+            loadSubtrees(model, options, CHECKED_FOLDERS, progress, metrics, progressLabel, () -> {
+                saveButton.setEnabled(true);
+                try {
+                    saveTree(format, model, path);
+                    progressLabel.setText(JetTreeMarkBundle.message("export.saved", path.getFileName()));
+                } catch (IOException ex) {
+                    Messages.showErrorDialog(treePanel, JetTreeMarkBundle.message("export.failed", path, ex.getMessage()),
+                            JetTreeMarkBundle.message("export.dialog.title"));
+                }
+            });
         });
+        buttonPanel.add(metricsLabel);
+        buttonPanel.add(budgetLabel);
+        buttonPanel.add(progressLabel);
+        buttonPanel.add(compareButton);
+        buttonPanel.add(formatBox);
         buttonPanel.add(copyButton);
+        buttonPanel.add(saveButton);
         treePanel.add(buttonPanel, BorderLayout.SOUTH);
         return treePanel;
     }
 
     /**
-     * Generates a text representation of the tree structure.
+     * Opens a tab with the differences from the tree of another tab to this one. The folders of both trees that
+     * were never expanded are read in the background first, gitignored placeholders aside, then the trees are
+     * compared on the EDT in one pass.
      *
-     * @param node the root node
-     * @param prefix the prefix for the current line
-     * @param isLast whether the current node is the last child of its parent
-     * @return the text representation of the tree
+     * @param model the model of this tab, compared to
+     * @param options the scan options of this tab
+     * @param progress the progress of the load, the comparison is skipped if it gets cancelled
+     * @param metrics the metrics of this tab
+     * @param progressLabel the label of this tab showing the counters while folders are read
+     * @param other the tab compared from
      */
-    private String generateTreeText(DefaultMutableTreeNode node, String prefix, boolean isLast) {
-        StringBuilder result = new StringBuilder();
+    private void compareTabs(CheckableTreeModel model, ScanOptions options, ScanProgress progress,
+                             ScanMetrics metrics, JLabel progressLabel, OpenTab other) {
+        SearchBar otherSearch = other.searchBar();
+        // The other tab may be closed while its folders are read, then the diff is not shown
+        ScanProgress otherProgress = new ScanProgress(() -> progress.isCancelled() || other.progress().isCancelled());
+        loadSubtrees(model, options, SEARCHED_FOLDERS, progress, metrics, progressLabel, () ->
+                loadSubtrees(otherSearch.model, otherSearch.options, SEARCHED_FOLDERS, otherProgress,
+                        otherSearch.metrics, progressLabel, () -> {
+                            if (!openTabs.contains(other)) {
+                                return;
+                            }
+                            String title = openTabs.stream()
+                                    .filter(openTab -> openTab.searchBar().model == model)
+                                    .map(OpenTab::title)
+                                    .findFirst()
+                                    .orElse("");
+                            showDiff(other.title(), otherSearch.model, title, model);
+                        }));
+    }
 
-        // Skip unchecked nodes (except the root node)
-        if (node instanceof CheckboxTreeNode checkboxNode) {
-            int state = checkboxNode.getCheckState();
+    /**
+     * Compares two trees and shows the result in a new tab, which does not follow later changes of the trees.
+     */
+    private void showDiff(String leftTitle, CheckableTreeModel left, String rightTitle, CheckableTreeModel right) {
+        long start = System.nanoTime();
+        TreeDiff diff = TreeDiff.compare(left, right);
+        logger.fine("Compared " + leftTitle + " to " + rightTitle + " in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+
+        Tree tree = new Tree(diff);
+        tree.setCellRenderer(new TreeDiffCellRenderer());
+        JPanel diffPanel = new JPanel(new BorderLayout());
+        JLabel summaryLabel = new JLabel(JetTreeMarkBundle.message("diff.summary",
+                diff.getAddedCount(), diff.getRemovedCount(), diff.getChangedCount()));
+        summaryLabel.setBorder(BorderFactory.createEmptyBorder(4, 4, 4, 4));
+        diffPanel.add(summaryLabel, BorderLayout.NORTH);
+        diffPanel.add(new JBScrollPane(tree), BorderLayout.CENTER);
+
+        String tabTitle = JetTreeMarkBundle.message("diff.tab_title", leftTitle, rightTitle);
+        tabbedPane.addTab(tabTitle, diffPanel);
+        int tabIndex = tabbedPane.getTabCount() - 1;
+        // Nothing runs for a diff tab, closing it only drops the diff
+        tabbedPane.setTabComponentAt(tabIndex, createTabComponent(tabTitle, () -> {
+        }));
+        tabbedPane.setSelectedIndex(tabIndex);
+    }
+
+    /**
+     * Loads every folder that was never expanded, walking down the folders the filter accepts,
+     * then runs the given action on the EDT.
+     *
+     * @param model the model of the tree
+     * @param options the scan options of the tree view
+     * @param descend tells which folders to walk into
+     * @param progress the progress of the load, the action is skipped if it gets cancelled
+     * @param metrics the metrics of the tab, logged once the folders are loaded
+     * @param progressLabel the label showing the counters while folders are read
+     * @param then the action to run once the folders are loaded
+     */
+    private void loadSubtrees(CheckableTreeModel model, ScanOptions options,
+                                     BiPredicate<CheckableTreeModel, Object> descend,
+                                     ScanProgress progress, ScanMetrics metrics, JLabel progressLabel,
+                                     Runnable then) {
+        List<Object> unloaded = new ArrayList<>();
+        collectUnloadedFolders(model, model.getRoot(), descend, unloaded);
+        if (unloaded.isEmpty()) {
+            then.run();
+            return;
+        }
+        scans.submit(new SubtreeLoader(model, unloaded, descend, options.getParallelism(), progress, metrics,
+                progressLabel, then));
+    }
 
-            // Skip if unchecked and not the root node
-            if (state == CheckboxTreeNode.UNCHECKED && node.getParent() != null) {
-                return "";
+    private static int countFiles(CheckableTreeModel model, Object folder) {
+        int files = 0;
+        for (int i = 0; i < model.getChildCount(folder); i++) {
+            if (!model.isFolder(model.getChild(folder, i))) {
+                files++;
             }
+        }
+        return files;
+    }
+
+    private static String formatProgress(ScanProgress progress) {
+        return JetTreeMarkBundle.message("progress.counters",
+                progress.getDirectoryCount(),
+                progress.getFileCount(),
+                String.format("%.1f", progress.getElapsedMillis() / 1000.0),
+                progress.getFilesPerSecond());
+    }
+
+    /**
+     * @param budget the budget of a tree view
+     * @return the limits that stopped folders with how many, or an empty string if none did
+     */
+    static String formatLimits(ScanBudget budget) {
+        if (!budget.isLimitHit()) {
+            return "";
+        }
+        List<String> limits = new ArrayList<>();
+        int depth = budget.getStoppedFolderCount(ScanBudget.Limit.DEPTH);
+        if (depth > 0) {
+            limits.add(JetTreeMarkBundle.message("budget.depth", depth, budget.getMaxDepth()));
+        }
+        int total = budget.getStoppedFolderCount(ScanBudget.Limit.TOTAL_ENTRIES);
+        if (total > 0) {
+            limits.add(JetTreeMarkBundle.message("budget.total_entries", total, budget.getMaxEntries()));
+        }
+        int folder = budget.getStoppedFolderCount(ScanBudget.Limit.FOLDER_ENTRIES);
+        if (folder > 0) {
+            limits.add(JetTreeMarkBundle.message("budget.folder_entries", folder, budget.getMaxFolderEntries()));
+        }
+        return JetTreeMarkBundle.message("budget.limits_hit", String.join(", ", limits));
+    }
 
-            // For indeterminate nodes, we include them as they have some checked children
+    /**
+     * @param metrics the metrics of a tree view
+     * @return the counters, phase times and estimated heap of its scans, for the tab footer
+     */
+    static String formatMetrics(ScanMetrics metrics) {
+        return JetTreeMarkBundle.message("metrics.footer",
+                metrics.getDirectoryCount(),
+                metrics.getFileCount(),
+                metrics.getIgnoredCount(),
+                metrics.getGitignoreFileCount(),
+                metrics.getMillis(ScanMetrics.Phase.LISTING),
+                metrics.getMillis(ScanMetrics.Phase.GITIGNORE),
+                metrics.getMillis(ScanMetrics.Phase.TREE),
+                String.format("%.1f", metrics.getEstimatedRetainedBytes() / (1024.0 * 1024.0)));
+    }
+
+    /**
+     * Writes the metrics of a tree view to the log, at debug level only so scans do not fill it.
+     */
+    private static void logMetrics(String rootName, ScanMetrics metrics) {
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine("Scan metrics of " + rootName + ": " + metrics);
         }
+    }
 
-        // Add the current node
-        if (node.getParent() != null) { // Skip the root node prefix
-            result.append(prefix).append(isLast ? "└── " : "├── ");
-            result.append(node.getUserObject());
+    private static void collectUnloadedFolders(CheckableTreeModel model, Object node,
+                                               BiPredicate<CheckableTreeModel, Object> descend,
+                                               List<Object> unloaded) {
+        if (!model.isChildrenLoaded(node)) {
+            unloaded.add(node);
+            return;
+        }
+        for (int i = 0; i < model.getChildCount(node); i++) {
+            Object child = model.getChild(node, i);
+            if (descend.test(model, child)) {
+                collectUnloadedFolders(model, child, descend, unloaded);
+            }
+        }
+    }
 
-            // Add directory indicator
-            if (node.getChildCount() > 0) {
-                result.append("/");
+    /**
+     * Reads folders that were never expanded, several of them in parallel.
+     * The folders are loaded into detached copies off the EDT and attached to the tree in {@link #done()},
+     * so the tree model is only ever changed on the EDT. Cancelling the progress, by closing the tab,
+     * stops the walk at the next folder.
+     */
+    private static class SubtreeLoader extends SwingWorker<Void, Void> {
+        private final CheckableTreeModel model;
+        private final List<Object> nodes;
+        private final List<CheckableTreeModel> copies = new ArrayList<>();
+        private final BiPredicate<CheckableTreeModel, Object> descend;
+        private final int parallelism;
+        private final ScanProgress progress;
+        private final ScanMetrics metrics;
+        private final JLabel progressLabel;
+        private final Timer progressTimer;
+        private final Runnable then;
+
+        SubtreeLoader(CheckableTreeModel model, List<Object> nodes, BiPredicate<CheckableTreeModel, Object> descend,
+                      int parallelism, ScanProgress progress, ScanMetrics metrics, JLabel progressLabel,
+                      Runnable then) {
+            this.model = model;
+            this.nodes = nodes;
+            this.descend = descend;
+            this.parallelism = parallelism;
+            this.progress = progress;
+            this.metrics = metrics;
+            this.progressLabel = progressLabel;
+            this.then = then;
+            for (Object node : nodes) {
+                copies.add(model.createLoadingCopy(node));
             }
 
-            result.append("\n");
-        } else {
-            // Root node
-            result.append(node.getUserObject()).append("/\n");
+            // Refresh the counters while the folders are read
+            progressTimer = new Timer(PROGRESS_REFRESH_MILLIS, e -> progressLabel.setText(formatProgress(progress)));
+            progressTimer.start();
         }
 
-        // Process children
-        String childPrefix = prefix + (isLast ? "    " : "│   ");
+        @Override
+        protected Void doInBackground() {
+            loadCopies(copies, descend, parallelism, progress);
+            return null;
+        }
+
+        @Override
+        protected void done() {
+            progressTimer.stop();
+            progressLabel.setText("");
+
+            // The tab was closed, nothing is left to update
+            if (progress.isCancelled() || isCancelled()) {
+                return;
+            }
 
-        // Count visible children (checked or indeterminate nodes)
-        int visibleChildCount = 0;
-        for (int i = 0; i < node.getChildCount(); i++) {
-            DefaultMutableTreeNode child = (DefaultMutableTreeNode) node.getChildAt(i);
-            if (!(child instanceof CheckboxTreeNode checkboxChild)) {
-                visibleChildCount++;
-            } else {
-                int state = checkboxChild.getCheckState();
-                if (state == CheckboxTreeNode.CHECKED || state == CheckboxTreeNode.INDETERMINATE) {
-                    visibleChildCount++;
+            try {
+                get();
+                for (int i = 0; i < nodes.size(); i++) {
+                    Object node = nodes.get(i);
+                    CheckableTreeModel copy = copies.get(i);
+                    if (!model.isCopiedFrom(node, copy)) {
+                        // Loaded meanwhile, or a file system change gave its place to another folder
+                        continue;
+                    }
+                    if (model.adoptChildren(node, copy)) {
+                        model.fireSubtreeChanged(node);
+                    } else if (copy.isIgnored(copy.getRoot()) && !model.isIgnored(node)
+                            && !model.isChildrenLoaded(node)) {
+                        // The scan budget stopped the folder, it is left as a placeholder
+                        model.setCheckState(node, CheckboxTreeNode.UNCHECKED, false, true);
+                        model.setIgnored(node, true);
+                        model.fireSubtreeChanged(node);
+                    }
                 }
+            } catch (InterruptedException | ExecutionException e) {
+                // Folders that could not be read in the background are loaded on access instead
+                logger.warning("Failed to load folders in the background: " + e.getMessage());
             }
+            logMetrics(model.getName(model.getRoot()), metrics);
+            then.run();
         }
+    }
 
-        // Track the current visible child index
-        int currentVisibleChild = 0;
-
-        // Process each child
-        for (int i = 0; i < node.getChildCount(); i++) {
-            DefaultMutableTreeNode child = (DefaultMutableTreeNode) node.getChildAt(i);
+    /**
+     * Loads the roots of loading copies and, recursively, the folders below them that the predicate accepts.
+     * <p>
+     * Sibling folders are read in parallel, including folders of the same copy. A copy is not thread safe,
+     * so the threads take turns on its monitor, but only to add the children that were read: each folder is
+     * listed by {@link CheckableTreeModel.ChildrenLoader#read} without holding the copy.
+     *
+     * @param copies the copies to load, from {@link CheckableTreeModel#createLoadingCopy}
+     * @param descend tells which folders to walk into
+     * @param parallelism the number of folders read at the same time
+     * @param progress counts the listed folders, the walk stops at the next folder once it is cancelled
+     */
+    static void loadCopies(List<CheckableTreeModel> copies, BiPredicate<CheckableTreeModel, Object> descend,
+                           int parallelism, ScanProgress progress) {
+        List<PendingFolder> roots = new ArrayList<>();
+        for (CheckableTreeModel copy : copies) {
+            roots.add(new PendingFolder(copy, copy.getRoot()));
+        }
+        new DirectoryScanner(parallelism).scan(roots, folder -> {
+            CheckableTreeModel copy = folder.model();
+            Object node = folder.node();
+            progress.checkCancelled();
+            // Held even to read the loader, as other threads adding rows may be growing the arrays it sits in
+            CheckableTreeModel.ChildrenLoader loader;
+            synchronized (copy) {
+                loader = copy.getChildrenLoader(node);
+            }
+            CheckableTreeModel.ChildrenLoader read = loader != null ? loader.read() : null;
 
-            // Skip unchecked nodes
-            if (child instanceof CheckboxTreeNode checkboxChild) {
-                if (checkboxChild.getCheckState() == CheckboxTreeNode.UNCHECKED) {
-                    continue;
+            synchronized (copy) {
+                if (read != null) {
+                    copy.setChildrenLoader(node, read);
+                    copy.ensureChildrenLoaded(node);
+                }
+                progress.folderListed(countFiles(copy, node));
+                List<PendingFolder> subFolders = new ArrayList<>();
+                for (int i = 0; i < copy.getChildCount(node); i++) {
+                    Object child = copy.getChild(node, i);
+                    if (!copy.isChildrenLoaded(child) && descend.test(copy, child)) {
+                        subFolders.add(new PendingFolder(copy, child));
+                    }
                 }
+                return subFolders;
             }
+        });
+    }
 
-            // Determine if this visible child is the last one
-            boolean childIsLast = (++currentVisibleChild == visibleChildCount);
+    /**
+     * A folder of a loading copy, expanded by exactly one task.
+     */
+    private record PendingFolder(CheckableTreeModel model, Object node) {
+    }
 
-            // Generate text for this child
-            result.append(generateTreeText(child, childPrefix, childIsLast));
+    /**
+     * Writes the checked part of a tree in a format, for the clipboard.
+     *
+     * @param format the format to write
+     * @param model the model of the tree
+     * @return the tree in that format
+     */
+    static String exportTree(TreeExporter format, CheckableTreeModel model) {
+        StringBuilder result = new StringBuilder();
+        try {
+            TreeExportWriter writer = format.createWriter(result);
+            writeTree(writer, model, model.getRoot(), true);
+            writer.finish();
+        } catch (IOException e) {
+            // A StringBuilder never fails to append
+            throw new UncheckedIOException(e);
         }
-
         return result.toString();
     }
 
+    /**
+     * Writes the checked part of a tree in a format to a UTF-8 file. The tree goes to the file as it is
+     * walked, so no text of the whole tree is ever held in memory.
+     *
+     * @param format the format to write
+     * @param model the model of the tree, with every checked folder loaded
+     * @param target the file to write, replaced if it exists
+     */
+    static void saveTree(TreeExporter format, CheckableTreeModel model, Path target) throws IOException {
+        try (Writer out = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+            TreeExportWriter writer = format.createWriter(out);
+            writeTree(writer, model, model.getRoot(), true);
+            writer.finish();
+        }
+    }
+
+    /**
+     * Writes the checked part of a tree in a single pass.
+     * Unchecked nodes are skipped, except the root node.
+     *
+     * @param writer the writer, positioned at the depth of the node
+     * @param model the model holding the node
+     * @param node the node to write
+     * @param isLast whether the node is the last visible child of its parent
+     */
+    static void writeTree(TreeExportWriter writer, CheckableTreeModel model, Object node,
+                          boolean isLast) throws IOException {
+        boolean root = node.equals(model.getRoot());
+
+        // Skip if unchecked and not the root node
+        if (!root && model.getCheckState(node) == CheckboxTreeNode.UNCHECKED) {
+            return;
+        }
+
+        // Folders that were never expanded have to be read before they can be printed
+        model.ensureChildrenLoaded(node);
+
+        int childCount = model.getChildCount(node);
+        if (root) {
+            writer.writeRoot(model.getName(node));
+        } else {
+            writer.writeEntry(model.getName(node), childCount > 0, isLast);
+        }
+
+        // The last visible child gets the closing connector
+        int lastVisibleChild = -1;
+        for (int i = childCount - 1; i >= 0; i--) {
+            if (isVisibleInText(model, model.getChild(node, i))) {
+                lastVisibleChild = i;
+                break;
+            }
+        }
+
+        writer.enterFolder(isLast);
+        for (int i = 0; i <= lastVisibleChild; i++) {
+            Object child = model.getChild(node, i);
+            if (isVisibleInText(model, child)) {
+                writeTree(writer, model, child, i == lastVisibleChild);
+            }
+        }
+        writer.exitFolder();
+    }
+
+    private static boolean isVisibleInText(CheckableTreeModel model, Object node) {
+        // Indeterminate nodes are included as they have some checked children
+        return model.getCheckState(node) != CheckboxTreeNode.UNCHECKED;
+    }
+
+    /**
+     * Changes the state of a node for a click on its checkbox: unchecked nodes are checked, the others are
+     * unchecked. A folder holding a gitignored placeholder stays indeterminate once checked, since checking
+     * skips the placeholder, so a second click has to uncheck it.
+     *
+     * @param model the model holding the node
+     * @param node the clicked node
+     */
+    static void toggleCheckState(CheckableTreeView model, Object node) {
+        model.setCheckState(node, model.getCheckState(node) == CheckboxTreeNode.UNCHECKED
+                ? CheckboxTreeNode.CHECKED
+                : CheckboxTreeNode.UNCHECKED);
+    }
+
+    /**
+     * Checks a file or folder against the gitignore rules of its folder, as each listed entry is during a scan.
+     *
+     * @param name the file name
+     * @param directory whether the entry is a folder
+     * @param folderPath the path of the entry's folder, relative to the folder the rules are anchored to
+     * @param rules the rules that apply to the entry's folder
+     * @return true if the entry should be ignored, false otherwise
+     */
+    static boolean isGitignored(String name, boolean directory, String folderPath, GitignoreRules rules) {
+        if (rules.isEmpty()) {
+            return false;
+        }
+
+        // Only build the relative path when some pattern is anchored to its folder
+        String relativePath = rules.needsRelativePath() ? joinPath(folderPath, name) : null;
+        return rules.isIgnored(name, relativePath, directory);
+    }
+
     /**
      * Creates a tab component with a close button.
      *
      * @param title the title of the tab
+     * @param onClose called after the tab was closed, to stop the work still running for it
      * @return the tab component
      */
-    private JPanel createTabComponent(String title) {
+    private JPanel createTabComponent(String title, Runnable onClose) {
         // Create a panel with FlowLayout (horizontal, left-aligned)
         JPanel tabPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
         tabPanel.setOpaque(false);
@@ -267,242 +1046,574 @@ public class TreeViewPanel {
                     break;
                 }
             }
+            onClose.run();
         });
 
         tabPanel.add(closeButton);
         return tabPanel;
     }
 
+    /**
+     * The search box of a tab. Typing filters the tree down to the entries whose name contains the text, with
+     * their folders, and the buttons check or uncheck every match. The first search reads the folders that were
+     * never expanded, gitignored placeholders aside, so any file of the tree can be found. Searches then go
+     * through the {@link NameIndex} of the tree, which is only built again after the tree changed.
+     */
+    private class SearchBar {
+        private final Tree tree;
+        private final CheckableTreeModel model;
+        private final ScanOptions options;
+        private final ScanProgress tabProgress;
+        private final ScanMetrics metrics;
+        private final TreeSearch treeSearch;
+        private final SearchTextField searchField = new SearchTextField(false);
+        private final JLabel matchLabel = new JLabel();
+        private final JButton checkMatchesButton = new JButton(JetTreeMarkBundle.message("search.check_matches"));
+        private final JButton uncheckMatchesButton = new JButton(JetTreeMarkBundle.message("search.uncheck_matches"));
+        private final JBScrollPane scrollPane;
+        private final JPanel component = new JPanel(new BorderLayout());
+        private final Timer searchTimer;
+        private boolean loading;
+        // The last search: the index it went through, every match, and the tree showing the first ones
+        private @Nullable NameIndex searchedIndex;
+        private int[] matches = new int[0];
+        private @Nullable Tree filteredTree;
+
+        SearchBar(Tree tree, CheckableTreeModel model, ScanOptions options, ScanProgress tabProgress,
+                  ScanMetrics metrics) {
+            this.tree = tree;
+            this.model = model;
+            this.options = options;
+            this.tabProgress = tabProgress;
+            this.metrics = metrics;
+            scrollPane = new JBScrollPane(tree);
+
+            searchTimer = new Timer(SEARCH_DELAY_MILLIS, e -> search(true));
+            searchTimer.setRepeats(false);
+            // A filtered tree showing nodes the tree dropped is refreshed
+            treeSearch = new TreeSearch(model, () -> {
+                if (!getQuery().isEmpty()) {
+                    searchTimer.restart();
+                }
+            });
+            searchField.addDocumentListener(new DocumentListener() {
+                @Override
+                public void insertUpdate(DocumentEvent e) {
+                    searchTimer.restart();
+                }
+
+                @Override
+                public void removeUpdate(DocumentEvent e) {
+                    searchTimer.restart();
+                }
+
+                @Override
+                public void changedUpdate(DocumentEvent e) {
+                    searchTimer.restart();
+                }
+            });
+            checkMatchesButton.addActionListener(e -> setCheckStateOfMatches(CheckboxTreeNode.CHECKED));
+            uncheckMatchesButton.addActionListener(e -> setCheckStateOfMatches(CheckboxTreeNode.UNCHECKED));
+            setButtonsEnabled(false);
+
+            JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+            buttonPanel.add(matchLabel);
+            buttonPanel.add(checkMatchesButton);
+            buttonPanel.add(uncheckMatchesButton);
+            component.add(searchField, BorderLayout.CENTER);
+            component.add(buttonPanel, BorderLayout.EAST);
+        }
+
+        JPanel getComponent() {
+            return component;
+        }
+
+        JBScrollPane getScrollPane() {
+            return scrollPane;
+        }
+
+        /**
+         * Stops a pending search and drops the filtered tree when the tab closes. The tree lets go of its model,
+         * a Swing component can be kept a while after its tab, in the focus history for instance.
+         */
+        void dispose() {
+            searchTimer.stop();
+            model.removeTreeModelListener(treeSearch);
+            searchedIndex = null;
+            matches = new int[0];
+            filteredTree = null;
+            tree.setModel(null);
+        }
+
+        /**
+         * Drops the index after a change of the file system, which may have renamed nodes.
+         */
+        void filesChanged() {
+            if (treeSearch.hasIndex()) {
+                treeSearch.invalidate();
+            }
+        }
+
+        private String getQuery() {
+            return searchField.getText().trim();
+        }
+
+        private void setButtonsEnabled(boolean enabled) {
+            checkMatchesButton.setEnabled(enabled);
+            uncheckMatchesButton.setEnabled(enabled);
+        }
+
+        /**
+         * Shows the matches of the text in the search box, or the whole tree again when it is empty.
+         *
+         * @param loadFolders whether to read the folders that were never expanded first
+         */
+        private void search(boolean loadFolders) {
+            String query = getQuery();
+            if (query.isEmpty()) {
+                searchedIndex = null;
+                matches = new int[0];
+                filteredTree = null;
+                matchLabel.setText("");
+                setButtonsEnabled(false);
+                if (scrollPane.getViewport().getView() != tree) {
+                    // Check states may have changed in the filtered tree, they never change the size of a row
+                    scrollPane.setViewportView(tree);
+                    tree.repaint();
+                }
+                return;
+            }
+            if (loading) {
+                // Searched again once the folders are read
+                return;
+            }
+
+            if (loadFolders && !treeSearch.hasIndex()) {
+                List<Object> unloaded = new ArrayList<>();
+                collectUnloadedFolders(model, model.getRoot(), SEARCHED_FOLDERS, unloaded);
+                if (!unloaded.isEmpty()) {
+                    loading = true;
+                    setButtonsEnabled(false);
+                    ScanProgress progress = new ScanProgress(tabProgress::isCancelled);
+                    scans.submit(new SubtreeLoader(model, unloaded, SEARCHED_FOLDERS, options.getParallelism(),
+                            progress, metrics, matchLabel, () -> {
+                        loading = false;
+                        search(false);
+                    }));
+                    return;
+                }
+            }
+
+            NameIndex index = treeSearch.getIndex();
+            searchedIndex = index;
+            matches = index.search(query);
+            int[] shown = matches.length > SEARCH_MATCH_LIMIT ? Arrays.copyOf(matches, SEARCH_MATCH_LIMIT) : matches;
+            filteredTree = TreeBuilderWorker.getTree(new FilteredTreeModel(model, index, shown), null, matchLabel);
+            TreeExpander.expandAll(filteredTree, EXPAND_ALL_ROW_LIMIT);
+            scrollPane.setViewportView(filteredTree);
+
+            matchLabel.setText(shown.length < matches.length
+                    ? JetTreeMarkBundle.message("search.matches_limited", shown.length, matches.length)
+                    : JetTreeMarkBundle.message("search.matches", matches.length));
+            setButtonsEnabled(matches.length > 0);
+        }
+
+        private void setCheckStateOfMatches(int state) {
+            if (!treeSearch.hasIndex()) {
+                // The tree changed since the last search, its matches are looked up again
+                search(false);
+            }
+            if (loading || searchedIndex == null || filteredTree == null) {
+                return;
+            }
+
+            TreeSearch.setCheckState(model, searchedIndex, matches, state);
+            fireCheckStateChanged(filteredTree, new TreePath(filteredTree.getModel().getRoot()));
+        }
+    }
+
     /**
      * SwingWorker implementation for asynchronous tree building.
      * This prevents UI freezing when loading large directory structures.
      */
-    private class TreeBuilderWorker extends SwingWorker<DefaultMutableTreeNode, Void> {
+    private class TreeBuilderWorker extends SwingWorker<CheckableTreeModel, Void> {
         private final VirtualFile rootFolder;
         private final String rootName;
-        private int tabIndex;
-        private Set<String> gitignorePatterns;
+        private final ScanOptions options;
+        private final String rootPath;
+        // Cancelled with its tab, or with the project
+        private final ScanProgress progress = new ScanProgress(scans::isClosed);
+        // Shared by every folder load of the tab, from the first listing to the loads of later operations
+        private final ScanBudget budget;
+        private final ScanMetrics metrics;
+        private JPanel loadingPanel;
+        private Timer progressTimer;
+        private String rootRelativePath;
+        private GitignoreRules gitignoreRules;
+        // Set when the tree comes back from a saved tab rather than from a scan
+        private final byte[] snapshot;
+        private TreeViewState.Tab restoredTab;
+        private List<String> staleFolders = List.of();
 
-        public TreeBuilderWorker(VirtualFile rootFolder) {
+        /**
+         * @param snapshot a {@link TreeSnapshot} of the tab to restore, null to scan the folder
+         */
+        public TreeBuilderWorker(VirtualFile rootFolder, ScanOptions options, byte[] snapshot) {
             this.rootFolder = rootFolder;
             this.rootName = rootFolder.getName();
-            this.gitignorePatterns = new HashSet<>();
+            this.rootPath = rootFolder.getPath();
+            this.options = options;
+            this.snapshot = snapshot;
+            this.budget = new ScanBudget(options);
+            this.metrics = new ScanMetrics(options.isCompactTreeModel()
+                    ? CompactTreeModel.ESTIMATED_BYTES_PER_NODE
+                    : CheckboxTreeModel.ESTIMATED_BYTES_PER_NODE);
             loadGitignorePatterns(rootFolder);
         }
 
         /**
-         * Loads patterns from .gitignore file if it exists
-         * 
+         * Loads the .gitignore rules that apply to the root folder's children.
+         * When the root folder is inside a git repository, the rules of the repository are included:
+         * .git/info/exclude, then every .gitignore from the repository root down to the root folder.
+         *
          * @param rootFolder the root folder to search for .gitignore
          */
         private void loadGitignorePatterns(VirtualFile rootFolder) {
-            gitignorePatterns = new HashSet<>();
-            findGitIgnore(rootFolder, gitignorePatterns);
+            long start = System.nanoTime();
+            GitignoreFiles.RootRules rootRules = GitignoreFiles.forRootFolder(rootFolder, folder -> {
+                List<String> patterns = scanCache.getGitignorePatterns(folder);
+                if (!patterns.isEmpty()) {
+                    metrics.gitignoreFileRead();
+                }
+                return patterns;
+            });
+            rootRelativePath = rootRules.path();
+            gitignoreRules = rootRules.rules();
+            metrics.addTime(ScanMetrics.Phase.GITIGNORE, start);
         }
 
         /**
-         * Loads patterns from .gitignore file if it exists and returns them
-         * 
-         * @param folder the folder to search for .gitignore
-         * @return the set of gitignore patterns
+         * Adds the patterns of a folder's .gitignore on top of the rules of its parent.
+         *
+         * @param rules the rules that apply to the folder
+         * @param folderPath the path of the folder, relative to the folder the rules are anchored to
+         * @param folder the folder
+         * @return the rules that apply to the folder's children
          */
-        private Set<String> loadGitignorePatternsForFolder(VirtualFile folder) {
-            Set<String> patterns = new HashSet<>();
-            findGitIgnore(folder, patterns);
-            return patterns;
-        }
-
-        private void findGitIgnore(VirtualFile folder, Set<String> patterns) {
-            VirtualFile gitignoreFile = folder.findChild(".gitignore");
-            if (gitignoreFile != null && !gitignoreFile.isDirectory() && gitignoreFile.exists()) {
-                try (BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(gitignoreFile.getInputStream(), StandardCharsets.UTF_8))) {
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        // Skip empty lines and comments
-                        line = line.trim();
-                        if (!line.isEmpty() && !line.startsWith("#")) {
-                            patterns.add(line);
-                        }
-                    }
+        private GitignoreRules withFolderPatterns(GitignoreRules rules, String folderPath, VirtualFile folder) {
+            long start = System.nanoTime();
+            GitignoreRules folderRules = rules.withPatterns(folderPath, scanCache.getGitignorePatterns(folder));
+            if (folderRules != rules) {
+                metrics.gitignoreFileRead();
+            }
+            metrics.addTime(ScanMetrics.Phase.GITIGNORE, start);
+            return folderRules;
+        }
+
+        @Override
+        protected CheckableTreeModel doInBackground() {
+            progress.checkCancelled();
+
+            // Create the model with the root node
+            CheckableTreeModel model = createModel();
+            Object rootNode = model.getRoot();
+
+            if (snapshot != null) {
+                try {
+                    staleFolders = TreeSnapshot.read(snapshot, model, new SnapshotRestorer());
+                    return model;
                 } catch (IOException e) {
-                    logger.warning("Failed to read .gitignore file: " + e.getMessage());
+                    logger.warning("Unable to restore the tree of " + rootPath + ", scanning it again: " + e.getMessage());
+                    model = createModel();
+                    rootNode = model.getRoot();
                 }
             }
+
+            // Only the first level is listed here, deeper folders are loaded when they are needed
+            readFolder(new FolderRules(rootFolder, rootRelativePath, gitignoreRules)).loadChildren(model, rootNode);
+            progress.folderListed(countFiles(model, rootNode));
+
+            return model;
+        }
+
+        private CheckableTreeModel createModel() {
+            return options.isCompactTreeModel()
+                    ? new CompactTreeModel(rootName, true)
+                    : new CheckboxTreeModel(new CheckboxTreeNode(rootName, true));
         }
 
         /**
-         * Checks if a file should be ignored based on gitignore patterns
-         * 
-         * @param file the file to check
-         * @return true if the file should be ignored, false otherwise
+         * Checks the folders of a snapshot against the VFS and reads the folders it did not hold like a scan would.
          */
-        private boolean shouldIgnoreFile(VirtualFile file) {
-            if (gitignorePatterns.isEmpty()) {
-                return false;
+        private class SnapshotRestorer implements TreeSnapshot.Restorer {
+            @Override
+            public long getTimeStamp(@NotNull String relativePath) {
+                return TreeViewPanel.getTimeStamp(rootFolder, relativePath);
             }
 
-            String filePath = file.getName();
-
-            // Check if the file name or path matches any pattern
-            for (String pattern : gitignorePatterns) {
-                // Simple exact match
-                if (pattern.equals(filePath)) {
-                    return true;
-                }
-
-                // Directory match (pattern ends with /)
-                if (pattern.endsWith("/") && file.isDirectory() && 
-                    pattern.substring(0, pattern.length() - 1).equals(filePath)) {
-                    return true;
-                }
+            @Override
+            public void setUpFolder(@NotNull CheckableTreeModel model, @NotNull Object node,
+                                    @NotNull String relativePath) {
+                model.setChildrenLoader(node, new FolderLoader(() -> {
+                    FolderRules folderRules = getFolderRules(relativePath);
+                    // Deleted or replaced since the snapshot
+                    return folderRules != null && folderRules.folder().isDirectory() ? folderRules : null;
+                }));
+            }
+        }
 
-                // Wildcard match (pattern contains *)
-                if (pattern.contains("*")) {
-                    String regex = pattern.replace(".", "\\.").replace("*", ".*");
-                    if (filePath.matches(regex)) {
-                        return true;
-                    }
-                }
+        /**
+         * A folder with its path relative to the folder the rules are anchored to, and the rules of its children.
+         */
+        private record FolderRules(VirtualFile folder, String folderPath, GitignoreRules rules) {
+        }
 
-                if (pattern.startsWith("/") || pattern.startsWith("./")) {
-                    String relativePath = file.getPath().substring(rootFolder.getPath().length());
-                    if (relativePath.startsWith(pattern)) {
-                        return true;
+        /**
+         * Gathers the gitignore rules of a folder on the way down from the root folder, like the scan built them.
+         *
+         * @param relativePath the path of the folder, relative to the root folder
+         * @return the folder and its rules, or null if the folder does not exist anymore
+         */
+        private @Nullable FolderRules getFolderRules(String relativePath) {
+            VirtualFile folder = rootFolder;
+            String folderPath = rootRelativePath;
+            GitignoreRules rules = gitignoreRules;
+            if (!relativePath.isEmpty()) {
+                for (String name : relativePath.split("/")) {
+                    folder = folder.findChild(name);
+                    if (folder == null) {
+                        return null;
                     }
+                    folderPath = joinPath(folderPath, name);
+                    rules = withFolderPatterns(rules, folderPath, folder);
                 }
             }
-
-            return false;
+            return new FolderRules(folder, folderPath, rules);
         }
 
-        @Override
-        protected DefaultMutableTreeNode doInBackground() {
-            // Create root node
-            CheckboxTreeNode rootNode = new CheckboxTreeNode(rootName, true);
+        /**
+         * Loads a folder in two steps. {@link #read} lists the folder and matches its children against the
+         * gitignore rules without touching any model, the loader it returns adds them to the folder's node.
+         */
+        private class FolderLoader implements CheckableTreeModel.ChildrenLoader {
+            // Finds the folder and gathers its rules when it is read, null if it is gone
+            private final Supplier<@Nullable FolderRules> folder;
 
-            // Build tree structure in the background
-            buildTreeNodesAsync(rootNode, rootFolder);
+            FolderLoader(Supplier<@Nullable FolderRules> folder) {
+                this.folder = folder;
+            }
 
-            return rootNode;
+            @Override
+            public void loadChildren(@NotNull CheckableTreeModel model, @NotNull Object node) {
+                read().loadChildren(model, node);
+            }
+
+            @Override
+            public @NotNull CheckableTreeModel.ChildrenLoader read() {
+                FolderRules folderRules = folder.get();
+                if (folderRules == null) {
+                    return (model, node) -> {
+                    };
+                }
+                return readFolder(folderRules);
+            }
+        }
+
+        /**
+         * Lists the children of a folder and tells which of them match the gitignore patterns.
+         * Folders that did not change since an earlier scan of the project are not listed again.
+         *
+         * @param folderRules the folder, its path relative to the folder the rules are anchored to, and its rules
+         * @return the loader adding the children to the folder's node
+         */
+        private ListedFolder readFolder(FolderRules folderRules) {
+            long start = System.nanoTime();
+            ScanCache.Listing children = scanCache.getListing(folderRules.folder());
+            metrics.addTime(ScanMetrics.Phase.LISTING, start);
+
+            start = System.nanoTime();
+            boolean[] ignored = new boolean[children.size()];
+            for (int i = 0; i < children.size(); i++) {
+                ignored[i] = isGitignored(children.getName(i), children.isDirectory(i),
+                        folderRules.folderPath(), folderRules.rules());
+            }
+            metrics.addTime(ScanMetrics.Phase.TREE, start);
+            return new ListedFolder(folderRules, children, ignored);
         }
 
         /**
-         * Non-recursive version of buildTreeNodes to avoid stack overflow with large directories
+         * The children of a folder as they were read, added to its node as one batch.
+         * Files and folders matching the gitignore patterns start unchecked, and sub-folders
+         * get a loader so their own content is only read when they are expanded or when an
+         * export or check operation needs it. Unless the options ask to scan them, gitignored
+         * folders become placeholders that bulk operations never load.
+         * <p>
+         * A folder going over the {@link ScanBudget} of the tab is left unread and becomes a placeholder
+         * too. Placeholders are only loaded when the user asks for them, so their loads skip the budget.
          */
-        private void buildTreeNodesAsync(DefaultMutableTreeNode parentNode, VirtualFile parentFile) {
-            List<Object[]> stack = new ArrayList<>();
-            stack.add(new Object[]{parentNode, parentFile});
-
-            while (!stack.isEmpty()) {
-                Object[] current = stack.removeLast();
-                DefaultMutableTreeNode currentNode = (DefaultMutableTreeNode) current[0];
-                VirtualFile currentFile = (VirtualFile) current[1];
-
-                VirtualFile[] children = currentFile.getChildren();
-                for (VirtualFile child : children) {
-                    // Create a CheckboxTreeNode if the parent is a CheckboxTreeNode,
-                    // otherwise use DefaultMutableTreeNode
-                    DefaultMutableTreeNode childNode;
-                    if (currentNode instanceof CheckboxTreeNode) {
-                        childNode = new CheckboxTreeNode(child.getName(), child.isDirectory());
-                    } else {
-                        childNode = new DefaultMutableTreeNode(child.getName());
+        private class ListedFolder implements CheckableTreeModel.ChildrenLoader {
+            private final FolderRules folderRules;
+            private final ScanCache.Listing children;
+            private final boolean[] ignored;
+
+            ListedFolder(FolderRules folderRules, ScanCache.Listing children, boolean[] ignored) {
+                this.folderRules = folderRules;
+                this.children = children;
+                this.ignored = ignored;
+            }
+
+            @Override
+            public void loadChildren(@NotNull CheckableTreeModel model, @NotNull Object parentNode) {
+                VirtualFile parentFile = folderRules.folder();
+                int depth = getDepth(parentFile);
+                if (depth == 0 || model.isIgnored(parentNode)) {
+                    budget.add(children.size());
+                } else {
+                    ScanBudget.Limit limit = budget.reserve(children.size());
+                    if (limit != null) {
+                        budget.folderStopped(limit);
+                        model.setCheckState(parentNode, CheckboxTreeNode.UNCHECKED, false, true);
+                        model.setIgnored(parentNode, true);
+                        // Read again as a placeholder when the user expands it
+                        model.setChildrenLoader(parentNode, new FolderLoader(() -> folderRules));
+                        return;
                     }
-                    currentNode.add(childNode);
+                }
 
-                    if (child.isDirectory()) {
-                        // Add to the stack instead of recursing
-                        stack.add(new Object[]{childNode, child});
+                long start = System.nanoTime();
+                int fileCount = 0;
+                for (int i = 0; i < children.size(); i++) {
+                    String name = children.getName(i);
+                    boolean directory = children.isDirectory(i);
+                    Object childNode = model.addChild(parentNode, name, directory);
+                    setUpChild(model, childNode, parentFile, name, directory, ignored[i], depth + 1,
+                            folderRules.folderPath(), folderRules.rules());
+                    if (!directory) {
+                        fileCount++;
                     }
                 }
+                metrics.addTime(ScanMetrics.Phase.TREE, start);
+                metrics.folderListed(children.size(), fileCount);
             }
+        }
 
-            // After tree construction is complete, unselect gitignore files
-            unselectGitignoreFiles(parentNode, parentFile);
+        /**
+         * @param folder the root folder or a folder below it
+         * @return the number of folder levels between the root folder and the folder
+         */
+        private int getDepth(VirtualFile folder) {
+            String path = folder.getPath();
+            if (path.length() <= rootPath.length()) {
+                return 0;
+            }
+            int depth = rootPath.endsWith("/") ? 1 : 0;
+            for (int i = rootPath.length(); i < path.length(); i++) {
+                if (path.charAt(i) == '/') {
+                    depth++;
+                }
+            }
+            return depth;
         }
 
         /**
-         * Unselects nodes that match gitignore patterns at the current level
-         * For folders that match gitignore patterns, uncheck them with propagation to children
-         * Only traverse into folders that don't match gitignore patterns
-         * <p>
-         * Non-recursive version to avoid calling VirtualFile.getChildren() from a recursive method
-         * 
-         * @param parentNode the parent node in the tree
-         * @param parentFile the parent file in the file system
+         * Unchecks a new child matching the gitignore patterns, and gives a sub-folder its loader.
+         *
+         * @param model the model holding the child
+         * @param childNode the node of the child
+         * @param parentFile the folder of the child in the file system
+         * @param name the file name of the child
+         * @param directory whether the child is a folder
+         * @param ignored whether the child matches the gitignore patterns
+         * @param depth the depth of the child below the root folder
+         * @param folderPath the path of the folder, relative to the folder the rules are anchored to
+         * @param rules the gitignore rules that apply to the folder's children
          */
-        private void unselectGitignoreFiles(DefaultMutableTreeNode parentNode, VirtualFile parentFile) {
-            if (!(parentNode instanceof CheckboxTreeNode)) {
-                return;
+        private void setUpChild(CheckableTreeModel model, Object childNode, VirtualFile parentFile, String name,
+                                boolean directory, boolean ignored, int depth, String folderPath,
+                                GitignoreRules rules) {
+            if (ignored) {
+                metrics.entryIgnored();
+                model.setCheckState(childNode, CheckboxTreeNode.UNCHECKED, false, false);
+                model.setIgnored(childNode, directory && !options.isScanIgnoredDirectories());
+            }
+            if (directory && !model.isIgnored(childNode) && !budget.allowsDepth(depth)) {
+                // Too deep for the scan, read only if the user expands it
+                budget.folderStopped(ScanBudget.Limit.DEPTH);
+                model.setCheckState(childNode, CheckboxTreeNode.UNCHECKED, false, false);
+                model.setIgnored(childNode, true);
             }
 
-            // Use a stack to avoid recursion
-            List<Object[]> stack = new ArrayList<>();
-
-            // Each stack entry contains: [node, file, patterns]
-            stack.add(new Object[]{parentNode, parentFile, new HashSet<>(gitignorePatterns)});
-
-            while (!stack.isEmpty()) {
-                Object[] current = stack.removeLast();
-                DefaultMutableTreeNode currentNode = (DefaultMutableTreeNode) current[0];
-                VirtualFile currentFile = (VirtualFile) current[1];
-                @SuppressWarnings("unchecked")
-                Set<String> currentPatterns = (Set<String>) current[2];
-
-                // Temporarily set the patterns for this level
-                Set<String> originalPatterns = gitignorePatterns;
-                gitignorePatterns = currentPatterns;
-
-                logger.info(gitignorePatterns.toString());
-
-                if (currentNode instanceof CheckboxTreeNode) {
-                    VirtualFile[] children = currentFile.getChildren();
-                    for (int i = 0; i < Math.min(children.length, currentNode.getChildCount()); i++) {
-                        VirtualFile childFile = children[i];
-                        DefaultMutableTreeNode childNode = (DefaultMutableTreeNode) currentNode.getChildAt(i);
-
-                        if (childNode instanceof CheckboxTreeNode) {
-                            if (shouldIgnoreFile(childFile)) {
-                                // If it's a folder that matches gitignore pattern,
-                                // uncheck it with propagation to children
-                                // If it's a file that matches gitignore pattern,
-                                // just uncheck it
-                                ((CheckboxTreeNode) childNode).setCheckState(CheckboxTreeNode.UNCHECKED, childFile.isDirectory(), false);
-                            } else if (childFile.isDirectory() && childNode.getChildCount() > 0) {
-                                // Only traverse into folders that don't match gitignore patterns
-                                // Check if the folder has a .gitignore file
-                                // and load its patterns
-                                Set<String> folderPatterns = loadGitignorePatternsForFolder(childFile);
-
-                                // Combine the current patterns with the folder's patterns
-                                Set<String> combinedPatterns = new HashSet<>(currentPatterns);
-                                combinedPatterns.addAll(folderPatterns);
-
-                                // Add this child to the stack with its combined patterns
-                                stack.add(new Object[]{childNode, childFile, combinedPatterns});
-                            }
-                        }
+            if (directory) {
+                model.setChildrenLoader(childNode, new FolderLoader(() -> {
+                    VirtualFile child = parentFile.findChild(name);
+                    if (child == null || !child.isDirectory()) {
+                        // Deleted or replaced since the folder was listed
+                        return null;
                     }
-                }
+                    String childPath = joinPath(folderPath, name);
+                    // Ignored folders are unchecked as a whole, so their own .gitignore does not matter.
+                    // Folders without a .gitignore share the rules of their parent.
+                    GitignoreRules childRules = ignored
+                            ? rules
+                            : withFolderPatterns(rules, childPath, child);
+                    return new FolderRules(child, childPath, childRules);
+                }));
+            }
+        }
+
+        /**
+         * Sets up children added to a loaded folder after a change in the file system, like a scan of the folder would.
+         * The rules of the folder are gathered again on the way down from the root folder.
+         *
+         * @see TreeSync.ChildrenSetup
+         */
+        private void setUpChildren(CheckableTreeModel model, VirtualFile parentFile, Object[] nodes,
+                                   String[] names, boolean[] folders) {
+            String path = parentFile.getPath();
+            FolderRules folderRules = getFolderRules(path.length() > rootPath.length()
+                    ? path.substring(rootPath.length() + 1)
+                    : "");
+            if (folderRules == null) {
+                return;
+            }
 
-                // Restore the original patterns
-                gitignorePatterns = originalPatterns;
+            int depth = getDepth(parentFile) + 1;
+            for (int i = 0; i < nodes.length; i++) {
+                boolean ignored = isGitignored(names[i], folders[i], folderRules.folderPath(), folderRules.rules());
+                setUpChild(model, nodes[i], parentFile, names[i], folders[i], ignored, depth,
+                        folderRules.folderPath(), folderRules.rules());
             }
         }
 
         @Override
         protected void done() {
-            try {
-                // Get the built tree root node
-                DefaultMutableTreeNode rootNode = get();
+            progressTimer.stop();
+            loadingTabs.remove(this);
+
+            // A restored tab is saved from its tree from now on, or dropped with it
+            if (restoredTab != null) {
+                restoringTabs.remove(restoredTab);
+                scheduleSave();
+            }
+
+            // The tab was closed while loading, the tree is not needed anymore
+            int tabIndex = tabbedPane.indexOfComponent(loadingPanel);
+            if (progress.isCancelled() || isCancelled() || tabIndex < 0) {
+                return;
+            }
 
-                // Create a tree model and tree
-                DefaultTreeModel treeModel = new DefaultTreeModel(rootNode);
-                Tree tree = getTree(treeModel);
+            try {
+                // Get the built tree model and create the tree
+                CheckableTreeModel treeModel = get();
+                logMetrics(rootName, metrics);
+                // The status line of the tab, below the tree
+                JLabel progressLabel = new JLabel();
+                Tree tree = getTree(treeModel, selectionProfiles, progressLabel);
+                SearchBar searchBar = new SearchBar(tree, treeModel, options, progress, metrics);
 
                 // Create a panel for the tree view and copy button
-                JPanel treePanel = createTreeViewPanel(tree, (CheckboxTreeNode) rootNode);
+                JPanel treePanel = createTreeViewPanel(rootFolder, treeModel, options, progress, budget, metrics,
+                        searchBar, progressLabel);
 
                 // Replace the loading panel with the tree panel
                 tabbedPane.setComponentAt(tabIndex, treePanel);
@@ -510,7 +1621,29 @@ public class TreeViewPanel {
                 // Update the tab title to remove "Loading..." text
                 String tabTitle = rootName + " (" + (tabCounter - 1) + ")";
                 tabbedPane.setTitleAt(tabIndex, tabTitle);
-                tabbedPane.setTabComponentAt(tabIndex, createTabComponent(tabTitle));
+                // Follow the changes of the file system until the tab is closed
+                OpenTab openTab = new OpenTab(tabTitle, new TreeSync(tree, rootFolder, this::setUpChildren), searchBar, progress);
+                openTabs.add(openTab);
+                tabbedPane.setTabComponentAt(tabIndex, createTabComponent(tabTitle, () -> {
+                    closeTab(openTab);
+                    scheduleSave();
+                }));
+                treeModel.addTreeModelListener(saveOnChange);
+
+                // Folders that changed while the project was closed are compared with the VFS
+                List<VirtualFile> changedFolders = new ArrayList<>();
+                for (String relativePath : staleFolders) {
+                    VirtualFile folder = relativePath.isEmpty()
+                            ? rootFolder
+                            : rootFolder.findFileByRelativePath(relativePath);
+                    if (folder != null && folder.isDirectory()) {
+                        changedFolders.add(folder);
+                    }
+                }
+                if (!changedFolders.isEmpty()) {
+                    openTab.treeSync().apply(TreeSync.Changes.ofFolders(changedFolders));
+                }
+                scheduleSave();
 
             } catch (InterruptedException | ExecutionException e) {
                 logger.severe("Error building tree: " + e.getMessage());
@@ -521,12 +1654,38 @@ public class TreeViewPanel {
             }
         }
 
-        private static @NotNull Tree getTree(DefaultTreeModel treeModel) {
+        /**
+         * @param statusLabel where the tree's menu tells when an operation did not go all the way
+         */
+        private static @NotNull Tree getTree(CheckableTreeView treeModel, @Nullable SelectionProfiles profiles,
+                                             JLabel statusLabel) {
             Tree tree = new Tree(treeModel);
 
             // Set the cell renderer to display checkboxes
             tree.setCellRenderer(new CheckboxTreeCellRenderer());
 
+            // Load the children of a folder right before it is expanded for the first time
+            tree.addTreeWillExpandListener(new TreeWillExpandListener() {
+                @Override
+                public void treeWillExpand(TreeExpansionEvent event) {
+                    Object node = event.getPath().getLastPathComponent();
+                    boolean ignored = treeModel.isIgnored(node);
+                    boolean loaded = treeModel.ensureChildrenLoaded(node);
+                    // The scan budget made it a placeholder, which the user asked to read anyway
+                    if (!ignored && treeModel.isIgnored(node)) {
+                        loaded |= treeModel.ensureChildrenLoaded(node);
+                    }
+                    if (loaded) {
+                        treeModel.fireSubtreeChanged(node);
+                    }
+                }
+
+                @Override
+                public void treeWillCollapse(TreeExpansionEvent event) {
+                    // Nothing to do, loaded children are kept
+                }
+            });
+
             // Create a popup menu for tree operations
             JPopupMenu popupMenu = new JPopupMenu(JetTreeMarkBundle.message("context_menu.title"));
 
@@ -546,103 +1705,58 @@ public class TreeViewPanel {
 
             // Add action listeners to menu items (all levels)
             checkAllChildrenItem.addActionListener(e -> {
-                TreePath path = tree.getSelectionPath();
-                if (path != null && path.getLastPathComponent() instanceof CheckboxTreeNode node) {
-                    node.checkAll(true);
-                } else {
-                    DefaultMutableTreeNode root = (DefaultMutableTreeNode) treeModel.getRoot();
-                    if (root instanceof CheckboxTreeNode) {
-                        ((CheckboxTreeNode) root).checkAll();
-                    }
-                }
-                tree.repaint();
+                TreePath path = getSelectedPath(tree, treeModel);
+                treeModel.checkAll(path.getLastPathComponent(), true);
+                fireCheckStateChanged(tree, path);
             });
 
             checkAllFoldersItem.addActionListener(e -> {
-                TreePath path = tree.getSelectionPath();
-                if (path != null && path.getLastPathComponent() instanceof CheckboxTreeNode node) {
-                    node.checkOnlyFolders();
-                } else {
-                    DefaultMutableTreeNode root = (DefaultMutableTreeNode) treeModel.getRoot();
-                    if (root instanceof CheckboxTreeNode) {
-                        ((CheckboxTreeNode) root).checkOnlyFolders();
-                    }
-                }
-                tree.repaint();
+                TreePath path = getSelectedPath(tree, treeModel);
+                treeModel.checkOnlyFolders(path.getLastPathComponent(), true);
+                fireCheckStateChanged(tree, path);
             });
 
             uncheckAllChildrenItem.addActionListener(e -> {
-                TreePath path = tree.getSelectionPath();
-                if (path != null && path.getLastPathComponent() instanceof CheckboxTreeNode node) {
-                    node.uncheckAll();
-                } else {
-                    DefaultMutableTreeNode root = (DefaultMutableTreeNode) treeModel.getRoot();
-                    if (root instanceof CheckboxTreeNode) {
-                        ((CheckboxTreeNode) root).uncheckAll();
-                    }
-                }
-                tree.repaint();
+                TreePath path = getSelectedPath(tree, treeModel);
+                treeModel.uncheckAll(path.getLastPathComponent(), false);
+                fireCheckStateChanged(tree, path);
             });
 
             checkWithoutChildrenItem.addActionListener(e -> {
                 TreePath path = tree.getSelectionPath();
-                if (path != null && path.getLastPathComponent() instanceof CheckboxTreeNode node) {
-                    node.setCheckState(CheckboxTreeNode.CHECKED, false);
-                    tree.repaint();
+                if (path != null) {
+                    treeModel.setCheckState(path.getLastPathComponent(), CheckboxTreeNode.CHECKED, false, true);
+                    fireCheckStateChanged(tree, path);
                 }
             });
 
             // Add action listeners to level-specific menu items
             checkOnlyFoldersThisLevelItem.addActionListener(e -> {
-                TreePath path = tree.getSelectionPath();
-                if (path != null && path.getLastPathComponent() instanceof CheckboxTreeNode node) {
-                    node.checkOnlyFolders(false);
-                } else {
-                    DefaultMutableTreeNode root = (DefaultMutableTreeNode) treeModel.getRoot();
-                    if (root instanceof CheckboxTreeNode) {
-                        ((CheckboxTreeNode) root).checkOnlyFolders(false);
-                    }
-                }
-                tree.repaint();
+                TreePath path = getSelectedPath(tree, treeModel);
+                treeModel.checkOnlyFolders(path.getLastPathComponent(), false);
+                fireCheckStateChanged(tree, path);
             });
 
             checkOnlyFilesThisLevelItem.addActionListener(e -> {
-                TreePath path = tree.getSelectionPath();
-                if (path != null && path.getLastPathComponent() instanceof CheckboxTreeNode node) {
-                    node.checkOnlyFiles(false);
-                } else {
-                    DefaultMutableTreeNode root = (DefaultMutableTreeNode) treeModel.getRoot();
-                    if (root instanceof CheckboxTreeNode) {
-                        ((CheckboxTreeNode) root).checkOnlyFiles(false);
-                    }
-                }
-                tree.repaint();
+                TreePath path = getSelectedPath(tree, treeModel);
+                treeModel.checkOnlyFiles(path.getLastPathComponent(), false);
+                fireCheckStateChanged(tree, path);
             });
 
             checkAllThisLevelItem.addActionListener(e -> {
-                TreePath path = tree.getSelectionPath();
-                if (path != null && path.getLastPathComponent() instanceof CheckboxTreeNode node) {
-                    node.checkAll(false);
-                } else {
-                    DefaultMutableTreeNode root = (DefaultMutableTreeNode) treeModel.getRoot();
-                    if (root instanceof CheckboxTreeNode) {
-                        ((CheckboxTreeNode) root).checkAll(false);
-                    }
-                }
-                tree.repaint();
+                TreePath path = getSelectedPath(tree, treeModel);
+                treeModel.checkAll(path.getLastPathComponent(), false);
+                fireCheckStateChanged(tree, path);
             });
 
             expandAllItem.addActionListener(e -> {
-                for (int i = 0; i < tree.getRowCount(); i++) {
-                    tree.expandRow(i);
+                if (!TreeExpander.expandAll(tree, EXPAND_ALL_ROW_LIMIT)) {
+                    statusLabel.setText(JetTreeMarkBundle.message("context_menu.expand_all_stopped", tree.getRowCount()));
+                    logger.fine("Expand All stopped at " + tree.getRowCount() + " rows");
                 }
             });
 
-            collapseAllItem.addActionListener(e -> {
-                for (int i = tree.getRowCount() - 1; i >= 0; i--) {
-                    tree.collapseRow(i);
-                }
-            });
+            collapseAllItem.addActionListener(e -> TreeExpander.collapseAll(tree));
 
             // Add level-specific items to submenu
             levelOperationsMenu.add(checkOnlyFoldersThisLevelItem);
@@ -661,6 +1775,10 @@ public class TreeViewPanel {
             popupMenu.addSeparator();
             popupMenu.add(expandAllItem);
             popupMenu.add(collapseAllItem);
+            if (profiles != null && treeModel instanceof CheckableTreeModel model) {
+                popupMenu.addSeparator();
+                popupMenu.add(createProfilesMenu(tree, model, profiles));
+            }
 
             // Add mouse listener to handle checkbox clicks and show context menu
             tree.addMouseListener(new MouseAdapter() {
@@ -672,19 +1790,15 @@ public class TreeViewPanel {
 
                     if (row != -1) {
                         TreePath path = tree.getPathForRow(row);
-                        if (path != null && path.getLastPathComponent() instanceof CheckboxTreeNode node) {
+                        if (path != null) {
+                            Object node = path.getLastPathComponent();
                             Rectangle checkBoxBounds = tree.getRowBounds(row);
 
                             // Check if click was on the checkbox (roughly the first 20 pixels)
                             if (x <= checkBoxBounds.x + 20) {
-                                // Cycle through the states: UNCHECKED -> CHECKED -> UNCHECKED
-                                if (node.getCheckState() == CheckboxTreeNode.CHECKED) {
-                                    node.setCheckState(CheckboxTreeNode.UNCHECKED);
-                                } else {
-                                    node.setCheckState(CheckboxTreeNode.CHECKED);
-                                }
-                                // Repaint the tree
-                                tree.repaint();
+                                toggleCheckState(treeModel, node);
+                                // Refresh the rows whose state changed
+                                fireCheckStateChanged(tree, path);
                             }
                         }
                     }
@@ -713,29 +1827,104 @@ public class TreeViewPanel {
             return tree;
         }
 
+        /**
+         * Creates the submenu saving the check states of the tree as a profile, and applying saved profiles.
+         * The profiles are listed again each time the submenu opens.
+         */
+        private static @NotNull JMenu createProfilesMenu(Tree tree, CheckableTreeModel treeModel,
+                                                         SelectionProfiles profiles) {
+            JMenu profilesMenu = new JMenu(JetTreeMarkBundle.message("context_menu.selection_profiles"));
+            profilesMenu.addMenuListener(new MenuListener() {
+                @Override
+                public void menuSelected(MenuEvent e) {
+                    profilesMenu.removeAll();
+
+                    JMenuItem saveItem = new JMenuItem(JetTreeMarkBundle.message("context_menu.save_profile"));
+                    saveItem.addActionListener(event -> {
+                        String name = Messages.showInputDialog(tree, JetTreeMarkBundle.message("profile.dialog.message"),
+                                JetTreeMarkBundle.message("profile.dialog.title"), null);
+                        if (name != null && !name.isBlank()) {
+                            profiles.save(name.trim(), SelectionProfile.capture(treeModel));
+                        }
+                    });
+                    profilesMenu.add(saveItem);
+
+                    List<String> names = profiles.getNames();
+                    if (!names.isEmpty()) {
+                        profilesMenu.addSeparator();
+                    }
+                    for (String name : names) {
+                        JMenuItem applyItem = new JMenuItem(JetTreeMarkBundle.message("context_menu.apply_profile", name));
+                        applyItem.addActionListener(event -> {
+                            List<String> paths = profiles.getPaths(name);
+                            if (paths == null) {
+                                return;
+                            }
+                            for (Object folder : SelectionProfile.apply(treeModel, paths)) {
+                                treeModel.fireSubtreeChanged(folder);
+                            }
+                            fireCheckStateChanged(tree, new TreePath(treeModel.getRoot()));
+                        });
+                        profilesMenu.add(applyItem);
+                    }
+                }
+
+                @Override
+                public void menuDeselected(MenuEvent e) {
+                    // Nothing to do, the items are rebuilt on the next opening
+                }
+
+                @Override
+                public void menuCanceled(MenuEvent e) {
+                    // Nothing to do, the items are rebuilt on the next opening
+                }
+            });
+            return profilesMenu;
+        }
+
+        /**
+         * @return the path of the selected node, or of the root node when nothing is selected
+         */
+        private static TreePath getSelectedPath(Tree tree, CheckableTreeView treeModel) {
+            TreePath path = tree.getSelectionPath();
+            return path != null ? path : new TreePath(treeModel.getRoot());
+        }
+
         /**
          * Creates and shows a loading panel in a new tab
          */
         public void showLoadingPanel() {
-            JPanel loadingPanel = new JPanel(new BorderLayout());
+            loadingPanel = new JPanel(new BorderLayout());
             JLabel loadingLabel = new JLabel(JetTreeMarkBundle.message("loading_of.text") + " " + rootName + "...", SwingConstants.CENTER);
 
             // Add a spinner icon
             JProgressBar progressBar = new JProgressBar();
             progressBar.setIndeterminate(true);
 
+            // Folders, files, elapsed time and throughput of the scan
+            JLabel progressLabel = new JLabel(formatProgress(progress), SwingConstants.CENTER);
+            JPanel progressPanel = new JPanel(new BorderLayout());
+            progressPanel.add(progressLabel, BorderLayout.NORTH);
+            progressPanel.add(progressBar, BorderLayout.SOUTH);
+
             loadingPanel.add(loadingLabel, BorderLayout.CENTER);
-            loadingPanel.add(progressBar, BorderLayout.SOUTH);
+            loadingPanel.add(progressPanel, BorderLayout.SOUTH);
 
-            // Add a new tab with the loading panel
+            // Add a new tab with the loading panel, closing it cancels the scan
             String tabTitle = rootName + JetTreeMarkBundle.message("loading.text");
             tabbedPane.addTab(tabTitle, loadingPanel);
-
-            // Store the tab index for later use
-            tabIndex = tabbedPane.getTabCount() - 1;
+            int tabIndex = tabbedPane.getTabCount() - 1;
+            tabbedPane.setTabComponentAt(tabIndex, createTabComponent(tabTitle, progress::cancel));
 
             // Select the new tab
             tabbedPane.setSelectedIndex(tabIndex);
+
+            // Refresh the counters while the scan runs, with the limits it hit
+            progressTimer = new Timer(PROGRESS_REFRESH_MILLIS, e -> progressLabel.setText(
+                    budget.isLimitHit()
+                            ? formatProgress(progress) + ", " + formatLimits(budget)
+                            : formatProgress(progress)));
+            progressTimer.start();
         }
     }
 }
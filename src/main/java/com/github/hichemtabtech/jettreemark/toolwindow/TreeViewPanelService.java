@@ -0,0 +1,59 @@
+package com.github.hichemtabtech.jettreemark.toolwindow;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The tree view panel of a project, while its tool window exists.
+ * <p>
+ * The panel holds every tree the project scanned, so it is only reachable from the project: it is released
+ * when its tool window is disposed, and at the latest with the project, which disposes this service.
+ * Releasing a panel disposes it, which stops its scans and closes its tabs. Used on the EDT.
+ */
+@Service(Service.Level.PROJECT)
+public final class TreeViewPanelService implements Disposable {
+    private @Nullable TreeViewPanel panel;
+
+    public static TreeViewPanelService getInstance(@NotNull Project project) {
+        return project.getService(TreeViewPanelService.class);
+    }
+
+    /**
+     * @return the panel of the project, or null if its tool window was never opened or is gone
+     */
+    public @Nullable TreeViewPanel getPanel() {
+        return panel;
+    }
+
+    /**
+     * Makes a panel the one of the project until the parent is disposed. A panel set before is released.
+     *
+     * @param panel the panel
+     * @param parent the owner of the panel, typically its tool window
+     */
+    public void setPanel(@NotNull TreeViewPanel panel, @NotNull Disposable parent) {
+        if (this.panel != null) {
+            release(this.panel);
+        }
+        this.panel = panel;
+        Disposer.register(parent, () -> release(panel));
+    }
+
+    private void release(TreeViewPanel released) {
+        if (panel == released) {
+            panel = null;
+        }
+        released.dispose();
+    }
+
+    @Override
+    public void dispose() {
+        if (panel != null) {
+            release(panel);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.github.hichemtabtech.jettreemark.toolwindow;
+
+import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.components.Storage;
+import com.intellij.openapi.components.StoragePathMacros;
+import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The tree view tabs of a project, kept across IDE restarts.
+ * <p>
+ * Each tab is saved as the URL of its root folder and a {@link TreeSnapshot} of its loaded nodes and check
+ * states. The snapshots can be large, so they go to the cache file of the project in the IDE system folder
+ * rather than to the workspace file, and they are only read when the tool window is first opened.
+ */
+@Service(Service.Level.PROJECT)
+@State(name = "JetTreeMarkTreeView", storages = @Storage(StoragePathMacros.CACHE_FILE))
+public final class TreeViewState implements PersistentStateComponent<TreeViewState.State> {
+
+    /**
+     * Persisted tabs, in the order they were opened.
+     */
+    public static class State {
+        public List<Tab> tabs = new ArrayList<>();
+    }
+
+    /**
+     * A persisted tab.
+     */
+    public static class Tab {
+        public String url = "";
+        // Base64 of the TreeSnapshot bytes
+        public String snapshot = "";
+
+        public Tab() {
+        }
+
+        public Tab(@NotNull String url, @NotNull String snapshot) {
+            this.url = url;
+            this.snapshot = snapshot;
+        }
+    }
+
+    private State state = new State();
+
+    public static TreeViewState getInstance(@NotNull Project project) {
+        return project.getService(TreeViewState.class);
+    }
+
+    @Override
+    public @NotNull State getState() {
+        return state;
+    }
+
+    @Override
+    public void loadState(@NotNull State state) {
+        this.state = state;
+    }
+
+    public @NotNull List<Tab> getTabs() {
+        return state.tabs;
+    }
+
+    /**
+     * Replaces the saved tabs, written with the project cache on the next save.
+     *
+     * @param tabs the open tabs
+     */
+    public void setTabs(@NotNull List<Tab> tabs) {
+        state.tabs = new ArrayList<>(tabs);
+    }
+}
@@ -1,30 +1,47 @@
 package com.github.hichemtabtech.jettreemark.toolwindow;
 
+import com.github.hichemtabtech.jettreemark.export.TreeExporter;
+import com.github.hichemtabtech.jettreemark.settings.JetTreeMarkSettings;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
 import com.intellij.openapi.wm.ToolWindow;
 import com.intellij.openapi.wm.ToolWindowFactory;
 import com.intellij.ui.content.Content;
 import com.intellij.ui.content.ContentFactory;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 
 /**
  * Tool window factory for displaying tree views of folders and files.
  */
 public class TreeViewToolWindowFactory implements ToolWindowFactory {
 
-    private static final Map<Project, TreeViewPanel> projectPanels = new HashMap<>();
-
     @Override
     public void createToolWindowContent(@NotNull Project project, @NotNull ToolWindow toolWindow) {
-        TreeViewPanel treeViewPanel = new TreeViewPanel();
-        projectPanels.put(project, treeViewPanel);
+        TreeViewPanel treeViewPanel = new TreeViewPanel(() -> JetTreeMarkSettings.getInstance().getScanOptions(),
+                TreeViewState.getInstance(project), SelectionProfiles.getInstance(project),
+                TreeExporter.EP_NAME::getExtensionList);
+        // The panel and its trees are released with the tool window
+        TreeViewPanelService.getInstance(project).setPanel(treeViewPanel, toolWindow.getDisposable());
 
         Content content = ContentFactory.getInstance().createContent(treeViewPanel.getContent(), null, false);
         toolWindow.getContentManager().addContent(content);
+
+        // Open tree views follow the changes of the file system while the tool window exists
+        project.getMessageBus().connect(toolWindow.getDisposable()).subscribe(VirtualFileManager.VFS_CHANGES,
+                new BulkFileListener() {
+                    @Override
+                    public void after(@NotNull List<? extends VFileEvent> events) {
+                        treeViewPanel.filesChanged(events);
+                    }
+                });
+
+        // The tabs of the last session come back when the tool window is first opened
+        treeViewPanel.restoreTabs();
     }
 
     @Override
@@ -39,7 +56,7 @@ public class TreeViewToolWindowFactory implements ToolWindowFactory {
      * @param folder     the folder to add
      */
     public static void addFolderToTreeView(@NotNull Project project, @NotNull VirtualFile folder) {
-        TreeViewPanel panel = projectPanels.get(project);
+        TreeViewPanel panel = TreeViewPanelService.getInstance(project).getPanel();
         if (panel != null) {
             panel.addFolderToTreeView(folder);
         }
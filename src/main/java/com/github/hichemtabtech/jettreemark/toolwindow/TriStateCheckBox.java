@@ -5,15 +5,26 @@ import java.awt.*;
 
 /**
  * A checkbox that can be in one of three states: selected, unselected, or indeterminate.
+ * <p>
+ * The checkbox is used to paint states, not to edit them: its selection follows {@link #getState()},
+ * so switching states from one rendered row to the next fires no event and allocates nothing.
  */
 public class TriStateCheckBox extends JCheckBox {
     public enum State { SELECTED, UNSELECTED, INDETERMINATE }
 
+    // Shared by all checkboxes, together with the theme's checkbox icon it paints over
+    private static final Icon INDETERMINATE_ICON = new IndeterminateIcon(UIManager.getIcon("CheckBox.icon"));
+
     private State state = State.UNSELECTED;
 
     public TriStateCheckBox() {
         super();
-        setState(State.UNSELECTED);
+        setModel(new JToggleButton.ToggleButtonModel() {
+            @Override
+            public boolean isSelected() {
+                return state == State.SELECTED;
+            }
+        });
     }
 
     @SuppressWarnings("unused")
@@ -23,59 +34,56 @@ public class TriStateCheckBox extends JCheckBox {
 
     public void setState(State state) {
         this.state = state;
+    }
 
-        // Update the visual appearance
-        switch (state) {
-            case SELECTED:
-                setSelected(true);
-                setIcon(null); // Use the default selected icon
-                break;
-            case UNSELECTED:
-                setSelected(false);
-                setIcon(null); // Use default unselected icon
-                break;
-            case INDETERMINATE:
-                setSelected(false);
-                // Create a custom icon for an indeterminate state (a dash in the checkbox)
-                setIcon(createIndeterminateIcon());
-                break;
-        }
+    /**
+     * The indeterminate state shows a dash in the box, the other states use the default icons.
+     */
+    @Override
+    public Icon getIcon() {
+        return state == State.INDETERMINATE ? INDETERMINATE_ICON : super.getIcon();
     }
 
-    private Icon createIndeterminateIcon() {
-        // Create a custom icon that shows a dash in the checkbox
-        return new Icon() {
-            @Override
-            public void paintIcon(Component c, Graphics g, int x, int y) {
-                // Get the default checkbox icon
-                Icon defaultIcon = UIManager.getIcon("CheckBox.icon");
-                if (defaultIcon != null) {
-                    // Draw the default unchecked icon
-                    defaultIcon.paintIcon(c, g, x, y);
-
-                    // Draw a dash in the middle
-                    Graphics2D g2d = (Graphics2D) g.create();
-                    g2d.setColor(getForeground());
-                    int width = getIconWidth();
-                    int height = getIconHeight();
-                    int dashWidth = width / 2;
-                    int dashHeight = height / 6;
-                    g2d.fillRect(x + (width - dashWidth) / 2, y + (height - dashHeight) / 2, dashWidth, dashHeight);
-                    g2d.dispose();
-                }
-            }
+    /**
+     * Paints the default unchecked checkbox icon of the current look and feel with a dash in the middle.
+     */
+    private static final class IndeterminateIcon implements Icon {
+        private static final int DEFAULT_SIZE = 16;
 
-            @Override
-            public int getIconWidth() {
-                Icon defaultIcon = UIManager.getIcon("CheckBox.icon");
-                return defaultIcon != null ? defaultIcon.getIconWidth() : 16;
-            }
+        private final Icon defaultIcon;
 
-            @Override
-            public int getIconHeight() {
-                Icon defaultIcon = UIManager.getIcon("CheckBox.icon");
-                return defaultIcon != null ? defaultIcon.getIconHeight() : 16;
+        IndeterminateIcon(Icon defaultIcon) {
+            this.defaultIcon = defaultIcon;
+        }
+
+        @Override
+        public void paintIcon(Component c, Graphics g, int x, int y) {
+            if (defaultIcon == null) {
+                return;
             }
-        };
+
+            // Draw the default unchecked icon
+            defaultIcon.paintIcon(c, g, x, y);
+
+            // Draw a dash in the middle
+            int width = defaultIcon.getIconWidth();
+            int height = defaultIcon.getIconHeight();
+            int dashWidth = width / 2;
+            int dashHeight = height / 6;
+            Color color = g.getColor();
+            g.setColor(c.getForeground());
+            g.fillRect(x + (width - dashWidth) / 2, y + (height - dashHeight) / 2, dashWidth, dashHeight);
+            g.setColor(color);
+        }
+
+        @Override
+        public int getIconWidth() {
+            return defaultIcon != null ? defaultIcon.getIconWidth() : DEFAULT_SIZE;
+        }
+
+        @Override
+        public int getIconHeight() {
+            return defaultIcon != null ? defaultIcon.getIconHeight() : DEFAULT_SIZE;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,55 @@
+package com.github.hichemtabtech.jettreemark.export;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link HtmlTreeExporter}
+ */
+public class HtmlTreeExporterTest {
+
+    @Test
+    public void testWritesFoldableLists() throws IOException {
+        StringBuilder out = new StringBuilder();
+        TreeExportWriter writer = new HtmlTreeExporter().createWriter(out);
+
+        writer.writeRoot("project");
+        writer.enterFolder(true);
+        writer.writeEntry("src", true, false);
+        writer.enterFolder(false);
+        writer.writeEntry("Main.java", false, true);
+        writer.exitFolder();
+        writer.writeEntry("README.md", false, true);
+        writer.exitFolder();
+        writer.finish();
+
+        assertEquals("<details open>\n"
+                + "<summary>project/</summary>\n"
+                + "<ul>\n"
+                + "  <li><details><summary>src/</summary>\n"
+                + "  <ul>\n"
+                + "    <li>Main.java</li>\n"
+                + "  </ul>\n"
+                + "  </details></li>\n"
+                + "  <li>README.md</li>\n"
+                + "</ul>\n"
+                + "</details>\n", out.toString());
+    }
+
+    @Test
+    public void testEscapesNames() throws IOException {
+        StringBuilder out = new StringBuilder();
+        TreeExportWriter writer = new HtmlTreeExporter().createWriter(out);
+
+        writer.writeRoot("project");
+        writer.enterFolder(true);
+        writer.writeEntry("<a & b>.txt", false, true);
+        writer.exitFolder();
+        writer.finish();
+
+        assertTrue(out.toString(), out.toString().contains("<li>&lt;a &amp; b&gt;.txt</li>"));
+    }
+}
@@ -0,0 +1,66 @@
+package com.github.hichemtabtech.jettreemark.export;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link JsonTreeExporter}
+ */
+public class JsonTreeExporterTest {
+
+    @Test
+    public void testWritesNestedObjects() throws IOException {
+        StringBuilder out = new StringBuilder();
+        TreeExportWriter writer = new JsonTreeExporter().createWriter(out);
+
+        writer.writeRoot("project");
+        writer.enterFolder(true);
+        writer.writeEntry("src", true, false);
+        writer.enterFolder(false);
+        writer.writeEntry("Main.java", false, true);
+        writer.exitFolder();
+        writer.writeEntry("README.md", false, true);
+        writer.exitFolder();
+        writer.finish();
+
+        assertEquals("{\"name\": \"project\", \"type\": \"folder\", \"children\": [\n"
+                + "  {\"name\": \"src\", \"type\": \"folder\", \"children\": [\n"
+                + "    {\"name\": \"Main.java\", \"type\": \"file\"}\n"
+                + "  ]},\n"
+                + "  {\"name\": \"README.md\", \"type\": \"file\"}\n"
+                + "]}\n", out.toString());
+    }
+
+    @Test
+    public void testFolderWithoutShownEntries() throws IOException {
+        StringBuilder out = new StringBuilder();
+        TreeExportWriter writer = new JsonTreeExporter().createWriter(out);
+
+        // A folder whose entries are all unchecked is entered without any entry
+        writer.writeRoot("project");
+        writer.enterFolder(true);
+        writer.writeEntry("lib", true, true);
+        writer.enterFolder(true);
+        writer.exitFolder();
+        writer.exitFolder();
+        writer.finish();
+
+        assertEquals("{\"name\": \"project\", \"type\": \"folder\", \"children\": [\n"
+                + "  {\"name\": \"lib\", \"type\": \"folder\", \"children\": []}\n"
+                + "]}\n", out.toString());
+    }
+
+    @Test
+    public void testEscapesNames() throws IOException {
+        StringBuilder out = new StringBuilder();
+        TreeExportWriter writer = new JsonTreeExporter().createWriter(out);
+
+        writer.writeRoot("a\"b\\c");
+        writer.finish();
+
+        assertEquals("{\"name\": \"a\\\"b\\\\c\", \"type\": \"folder\", \"children\": []}\n", out.toString());
+    }
+}
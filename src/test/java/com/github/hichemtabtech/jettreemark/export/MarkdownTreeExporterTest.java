@@ -0,0 +1,48 @@
+package com.github.hichemtabtech.jettreemark.export;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link MarkdownTreeExporter}
+ */
+public class MarkdownTreeExporterTest {
+
+    @Test
+    public void testWritesNestedList() throws IOException {
+        StringBuilder out = new StringBuilder();
+        TreeExportWriter writer = new MarkdownTreeExporter().createWriter(out);
+
+        writer.writeRoot("project");
+        writer.enterFolder(true);
+        writer.writeEntry("src", true, false);
+        writer.enterFolder(false);
+        writer.writeEntry("Main.java", false, true);
+        writer.exitFolder();
+        writer.writeEntry("README.md", false, true);
+        writer.exitFolder();
+        writer.finish();
+
+        assertEquals("- `project/`\n"
+                + "  - `src/`\n"
+                + "    - `Main.java`\n"
+                + "  - `README.md`\n", out.toString());
+    }
+
+    @Test
+    public void testNameWithBacktickGetsLongerFence() throws IOException {
+        StringBuilder out = new StringBuilder();
+        TreeExportWriter writer = new MarkdownTreeExporter().createWriter(out);
+
+        writer.writeRoot("project");
+        writer.enterFolder(true);
+        writer.writeEntry("`odd`.txt", false, true);
+        writer.exitFolder();
+        writer.finish();
+
+        assertEquals("- `project/`\n  - `` `odd`.txt ``\n", out.toString());
+    }
+}
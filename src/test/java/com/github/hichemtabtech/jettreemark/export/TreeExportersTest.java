@@ -0,0 +1,34 @@
+package com.github.hichemtabtech.jettreemark.export;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link TreeExporters}
+ */
+public class TreeExportersTest {
+
+    @Test
+    public void testBuiltInFormatsStartWithText() {
+        List<TreeExporter> exporters = TreeExporters.getBuiltIn();
+
+        assertEquals(TextTreeExporter.ID, exporters.get(0).getId());
+        assertArrayEquals(new String[]{"txt", "md", "json", "html"}, TreeExporters.getFileExtensions(exporters));
+    }
+
+    @Test
+    public void testFormatFollowsFileExtension() {
+        List<TreeExporter> exporters = TreeExporters.getBuiltIn();
+        TreeExporter text = TreeExporters.findById(exporters, TextTreeExporter.ID);
+        TreeExporter ascii = TreeExporters.findById(exporters, "ascii");
+
+        assertEquals("markdown", TreeExporters.forFileName(exporters, "tree.MD", text).getId());
+        assertSame("The chosen format is kept when it writes that extension", ascii,
+                TreeExporters.forFileName(exporters, "tree.txt", ascii));
+        assertSame(text, TreeExporters.forFileName(exporters, "tree.xml", text));
+        assertSame(text, TreeExporters.forFileName(exporters, "tree", text));
+    }
+}
@@ -0,0 +1,82 @@
+package com.github.hichemtabtech.jettreemark.export;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link TreeTextWriter}
+ */
+public class TreeTextWriterTest {
+
+    @Test
+    public void testWritesConnectorsAndIndentation() throws IOException {
+        StringBuilder out = new StringBuilder();
+        TreeTextWriter writer = new TreeTextWriter(out);
+
+        writer.writeRoot("project");
+        writer.enterFolder(true);
+        writer.writeEntry("src", true, false);
+        writer.enterFolder(false);
+        writer.writeEntry("Main.java", false, true);
+        writer.exitFolder();
+        writer.writeEntry("README.md", false, true);
+        writer.exitFolder();
+
+        assertEquals("project/\n"
+                + "    ├── src/\n"
+                + "    │   └── Main.java\n"
+                + "    └── README.md\n", out.toString());
+    }
+
+    @Test
+    public void testAsciiStyle() throws IOException {
+        StringBuilder out = new StringBuilder();
+        TreeTextWriter writer = new TreeTextWriter(out, "", TreeTextWriter.Style.ASCII);
+
+        writer.writeRoot("project");
+        writer.enterFolder(true);
+        writer.writeEntry("src", true, false);
+        writer.enterFolder(false);
+        writer.writeEntry("Main.java", false, true);
+        writer.exitFolder();
+        writer.writeEntry("README.md", false, true);
+        writer.exitFolder();
+
+        assertEquals("project/\n"
+                + "    |-- src/\n"
+                + "    |   `-- Main.java\n"
+                + "    `-- README.md\n", out.toString());
+    }
+
+    @Test
+    public void testStartsFromGivenPrefix() throws IOException {
+        StringBuilder out = new StringBuilder();
+        TreeTextWriter writer = new TreeTextWriter(out, "│   ");
+
+        writer.writeEntry("lib", true, true);
+        writer.enterFolder(true);
+        writer.writeEntry("a.jar", false, true);
+
+        assertEquals("│   └── lib/\n│       └── a.jar\n", out.toString());
+    }
+
+    @Test
+    public void testDeepTreeKeepsPrefixBalanced() throws IOException {
+        StringBuilder out = new StringBuilder();
+        TreeTextWriter writer = new TreeTextWriter(out);
+        int depth = 1000;
+
+        for (int i = 0; i < depth; i++) {
+            writer.enterFolder(i % 2 == 0);
+        }
+        for (int i = 0; i < depth; i++) {
+            writer.exitFolder();
+        }
+        writer.writeEntry("top", false, true);
+
+        assertEquals("└── top\n", out.toString());
+    }
+}
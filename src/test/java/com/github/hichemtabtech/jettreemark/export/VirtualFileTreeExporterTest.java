@@ -0,0 +1,74 @@
+package com.github.hichemtabtech.jettreemark.export;
+
+import com.github.hichemtabtech.jettreemark.scan.ScanProgress;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for {@link VirtualFileTreeExporter}
+ */
+public class VirtualFileTreeExporterTest {
+
+    private static VirtualFile file(String name) {
+        VirtualFile file = mock(VirtualFile.class);
+        when(file.getName()).thenReturn(name);
+        when(file.isDirectory()).thenReturn(false);
+        return file;
+    }
+
+    private static VirtualFile folder(String name, VirtualFile... children) {
+        VirtualFile folder = mock(VirtualFile.class);
+        when(folder.getName()).thenReturn(name);
+        when(folder.isDirectory()).thenReturn(true);
+        when(folder.getChildren()).thenReturn(children);
+        return folder;
+    }
+
+    private static void addGitignore(VirtualFile folder, String content) throws Exception {
+        VirtualFile gitignore = mock(VirtualFile.class);
+        when(gitignore.isDirectory()).thenReturn(false);
+        when(gitignore.exists()).thenReturn(true);
+        when(gitignore.getInputStream()).thenAnswer(
+                invocation -> new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+        when(folder.findChild(".gitignore")).thenReturn(gitignore);
+    }
+
+    @Test
+    public void testWritesTreeWithoutIgnoredEntries() throws Exception {
+        VirtualFile main = folder("main", file("App.java"), file("App.class"));
+        VirtualFile src = folder("src", main, folder("empty"));
+        VirtualFile build = folder("build", file("out.jar"));
+        VirtualFile root = folder("project", src, build, file("README.md"), file("debug.log"));
+        addGitignore(root, "build/\n*.log\n");
+        addGitignore(src, "*.class\n");
+
+        StringBuilder out = new StringBuilder();
+        ScanProgress progress = new ScanProgress();
+        new VirtualFileTreeExporter().export(root, out, progress);
+
+        assertEquals("project/\n"
+                + "    ├── src/\n"
+                + "    │   ├── main/\n"
+                + "    │   │   └── App.java\n"
+                + "    │   └── empty\n"
+                + "    └── README.md\n", out.toString());
+        assertEquals("Ignored folders should never be listed", 4, progress.getDirectoryCount());
+        verify(build, never()).getChildren();
+    }
+
+    @Test(expected = CancellationException.class)
+    public void testCancelledExportStops() throws Exception {
+        VirtualFile root = folder("project", folder("src", file("Main.java")));
+        ScanProgress progress = new ScanProgress();
+        progress.cancel();
+
+        new VirtualFileTreeExporter().export(root, new StringBuilder(), progress);
+    }
+}
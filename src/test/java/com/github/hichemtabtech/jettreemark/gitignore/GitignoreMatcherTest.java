@@ -0,0 +1,100 @@
+package com.github.hichemtabtech.jettreemark.gitignore;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link GitignoreMatcher}
+ */
+public class GitignoreMatcherTest {
+
+    @Test
+    public void testLiteralNames() {
+        GitignoreMatcher matcher = GitignoreMatcher.compile(List.of("config.json", "node_modules/"));
+
+        assertTrue("Exact name should be ignored", matcher.isIgnored("config.json", "a/config.json", false));
+        assertTrue("Folder pattern should match a folder", matcher.isIgnored("node_modules", "node_modules", true));
+        assertFalse("Folder pattern should not match a file", matcher.isIgnored("node_modules", "node_modules", false));
+        assertFalse("Other names should not be ignored", matcher.isIgnored("config.yaml", "config.yaml", false));
+    }
+
+    @Test
+    public void testExtensions() {
+        GitignoreMatcher matcher = GitignoreMatcher.compile(List.of("*.log", "*.tar.gz"));
+
+        assertTrue("Extension should match", matcher.isIgnored("server.log", null, false));
+        assertTrue("Hidden file with the extension should match", matcher.isIgnored(".log", null, false));
+        assertTrue("Multi-dot extension should match", matcher.isIgnored("dist.tar.gz", null, false));
+        assertFalse("Other extension with the same last part should not match", matcher.isIgnored("dist.gz", null, false));
+        assertFalse("Name without extension should not match", matcher.isIgnored("log", null, false));
+    }
+
+    @Test
+    public void testNameGlobs() {
+        GitignoreMatcher matcher = GitignoreMatcher.compile(List.of("*.py[cod]", "temp?", "build-*/", "*~", "*-SNAPSHOT.jar"));
+
+        assertTrue("Character class should match", matcher.isIgnored("module.pyc", null, false));
+        assertFalse("Character class should not match other characters", matcher.isIgnored("module.pyx", null, false));
+        assertTrue("Question mark should match one character", matcher.isIgnored("temp1", null, false));
+        assertFalse("Question mark should not match two characters", matcher.isIgnored("temp12", null, false));
+        assertTrue("Folder glob should match folders", matcher.isIgnored("build-debug", null, true));
+        assertFalse("Folder glob should not match files", matcher.isIgnored("build-debug", null, false));
+        assertTrue("Suffix glob should match", matcher.isIgnored("notes.txt~", null, false));
+        assertTrue("Long suffix glob should match", matcher.isIgnored("app-1.0-SNAPSHOT.jar", null, false));
+        assertFalse("Long suffix glob should not match a release", matcher.isIgnored("app-1.0.jar", null, false));
+    }
+
+    @Test
+    public void testAnchoredPatterns() {
+        GitignoreMatcher matcher = GitignoreMatcher.compile(List.of("/logs", "docs/build", "src/*/generated"));
+
+        assertTrue("Relative path is needed for anchored patterns", matcher.needsRelativePath());
+        assertTrue("Anchored name should match at the root", matcher.isIgnored("logs", "logs", true));
+        assertFalse("Anchored name should not match deeper", matcher.isIgnored("logs", "app/logs", true));
+        assertFalse("Anchored name should not match a longer name", matcher.isIgnored("logsfoo", "logsfoo", true));
+        assertTrue("Path with a slash should match from the root", matcher.isIgnored("build", "docs/build", true));
+        assertTrue("Path glob should match one segment", matcher.isIgnored("generated", "src/main/generated", true));
+        assertFalse("Path glob star should not cross folders", matcher.isIgnored("generated", "src/a/b/generated", true));
+    }
+
+    @Test
+    public void testNegationLastMatchWins() {
+        GitignoreMatcher matcher = GitignoreMatcher.compile(List.of("*.log", "!keep.log", "keep.log.old", "!*.old"));
+
+        assertEquals(GitignoreMatcher.Match.IGNORED, matcher.match("server.log", null, false));
+        assertEquals(GitignoreMatcher.Match.NOT_IGNORED, matcher.match("keep.log", null, false));
+        assertEquals(GitignoreMatcher.Match.NOT_IGNORED, matcher.match("keep.log.old", null, false));
+        assertEquals(GitignoreMatcher.Match.NONE, matcher.match("README.md", null, false));
+
+        GitignoreMatcher reversed = GitignoreMatcher.compile(List.of("!keep.log", "*.log"));
+        assertTrue("A later pattern should override an earlier negation", reversed.isIgnored("keep.log", null, false));
+    }
+
+    @Test
+    public void testDoubleStar() {
+        GitignoreMatcher matcher = GitignoreMatcher.compile(List.of("**/cache", "docs/**", "a/**/b", "**/out/*.class"));
+
+        assertFalse("Unrelated names should not be ignored", matcher.isIgnored("x", "x", false));
+        assertTrue("Leading double star should match at any depth", matcher.isIgnored("cache", null, true));
+        assertTrue("Trailing double star should match inside the folder", matcher.isIgnored("index.md", "docs/index.md", false));
+        assertTrue("Trailing double star should match deep inside the folder", matcher.isIgnored("x.png", "docs/img/x.png", false));
+        assertFalse("Trailing double star should not match the folder itself", matcher.isIgnored("docs", "docs", true));
+        assertTrue("Middle double star should match zero folders", matcher.isIgnored("b", "a/b", true));
+        assertTrue("Middle double star should match several folders", matcher.isIgnored("b", "a/x/y/b", true));
+        assertFalse("Middle double star should keep the last segment", matcher.isIgnored("c", "a/x/c", true));
+        assertTrue("Leading double star path should match at any depth", matcher.isIgnored("A.class", "m/out/A.class", false));
+        assertTrue("Leading double star path should match at the root", matcher.isIgnored("A.class", "out/A.class", false));
+        assertFalse("Leading double star path should not skip the folder", matcher.isIgnored("A.class", "m/A.class", false));
+    }
+
+    @Test
+    public void testCommentsAndBlankLines() {
+        GitignoreMatcher matcher = GitignoreMatcher.compile(List.of("# comment", "   ", ""));
+
+        assertTrue("Only comments and blank lines should give an empty matcher", matcher.isEmpty());
+        assertFalse("Nothing should be ignored", matcher.isIgnored("# comment", null, false));
+    }
+}
@@ -0,0 +1,51 @@
+package com.github.hichemtabtech.jettreemark.gitignore;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link GitignoreRules}
+ */
+public class GitignoreRulesTest {
+
+    @Test
+    public void testFoldersWithoutPatternsShareTheirParentRules() {
+        GitignoreRules root = GitignoreRules.EMPTY.withPatterns("", List.of("*.log"));
+
+        assertSame(root, root.withPatterns("src", List.of()));
+        assertSame(root, root.withPatterns("src", List.of("# only a comment")));
+        assertTrue(GitignoreRules.EMPTY.isEmpty());
+        assertFalse(root.isEmpty());
+    }
+
+    @Test
+    public void testInnerGitignoreOverridesOuter() {
+        GitignoreRules root = GitignoreRules.EMPTY.withPatterns("", List.of("*.log", "tmp/"));
+        GitignoreRules module = root.withPatterns("module", List.of("!debug.log"));
+
+        assertTrue("Outer rule should apply in the inner folder", module.isIgnored("server.log", null, false));
+        assertFalse("Inner negation should re-include the file", module.isIgnored("debug.log", null, false));
+        assertTrue("Outer rules should be unaffected", root.isIgnored("debug.log", null, false));
+        assertTrue("Outer folder rule should still apply", module.isIgnored("tmp", null, true));
+
+        GitignoreRules nested = module.withPatterns("module/sub", List.of("debug.log"));
+        assertTrue("The innermost file should win again", nested.isIgnored("debug.log", null, false));
+    }
+
+    @Test
+    public void testAnchoredPatternsAreRelativeToTheirGitignore() {
+        GitignoreRules root = GitignoreRules.EMPTY.withPatterns("", List.of("/build"));
+        GitignoreRules module = root.withPatterns("module", List.of("/generated", "src/**/*.tmp"));
+
+        assertTrue(module.needsRelativePath());
+        assertTrue("Root anchored rule should match at the root", root.isIgnored("build", "build", true));
+        assertFalse("Root anchored rule should not match in a module", module.isIgnored("build", "module/build", true));
+        assertTrue("Module anchored rule should match in the module", module.isIgnored("generated", "module/generated", true));
+        assertFalse("Module anchored rule should not match deeper", module.isIgnored("generated", "module/a/generated", true));
+        assertTrue("Module path glob should match below the module", module.isIgnored("x.tmp", "module/src/a/x.tmp", false));
+        assertFalse("Module path glob should not match outside the module", module.isIgnored("x.tmp", "src/a/x.tmp", false));
+    }
+}
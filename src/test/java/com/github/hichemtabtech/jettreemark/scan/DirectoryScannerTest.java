@@ -0,0 +1,96 @@
+package com.github.hichemtabtech.jettreemark.scan;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link DirectoryScanner}
+ */
+public class DirectoryScannerTest {
+
+    /**
+     * Folder of a synthetic hierarchy, its children are only filled in when it is expanded.
+     */
+    private static final class Folder {
+        private final String path;
+        private final int depth;
+        private final List<String> children = new ArrayList<>();
+
+        Folder(String path, int depth) {
+            this.path = path;
+            this.depth = depth;
+        }
+
+        List<Folder> expand() {
+            List<Folder> subFolders = new ArrayList<>();
+            if (depth < 4) {
+                for (int i = 0; i < 5; i++) {
+                    Folder child = new Folder(path + "/d" + i, depth + 1);
+                    children.add(child.path);
+                    subFolders.add(child);
+                }
+            }
+            for (int i = 0; i < 3; i++) {
+                children.add(path + "/f" + i);
+            }
+            return subFolders;
+        }
+    }
+
+    @Test
+    public void testParallelWalkMatchesSequentialWalk() {
+        List<String> sequential = new ArrayList<>();
+        List<String> parallel = new ArrayList<>();
+        Set<String> expandedSequentially = ConcurrentHashMap.newKeySet();
+        Set<String> expandedInParallel = ConcurrentHashMap.newKeySet();
+
+        new DirectoryScanner(1).scan(List.of(new Folder("root", 0)), folder -> {
+            expandedSequentially.add(folder.path);
+            List<Folder> subFolders = folder.expand();
+            synchronized (sequential) {
+                sequential.add(folder.path + " " + folder.children);
+            }
+            return subFolders;
+        });
+        new DirectoryScanner(4).scan(List.of(new Folder("root", 0)), folder -> {
+            assertTrue("Every folder should be expanded once", expandedInParallel.add(folder.path));
+            List<Folder> subFolders = folder.expand();
+            synchronized (parallel) {
+                parallel.add(folder.path + " " + folder.children);
+            }
+            return subFolders;
+        });
+
+        assertEquals(1 + 5 + 25 + 125 + 625, expandedInParallel.size());
+        assertEquals(expandedSequentially, expandedInParallel);
+        sequential.sort(null);
+        parallel.sort(null);
+        assertEquals("Each folder should list the same children in the same order", sequential, parallel);
+    }
+
+    @Test
+    public void testFailureIsReported() {
+        try {
+            new DirectoryScanner(2).scan(List.of("a", "b"), folder -> {
+                if (folder.equals("b")) {
+                    throw new IllegalStateException("unreadable");
+                }
+                return List.of();
+            });
+            fail("The failure should reach the caller");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("unreadable"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidParallelism() {
+        new DirectoryScanner(0);
+    }
+}
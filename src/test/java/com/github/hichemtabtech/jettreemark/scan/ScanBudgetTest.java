@@ -0,0 +1,79 @@
+package com.github.hichemtabtech.jettreemark.scan;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link ScanBudget}
+ */
+public class ScanBudgetTest {
+
+    @Test
+    public void testDepthLimit() {
+        ScanBudget budget = new ScanBudget(ScanOptions.DEFAULT.withMaxDepth(2));
+        assertTrue(budget.allowsDepth(1));
+        assertFalse(budget.allowsDepth(2));
+
+        ScanBudget unlimited = new ScanBudget(ScanOptions.DEFAULT.withMaxDepth(0));
+        assertTrue(unlimited.allowsDepth(1_000));
+    }
+
+    @Test
+    public void testEntryLimits() {
+        ScanBudget budget = new ScanBudget(ScanOptions.DEFAULT.withMaxEntries(10).withMaxFolderEntries(6));
+
+        assertNull(budget.reserve(6));
+        assertEquals(ScanBudget.Limit.FOLDER_ENTRIES, budget.reserve(7));
+        assertEquals(ScanBudget.Limit.TOTAL_ENTRIES, budget.reserve(5));
+        assertNull(budget.reserve(4));
+        assertEquals("Folders over a limit are not counted", 10, budget.getEntryCount());
+
+        // Folders read whatever the limits still count
+        budget.add(3);
+        assertEquals(13, budget.getEntryCount());
+        assertEquals(ScanBudget.Limit.TOTAL_ENTRIES, budget.reserve(1));
+    }
+
+    @Test
+    public void testStoppedFolders() {
+        ScanBudget budget = new ScanBudget(ScanOptions.DEFAULT);
+        assertFalse(budget.isLimitHit());
+
+        budget.folderStopped(ScanBudget.Limit.DEPTH);
+        budget.folderStopped(ScanBudget.Limit.DEPTH);
+        budget.folderStopped(ScanBudget.Limit.FOLDER_ENTRIES);
+        assertTrue(budget.isLimitHit());
+        assertEquals(2, budget.getStoppedFolderCount(ScanBudget.Limit.DEPTH));
+        assertEquals(0, budget.getStoppedFolderCount(ScanBudget.Limit.TOTAL_ENTRIES));
+        assertEquals(1, budget.getStoppedFolderCount(ScanBudget.Limit.FOLDER_ENTRIES));
+    }
+
+    @Test
+    public void testTotalLimitAcrossThreads() throws InterruptedException {
+        ScanBudget budget = new ScanBudget(ScanOptions.DEFAULT.withMaxEntries(1_000).withMaxFolderEntries(0));
+        AtomicInteger reserved = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            threads.add(new Thread(() -> {
+                for (int j = 0; j < 100; j++) {
+                    if (budget.reserve(3) == null) {
+                        reserved.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // 333 folders of 3 entries fit in 1000, whatever the threads reserving them
+        assertEquals(333, reserved.get());
+        assertEquals(999, budget.getEntryCount());
+    }
+}
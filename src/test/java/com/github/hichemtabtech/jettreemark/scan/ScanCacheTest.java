@@ -0,0 +1,122 @@
+package com.github.hichemtabtech.jettreemark.scan;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for {@link ScanCache}
+ */
+public class ScanCacheTest {
+
+    private static VirtualFile file(String name) {
+        VirtualFile file = mock(VirtualFile.class);
+        when(file.getName()).thenReturn(name);
+        when(file.isDirectory()).thenReturn(false);
+        return file;
+    }
+
+    private static VirtualFile folder(String path, VirtualFile... children) {
+        VirtualFile folder = mock(VirtualFile.class);
+        when(folder.getName()).thenReturn(path.substring(path.lastIndexOf('/') + 1));
+        when(folder.getPath()).thenReturn(path);
+        when(folder.isDirectory()).thenReturn(true);
+        when(folder.getChildren()).thenReturn(children);
+        return folder;
+    }
+
+    private static VirtualFile addGitignore(VirtualFile folder, String content) throws Exception {
+        VirtualFile gitignore = mock(VirtualFile.class);
+        when(gitignore.isDirectory()).thenReturn(false);
+        when(gitignore.exists()).thenReturn(true);
+        when(gitignore.getInputStream()).thenAnswer(
+                invocation -> new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+        when(folder.findChild(".gitignore")).thenReturn(gitignore);
+        return gitignore;
+    }
+
+    @Test
+    public void testUnchangedFolderIsListedOnce() {
+        VirtualFile src = folder("/project/src");
+        VirtualFile root = folder("/project", src, file("README.md"));
+        ScanCache cache = new ScanCache(ScanCache.DEFAULT_BUDGET_BYTES);
+
+        ScanCache.Listing listing = cache.getListing(root);
+        assertEquals(2, listing.size());
+        assertEquals("src", listing.getName(0));
+        assertTrue(listing.isDirectory(0));
+        assertEquals("README.md", listing.getName(1));
+        assertFalse(listing.isDirectory(1));
+
+        assertSame(listing, cache.getListing(root));
+        verify(root, times(1)).getChildren();
+    }
+
+    @Test
+    public void testChangedFolderIsListedAgain() {
+        VirtualFile src = folder("/project/src", file("Main.java"));
+        VirtualFile root = folder("/project", src);
+        ScanCache cache = new ScanCache(ScanCache.DEFAULT_BUDGET_BYTES);
+        cache.getListing(root);
+        cache.getListing(src);
+
+        // A file was added to the root folder
+        when(root.getModificationCount()).thenReturn(1L);
+        when(root.getChildren()).thenReturn(new VirtualFile[]{src, file("README.md")});
+
+        assertEquals(2, cache.getListing(root).size());
+        assertEquals(1, cache.getListing(src).size());
+        verify(root, times(2)).getChildren();
+        verify(src, times(1)).getChildren();
+    }
+
+    @Test
+    public void testGitignoreIsReadAgainWhenItChanges() throws Exception {
+        VirtualFile root = folder("/project");
+        ScanCache cache = new ScanCache(ScanCache.DEFAULT_BUDGET_BYTES);
+        assertEquals(List.of(), cache.getGitignorePatterns(root));
+
+        VirtualFile gitignore = addGitignore(root, "build/\n# comment\n*.log\n");
+        assertEquals(List.of("build/", "*.log"), cache.getGitignorePatterns(root));
+        assertEquals(List.of("build/", "*.log"), cache.getGitignorePatterns(root));
+        verify(gitignore, times(1)).getInputStream();
+
+        when(gitignore.getModificationStamp()).thenReturn(1L);
+        when(gitignore.getInputStream()).thenAnswer(
+                invocation -> new ByteArrayInputStream("out/\n".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(List.of("out/"), cache.getGitignorePatterns(root));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedFolderIsEvicted() {
+        VirtualFile first = folder("/project/first", file("a.txt"));
+        VirtualFile second = folder("/project/second", file("b.txt"));
+        VirtualFile third = folder("/project/third", file("c.txt"));
+
+        // Measure what two folders like these take
+        ScanCache sizing = new ScanCache(ScanCache.DEFAULT_BUDGET_BYTES);
+        sizing.getListing(folder("/project/first", file("a.txt")));
+        sizing.getListing(folder("/project/second", file("b.txt")));
+
+        ScanCache cache = new ScanCache(sizing.getUsedBytes());
+        cache.getListing(first);
+        cache.getListing(second);
+        cache.getListing(first);
+        cache.getListing(third);
+
+        assertEquals(2, cache.getFolderCount());
+        assertTrue(cache.getUsedBytes() <= sizing.getUsedBytes());
+
+        // The second folder was evicted, the first one was used more recently
+        cache.getListing(first);
+        verify(first, times(1)).getChildren();
+        cache.getListing(second);
+        verify(second, times(2)).getChildren();
+    }
+}
@@ -0,0 +1,112 @@
+package com.github.hichemtabtech.jettreemark.scan;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link ScanExecutor}
+ */
+public class ScanExecutorTest {
+
+    private static Runnable waitFor(CountDownLatch started, CountDownLatch release) {
+        return () -> {
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+
+    @Test
+    public void testQueueRunsAtMostItsSlots() throws InterruptedException {
+        ScanExecutor executor = new ScanExecutor(4);
+        ScanExecutor.Queue queue = executor.createQueue(2);
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(3);
+
+        for (int i = 0; i < 3; i++) {
+            queue.submit(() -> {
+                waitFor(started, release).run();
+                finished.countDown();
+            });
+        }
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        assertEquals(2, queue.getRunningCount());
+        assertEquals("Free threads do not run more tasks of a queue than its slots", 1, queue.getPendingCount());
+
+        release.countDown();
+        assertTrue(finished.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testQueuesTakeTurns() throws InterruptedException {
+        ScanExecutor executor = new ScanExecutor(1);
+        ScanExecutor.Queue busy = executor.createQueue(1);
+        ScanExecutor.Queue quick = executor.createQueue(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(4);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+        // The only thread is held while both queues fill up
+        busy.submit(waitFor(started, release));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        for (int i = 1; i <= 3; i++) {
+            String name = "busy" + i;
+            busy.submit(() -> {
+                order.add(name);
+                finished.countDown();
+            });
+        }
+        quick.submit(() -> {
+            order.add("quick");
+            finished.countDown();
+        });
+
+        release.countDown();
+        assertTrue(finished.await(10, TimeUnit.SECONDS));
+        assertEquals("The quick scan does not wait behind the tasks queued before it",
+                List.of("quick", "busy1", "busy2", "busy3"), order);
+    }
+
+    @Test
+    public void testCloseDropsWaitingTasks() throws InterruptedException {
+        ScanExecutor executor = new ScanExecutor(1);
+        ScanExecutor.Queue queue = executor.createQueue(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        queue.submit(waitFor(started, release));
+        Runnable waiting = () -> fail("A closed queue should not run its waiting tasks");
+        queue.submit(waiting);
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        assertEquals("The waiting task is handed back", List.of(waiting), queue.close());
+        assertTrue(queue.isClosed());
+        assertEquals(0, queue.getPendingCount());
+        try {
+            queue.submit(() -> {
+            });
+            fail("A closed queue should refuse new tasks");
+        } catch (RejectedExecutionException expected) {
+            // expected
+        }
+
+        // The other queues keep running
+        CountDownLatch other = new CountDownLatch(1);
+        executor.createQueue(1).submit(other::countDown);
+        release.countDown();
+        assertTrue(other.await(10, TimeUnit.SECONDS));
+    }
+}
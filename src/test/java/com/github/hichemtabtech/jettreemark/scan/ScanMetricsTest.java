@@ -0,0 +1,50 @@
+package com.github.hichemtabtech.jettreemark.scan;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link ScanMetrics}
+ */
+public class ScanMetricsTest {
+
+    @Test
+    public void testCounters() {
+        ScanMetrics metrics = new ScanMetrics(10);
+        metrics.folderListed(5, 3);
+        metrics.folderListed(2, 2);
+        metrics.entryIgnored();
+        metrics.gitignoreFileRead();
+
+        assertEquals(2, metrics.getDirectoryCount());
+        assertEquals(5, metrics.getFileCount());
+        assertEquals(1, metrics.getIgnoredCount());
+        assertEquals(1, metrics.getGitignoreFileCount());
+        assertEquals("The estimate follows the entries added to the tree", 70, metrics.getEstimatedRetainedBytes());
+    }
+
+    @Test
+    public void testPhaseTimes() throws InterruptedException {
+        ScanMetrics metrics = new ScanMetrics(10);
+        long start = System.nanoTime();
+        Thread.sleep(20);
+        metrics.addTime(ScanMetrics.Phase.LISTING, start);
+
+        assertTrue(metrics.getMillis(ScanMetrics.Phase.LISTING) >= 20);
+        assertEquals(0, metrics.getMillis(ScanMetrics.Phase.GITIGNORE));
+        assertEquals(0, metrics.getMillis(ScanMetrics.Phase.TREE));
+    }
+
+    @Test
+    public void testToStringHoldsEveryCounter() {
+        ScanMetrics metrics = new ScanMetrics(24);
+        metrics.folderListed(4, 1);
+
+        String line = metrics.toString();
+        assertTrue(line, line.contains("directories=1"));
+        assertTrue(line, line.contains("files=1"));
+        assertTrue(line, line.contains("gitignoreMs=0"));
+        assertTrue(line, line.contains("estimatedBytes=96"));
+    }
+}
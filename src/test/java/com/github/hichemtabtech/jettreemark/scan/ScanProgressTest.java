@@ -0,0 +1,52 @@
+package com.github.hichemtabtech.jettreemark.scan;
+
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link ScanProgress}
+ */
+public class ScanProgressTest {
+
+    @Test
+    public void testCounters() {
+        ScanProgress progress = new ScanProgress();
+        progress.folderListed(3);
+        progress.folderListed(0);
+
+        assertEquals(2, progress.getDirectoryCount());
+        assertEquals(3, progress.getFileCount());
+        assertTrue(progress.getElapsedMillis() >= 0);
+        assertTrue(progress.getFilesPerSecond() >= 0);
+    }
+
+    @Test
+    public void testCancellingParentCancelsChild() {
+        ScanProgress tab = new ScanProgress();
+        ScanProgress scan = new ScanProgress(tab::isCancelled);
+        assertFalse(scan.isCancelled());
+
+        tab.cancel();
+        assertTrue(scan.isCancelled());
+        try {
+            scan.checkCancelled();
+            fail("A cancelled scan should stop");
+        } catch (CancellationException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testCancellingChildKeepsParent() {
+        ScanProgress tab = new ScanProgress();
+        ScanProgress scan = new ScanProgress(tab::isCancelled);
+
+        scan.cancel();
+        assertTrue(scan.isCancelled());
+        assertFalse(tab.isCancelled());
+        tab.checkCancelled();
+    }
+}
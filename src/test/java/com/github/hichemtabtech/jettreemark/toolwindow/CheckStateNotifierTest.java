@@ -0,0 +1,91 @@
+package com.github.hichemtabtech.jettreemark.toolwindow;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.swing.*;
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+import javax.swing.tree.TreePath;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link CheckStateNotifier}
+ */
+public class CheckStateNotifierTest {
+    private static final int ROW_HEIGHT = 20;
+
+    private CheckboxTreeModel model;
+    private JTree tree;
+    private CheckboxTreeNode rootNode;
+    private CheckboxTreeNode folderNode;
+    private CheckboxTreeNode fileNode1;
+    private final List<String> events = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        rootNode = new CheckboxTreeNode("Root", true);
+        folderNode = new CheckboxTreeNode("Folder", true);
+        fileNode1 = new CheckboxTreeNode("File1", false);
+        rootNode.add(folderNode);
+        folderNode.add(fileNode1);
+        folderNode.add(new CheckboxTreeNode("File2", false));
+        rootNode.add(new CheckboxTreeNode("Readme", false));
+
+        model = new CheckboxTreeModel(rootNode);
+        tree = new JTree(model);
+        tree.setRowHeight(ROW_HEIGHT);
+        tree.expandRow(1);
+        assertEquals(5, tree.getRowCount());
+
+        model.addTreeModelListener(new TreeModelListener() {
+            @Override
+            public void treeNodesChanged(TreeModelEvent e) {
+                events.add(e.getTreePath().getLastPathComponent() + " " + Arrays.toString(e.getChildIndices()));
+            }
+
+            @Override
+            public void treeNodesInserted(TreeModelEvent e) {
+                fail("Unexpected insertion");
+            }
+
+            @Override
+            public void treeNodesRemoved(TreeModelEvent e) {
+                fail("Unexpected removal");
+            }
+
+            @Override
+            public void treeStructureChanged(TreeModelEvent e) {
+                fail("Unexpected structure change");
+            }
+        });
+    }
+
+    @Test
+    public void testOnlyRowsOnThePathOfTheNodeAreReported() {
+        tree.setSize(200, ROW_HEIGHT * 5);
+        TreePath path = new TreePath(fileNode1.getPath());
+
+        model.setCheckState(fileNode1, CheckboxTreeNode.UNCHECKED);
+        CheckStateNotifier.fireCheckStateChanged(tree, path);
+
+        // The root, the folder and the file, but neither the sibling file nor the other root child
+        assertEquals(List.of("Root null", "Root [0]", "Folder [0]"), events);
+    }
+
+    @Test
+    public void testRowsOutOfViewAreNotReported() {
+        // Only the root and the folder are on screen
+        tree.setSize(200, ROW_HEIGHT * 2);
+        TreePath path = new TreePath(folderNode.getPath());
+
+        model.setCheckState(folderNode, CheckboxTreeNode.UNCHECKED);
+        CheckStateNotifier.fireCheckStateChanged(tree, path);
+
+        assertEquals(List.of("Root null", "Root [0]"), events);
+    }
+}
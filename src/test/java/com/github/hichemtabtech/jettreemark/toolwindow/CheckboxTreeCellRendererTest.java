@@ -0,0 +1,82 @@
+package com.github.hichemtabtech.jettreemark.toolwindow;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.swing.*;
+import java.awt.*;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link CheckboxTreeCellRenderer}
+ */
+public class CheckboxTreeCellRendererTest {
+
+    private CompactTreeModel model;
+    private JTree tree;
+    private CheckboxTreeCellRenderer renderer;
+    private Object[] rows;
+
+    @Before
+    public void setUp() {
+        // A folder with one row in each state, and an ignored placeholder
+        model = new CompactTreeModel("Root", true);
+        Object root = model.getRoot();
+        Object folder = model.addChild(root, "src", true);
+        Object file = model.addChild(root, "README.md", false);
+        Object ignored = model.addChild(root, "build", true);
+        Object checkedFile = model.addChild(folder, "Main.java", false);
+        Object uncheckedFile = model.addChild(folder, "Main.class", false);
+        model.setCheckState(uncheckedFile, CheckboxTreeNode.UNCHECKED);
+        model.setCheckState(ignored, CheckboxTreeNode.UNCHECKED, false, false);
+        model.setIgnored(ignored, true);
+        rows = new Object[]{root, folder, checkedFile, uncheckedFile, file, ignored};
+
+        tree = new JTree(model);
+        renderer = new CheckboxTreeCellRenderer();
+    }
+
+    @Test
+    public void testRendersLabelAndState() {
+        TriStateCheckBox folderBox = (TriStateCheckBox) render(1, false);
+        assertEquals("src/", folderBox.getText());
+        assertEquals(TriStateCheckBox.State.INDETERMINATE, folderBox.getState());
+        assertFalse(folderBox.isSelected());
+
+        TriStateCheckBox fileBox = (TriStateCheckBox) render(2, false);
+        assertEquals("Main.java", fileBox.getText());
+        assertEquals(TriStateCheckBox.State.SELECTED, fileBox.getState());
+        assertTrue(fileBox.isSelected());
+    }
+
+    @Test
+    public void testSteadyStateScrollingAllocatesAlmostNothing() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        // Warming up builds the cached labels and lets the JIT settle, later passes must reuse them
+        scroll(100_000);
+        int passes = 10_000;
+        long before = threads.getCurrentThreadAllocatedBytes();
+        scroll(passes);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        // Not exactly zero, which would depend on the JIT and on what the counter itself allocates.
+        // A label or a string built on every render would be tens of bytes per row.
+        long renderedRows = (long) passes * rows.length;
+        assertTrue("Bytes allocated while rendering " + renderedRows + " rows: " + allocated, allocated < renderedRows);
+    }
+
+    private void scroll(int passes) {
+        for (int pass = 0; pass < passes; pass++) {
+            for (int row = 0; row < rows.length; row++) {
+                render(row, row == 2);
+            }
+        }
+    }
+
+    private Component render(int row, boolean selected) {
+        return renderer.getTreeCellRendererComponent(tree, rows[row], selected, false, false, row, false);
+    }
+}
@@ -52,7 +52,7 @@ public class CheckboxTreeNodeTest {
         // Test setting check state with propagation to parent
         fileNode1.setCheckState(CheckboxTreeNode.CHECKED, false, true);
         assertEquals("File node 1 should be checked", CheckboxTreeNode.CHECKED, fileNode1.getCheckState());
-        assertEquals("Folder node should be checked", CheckboxTreeNode.CHECKED, folderNode.getCheckState());
+        assertEquals("Folder node should be indeterminate", CheckboxTreeNode.INDETERMINATE, folderNode.getCheckState());
     }
 
     @Test
@@ -115,6 +115,20 @@ public class CheckboxTreeNodeTest {
         assertEquals("File node 1 should be unchecked", CheckboxTreeNode.UNCHECKED, fileNode1.getCheckState());
     }
 
+    @Test
+    public void testUncheckAllChildrenUpdatesFolderAndParents() {
+        CheckboxTreeNode readme = new CheckboxTreeNode("README.md", false);
+        rootNode.add(readme);
+
+        // Uncheck All Children leaves the folder with nothing checked in it
+        folderNode.uncheckAll(false);
+        assertEquals(CheckboxTreeNode.UNCHECKED, folderNode.getCheckState());
+        assertEquals(CheckboxTreeNode.INDETERMINATE, rootNode.getCheckState());
+
+        readme.setCheckState(CheckboxTreeNode.UNCHECKED, false, true);
+        assertEquals("The counters of the root agree with its children", CheckboxTreeNode.UNCHECKED, rootNode.getCheckState());
+    }
+
     @Test
     public void testUpdateParentCheckState() {
         // First uncheck all nodes
@@ -123,13 +137,208 @@ public class CheckboxTreeNodeTest {
         // Check one file node
         fileNode1.setCheckState(CheckboxTreeNode.CHECKED, false, true);
         assertEquals("File node 1 should be checked", CheckboxTreeNode.CHECKED, fileNode1.getCheckState());
+        assertEquals("Folder node should be indeterminate", CheckboxTreeNode.INDETERMINATE, folderNode.getCheckState());
+        assertEquals("Root node should be indeterminate", CheckboxTreeNode.INDETERMINATE, rootNode.getCheckState());
+
+        // Check the other file node
+        fileNode2.setCheckState(CheckboxTreeNode.CHECKED, false, true);
         assertEquals("Folder node should be checked", CheckboxTreeNode.CHECKED, folderNode.getCheckState());
         assertEquals("Root node should be checked", CheckboxTreeNode.CHECKED, rootNode.getCheckState());
         
-        // Uncheck the file node
+        // Uncheck both file nodes
         fileNode1.setCheckState(CheckboxTreeNode.UNCHECKED, false, true);
         assertEquals("File node 1 should be unchecked", CheckboxTreeNode.UNCHECKED, fileNode1.getCheckState());
-        assertEquals("Folder node should still be checked", CheckboxTreeNode.CHECKED, folderNode.getCheckState());
+        assertEquals("Folder node should be indeterminate", CheckboxTreeNode.INDETERMINATE, folderNode.getCheckState());
+        fileNode2.setCheckState(CheckboxTreeNode.UNCHECKED, false, true);
+        assertEquals("Folder node should be unchecked", CheckboxTreeNode.UNCHECKED, folderNode.getCheckState());
+        assertEquals("Root node should be unchecked", CheckboxTreeNode.UNCHECKED, rootNode.getCheckState());
+    }
+
+    @Test
+    public void testChildCountersFollowTreeChanges() {
+        CheckboxTreeNode newFile = new CheckboxTreeNode("File3", false);
+        newFile.setCheckState(CheckboxTreeNode.UNCHECKED, false, false);
+        folderNode.add(newFile);
+
+        // Adding an unchecked child leaves a mix of states
+        folderNode.updateParentCheckState();
+        assertEquals("Folder node should be indeterminate", CheckboxTreeNode.INDETERMINATE, folderNode.getCheckState());
+
+        // Removing it leaves only checked children
+        folderNode.remove(newFile);
+        folderNode.updateParentCheckState();
+        assertEquals("Folder node should be checked", CheckboxTreeNode.CHECKED, folderNode.getCheckState());
+
+        // An indeterminate child makes its parent indeterminate
+        fileNode1.setCheckState(CheckboxTreeNode.UNCHECKED);
+        assertEquals("Root node should be indeterminate", CheckboxTreeNode.INDETERMINATE, rootNode.getCheckState());
+    }
+
+    @Test
+    public void testLazyChildrenLoading() {
+        CheckboxTreeNode lazyFolder = new CheckboxTreeNode("Lazy", true);
+        int[] loads = {0};
+        lazyFolder.setChildrenLoader(node -> {
+            loads[0]++;
+            node.add(new CheckboxTreeNode("Child", false));
+        });
+        rootNode.add(lazyFolder);
+
+        // An unloaded folder is not a leaf and has no children yet
+        assertFalse("Unloaded folder should not be loaded", lazyFolder.isChildrenLoaded());
+        assertFalse("Unloaded folder should not be a leaf", lazyFolder.isLeaf());
+        assertEquals("Unloaded folder should have no children", 0, lazyFolder.getChildCount());
+
+        // Unchecking does not force a load
+        lazyFolder.setCheckState(CheckboxTreeNode.UNCHECKED);
+        assertEquals("Unchecking should not load children", 0, loads[0]);
+
+        // Loading runs the loader once and children inherit the unchecked state
+        assertTrue("First call should load the children", lazyFolder.ensureChildrenLoaded());
+        assertFalse("Second call should not load again", lazyFolder.ensureChildrenLoaded());
+        assertEquals("Loader should run exactly once", 1, loads[0]);
+        assertEquals("Folder should have one child", 1, lazyFolder.getChildCount());
+        assertEquals("Child of an unchecked folder should be unchecked",
+                CheckboxTreeNode.UNCHECKED, ((CheckboxTreeNode) lazyFolder.getChildAt(0)).getCheckState());
+    }
+
+    @Test
+    public void testCheckOnlyFilesLoadsChildren() {
+        CheckboxTreeNode lazyFolder = new CheckboxTreeNode("Lazy", true);
+        lazyFolder.setChildrenLoader(node -> node.add(new CheckboxTreeNode("Child", false)));
+        rootNode.add(lazyFolder);
+
+        rootNode.checkOnlyFiles(false);
+        assertEquals("Folder should be unchecked at this level", CheckboxTreeNode.UNCHECKED, lazyFolder.getCheckState());
+
+        lazyFolder.checkOnlyFiles(false);
+        assertTrue("Level operations should load the children", lazyFolder.isChildrenLoaded());
+        assertEquals("File child should be checked",
+                CheckboxTreeNode.CHECKED, ((CheckboxTreeNode) lazyFolder.getChildAt(0)).getCheckState());
+    }
+
+    @Test
+    public void testIgnoredPlaceholderIsSkippedByBulkOperations() {
+        CheckboxTreeNode ignoredFolder = new CheckboxTreeNode("node_modules", true);
+        ignoredFolder.setCheckState(CheckboxTreeNode.UNCHECKED, false, false);
+        ignoredFolder.setIgnored(true);
+        int[] loads = {0};
+        ignoredFolder.setChildrenLoader(node -> {
+            loads[0]++;
+            node.add(new CheckboxTreeNode("lib.js", false));
+        });
+        rootNode.add(ignoredFolder);
+
+        // Bulk operations leave the placeholder unchecked and unloaded
+        rootNode.checkAll();
+        rootNode.checkOnlyFolders();
+        rootNode.checkOnlyFiles();
+        rootNode.checkAll(false);
+        rootNode.setCheckState(CheckboxTreeNode.CHECKED);
+        assertEquals("Placeholder should stay unchecked", CheckboxTreeNode.UNCHECKED, ignoredFolder.getCheckState());
+        assertEquals("Placeholder should never be loaded by bulk operations", 0, loads[0]);
+
+        // Checking the placeholder directly is still possible
+        ignoredFolder.setCheckState(CheckboxTreeNode.CHECKED);
+        assertEquals("Placeholder should be checked", CheckboxTreeNode.CHECKED, ignoredFolder.getCheckState());
+    }
+
+    @Test
+    public void testLoadingCopyHandsChildrenBack() {
+        CheckboxTreeNode lazyFolder = new CheckboxTreeNode("Lazy", true);
+        lazyFolder.setChildrenLoader(node -> {
+            node.add(new CheckboxTreeNode("A", false));
+            node.add(new CheckboxTreeNode("B", false));
+        });
+        rootNode.add(lazyFolder);
+
+        CheckboxTreeNode copy = lazyFolder.createLoadingCopy();
+        assertNotNull(copy);
+        assertTrue(copy.ensureChildrenLoaded());
+        assertEquals("The real node should not be touched while the copy loads", 0, lazyFolder.getChildCount());
+
+        assertTrue(lazyFolder.adoptChildren(copy));
+        assertTrue(lazyFolder.isChildrenLoaded());
+        assertEquals(2, lazyFolder.getChildCount());
+        assertEquals("A", ((CheckboxTreeNode) lazyFolder.getChildAt(0)).getUserObject());
+        assertSame(lazyFolder, lazyFolder.getChildAt(1).getParent());
+        assertNull("Loaded nodes need no copy", lazyFolder.createLoadingCopy());
+    }
+
+    @Test
+    public void testLoadingCopyIsDiscardedWhenStateChanged() {
+        CheckboxTreeNode lazyFolder = new CheckboxTreeNode("Lazy", true);
+        lazyFolder.setChildrenLoader(node -> node.add(new CheckboxTreeNode("A", false)));
+        rootNode.add(lazyFolder);
+
+        CheckboxTreeNode copy = lazyFolder.createLoadingCopy();
+        copy.ensureChildrenLoaded();
+        lazyFolder.setCheckState(CheckboxTreeNode.UNCHECKED);
+
+        assertFalse(lazyFolder.adoptChildren(copy));
+        assertFalse("The node should still load on access", lazyFolder.isChildrenLoaded());
+        lazyFolder.ensureChildrenLoaded();
+        assertEquals(CheckboxTreeNode.UNCHECKED, ((CheckboxTreeNode) lazyFolder.getChildAt(0)).getCheckState());
+    }
+
+    @Test
+    public void testCheckingFolderWithIgnoredPlaceholderMakesItIndeterminate() {
+        CheckboxTreeNode ignoredFolder = new CheckboxTreeNode("build", true);
+        ignoredFolder.setCheckState(CheckboxTreeNode.UNCHECKED, false, false);
+        ignoredFolder.setIgnored(true);
+        folderNode.add(ignoredFolder);
+        rootNode.setCheckState(CheckboxTreeNode.UNCHECKED);
+
+        folderNode.setCheckState(CheckboxTreeNode.CHECKED);
+        assertEquals("Placeholder should stay unchecked", CheckboxTreeNode.UNCHECKED, ignoredFolder.getCheckState());
+        assertEquals("Folder should follow its children", CheckboxTreeNode.INDETERMINATE, folderNode.getCheckState());
+        assertEquals("Root should follow the folder", CheckboxTreeNode.INDETERMINATE, rootNode.getCheckState());
+
+        // A folder holding only placeholders stays unchecked
+        CheckboxTreeNode onlyIgnored = new CheckboxTreeNode("out", true);
+        CheckboxTreeNode placeholder = new CheckboxTreeNode("classes", true);
+        placeholder.setCheckState(CheckboxTreeNode.UNCHECKED, false, false);
+        placeholder.setIgnored(true);
+        onlyIgnored.add(placeholder);
+        onlyIgnored.setCheckState(CheckboxTreeNode.CHECKED);
+        assertEquals(CheckboxTreeNode.UNCHECKED, onlyIgnored.getCheckState());
+    }
+
+    @Test
+    public void testLoadingGitignoredChildrenMakesFolderIndeterminate() {
+        CheckboxTreeNode lazyFolder = new CheckboxTreeNode("Lazy", true);
+        lazyFolder.setChildrenLoader(node -> {
+            node.add(new CheckboxTreeNode("Main.java", false));
+            CheckboxTreeNode ignoredFile = new CheckboxTreeNode("debug.log", false);
+            ignoredFile.setCheckState(CheckboxTreeNode.UNCHECKED, false, false);
+            node.add(ignoredFile);
+        });
+        rootNode.add(lazyFolder);
+        assertEquals(CheckboxTreeNode.CHECKED, rootNode.getCheckState());
+
+        lazyFolder.ensureChildrenLoaded();
+        assertEquals("Folder should follow its children", CheckboxTreeNode.INDETERMINATE, lazyFolder.getCheckState());
+        assertEquals("Root should follow the folder", CheckboxTreeNode.INDETERMINATE, rootNode.getCheckState());
+    }
+
+    @Test
+    public void testLoadingCopyWithGitignoredChildrenIsAdopted() {
+        CheckboxTreeNode lazyFolder = new CheckboxTreeNode("Lazy", true);
+        lazyFolder.setChildrenLoader(node -> {
+            node.add(new CheckboxTreeNode("Main.java", false));
+            CheckboxTreeNode ignoredFile = new CheckboxTreeNode("debug.log", false);
+            ignoredFile.setCheckState(CheckboxTreeNode.UNCHECKED, false, false);
+            node.add(ignoredFile);
+        });
+        rootNode.add(lazyFolder);
+
+        CheckboxTreeNode copy = lazyFolder.createLoadingCopy();
+        copy.ensureChildrenLoaded();
+        assertEquals(CheckboxTreeNode.INDETERMINATE, copy.getCheckState());
+
+        assertTrue("The copy was loaded from a checked node", lazyFolder.adoptChildren(copy));
+        assertEquals(CheckboxTreeNode.INDETERMINATE, lazyFolder.getCheckState());
+        assertEquals(CheckboxTreeNode.INDETERMINATE, rootNode.getCheckState());
     }
 
     @Test(expected = IllegalArgumentException.class)
@@ -0,0 +1,317 @@
+package com.github.hichemtabtech.jettreemark.toolwindow;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link CompactTreeModel}
+ */
+public class CompactTreeModelTest {
+
+    private CompactTreeModel model;
+    private Object rootNode;
+    private Object folderNode;
+    private Object fileNode1;
+    private Object fileNode2;
+    private Object lazyNode;
+
+    @Before
+    public void setUp() {
+        // Same structure as CheckboxTreeNodeTest, with a second folder that tests give a loader
+        model = new CompactTreeModel("Root", true);
+        rootNode = model.getRoot();
+        folderNode = model.addChild(rootNode, "Folder", true);
+        lazyNode = model.addChild(rootNode, "Lazy", true);
+        fileNode1 = model.addChild(folderNode, "File1", false);
+        fileNode2 = model.addChild(folderNode, "File2", false);
+    }
+
+    @Test
+    public void testTreeStructure() {
+        assertEquals(2, model.getChildCount(rootNode));
+        assertEquals(folderNode, model.getChild(rootNode, 0));
+        assertEquals(fileNode2, model.getChild(folderNode, 1));
+        assertEquals(1, model.getIndexOfChild(folderNode, fileNode2));
+        assertEquals("A node is not the child of its grandparent", -1, model.getIndexOfChild(rootNode, fileNode1));
+        assertEquals("File1", model.getName(fileNode1));
+        assertEquals("File1", fileNode1.toString());
+        assertTrue(model.isFolder(folderNode));
+        assertFalse(model.isFolder(fileNode1));
+        assertTrue(model.isLeaf(fileNode1));
+        assertFalse(model.isLeaf(folderNode));
+    }
+
+    @Test
+    public void testSetCheckState() {
+        model.setCheckState(fileNode1, CheckboxTreeNode.UNCHECKED, false, false);
+        assertEquals(CheckboxTreeNode.UNCHECKED, model.getCheckState(fileNode1));
+        assertEquals(CheckboxTreeNode.CHECKED, model.getCheckState(folderNode));
+
+        model.setCheckState(folderNode, CheckboxTreeNode.UNCHECKED, true, false);
+        assertEquals(CheckboxTreeNode.UNCHECKED, model.getCheckState(fileNode1));
+        assertEquals(CheckboxTreeNode.UNCHECKED, model.getCheckState(fileNode2));
+
+        model.setCheckState(fileNode1, CheckboxTreeNode.CHECKED, false, true);
+        assertEquals(CheckboxTreeNode.INDETERMINATE, model.getCheckState(folderNode));
+        assertEquals(CheckboxTreeNode.INDETERMINATE, model.getCheckState(rootNode));
+
+        model.setCheckState(fileNode2, CheckboxTreeNode.CHECKED, false, true);
+        assertEquals(CheckboxTreeNode.CHECKED, model.getCheckState(folderNode));
+        assertEquals("The other root child is still checked", CheckboxTreeNode.CHECKED, model.getCheckState(rootNode));
+
+        model.setCheckState(folderNode, CheckboxTreeNode.UNCHECKED);
+        model.setCheckState(lazyNode, CheckboxTreeNode.UNCHECKED);
+        assertEquals(CheckboxTreeNode.UNCHECKED, model.getCheckState(rootNode));
+    }
+
+    @Test
+    public void testCheckOnlyFoldersAndFiles() {
+        model.uncheckAll(rootNode, true);
+        model.checkOnlyFolders(rootNode, true);
+        assertEquals(CheckboxTreeNode.CHECKED, model.getCheckState(folderNode));
+        assertEquals(CheckboxTreeNode.UNCHECKED, model.getCheckState(fileNode1));
+
+        model.checkOnlyFiles(folderNode, false);
+        assertEquals(CheckboxTreeNode.CHECKED, model.getCheckState(fileNode1));
+        assertEquals(CheckboxTreeNode.CHECKED, model.getCheckState(fileNode2));
+    }
+
+    @Test
+    public void testUncheckAllChildrenUpdatesFolderAndParents() {
+        // Uncheck All Children leaves the folder with nothing checked in it
+        model.uncheckAll(folderNode, false);
+        assertEquals(CheckboxTreeNode.UNCHECKED, model.getCheckState(folderNode));
+        assertEquals(CheckboxTreeNode.INDETERMINATE, model.getCheckState(rootNode));
+
+        model.setCheckState(lazyNode, CheckboxTreeNode.UNCHECKED, false, true);
+        assertEquals("The counters of the root agree with its children",
+                CheckboxTreeNode.UNCHECKED, model.getCheckState(rootNode));
+    }
+
+    @Test
+    public void testLazyChildrenLoadingUnderUncheckedFolder() {
+        model.setChildrenLoader(lazyNode, (loadingModel, node) -> {
+            loadingModel.addChild(node, "Nested", false);
+            loadingModel.addChild(node, "File1", false);
+        });
+        assertFalse(model.isChildrenLoaded(lazyNode));
+        assertEquals(0, model.getChildCount(lazyNode));
+
+        model.setCheckState(lazyNode, CheckboxTreeNode.UNCHECKED);
+        assertTrue(model.ensureChildrenLoaded(lazyNode));
+        assertFalse("Children are only loaded once", model.ensureChildrenLoaded(lazyNode));
+        assertEquals(2, model.getChildCount(lazyNode));
+        assertEquals("File1", model.getName(model.getChild(lazyNode, 1)));
+        assertEquals("Children of an unchecked folder start unchecked",
+                CheckboxTreeNode.UNCHECKED, model.getCheckState(model.getChild(lazyNode, 0)));
+    }
+
+    @Test
+    public void testIgnoredPlaceholderIsSkippedByBulkOperations() {
+        model.setCheckState(lazyNode, CheckboxTreeNode.UNCHECKED, false, false);
+        model.setIgnored(lazyNode, true);
+        model.setChildrenLoader(lazyNode, (loadingModel, node) -> fail("Placeholder should not be loaded"));
+
+        model.checkAll(rootNode, true);
+        model.checkOnlyFiles(rootNode, true);
+        model.setCheckState(rootNode, CheckboxTreeNode.CHECKED);
+        assertEquals(CheckboxTreeNode.UNCHECKED, model.getCheckState(lazyNode));
+        assertFalse(model.isChildrenLoaded(lazyNode));
+    }
+
+    @Test
+    public void testFolderStoppedWhileLoadingStaysUnchecked() {
+        // A loader that goes over the scan budget turns the folder into a placeholder
+        model.setChildrenLoader(lazyNode, (loadingModel, node) -> {
+            loadingModel.setCheckState(node, CheckboxTreeNode.UNCHECKED, false, true);
+            loadingModel.setIgnored(node, true);
+            loadingModel.setChildrenLoader(node, (again, sameNode) -> again.addChild(sameNode, "Big", false));
+        });
+        model.uncheckAll(rootNode, true);
+
+        model.checkOnlyFiles(lazyNode, false);
+        assertEquals(CheckboxTreeNode.UNCHECKED, model.getCheckState(lazyNode));
+        assertTrue(model.isIgnored(lazyNode));
+        assertFalse(model.isChildrenLoaded(lazyNode));
+
+        // Expanding it reads it anyway
+        assertTrue(model.ensureChildrenLoaded(lazyNode));
+        assertEquals(1, model.getChildCount(lazyNode));
+    }
+
+    @Test
+    public void testLoadingCopyHandsChildrenBack() {
+        model.setChildrenLoader(lazyNode, (loadingModel, node) -> {
+            Object sub = loadingModel.addChild(node, "Sub", true);
+            loadingModel.addChild(node, "Readme", false);
+            loadingModel.setChildrenLoader(sub, (subModel, subNode) -> subModel.addChild(subNode, "Deep", false));
+        });
+
+        CheckableTreeModel copy = model.createLoadingCopy(lazyNode);
+        assertNotNull(copy);
+        copy.ensureChildrenLoaded(copy.getRoot());
+        copy.ensureChildrenLoaded(copy.getChild(copy.getRoot(), 0));
+        assertEquals("The shown model is untouched while the copy loads", 0, model.getChildCount(lazyNode));
+
+        assertTrue(model.adoptChildren(lazyNode, copy));
+        assertTrue(model.isChildrenLoaded(lazyNode));
+        Object sub = model.getChild(lazyNode, 0);
+        assertEquals("Sub", model.getName(sub));
+        assertEquals("Readme", model.getName(model.getChild(lazyNode, 1)));
+        assertEquals(0, model.getIndexOfChild(lazyNode, sub));
+        assertEquals("Deep", model.getName(model.getChild(sub, 0)));
+        assertNull("A loaded node has nothing to copy", model.createLoadingCopy(lazyNode));
+    }
+
+    @Test
+    public void testLoadingCopyIsDiscardedWhenAnotherFolderTakesItsRow() {
+        String lazyName = model.getName(lazyNode);
+        model.setChildrenLoader(lazyNode, (loadingModel, node) -> loadingModel.addChild(node, lazyName + ".txt", false));
+        CheckableTreeModel copy = model.createLoadingCopy(lazyNode);
+        assertNotNull(copy);
+        copy.ensureChildrenLoaded(copy.getRoot());
+
+        // Folder is deleted and Mid created while the copy loads, Lazy and Mid now take the rows of Folder and Lazy
+        Object mid = model.updateChildren(rootNode, new int[]{0}, new String[]{"Mid"}, new boolean[]{true})[0];
+        model.setChildrenLoader(mid, (loadingModel, node) -> loadingModel.addChild(node, "Mid.txt", false));
+        assertEquals("The handle of Lazy now points at Mid", mid, lazyNode);
+        assertFalse(model.isCopiedFrom(lazyNode, copy));
+
+        assertFalse(model.adoptChildren(lazyNode, copy));
+        assertFalse("Mid keeps its own loader", model.isChildrenLoaded(mid));
+        assertTrue(model.ensureChildrenLoaded(mid));
+        assertEquals("Mid.txt", model.getName(model.getChild(mid, 0)));
+        Object lazy = model.getChild(rootNode, 0);
+        assertEquals("Lazy", model.getName(lazy));
+        assertTrue(model.ensureChildrenLoaded(lazy));
+        assertEquals("Lazy.txt", model.getName(model.getChild(lazy, 0)));
+    }
+
+    @Test
+    public void testLoadingCopyIsDiscardedWhenStateChanged() {
+        model.setChildrenLoader(lazyNode, (loadingModel, node) -> loadingModel.addChild(node, "Child", false));
+
+        CheckableTreeModel copy = model.createLoadingCopy(lazyNode);
+        assertNotNull(copy);
+        copy.ensureChildrenLoaded(copy.getRoot());
+        model.setCheckState(lazyNode, CheckboxTreeNode.UNCHECKED);
+
+        assertFalse(model.adoptChildren(lazyNode, copy));
+        assertFalse(model.isChildrenLoaded(lazyNode));
+    }
+
+    @Test
+    public void testCheckingFolderWithIgnoredPlaceholderMakesItIndeterminate() {
+        model.setCheckState(lazyNode, CheckboxTreeNode.UNCHECKED, false, false);
+        model.setIgnored(lazyNode, true);
+        model.setChildrenLoader(lazyNode, (loadingModel, node) -> fail("Placeholder should not be loaded"));
+        model.setCheckState(rootNode, CheckboxTreeNode.UNCHECKED);
+
+        model.setCheckState(rootNode, CheckboxTreeNode.CHECKED);
+        assertEquals("Placeholder should stay unchecked", CheckboxTreeNode.UNCHECKED, model.getCheckState(lazyNode));
+        assertEquals("Folder without placeholders is checked", CheckboxTreeNode.CHECKED, model.getCheckState(folderNode));
+        assertEquals("Root should follow its children", CheckboxTreeNode.INDETERMINATE, model.getCheckState(rootNode));
+    }
+
+    @Test
+    public void testLoadingGitignoredChildrenMakesFolderIndeterminate() {
+        model.setChildrenLoader(lazyNode, (loadingModel, node) -> {
+            loadingModel.addChild(node, "Main.java", false);
+            Object ignoredFile = loadingModel.addChild(node, "debug.log", false);
+            loadingModel.setCheckState(ignoredFile, CheckboxTreeNode.UNCHECKED, false, false);
+        });
+        assertEquals(CheckboxTreeNode.CHECKED, model.getCheckState(rootNode));
+
+        model.ensureChildrenLoaded(lazyNode);
+        assertEquals("Folder should follow its children", CheckboxTreeNode.INDETERMINATE, model.getCheckState(lazyNode));
+        assertEquals("Root should follow the folder", CheckboxTreeNode.INDETERMINATE, model.getCheckState(rootNode));
+    }
+
+    @Test
+    public void testLoadingCopyWithGitignoredChildrenIsAdopted() {
+        model.setChildrenLoader(lazyNode, (loadingModel, node) -> {
+            loadingModel.addChild(node, "Main.java", false);
+            Object ignoredFile = loadingModel.addChild(node, "debug.log", false);
+            loadingModel.setCheckState(ignoredFile, CheckboxTreeNode.UNCHECKED, false, false);
+        });
+
+        CheckableTreeModel copy = model.createLoadingCopy(lazyNode);
+        assertNotNull(copy);
+        copy.ensureChildrenLoaded(copy.getRoot());
+        assertEquals(CheckboxTreeNode.INDETERMINATE, copy.getCheckState(copy.getRoot()));
+
+        assertTrue("The copy was loaded from a checked node", model.adoptChildren(lazyNode, copy));
+        assertEquals(CheckboxTreeNode.INDETERMINATE, model.getCheckState(lazyNode));
+        assertEquals(CheckboxTreeNode.INDETERMINATE, model.getCheckState(rootNode));
+    }
+
+    @Test
+    public void testUpdateChildrenKeepsRemainingChildren() {
+        model.setCheckState(fileNode2, CheckboxTreeNode.UNCHECKED);
+
+        // File1 is deleted, File0 and File3 are created
+        Object[] added = model.updateChildren(folderNode, new int[]{0},
+                new String[]{"File0", "File3"}, new boolean[]{false, false});
+
+        assertEquals(3, model.getChildCount(folderNode));
+        assertEquals("File0", model.getName(model.getChild(folderNode, 0)));
+        assertEquals("File2", model.getName(model.getChild(folderNode, 1)));
+        assertEquals(added[1], model.getChild(folderNode, 2));
+        assertEquals(CheckboxTreeNode.UNCHECKED, model.getCheckState(model.getChild(folderNode, 1)));
+        assertEquals(CheckboxTreeNode.CHECKED, model.getCheckState(added[0]));
+        assertEquals(CheckboxTreeNode.INDETERMINATE, model.getCheckState(folderNode));
+
+        // The moved rows still answer for their own children
+        model.updateChildren(rootNode, new int[0], new String[]{"Readme"}, new boolean[]{false});
+        Object folder = model.getChild(rootNode, 0);
+        assertEquals("Folder", model.getName(folder));
+        assertEquals("File2", model.getName(model.getChild(folder, 1)));
+        assertEquals(1, model.getIndexOfChild(folder, model.getChild(folder, 1)));
+        assertEquals(CheckboxTreeNode.INDETERMINATE, model.getCheckState(rootNode));
+
+        model.rename(folder, "Sources");
+        assertEquals("Sources/", model.getDisplayName(folder));
+    }
+
+    @Test
+    public void testRepeatedUpdatesReuseRows() {
+        model.addChild(lazyNode, "Notes", false);
+        model.addChild(lazyNode, "Todo", false);
+        Object nested = model.updateChildren(folderNode, new int[0], new String[]{"Nested"}, new boolean[]{true})[0];
+        model.addChild(nested, "Deep", false);
+
+        // Files come and go in both folders, as an editor saving through a temporary file does
+        int size = 0;
+        for (int i = 0; i < 100; i++) {
+            model.updateChildren(folderNode, new int[0], new String[]{"File1~"}, new boolean[]{false});
+            model.updateChildren(lazyNode, new int[0], new String[]{"Notes~"}, new boolean[]{false});
+            model.updateChildren(folderNode, new int[]{1}, new String[0], new boolean[0]);
+            model.updateChildren(lazyNode, new int[]{1}, new String[0], new boolean[0]);
+            if (i == 0) {
+                size = model.size();
+            }
+        }
+
+        assertEquals("Rows left by earlier updates are used again", size, model.size());
+        assertEquals(3, model.getChildCount(folderNode));
+        assertEquals("File2", model.getName(model.getChild(folderNode, 1)));
+        Object movedNested = model.getChild(folderNode, 2);
+        assertEquals("Nested", model.getName(movedNested));
+        assertEquals("Deep", model.getName(model.getChild(movedNested, 0)));
+        assertEquals(0, model.getIndexOfChild(movedNested, model.getChild(movedNested, 0)));
+        assertEquals("Todo", model.getName(model.getChild(lazyNode, 1)));
+        assertEquals(CheckboxTreeNode.CHECKED, model.getCheckState(rootNode));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testChildrenAreAddedInOneGo() {
+        model.addChild(rootNode, "Late", false);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCheckState() {
+        model.setCheckState(fileNode1, 3);
+    }
+}
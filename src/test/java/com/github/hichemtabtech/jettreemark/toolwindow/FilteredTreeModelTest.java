@@ -0,0 +1,164 @@
+package com.github.hichemtabtech.jettreemark.toolwindow;
+
+import org.junit.Test;
+
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link FilteredTreeModel} and {@link TreeSearch}
+ */
+public class FilteredTreeModelTest {
+
+    private static CheckableTreeModel createTree(CheckableTreeModel model) {
+        // Root
+        // ├── api
+        // │   ├── UserController.java
+        // │   └── UserService.java
+        // ├── build (ignored placeholder)
+        // ├── web
+        // │   ├── user.ts
+        // │   └── app.ts
+        // └── README.md
+        Object root = model.getRoot();
+        Object api = model.addChild(root, "api", true);
+        Object build = model.addChild(root, "build", true);
+        Object web = model.addChild(root, "web", true);
+        model.addChild(root, "README.md", false);
+        model.addChild(api, "UserController.java", false);
+        model.addChild(api, "UserService.java", false);
+        model.addChild(web, "user.ts", false);
+        model.addChild(web, "app.ts", false);
+
+        model.setCheckState(build, CheckboxTreeNode.UNCHECKED, false, false);
+        model.setIgnored(build, true);
+        model.setChildrenLoader(build, (loadingModel, node) -> fail("Placeholder should not be loaded"));
+        return model;
+    }
+
+    private static String dump(CheckableTreeView model, Object node) {
+        StringBuilder text = new StringBuilder(model.getName(node));
+        if (model.getChildCount(node) > 0) {
+            text.append('[');
+            for (int i = 0; i < model.getChildCount(node); i++) {
+                text.append(i > 0 ? " " : "").append(dump(model, model.getChild(node, i)));
+            }
+            text.append(']');
+        }
+        return text.toString();
+    }
+
+    @Test
+    public void testShowsMatchesAndTheirFolders() {
+        for (CheckableTreeModel model : List.of(
+                createTree(new CheckboxTreeModel(new CheckboxTreeNode("Root", true))),
+                createTree(new CompactTreeModel("Root", true)))) {
+            NameIndex index = NameIndex.build(model);
+            FilteredTreeModel filtered = new FilteredTreeModel(model, index, index.search("user"));
+
+            assertEquals("Root[api[UserController.java UserService.java] web[user.ts]]",
+                    dump(filtered, filtered.getRoot()));
+            assertEquals(6, filtered.getShownCount());
+
+            Object web = filtered.getChild(filtered.getRoot(), 1);
+            assertEquals(1, filtered.getIndexOfChild(filtered.getRoot(), web));
+            assertEquals(-1, filtered.getIndexOfChild(web, filtered.getChild(filtered.getRoot(), 0)));
+            assertNull(filtered.getChild(web, 1));
+            assertTrue(filtered.isLeaf(filtered.getChild(web, 0)));
+        }
+    }
+
+    @Test
+    public void testNoMatchesShowsTheRootOnly() {
+        CheckableTreeModel model = createTree(new CompactTreeModel("Root", true));
+        NameIndex index = NameIndex.build(model);
+        FilteredTreeModel filtered = new FilteredTreeModel(model, index, index.search("missing"));
+
+        assertEquals("Root", dump(filtered, filtered.getRoot()));
+        assertEquals(1, filtered.getShownCount());
+    }
+
+    @Test
+    public void testCheckingGoesToTheWholeSubtree() {
+        CheckableTreeModel model = createTree(new CheckboxTreeModel(new CheckboxTreeNode("Root", true)));
+        NameIndex index = NameIndex.build(model);
+        FilteredTreeModel filtered = new FilteredTreeModel(model, index, index.search("user.ts"));
+        List<TreeModelEvent> events = new ArrayList<>();
+        model.addTreeModelListener(new TreeModelListener() {
+            @Override
+            public void treeNodesChanged(TreeModelEvent e) {
+                events.add(e);
+            }
+
+            @Override
+            public void treeNodesInserted(TreeModelEvent e) {
+                fail("Structure should not change");
+            }
+
+            @Override
+            public void treeNodesRemoved(TreeModelEvent e) {
+                fail("Structure should not change");
+            }
+
+            @Override
+            public void treeStructureChanged(TreeModelEvent e) {
+                fail("Structure should not change");
+            }
+        });
+
+        // app.ts is not shown but is in the unchecked folder
+        Object web = filtered.getChild(filtered.getRoot(), 0);
+        filtered.setCheckState(web, CheckboxTreeNode.UNCHECKED);
+        filtered.fireNodesChanged(filtered.getRoot(), new int[]{0});
+
+        assertEquals(CheckboxTreeNode.UNCHECKED, model.getCheckState(model.getChild(web, 1)));
+        assertEquals(CheckboxTreeNode.INDETERMINATE, model.getCheckState(model.getRoot()));
+        assertEquals("The filtered model hears of the change", 1, events.size());
+    }
+
+    @Test
+    public void testCheckStateOfAllMatches() {
+        for (CheckableTreeModel model : List.of(
+                createTree(new CheckboxTreeModel(new CheckboxTreeNode("Root", true))),
+                createTree(new CompactTreeModel("Root", true)))) {
+            Object root = model.getRoot();
+            NameIndex index = NameIndex.build(model);
+
+            TreeSearch.setCheckState(model, index, index.search("user"), CheckboxTreeNode.UNCHECKED);
+            Object api = model.getChild(root, 0);
+            Object web = model.getChild(root, 2);
+            assertEquals(CheckboxTreeNode.UNCHECKED, model.getCheckState(api));
+            assertEquals(CheckboxTreeNode.INDETERMINATE, model.getCheckState(web));
+            assertEquals(CheckboxTreeNode.CHECKED, model.getCheckState(model.getChild(web, 1)));
+
+            // Checking all matches of "u" leaves the gitignored build placeholder alone
+            model.uncheckAll(root, true);
+            TreeSearch.setCheckState(model, index, index.search("u"), CheckboxTreeNode.CHECKED);
+            assertEquals(CheckboxTreeNode.UNCHECKED, model.getCheckState(model.getChild(root, 1)));
+            assertEquals(CheckboxTreeNode.CHECKED, model.getCheckState(api));
+            assertEquals(CheckboxTreeNode.INDETERMINATE, model.getCheckState(web));
+        }
+    }
+
+    @Test
+    public void testIndexIsDroppedWhenTheTreeChanges() {
+        CheckableTreeModel model = createTree(new CompactTreeModel("Root", true));
+        int[] invalidations = new int[1];
+        TreeSearch search = new TreeSearch(model, () -> invalidations[0]++);
+
+        NameIndex index = search.getIndex();
+        assertSame(index, search.getIndex());
+        model.setCheckState(model.getChild(model.getRoot(), 0), CheckboxTreeNode.UNCHECKED);
+        model.fireNodesChanged(model.getRoot(), new int[]{0});
+        assertTrue("Check states do not drop the index", search.hasIndex());
+
+        model.fireSubtreeChanged(model.getChild(model.getRoot(), 0));
+        assertFalse(search.hasIndex());
+        assertEquals(1, invalidations[0]);
+        assertNotSame(index, search.getIndex());
+    }
+}
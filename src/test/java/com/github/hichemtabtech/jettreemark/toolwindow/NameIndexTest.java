@@ -0,0 +1,102 @@
+package com.github.hichemtabtech.jettreemark.toolwindow;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link NameIndex}
+ */
+public class NameIndexTest {
+
+    private static CheckableTreeModel createTree(CheckableTreeModel model) {
+        // Root
+        // ├── src
+        // │   ├── main
+        // │   │   └── TreeViewPanel.java
+        // │   └── test
+        // │       └── TreeViewPanelTest.java
+        // ├── docs (not loaded)
+        // └── README.md
+        Object root = model.getRoot();
+        Object src = model.addChild(root, "src", true);
+        Object docs = model.addChild(root, "docs", true);
+        model.addChild(root, "README.md", false);
+        Object main = model.addChild(src, "main", true);
+        Object test = model.addChild(src, "test", true);
+        model.addChild(main, "TreeViewPanel.java", false);
+        model.addChild(test, "TreeViewPanelTest.java", false);
+        model.setChildrenLoader(docs, (loadingModel, node) -> loadingModel.addChild(node, "panel.md", false));
+        return model;
+    }
+
+    private static List<String> names(CheckableTreeModel model, NameIndex index, int[] slots) {
+        List<String> names = new ArrayList<>();
+        for (int slot : slots) {
+            names.add(model.getName(index.getNode(slot)));
+        }
+        return names;
+    }
+
+    @Test
+    public void testSearchIgnoresCase() {
+        for (CheckableTreeModel model : List.of(
+                createTree(new CheckboxTreeModel(new CheckboxTreeNode("Root", true))),
+                createTree(new CompactTreeModel("Root", true)))) {
+            NameIndex index = NameIndex.build(model);
+
+            assertEquals(List.of("TreeViewPanel.java", "TreeViewPanelTest.java"),
+                    names(model, index, index.search("viewpanel")));
+            assertEquals(List.of("TreeViewPanelTest.java"), names(model, index, index.search("PanelTest")));
+            assertEquals(List.of("README.md"), names(model, index, index.search(".MD")));
+            assertEquals(0, index.search("nothing").length);
+            assertEquals(0, index.search("").length);
+        }
+    }
+
+    @Test
+    public void testShortQueries() {
+        CheckableTreeModel model = createTree(new CompactTreeModel("Root", true));
+        NameIndex index = NameIndex.build(model);
+
+        // In breadth-first order
+        assertEquals(List.of("README.md", "main", "TreeViewPanel.java", "TreeViewPanelTest.java"),
+                names(model, index, index.search("a")));
+        assertEquals(List.of("test", "TreeViewPanelTest.java"), names(model, index, index.search("st")));
+    }
+
+    @Test
+    public void testParentsAndUnloadedFolders() {
+        CheckableTreeModel model = createTree(new CheckboxTreeModel(new CheckboxTreeNode("Root", true)));
+        NameIndex index = NameIndex.build(model);
+
+        // Root, its 3 children, main and test, their 2 files: docs stays unloaded
+        assertEquals(8, index.size());
+        assertFalse(model.isChildrenLoaded(model.getChild(model.getRoot(), 1)));
+        assertEquals(0, index.search("panel.md").length);
+
+        int[] matches = index.search("TreeViewPanel.java");
+        assertEquals(1, matches.length);
+        int main = index.getParent(matches[0]);
+        assertEquals("main", model.getName(index.getNode(main)));
+        assertEquals("src", model.getName(index.getNode(index.getParent(main))));
+        assertEquals(0, index.getParent(index.getParent(main)));
+        assertEquals(-1, index.getParent(0));
+    }
+
+    @Test
+    public void testNamesRepeatingTrigrams() {
+        CheckableTreeModel model = new CompactTreeModel("Root", true);
+        for (String name : List.of("aaaa", "aaab", "abab", "baaa")) {
+            model.addChild(model.getRoot(), name, false);
+        }
+        NameIndex index = NameIndex.build(model);
+
+        assertEquals(List.of("aaaa", "aaab", "baaa"), names(model, index, index.search("aaa")));
+        assertEquals(List.of("aaaa"), names(model, index, index.search("aaaa")));
+        assertEquals(List.of("abab"), names(model, index, index.search("bab")));
+    }
+}
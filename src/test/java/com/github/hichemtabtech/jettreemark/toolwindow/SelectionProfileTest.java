@@ -0,0 +1,119 @@
+package com.github.hichemtabtech.jettreemark.toolwindow;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link SelectionProfile}
+ */
+public class SelectionProfileTest {
+
+    private static CheckableTreeModel createTree(CheckableTreeModel model) {
+        // Root
+        // ├── backend
+        // │   ├── src
+        // │   │   └── Server.java
+        // │   └── test (not loaded)
+        // ├── frontend
+        // │   └── app.ts
+        // ├── build (ignored placeholder)
+        // └── README.md
+        Object root = model.getRoot();
+        Object backend = model.addChild(root, "backend", true);
+        Object frontend = model.addChild(root, "frontend", true);
+        Object build = model.addChild(root, "build", true);
+        model.addChild(root, "README.md", false);
+        Object src = model.addChild(backend, "src", true);
+        Object test = model.addChild(backend, "test", true);
+        model.addChild(frontend, "app.ts", false);
+        model.addChild(src, "Server.java", false);
+
+        model.setCheckState(build, CheckboxTreeNode.UNCHECKED, false, false);
+        model.setIgnored(build, true);
+        model.setChildrenLoader(build, (loadingModel, node) -> fail("Placeholder should not be loaded"));
+        model.setChildrenLoader(test, (loadingModel, node) -> loadingModel.addChild(node, "ServerTest.java", false));
+        return model;
+    }
+
+    private static Object child(CheckableTreeModel model, Object node, String name) {
+        for (int i = 0; i < model.getChildCount(node); i++) {
+            if (model.getName(model.getChild(node, i)).equals(name)) {
+                return model.getChild(node, i);
+            }
+        }
+        throw new AssertionError("No child " + name);
+    }
+
+    @Test
+    public void testCaptureKeepsOnlyChangedSubtrees() {
+        CheckableTreeModel model = createTree(new CompactTreeModel("Root", true));
+        Object root = model.getRoot();
+
+        // "Backend without tests"
+        model.uncheckAll(root, true);
+        Object backend = child(model, root, "backend");
+        model.setCheckState(backend, CheckboxTreeNode.CHECKED);
+        model.setCheckState(child(model, backend, "test"), CheckboxTreeNode.UNCHECKED);
+
+        // backend is only partly checked, its checked part is saved instead
+        assertEquals(List.of("-", "+backend/src"), SelectionProfile.capture(model));
+    }
+
+    @Test
+    public void testApplyToNewTree() {
+        for (CheckableTreeModel model : List.of(
+                createTree(new CheckboxTreeModel(new CheckboxTreeNode("Root", true))),
+                createTree(new CompactTreeModel("Root", true)))) {
+            Object root = model.getRoot();
+            Object backend = child(model, root, "backend");
+            Object test = child(model, backend, "test");
+
+            List<Object> loaded = SelectionProfile.apply(model,
+                    List.of("-", "+backend", "-backend/test/ServerTest.java", "+docs"));
+
+            assertEquals("Only the folder holding an entry is loaded", List.of(test), loaded);
+            assertEquals(CheckboxTreeNode.UNCHECKED, model.getCheckState(child(model, test, "ServerTest.java")));
+            assertEquals(CheckboxTreeNode.UNCHECKED, model.getCheckState(test));
+            assertEquals(CheckboxTreeNode.CHECKED, model.getCheckState(child(model, backend, "src")));
+            assertEquals(CheckboxTreeNode.CHECKED,
+                    model.getCheckState(child(model, child(model, backend, "src"), "Server.java")));
+            assertEquals(CheckboxTreeNode.INDETERMINATE, model.getCheckState(backend));
+            assertEquals(CheckboxTreeNode.UNCHECKED, model.getCheckState(child(model, root, "frontend")));
+            assertEquals(CheckboxTreeNode.INDETERMINATE, model.getCheckState(root));
+        }
+    }
+
+    @Test
+    public void testCheckingSkipsIgnoredPlaceholders() {
+        CheckableTreeModel model = createTree(new CheckboxTreeModel(new CheckboxTreeNode("Root", true)));
+        Object root = model.getRoot();
+        model.uncheckAll(root, true);
+
+        SelectionProfile.apply(model, List.of("+"));
+        assertEquals(CheckboxTreeNode.UNCHECKED, model.getCheckState(child(model, root, "build")));
+        assertEquals(CheckboxTreeNode.CHECKED, model.getCheckState(child(model, root, "README.md")));
+
+        // Unless the profile names them
+        SelectionProfile.apply(model, List.of("+", "+build"));
+        assertEquals(CheckboxTreeNode.CHECKED, model.getCheckState(child(model, root, "build")));
+        assertEquals(CheckboxTreeNode.CHECKED, model.getCheckState(root));
+    }
+
+    @Test
+    public void testRoundTrip() {
+        CheckableTreeModel model = createTree(new CompactTreeModel("Root", true));
+        Object root = model.getRoot();
+        model.setCheckState(child(model, root, "frontend"), CheckboxTreeNode.UNCHECKED);
+        model.setCheckState(child(model, child(model, root, "backend"), "test"), CheckboxTreeNode.UNCHECKED);
+        List<String> paths = SelectionProfile.capture(model);
+
+        CheckableTreeModel other = createTree(new CheckboxTreeModel(new CheckboxTreeNode("Root", true)));
+        SelectionProfile.apply(other, paths);
+        assertEquals(paths, SelectionProfile.capture(other));
+        assertFalse("Unloaded folders stay unloaded",
+                other.isChildrenLoaded(child(other, child(other, other.getRoot(), "backend"), "test")));
+    }
+}
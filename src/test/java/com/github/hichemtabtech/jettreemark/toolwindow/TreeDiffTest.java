@@ -0,0 +1,140 @@
+package com.github.hichemtabtech.jettreemark.toolwindow;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link TreeDiff}
+ */
+public class TreeDiffTest {
+
+    private static CheckableTreeModel createLeft(CheckableTreeModel model) {
+        // Root
+        // ├── api
+        // │   ├── UserController.java
+        // │   └── UserService.java
+        // ├── build (ignored placeholder)
+        // ├── docs
+        // │   └── guide.md
+        // ├── lib
+        // └── README.md
+        Object root = model.getRoot();
+        Object api = model.addChild(root, "api", true);
+        Object build = model.addChild(root, "build", true);
+        Object docs = model.addChild(root, "docs", true);
+        model.addChild(root, "lib", false);
+        model.addChild(root, "README.md", false);
+        model.addChild(api, "UserController.java", false);
+        model.addChild(api, "UserService.java", false);
+        model.addChild(docs, "guide.md", false);
+
+        model.setIgnored(build, true);
+        model.setChildrenLoader(build, (loadingModel, node) -> fail("Placeholder should not be loaded"));
+        return model;
+    }
+
+    private static CheckableTreeModel createRight(CheckableTreeModel model) {
+        // Root
+        // ├── api
+        // │   ├── UserService.java
+        // │   └── UserController.java
+        // ├── build (ignored placeholder)
+        // ├── docs
+        // │   ├── guide.md
+        // │   └── setup.md
+        // ├── lib
+        // │   └── a.jar
+        // └── LICENSE
+        Object root = model.getRoot();
+        Object api = model.addChild(root, "api", true);
+        Object build = model.addChild(root, "build", true);
+        Object docs = model.addChild(root, "docs", true);
+        Object lib = model.addChild(root, "lib", true);
+        model.addChild(root, "LICENSE", false);
+        // Listed out of name order
+        model.addChild(api, "UserService.java", false);
+        model.addChild(api, "UserController.java", false);
+        model.addChild(docs, "guide.md", false);
+        model.addChild(docs, "setup.md", false);
+        model.addChild(lib, "a.jar", false);
+
+        model.setIgnored(build, true);
+        model.setChildrenLoader(build, (loadingModel, node) -> fail("Placeholder should not be loaded"));
+        return model;
+    }
+
+    private static String dump(TreeDiff.Entry entry) {
+        StringBuilder text = new StringBuilder(entry.getName()).append(':').append(entry.getStatus());
+        if (entry.getChildCount() > 0) {
+            text.append('[');
+            for (int i = 0; i < entry.getChildCount(); i++) {
+                text.append(i > 0 ? " " : "").append(dump(entry.getChild(i)));
+            }
+            text.append(']');
+        }
+        return text.toString();
+    }
+
+    @Test
+    public void testFindsAddedRemovedAndChangedEntries() {
+        for (List<CheckableTreeModel> models : List.of(
+                List.of(createLeft(new CheckboxTreeModel(new CheckboxTreeNode("Root", true))),
+                        createRight(new CheckboxTreeModel(new CheckboxTreeNode("Root", true)))),
+                List.of(createLeft(new CompactTreeModel("Root", true)),
+                        createRight(new CompactTreeModel("Root", true))))) {
+            TreeDiff diff = TreeDiff.compare(models.get(0), models.get(1));
+
+            assertEquals("Root:CHANGED[LICENSE:ADDED README.md:REMOVED api:UNCHANGED build:NOT_READ"
+                    + " docs:CHANGED[guide.md:UNCHANGED setup.md:ADDED] lib:CHANGED]", dump(diff.getRoot()));
+            assertEquals(2, diff.getAddedCount());
+            assertEquals(1, diff.getRemovedCount());
+            assertEquals("The file that became a folder and the folder holding a new file", 2, diff.getChangedCount());
+        }
+    }
+
+    @Test
+    public void testUnchangedFoldersAreCollapsed() {
+        TreeDiff diff = TreeDiff.compare(
+                createLeft(new CheckboxTreeModel(new CheckboxTreeNode("Root", true))),
+                createLeft(new CompactTreeModel("Root", true)));
+
+        TreeDiff.Entry root = diff.getRoot();
+        assertEquals(TreeDiff.Status.UNCHANGED, root.getStatus());
+        assertEquals("The root still shows its entries", 5, diff.getChildCount(root));
+        // Entries come in name order, upper case first
+        TreeDiff.Entry api = root.getChild(1);
+        assertEquals("api", api.getName());
+        assertTrue(api.isFolder());
+        assertTrue("An unchanged folder has no rows below it", diff.isLeaf(api));
+        assertEquals(0, diff.getAddedCount() + diff.getRemovedCount() + diff.getChangedCount());
+    }
+
+    @Test
+    public void testDeepChangeMarksEveryFolderAbove() {
+        CheckableTreeModel left = new CompactTreeModel("Root", true);
+        CheckableTreeModel right = new CompactTreeModel("Root", true);
+        Object leftFolder = left.getRoot();
+        Object rightFolder = right.getRoot();
+        for (int depth = 0; depth < 500; depth++) {
+            leftFolder = left.addChild(leftFolder, "level" + depth, true);
+            rightFolder = right.addChild(rightFolder, "level" + depth, true);
+        }
+        right.addChild(rightFolder, "deep.txt", false);
+
+        TreeDiff diff = TreeDiff.compare(left, right);
+
+        TreeDiff.Entry entry = diff.getRoot();
+        for (int depth = 0; depth < 500; depth++) {
+            assertEquals(TreeDiff.Status.CHANGED, entry.getStatus());
+            assertEquals(1, entry.getChildCount());
+            entry = entry.getChild(0);
+        }
+        assertEquals(TreeDiff.Status.CHANGED, entry.getStatus());
+        assertEquals("deep.txt:ADDED", dump(entry.getChild(0)));
+        assertEquals(1, diff.getAddedCount());
+        assertEquals(500, diff.getChangedCount());
+    }
+}
@@ -0,0 +1,111 @@
+package com.github.hichemtabtech.jettreemark.toolwindow;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.swing.*;
+import javax.swing.event.TreeExpansionEvent;
+import javax.swing.event.TreeExpansionListener;
+import javax.swing.tree.TreePath;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link TreeExpander}
+ */
+public class TreeExpanderTest {
+    private CheckboxTreeNode rootNode;
+    private CheckboxTreeNode folderNode;
+    private CheckboxTreeNode subFolderNode;
+    private CheckboxTreeNode ignoredNode;
+    private JTree tree;
+    private final List<String> events = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        // Root
+        // ├── Folder
+        // │   ├── SubFolder
+        // │   │   └── Deep
+        // │   └── File1
+        // ├── Ignored (gitignored, its children are loaded on demand)
+        // └── Readme
+        rootNode = new CheckboxTreeNode("Root", true);
+        folderNode = new CheckboxTreeNode("Folder", true);
+        subFolderNode = new CheckboxTreeNode("SubFolder", true);
+        ignoredNode = new CheckboxTreeNode("Ignored", true);
+        rootNode.add(folderNode);
+        folderNode.add(subFolderNode);
+        subFolderNode.add(new CheckboxTreeNode("Deep", false));
+        folderNode.add(new CheckboxTreeNode("File1", false));
+        rootNode.add(ignoredNode);
+        rootNode.add(new CheckboxTreeNode("Readme", false));
+
+        CheckboxTreeModel model = new CheckboxTreeModel(rootNode);
+        model.setIgnored(ignoredNode, true);
+        model.setChildrenLoader(ignoredNode, (m, node) -> m.addChild(node, "Hidden", false));
+
+        tree = new JTree(model);
+        assertEquals(4, tree.getRowCount());
+
+        tree.addTreeExpansionListener(new TreeExpansionListener() {
+            @Override
+            public void treeExpanded(TreeExpansionEvent event) {
+                events.add("expanded " + event.getPath().getLastPathComponent());
+            }
+
+            @Override
+            public void treeCollapsed(TreeExpansionEvent event) {
+                events.add("collapsed " + event.getPath().getLastPathComponent());
+            }
+        });
+    }
+
+    @Test
+    public void testExpandAllNotifiesOnce() {
+        assertTrue(TreeExpander.expandAll(tree, 100));
+
+        // Root, Folder, SubFolder, Deep, File1, Ignored and Readme
+        assertEquals(7, tree.getRowCount());
+        assertTrue(tree.isExpanded(new TreePath(subFolderNode.getPath())));
+        assertEquals(List.of("expanded Root"), events);
+    }
+
+    @Test
+    public void testExpandAllLeavesIgnoredFoldersUnread() {
+        TreeExpander.expandAll(tree, 100);
+
+        assertFalse(tree.isExpanded(new TreePath(ignoredNode.getPath())));
+        assertFalse(ignoredNode.isChildrenLoaded());
+    }
+
+    @Test
+    public void testExpandAllStopsAtRowLimit() {
+        // Expanding Folder makes 6 rows, expanding SubFolder would make 7
+        assertFalse(TreeExpander.expandAll(tree, 6));
+
+        assertEquals(6, tree.getRowCount());
+        assertTrue(tree.isExpanded(new TreePath(folderNode.getPath())));
+        assertFalse(tree.isExpanded(new TreePath(subFolderNode.getPath())));
+    }
+
+    @Test
+    public void testCollapseAllKeepsFirstLevel() {
+        TreeExpander.expandAll(tree, 100);
+        tree.setSelectionPath(new TreePath(subFolderNode.getPath()).pathByAddingChild(subFolderNode.getChildAt(0)));
+        events.clear();
+
+        TreeExpander.collapseAll(tree);
+
+        assertEquals(4, tree.getRowCount());
+        assertFalse(tree.isExpanded(new TreePath(folderNode.getPath())));
+        assertEquals(new TreePath(folderNode.getPath()), tree.getSelectionPath());
+        assertTrue(events.isEmpty());
+
+        // Folders expanded before the collapse come back collapsed
+        tree.expandPath(new TreePath(folderNode.getPath()));
+        assertEquals(6, tree.getRowCount());
+    }
+}
@@ -0,0 +1,173 @@
+package com.github.hichemtabtech.jettreemark.toolwindow;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link TreeSnapshot}
+ */
+public class TreeSnapshotTest {
+
+    /**
+     * Restores the folders of a snapshot from fixed time stamps, recording the folders left to load.
+     */
+    private static class TestRestorer implements TreeSnapshot.Restorer {
+        private final Map<String, Long> timeStamps = new HashMap<>();
+        private final List<String> lazyFolders = new ArrayList<>();
+
+        @Override
+        public long getTimeStamp(@NotNull String relativePath) {
+            return timeStamps.getOrDefault(relativePath, -1L);
+        }
+
+        @Override
+        public void setUpFolder(@NotNull CheckableTreeModel model, @NotNull Object node, @NotNull String relativePath) {
+            lazyFolders.add(relativePath);
+            model.setChildrenLoader(node, (loadingModel, folderNode) -> loadingModel.addChild(folderNode, "Late", false));
+        }
+    }
+
+    private static CheckableTreeModel createTree(CheckableTreeModel model) {
+        // Root
+        // ├── src
+        // │   ├── main
+        // │   │   └── App.java
+        // │   └── Util.java (unchecked)
+        // ├── build (ignored placeholder)
+        // ├── docs (not loaded)
+        // └── README.md
+        Object root = model.getRoot();
+        Object src = model.addChild(root, "src", true);
+        Object build = model.addChild(root, "build", true);
+        Object docs = model.addChild(root, "docs", true);
+        model.addChild(root, "README.md", false);
+        Object main = model.addChild(src, "main", true);
+        Object util = model.addChild(src, "Util.java", false);
+        model.addChild(main, "App.java", false);
+
+        model.setCheckState(util, CheckboxTreeNode.UNCHECKED);
+        model.setCheckState(build, CheckboxTreeNode.UNCHECKED, false, false);
+        model.setIgnored(build, true);
+        model.setChildrenLoader(build, (loadingModel, node) -> fail("Placeholder should not be loaded"));
+        model.setChildrenLoader(docs, (loadingModel, node) -> loadingModel.addChild(node, "guide.md", false));
+        return model;
+    }
+
+    private static String dump(CheckableTreeModel model, Object node) {
+        StringBuilder text = new StringBuilder(model.getDisplayName(node)).append(model.getCheckState(node));
+        if (model.isIgnored(node)) {
+            text.append('!');
+        }
+        if (model.isChildrenLoaded(node) && model.getChildCount(node) > 0) {
+            text.append('[');
+            for (int i = 0; i < model.getChildCount(node); i++) {
+                text.append(i > 0 ? " " : "").append(dump(model, model.getChild(node, i)));
+            }
+            text.append(']');
+        }
+        return text.toString();
+    }
+
+    @Test
+    public void testRoundTripKeepsStatesAndUnloadedFolders() throws IOException {
+        CheckableTreeModel model = createTree(new CheckboxTreeModel(new CheckboxTreeNode("Root", true)));
+        byte[] snapshot = TreeSnapshot.write(model, path -> 7);
+
+        for (CheckableTreeModel restored : List.of(
+                new CheckboxTreeModel(new CheckboxTreeNode("Root", true)),
+                new CompactTreeModel("Root", true))) {
+            TestRestorer restorer = new TestRestorer();
+            restorer.timeStamps.put("", 7L);
+            restorer.timeStamps.put("src", 7L);
+            restorer.timeStamps.put("src/main", 7L);
+
+            assertEquals(List.of(), TreeSnapshot.read(snapshot, restored, restorer));
+            assertEquals(dump(model, model.getRoot()), dump(restored, restored.getRoot()));
+            assertEquals(List.of("build", "docs"), restorer.lazyFolders);
+
+            // Folders that were not loaded get a loader again
+            Object docs = restored.getChild(restored.getRoot(), 2);
+            assertFalse(restored.isChildrenLoaded(docs));
+            assertTrue(restored.ensureChildrenLoaded(docs));
+            assertEquals("Late", restored.getName(restored.getChild(docs, 0)));
+        }
+    }
+
+    @Test
+    public void testChangedFoldersAreReported() throws IOException {
+        CheckableTreeModel model = createTree(new CompactTreeModel("Root", true));
+        byte[] snapshot = TreeSnapshot.write(model, path -> path.length());
+
+        TestRestorer restorer = new TestRestorer();
+        restorer.timeStamps.put("", 0L);
+        restorer.timeStamps.put("src", 42L);
+        List<String> staleFolders = TreeSnapshot.read(snapshot, new CompactTreeModel("Root", true), restorer);
+
+        // src changed and src/main is gone
+        assertEquals(List.of("src", "src/main"), staleFolders);
+    }
+
+    @Test
+    public void testCaptureIsWrittenAsTheTreeWas() throws IOException {
+        CheckableTreeModel model = createTree(new CompactTreeModel("Root", true));
+        String before = dump(model, model.getRoot());
+        TreeSnapshot.Capture capture = TreeSnapshot.capture(model);
+
+        // The tree changes while the capture waits to be written
+        model.setCheckState(model.getRoot(), CheckboxTreeNode.UNCHECKED);
+        model.ensureChildrenLoaded(model.getChild(model.getRoot(), 2));
+        byte[] snapshot = capture.write(path -> 7);
+
+        TestRestorer restorer = new TestRestorer();
+        restorer.timeStamps.put("", 7L);
+        restorer.timeStamps.put("src", 7L);
+        restorer.timeStamps.put("src/main", 7L);
+        CheckableTreeModel restored = new CompactTreeModel("Root", true);
+        assertEquals(List.of(), TreeSnapshot.read(snapshot, restored, restorer));
+        assertEquals(before, dump(restored, restored.getRoot()));
+    }
+
+    @Test
+    public void testSnapshotIsCompact() {
+        CheckableTreeModel model = new CompactTreeModel("Root", true);
+        Object[] folders = new Object[100];
+        for (int i = 0; i < folders.length; i++) {
+            folders[i] = model.addChild(model.getRoot(), "module" + i, true);
+        }
+        for (Object folder : folders) {
+            for (int i = 0; i < 100; i++) {
+                model.addChild(folder, "File" + i + ".java", false);
+            }
+        }
+
+        // 10,100 nodes sharing 200 names: a few bytes per node for the structure and two bits for the state
+        byte[] snapshot = TreeSnapshot.write(model, path -> 1);
+        assertTrue("Snapshot takes " + snapshot.length + " bytes", snapshot.length < 40_000);
+    }
+
+    @Test
+    public void testCorruptSnapshotIsRejected() {
+        byte[] snapshot = TreeSnapshot.write(createTree(new CompactTreeModel("Root", true)), path -> 1);
+
+        for (byte[] corrupt : List.of(
+                Arrays.copyOf(snapshot, snapshot.length - 1),
+                Arrays.copyOf(snapshot, snapshot.length + 1),
+                new byte[]{'J', 'T', 'M', 99})) {
+            try {
+                TreeSnapshot.read(corrupt, new CompactTreeModel("Root", true), new TestRestorer());
+                fail("Corrupt snapshot was read");
+            } catch (IOException expected) {
+                // The tab is scanned again instead
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.github.hichemtabtech.jettreemark.toolwindow;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.newvfs.events.VFileCreateEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for {@link TreeSync}
+ */
+public class TreeSyncTest {
+    private VirtualFile rootFolder;
+    private VirtualFile srcFolder;
+    private VirtualFile docsFolder;
+    private VirtualFile readme;
+    private VirtualFile notes;
+    private CheckboxTreeNode rootNode;
+    private CheckboxTreeNode srcNode;
+    private CheckboxTreeNode docsNode;
+    private TreeSync treeSync;
+    private final List<String> setUpNames = new ArrayList<>();
+
+    private static VirtualFile file(VirtualFile parent, String name, boolean directory) {
+        VirtualFile file = mock(VirtualFile.class);
+        when(file.getName()).thenReturn(name);
+        when(file.getPath()).thenReturn(parent == null ? "/" + name : parent.getPath() + "/" + name);
+        when(file.getParent()).thenReturn(parent);
+        when(file.isDirectory()).thenReturn(directory);
+        when(file.isValid()).thenReturn(true);
+        return file;
+    }
+
+    @Before
+    public void setUp() {
+        // project
+        // ├── src (loaded)
+        // │   └── Main.java
+        // ├── docs (not loaded)
+        // ├── README.md
+        // └── notes.txt (unchecked)
+        rootFolder = file(null, "project", true);
+        srcFolder = file(rootFolder, "src", true);
+        docsFolder = file(rootFolder, "docs", true);
+        readme = file(rootFolder, "README.md", false);
+        notes = file(rootFolder, "notes.txt", false);
+        when(rootFolder.getChildren()).thenReturn(new VirtualFile[]{srcFolder, docsFolder, readme, notes});
+        when(srcFolder.getChildren()).thenReturn(new VirtualFile[]{file(srcFolder, "Main.java", false)});
+
+        rootNode = new CheckboxTreeNode("project", true);
+        srcNode = new CheckboxTreeNode("src", true);
+        docsNode = new CheckboxTreeNode("docs", true);
+        rootNode.add(srcNode);
+        srcNode.add(new CheckboxTreeNode("Main.java", false));
+        rootNode.add(docsNode);
+        rootNode.add(new CheckboxTreeNode("README.md", false));
+        rootNode.add(new CheckboxTreeNode("notes.txt", false));
+        CheckboxTreeModel model = new CheckboxTreeModel(rootNode);
+        model.setChildrenLoader(docsNode, (m, node) -> m.addChild(node, "guide.md", false));
+        model.setCheckState(rootNode.getChildAt(3), CheckboxTreeNode.UNCHECKED);
+
+        treeSync = new TreeSync(new JTree(model), rootFolder, (m, parentFile, nodes, names, folders) -> {
+            for (String name : names) {
+                setUpNames.add(parentFile.getName() + "/" + name);
+            }
+        });
+    }
+
+    private List<String> childNames(CheckboxTreeNode node) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < node.getChildCount(); i++) {
+            names.add(node.getChildAt(i).toString());
+        }
+        return names;
+    }
+
+    @Test
+    public void testCreatedAndDeletedFilesUpdateTheirFolder() {
+        VirtualFile changelog = file(rootFolder, "CHANGELOG.md", false);
+        when(rootFolder.getChildren()).thenReturn(new VirtualFile[]{srcFolder, docsFolder, changelog, notes});
+
+        VFileCreateEvent create = mock(VFileCreateEvent.class);
+        when(create.getParent()).thenReturn(rootFolder);
+        VFileDeleteEvent delete = mock(VFileDeleteEvent.class);
+        when(delete.getFile()).thenReturn(readme);
+        treeSync.apply(TreeSync.Changes.of(List.of(create, delete)));
+
+        assertEquals(List.of("CHANGELOG.md", "src", "docs", "notes.txt"), childNames(rootNode));
+        assertEquals(List.of("project/CHANGELOG.md"), setUpNames);
+        assertSame("Remaining nodes are kept", srcNode, rootNode.getChildAt(1));
+        assertEquals(CheckboxTreeNode.UNCHECKED, ((CheckboxTreeNode) rootNode.getChildAt(3)).getCheckState());
+        assertEquals(CheckboxTreeNode.CHECKED, ((CheckboxTreeNode) rootNode.getChildAt(0)).getCheckState());
+    }
+
+    @Test
+    public void testRenamedFolderKeepsItsChildren() {
+        ((CheckboxTreeNode) srcNode.getChildAt(0)).setCheckState(CheckboxTreeNode.UNCHECKED);
+        when(srcFolder.getName()).thenReturn("lib");
+        when(srcFolder.getPath()).thenReturn("/project/lib");
+
+        VFilePropertyChangeEvent rename = mock(VFilePropertyChangeEvent.class);
+        when(rename.getPropertyName()).thenReturn(VirtualFile.PROP_NAME);
+        when(rename.getFile()).thenReturn(srcFolder);
+        when(rename.getOldValue()).thenReturn("src");
+        when(rename.getNewValue()).thenReturn("lib");
+        treeSync.apply(TreeSync.Changes.of(List.of(rename)));
+
+        assertSame(srcNode, rootNode.getChildAt(0));
+        assertEquals("lib/", srcNode.getDisplayName());
+        assertEquals(List.of("Main.java"), childNames(srcNode));
+        assertEquals(CheckboxTreeNode.UNCHECKED, srcNode.getCheckState());
+        assertTrue(setUpNames.isEmpty());
+    }
+
+    @Test
+    public void testMovedFileKeepsItsState() {
+        // notes.txt moves from the root folder into src
+        VirtualFile movedNotes = file(srcFolder, "notes.txt", false);
+        when(rootFolder.getChildren()).thenReturn(new VirtualFile[]{srcFolder, docsFolder, readme});
+        when(srcFolder.getChildren()).thenReturn(new VirtualFile[]{file(srcFolder, "Main.java", false), movedNotes});
+
+        VFileMoveEvent move = mock(VFileMoveEvent.class);
+        when(move.getFile()).thenReturn(movedNotes);
+        when(move.getOldParent()).thenReturn(rootFolder);
+        when(move.getNewParent()).thenReturn(srcFolder);
+        treeSync.apply(TreeSync.Changes.of(List.of(move)));
+
+        assertEquals(List.of("src", "docs", "README.md"), childNames(rootNode));
+        assertEquals(List.of("Main.java", "notes.txt"), childNames(srcNode));
+        assertEquals(CheckboxTreeNode.UNCHECKED, ((CheckboxTreeNode) srcNode.getChildAt(1)).getCheckState());
+        assertEquals(CheckboxTreeNode.INDETERMINATE, srcNode.getCheckState());
+        assertEquals(CheckboxTreeNode.INDETERMINATE, rootNode.getCheckState());
+    }
+
+    @Test
+    public void testFoldersNotLoadedAreLeftAlone() {
+        VirtualFile guide = file(docsFolder, "guide.md", false);
+        when(docsFolder.getChildren()).thenReturn(new VirtualFile[]{guide});
+
+        VFileCreateEvent create = mock(VFileCreateEvent.class);
+        when(create.getParent()).thenReturn(docsFolder);
+        treeSync.apply(TreeSync.Changes.of(List.of(create)));
+
+        assertFalse(docsNode.isChildrenLoaded());
+        verify(docsFolder, never()).getChildren();
+        assertTrue(setUpNames.isEmpty());
+    }
+}
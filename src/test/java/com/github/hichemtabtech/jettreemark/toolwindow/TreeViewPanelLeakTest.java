@@ -0,0 +1,236 @@
+package com.github.hichemtabtech.jettreemark.toolwindow;
+
+import com.github.hichemtabtech.jettreemark.scan.ScanExecutor;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.ui.components.JBTabbedPane;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.swing.*;
+import java.awt.*;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Checks that closed tabs and closed projects do not keep their trees in memory.
+ */
+public class TreeViewPanelLeakTest {
+    private static final int CYCLES = 10;
+    private static final int FILE_COUNT = 20_000;
+    private static final long TIMEOUT_MILLIS = 30_000;
+
+    private static VirtualFile rootFolder;
+
+    private static VirtualFile file(VirtualFile parent, String name, boolean directory) {
+        // Stub-only mocks do not record their calls, which would grow with every scan
+        VirtualFile file = mock(VirtualFile.class, withSettings().stubOnly());
+        when(file.getName()).thenReturn(name);
+        when(file.getPath()).thenReturn(parent == null ? "/" + name : parent.getPath() + "/" + name);
+        when(file.getUrl()).thenReturn("file://" + file.getPath());
+        when(file.getParent()).thenReturn(parent);
+        when(file.isDirectory()).thenReturn(directory);
+        when(file.isValid()).thenReturn(true);
+        return file;
+    }
+
+    @Before
+    public void setUp() {
+        // A flat folder, listed in full by the first scan of each tab
+        rootFolder = file(null, "project", true);
+        VirtualFile[] children = new VirtualFile[FILE_COUNT];
+        for (int i = 0; i < FILE_COUNT; i++) {
+            children[i] = file(rootFolder, "File" + i + ".java", false);
+        }
+        when(rootFolder.getChildren()).thenReturn(children);
+    }
+
+    private static Object getField(Object target, String name) throws Exception {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(target);
+    }
+
+    private static List<CheckableTreeModel> getOpenModels(TreeViewPanel panel) throws Exception {
+        List<CheckableTreeModel> models = new ArrayList<>();
+        for (Object openTab : (List<?>) getField(panel, "openTabs")) {
+            Method treeSync = openTab.getClass().getDeclaredMethod("treeSync");
+            treeSync.setAccessible(true);
+            models.add(((TreeSync) treeSync.invoke(openTab)).getModel());
+        }
+        return models;
+    }
+
+    /**
+     * Opens a tab on the root folder and waits for its tree.
+     */
+    private static CheckableTreeModel openTab(TreeViewPanel panel) throws Exception {
+        int openCount = onEdt(() -> getOpenModels(panel).size());
+        SwingUtilities.invokeAndWait(() -> panel.addFolderToTreeView(rootFolder));
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (onEdt(() -> getOpenModels(panel).size()) == openCount) {
+            assertTrue("The tab should be loaded", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+        return onEdt(() -> getOpenModels(panel).get(openCount));
+    }
+
+    /**
+     * Closes the last tab with its close button.
+     */
+    private static void closeLastTab(TreeViewPanel panel) throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+            try {
+                JBTabbedPane tabbedPane = (JBTabbedPane) getField(panel, "tabbedPane");
+                Container tabComponent = (Container) tabbedPane.getTabComponentAt(tabbedPane.getTabCount() - 1);
+                for (Component component : tabComponent.getComponents()) {
+                    if (component instanceof JButton closeButton) {
+                        closeButton.doClick();
+                    }
+                }
+            } catch (Exception e) {
+                throw new AssertionError(e);
+            }
+        });
+    }
+
+    private interface EdtCall<T> {
+        T call() throws Exception;
+    }
+
+    private static <T> T onEdt(EdtCall<T> call) throws Exception {
+        List<T> result = new ArrayList<>();
+        SwingUtilities.invokeAndWait(() -> {
+            try {
+                result.add(call.call());
+            } catch (Exception e) {
+                throw new AssertionError(e);
+            }
+        });
+        return result.get(0);
+    }
+
+    private static long usedHeapAfterGc(List<? extends WeakReference<?>> released) throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 20; i++) {
+            System.gc();
+            Thread.sleep(50);
+            if (released.stream().allMatch(reference -> reference.get() == null)) {
+                break;
+            }
+        }
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Opens a project panel with two tabs, closes one tab then the project. Runs in its own frame, so no local
+     * variable keeps the panel once it returns.
+     *
+     * @return the heap the open panel took, measured when asked
+     */
+    private static long runCycle(TreeViewPanelService service, List<WeakReference<Object>> released,
+                                 long baseline, boolean measure) throws Exception {
+        Disposable toolWindow = Disposer.newDisposable();
+        TreeViewPanel panel = onEdt(TreeViewPanel::new);
+        SwingUtilities.invokeAndWait(() -> service.setPanel(panel, toolWindow));
+
+        // A tab closed by the user
+        CheckableTreeModel model = openTab(panel);
+        assertEquals(FILE_COUNT, model.getChildCount(model.getRoot()));
+        long size = measure ? usedHeapAfterGc(released) - baseline : 0;
+        released.add(new WeakReference<>(model));
+        closeLastTab(panel);
+        assertTrue(onEdt(() -> getOpenModels(panel).isEmpty()));
+
+        // A tab still open when the project closes
+        released.add(new WeakReference<>(openTab(panel)));
+        released.add(new WeakReference<>(panel));
+        SwingUtilities.invokeAndWait(() -> Disposer.dispose(toolWindow));
+        assertTrue(panel.isDisposed());
+        assertNull(service.getPanel());
+        return size;
+    }
+
+    /**
+     * Opens three tabs on a folder whose listing blocks, so two scans run and the third waits for a slot,
+     * then disposes the panel. Runs in its own frame, so no local variable keeps the panel once it returns.
+     *
+     * @return the scan queue of the panel
+     */
+    private static ScanExecutor.Queue disposeWhileScanning(VirtualFile slowFolder, CountDownLatch listing,
+                                                           List<WeakReference<Object>> released) throws Exception {
+        TreeViewPanel panel = onEdt(TreeViewPanel::new);
+        ScanExecutor.Queue scans = (ScanExecutor.Queue) getField(panel, "scans");
+        SwingUtilities.invokeAndWait(() -> {
+            for (int i = 0; i < 3; i++) {
+                panel.addFolderToTreeView(slowFolder);
+            }
+        });
+        assertTrue("Two scans should be listing the folder", listing.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        assertEquals(2, scans.getRunningCount());
+        assertEquals(1, scans.getPendingCount());
+
+        released.add(new WeakReference<>(panel));
+        SwingUtilities.invokeAndWait(panel::dispose);
+        return scans;
+    }
+
+    @Test
+    public void testPanelIsReleasedWhenDisposedWithScansRunningAndWaiting() throws Exception {
+        VirtualFile slowFolder = file(null, "slow", true);
+        VirtualFile[] children = {file(slowFolder, "Main.java", false)};
+        CountDownLatch listing = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        when(slowFolder.getChildren()).thenAnswer(invocation -> {
+            listing.countDown();
+            release.await();
+            return children;
+        });
+
+        List<WeakReference<Object>> released = new ArrayList<>();
+        ScanExecutor.Queue scans = disposeWhileScanning(slowFolder, listing, released);
+        assertEquals("The waiting scan should be dropped", 0, scans.getPendingCount());
+
+        // The running scans finish their listing, then find their tabs cancelled
+        release.countDown();
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (scans.getRunningCount() > 0) {
+            assertTrue("The running scans should end", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+        SwingUtilities.invokeAndWait(() -> {
+        });
+
+        usedHeapAfterGc(released);
+        assertNull("The disposed panel is still reachable", released.get(0).get());
+    }
+
+    @Test
+    public void testHeapReturnsToBaselineAfterOpenCloseCycles() throws Exception {
+        TreeViewPanelService service = new TreeViewPanelService();
+        List<WeakReference<Object>> released = new ArrayList<>();
+        long baseline = usedHeapAfterGc(released);
+
+        long panelSize = runCycle(service, released, baseline, true);
+        for (int cycle = 1; cycle < CYCLES; cycle++) {
+            runCycle(service, released, baseline, false);
+        }
+
+        long used = usedHeapAfterGc(released);
+        for (int i = 0; i < released.size(); i++) {
+            assertNull("Released object " + i + " is still reachable", released.get(i).get());
+        }
+        assertTrue("Heap grew by " + (used - baseline) + " bytes, an open panel takes " + panelSize,
+                used - baseline < panelSize);
+    }
+}
@@ -1,21 +1,22 @@
 package com.github.hichemtabtech.jettreemark.toolwindow;
 
+import com.github.hichemtabtech.jettreemark.export.TreeTextWriter;
+import com.github.hichemtabtech.jettreemark.gitignore.GitignoreFiles;
+import com.github.hichemtabtech.jettreemark.gitignore.GitignoreRules;
+import com.github.hichemtabtech.jettreemark.scan.ScanProgress;
 import com.intellij.openapi.vfs.VirtualFile;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 
 import javax.swing.*;
-import javax.swing.tree.DefaultMutableTreeNode;
 import java.awt.*;
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
 import java.nio.charset.StandardCharsets;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -86,21 +87,65 @@ public class TreeViewPanelTest {
         assertTrue("Content panel should have components", content.getComponentCount() > 0);
     }
 
+    private static String generateTreeText(CheckboxTreeNode root) throws IOException {
+        StringBuilder text = new StringBuilder();
+        TreeViewPanel.writeTree(new TreeTextWriter(text), new CheckboxTreeModel(root), root, true);
+        return text.toString();
+    }
+
     @Test
     public void testGenerateTreeText() throws Exception {
-        // Use reflection to access the private method
-        Method generateTreeTextMethod = TreeViewPanel.class.getDeclaredMethod(
-                "generateTreeText", DefaultMutableTreeNode.class, String.class, boolean.class);
-        generateTreeTextMethod.setAccessible(true);
-
-        // Call the method with our test root node
-        String treeText = (String) generateTreeTextMethod.invoke(treeViewPanel, testRootNode, "", true);
+        // Write the text of our test root node
+        String treeText = generateTreeText(testRootNode);
 
         // Verify the text was generated
         assertNotNull("Tree text should not be null", treeText);
         assertTrue("Tree text should contain the root node name", treeText.contains("TestRoot"));
     }
 
+    @Test
+    public void testGenerateTreeTextSkipsUncheckedNodes() throws Exception {
+        CheckboxTreeNode readme = new CheckboxTreeNode("README.md", false);
+        CheckboxTreeNode log = new CheckboxTreeNode("build.log", false);
+        testRootNode.add(log);
+        testRootNode.add(readme);
+        log.setCheckState(CheckboxTreeNode.UNCHECKED);
+        ((CheckboxTreeNode) testRootNode.getChildAt(0).getChildAt(1)).setCheckState(CheckboxTreeNode.UNCHECKED);
+
+        String treeText = generateTreeText(testRootNode);
+
+        assertEquals("TestRoot/\n"
+                + "    ├── TestFolder/\n"
+                + "    │   └── TestFile1\n"
+                + "    └── README.md\n", treeText);
+    }
+
+    @Test
+    public void testClickUnchecksFolderHoldingIgnoredPlaceholder() {
+        for (CheckableTreeModel model : List.of(
+                new CheckboxTreeModel(new CheckboxTreeNode("Root", true)),
+                new CompactTreeModel("Root", true))) {
+            Object root = model.getRoot();
+            Object build = model.addChild(root, "build", true);
+            Object readme = model.addChild(root, "README.md", false);
+            model.setCheckState(build, CheckboxTreeNode.UNCHECKED, false, true);
+            model.setIgnored(build, true);
+            model.setChildrenLoader(build, (loadingModel, node) -> fail("Placeholder should not be loaded"));
+            assertEquals(CheckboxTreeNode.INDETERMINATE, model.getCheckState(root));
+
+            TreeViewPanel.toggleCheckState(model, root);
+            assertEquals(CheckboxTreeNode.UNCHECKED, model.getCheckState(root));
+            assertEquals(CheckboxTreeNode.UNCHECKED, model.getCheckState(readme));
+
+            // Checking skips the placeholder, the next click unchecks the folder again
+            TreeViewPanel.toggleCheckState(model, root);
+            assertEquals(CheckboxTreeNode.INDETERMINATE, model.getCheckState(root));
+            assertEquals(CheckboxTreeNode.CHECKED, model.getCheckState(readme));
+            TreeViewPanel.toggleCheckState(model, root);
+            assertEquals(CheckboxTreeNode.UNCHECKED, model.getCheckState(root));
+        }
+    }
+
     @Test
     public void testCheckboxTreeNodeFunctionality() {
         // Test that the root node is checked by default
@@ -144,104 +189,101 @@ public class TreeViewPanelTest {
     }
 
     @Test
-    public void testShouldIgnoreFile() throws Exception {
-        // Get the TreeBuilderWorker class
-        Class<?> treeBuilderWorkerClass = Class.forName(
-                "com.github.hichemtabtech.jettreemark.toolwindow.TreeViewPanel$TreeBuilderWorker");
-
-        // Create a mock VirtualFile for the root folder
-        VirtualFile mockRootFolder = mock(VirtualFile.class);
-        when(mockRootFolder.getName()).thenReturn("root");
-        when(mockRootFolder.getPath()).thenReturn("/project");
-        when(mockRootFolder.getChildren()).thenReturn(new VirtualFile[0]);
-
-        // Create an instance of TreeBuilderWorker using its constructor
-        Constructor<?> constructor = treeBuilderWorkerClass.getDeclaredConstructor(
-                TreeViewPanel.class, VirtualFile.class);
-        constructor.setAccessible(true);
-        Object treeBuilderWorker = constructor.newInstance(treeViewPanel, mockRootFolder);
-
-        // Get the shouldIgnoreFile method
-        Method shouldIgnoreFileMethod = treeBuilderWorkerClass.getDeclaredMethod(
-                "shouldIgnoreFile", VirtualFile.class);
-        shouldIgnoreFileMethod.setAccessible(true);
-
-        // Set up gitignorePatterns field with test patterns
-        Field gitignorePatternsField = treeBuilderWorkerClass.getDeclaredField("gitignorePatterns");
-        gitignorePatternsField.setAccessible(true);
-
-        Set<String> testPatterns = new HashSet<>();
+    public void testLoadCopiesReadsSiblingFoldersInParallel() {
+        // Two top folders with 40 sub-folders of 25 files each, every folder of a copy is read on the pool
+        CompactTreeModel model = new CompactTreeModel("Root", true);
+        List<CheckableTreeModel> copies = new ArrayList<>();
+        for (String name : new String[]{"api", "web"}) {
+            Object folder = model.addChild(model.getRoot(), name, true);
+            model.setChildrenLoader(folder, wideFolderLoader(copies, 40, 0));
+            copies.add(model.createLoadingCopy(folder));
+        }
+
+        TreeViewPanel.loadCopies(copies, (copy, folder) -> true, 4, new ScanProgress());
+
+        for (int i = 0; i < copies.size(); i++) {
+            Object folder = model.getChild(model.getRoot(), i);
+            assertTrue("Copy should be adopted", model.adoptChildren(folder, copies.get(i)));
+            assertEquals(40, model.getChildCount(folder));
+            for (int j = 0; j < 40; j++) {
+                Object subFolder = model.getChild(folder, j);
+                assertEquals("folder" + j, model.getName(subFolder));
+                assertTrue(model.isChildrenLoaded(subFolder));
+                assertEquals(25, model.getChildCount(subFolder));
+                assertEquals("file24", model.getName(model.getChild(subFolder, 24)));
+            }
+        }
+        assertEquals(1 + 2 + 2 * 40 + 2 * 40 * 25, model.size());
+    }
+
+    /**
+     * Loads a folder holding the given numbers of sub-folders and files, sub-folders holding 25 files each.
+     * The folder is read without holding any of the copies.
+     */
+    private static CheckableTreeModel.ChildrenLoader wideFolderLoader(List<CheckableTreeModel> copies,
+                                                                      int folderCount, int fileCount) {
+        return new CheckableTreeModel.ChildrenLoader() {
+            @Override
+            public void loadChildren(CheckableTreeModel model, Object node) {
+                read().loadChildren(model, node);
+            }
+
+            @Override
+            public CheckableTreeModel.ChildrenLoader read() {
+                for (CheckableTreeModel copy : copies) {
+                    assertFalse("Folders should be read outside the lock of the copy", Thread.holdsLock(copy));
+                }
+                return (model, node) -> {
+                    for (int i = 0; i < folderCount; i++) {
+                        Object folder = model.addChild(node, "folder" + i, true);
+                        model.setChildrenLoader(folder, wideFolderLoader(copies, 0, 25));
+                    }
+                    for (int i = 0; i < fileCount; i++) {
+                        model.addChild(node, "file" + i, false);
+                    }
+                };
+            }
+        };
+    }
+
+    @Test
+    public void testIsGitignored() {
+        List<String> testPatterns = new ArrayList<>();
         testPatterns.add("*.txt");         // Wildcard pattern
         testPatterns.add("node_modules/"); // Directory pattern
         testPatterns.add("config.json");   // Exact match
         testPatterns.add("/logs");         // Path-specific pattern
-        gitignorePatternsField.set(treeBuilderWorker, testPatterns);
-
-        // Test cases
-        // 1. File that matches wildcard pattern
-        VirtualFile txtFile = mock(VirtualFile.class);
-        when(txtFile.getName()).thenReturn("test.txt");
-        when(txtFile.isDirectory()).thenReturn(false);
-        when(txtFile.getPath()).thenReturn("/project/test.txt");
-        boolean shouldIgnoreTxt = (boolean) shouldIgnoreFileMethod.invoke(treeBuilderWorker, txtFile);
-        assertTrue("File matching wildcard pattern should be ignored", shouldIgnoreTxt);
-
-        // 2. Directory that matches directory pattern
-        VirtualFile nodeModulesDir = mock(VirtualFile.class);
-        when(nodeModulesDir.getName()).thenReturn("node_modules");
-        when(nodeModulesDir.isDirectory()).thenReturn(true);
-        when(nodeModulesDir.getPath()).thenReturn("/project/node_modules");
-        boolean shouldIgnoreNodeModules = (boolean) shouldIgnoreFileMethod.invoke(treeBuilderWorker, nodeModulesDir);
-        assertTrue("Directory matching directory pattern should be ignored", shouldIgnoreNodeModules);
-
-        // 3. File that matches exact pattern
-        VirtualFile configFile = mock(VirtualFile.class);
-        when(configFile.getName()).thenReturn("config.json");
-        when(configFile.isDirectory()).thenReturn(false);
-        when(configFile.getPath()).thenReturn("/project/config.json");
-        boolean shouldIgnoreConfig = (boolean) shouldIgnoreFileMethod.invoke(treeBuilderWorker, configFile);
-        assertTrue("File matching exact pattern should be ignored", shouldIgnoreConfig);
-
-        // 4. File that matches path-specific pattern
-        VirtualFile logsFile = mock(VirtualFile.class);
-        when(logsFile.getName()).thenReturn("logs");
-        when(logsFile.isDirectory()).thenReturn(true);
-        when(logsFile.getPath()).thenReturn("/project/logs");
-        boolean shouldIgnoreLogs = (boolean) shouldIgnoreFileMethod.invoke(treeBuilderWorker, logsFile);
-        assertTrue("File matching path-specific pattern should be ignored", shouldIgnoreLogs);
-
-        // 5. File that doesn't match any pattern
-        VirtualFile regularFile = mock(VirtualFile.class);
-        when(regularFile.getName()).thenReturn("regular.java");
-        when(regularFile.isDirectory()).thenReturn(false);
-        when(regularFile.getPath()).thenReturn("/project/regular.java");
-        boolean shouldIgnoreRegular = (boolean) shouldIgnoreFileMethod.invoke(treeBuilderWorker, regularFile);
-        assertFalse("File not matching any pattern should not be ignored", shouldIgnoreRegular);
+        GitignoreRules rootRules = GitignoreRules.EMPTY.withPatterns("", testPatterns);
+
+        assertTrue("File matching wildcard pattern should be ignored",
+                TreeViewPanel.isGitignored("test.txt", false, "", rootRules));
+        assertTrue("Directory matching directory pattern should be ignored",
+                TreeViewPanel.isGitignored("node_modules", true, "", rootRules));
+        assertFalse("File matching directory pattern should not be ignored",
+                TreeViewPanel.isGitignored("node_modules", false, "", rootRules));
+        assertTrue("File matching exact pattern should be ignored",
+                TreeViewPanel.isGitignored("config.json", false, "", rootRules));
+        assertTrue("File matching path-specific pattern should be ignored",
+                TreeViewPanel.isGitignored("logs", true, "", rootRules));
+        assertFalse("Path-specific pattern should only match at its own level",
+                TreeViewPanel.isGitignored("logs", true, "src", rootRules));
+        assertFalse("File not matching any pattern should not be ignored",
+                TreeViewPanel.isGitignored("regular.java", false, "", rootRules));
+
+        // A nested .gitignore adds its patterns on top of the chain of its parents
+        GitignoreRules srcRules = rootRules.withPatterns("src", List.of("!notes.txt", "generated/"));
+        assertFalse("Negated pattern of a nested .gitignore should win",
+                TreeViewPanel.isGitignored("notes.txt", false, "src", srcRules));
+        assertTrue("Patterns of the parent .gitignore should still apply",
+                TreeViewPanel.isGitignored("other.txt", false, "src", srcRules));
+        assertTrue("Directory pattern of a nested .gitignore should apply",
+                TreeViewPanel.isGitignored("generated", true, "src/main", srcRules));
+        assertFalse("Patterns of a nested .gitignore should not apply beside it",
+                TreeViewPanel.isGitignored("generated", true, "", rootRules));
     }
 
     @Test
-    public void testFindGitIgnore() throws Exception {
-        // Get the TreeBuilderWorker class
-        Class<?> treeBuilderWorkerClass = Class.forName(
-                "com.github.hichemtabtech.jettreemark.toolwindow.TreeViewPanel$TreeBuilderWorker");
-
-        // Create a mock VirtualFile for the root folder
-        VirtualFile mockRootFolder = mock(VirtualFile.class);
-        when(mockRootFolder.getName()).thenReturn("root");
-        when(mockRootFolder.getPath()).thenReturn("/project");
-        when(mockRootFolder.getChildren()).thenReturn(new VirtualFile[0]);
-
-        // Create an instance of TreeBuilderWorker using its constructor
-        Constructor<?> constructor = treeBuilderWorkerClass.getDeclaredConstructor(
-                TreeViewPanel.class, VirtualFile.class);
-        constructor.setAccessible(true);
-        Object treeBuilderWorker = constructor.newInstance(treeViewPanel, mockRootFolder);
-
-        // Use reflection to access the private method
-        Method findGitIgnoreMethod = treeBuilderWorkerClass.getDeclaredMethod(
-                "findGitIgnore", VirtualFile.class, Set.class);
-        findGitIgnoreMethod.setAccessible(true);
-
+    public void testReadPatterns() throws Exception {
         // Create a mock VirtualFile for .gitignore
         VirtualFile mockGitignoreFile = mock(VirtualFile.class);
         when(mockGitignoreFile.isDirectory()).thenReturn(false);
@@ -262,15 +304,11 @@ public class TreeViewPanelTest {
                 gitignoreContent.getBytes(StandardCharsets.UTF_8));
         when(mockGitignoreFile.getInputStream()).thenReturn(gitignoreStream);
 
-        // Create a mock folder that contains the .gitignore file
-        VirtualFile mockFolder = mock(VirtualFile.class);
-        when(mockFolder.findChild(".gitignore")).thenReturn(mockGitignoreFile);
-
-        // Create a set to hold the patterns
-        Set<String> patterns = new HashSet<>();
+        // Create a list to hold the patterns
+        List<String> patterns = new ArrayList<>();
 
         // Call the method
-        findGitIgnoreMethod.invoke(treeBuilderWorker, mockFolder, patterns);
+        GitignoreFiles.readPatterns(mockGitignoreFile, patterns);
 
         // Verify the patterns were correctly loaded
         assertEquals("Should have 5 patterns", 5, patterns.size());
@@ -289,28 +327,7 @@ public class TreeViewPanelTest {
     }
 
     @Test
-    public void testLoadGitignorePatternsForFolder() throws Exception {
-        // Get the TreeBuilderWorker class
-        Class<?> treeBuilderWorkerClass = Class.forName(
-                "com.github.hichemtabtech.jettreemark.toolwindow.TreeViewPanel$TreeBuilderWorker");
-
-        // Create a mock VirtualFile for the root folder
-        VirtualFile mockRootFolder = mock(VirtualFile.class);
-        when(mockRootFolder.getName()).thenReturn("root");
-        when(mockRootFolder.getPath()).thenReturn("/project");
-        when(mockRootFolder.getChildren()).thenReturn(new VirtualFile[0]);
-
-        // Create an instance of TreeBuilderWorker using its constructor
-        Constructor<?> constructor = treeBuilderWorkerClass.getDeclaredConstructor(
-                TreeViewPanel.class, VirtualFile.class);
-        constructor.setAccessible(true);
-        Object treeBuilderWorker = constructor.newInstance(treeViewPanel, mockRootFolder);
-
-        // Use reflection to access the private method
-        Method loadPatternsMethod = treeBuilderWorkerClass.getDeclaredMethod(
-                "loadGitignorePatternsForFolder", VirtualFile.class);
-        loadPatternsMethod.setAccessible(true);
-
+    public void testReadFolderPatterns() throws Exception {
         // Create a mock VirtualFile for .gitignore
         VirtualFile mockGitignoreFile = mock(VirtualFile.class);
         when(mockGitignoreFile.isDirectory()).thenReturn(false);
@@ -327,8 +344,7 @@ public class TreeViewPanelTest {
         when(mockFolder.findChild(".gitignore")).thenReturn(mockGitignoreFile);
 
         // Call the method
-        @SuppressWarnings("unchecked")
-        Set<String> patterns = (Set<String>) loadPatternsMethod.invoke(treeBuilderWorker, mockFolder);
+        List<String> patterns = GitignoreFiles.readFolderPatterns(mockFolder);
 
         // Verify the patterns were correctly loaded
         assertEquals("Should have 3 patterns", 3, patterns.size());
@@ -340,10 +356,9 @@ public class TreeViewPanelTest {
         VirtualFile mockFolderNoGitignore = mock(VirtualFile.class);
         when(mockFolderNoGitignore.findChild(".gitignore")).thenReturn(null);
 
-        @SuppressWarnings("unchecked")
-        Set<String> emptyPatterns = (Set<String>) loadPatternsMethod.invoke(treeBuilderWorker, mockFolderNoGitignore);
+        List<String> emptyPatterns = GitignoreFiles.readFolderPatterns(mockFolderNoGitignore);
 
-        // Verify an empty set is returned
-        assertTrue("Should return an empty set when no .gitignore file exists", emptyPatterns.isEmpty());
+        // Verify an empty list is returned
+        assertTrue("Should return an empty list when no .gitignore file exists", emptyPatterns.isEmpty());
     }
 }